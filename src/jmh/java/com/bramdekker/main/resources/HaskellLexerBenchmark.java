@@ -0,0 +1,69 @@
+package com.bramdekker.main.resources;
+
+import antlr.HaskellLexer;
+import org.antlr.v4.runtime.Token;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how fast HaskellLexer turns the modules of a project into tokens, including the layout
+ * tokens of HaskellBaseLexer. Run it with ./gradlew jmh. To lex another project, build the
+ * benchmarks with ./gradlew jmhJar and pass -p project=<path-to-haskell-project-dir> to the jar.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class HaskellLexerBenchmark {
+  @Param("src/test/resources/haskell-project")
+  public String project;
+
+  private final List<SourceFile> sources = new ArrayList<>();
+
+  /**
+   * Read all Haskell files of the project once, so only lexing is measured.
+   *
+   * @throws IOException if a file cannot be read.
+   */
+  @Setup
+  public void readSources() throws IOException {
+    for (File file : new FileList(project, 1).getHaskellFiles()) {
+      sources.add(SourceFile.read(file));
+    }
+  }
+
+  /**
+   * Lex every module of the project.
+   *
+   * @return the number of tokens, so the work cannot be optimized away.
+   */
+  @Benchmark
+  public long lexProject() {
+    long tokens = 0;
+    for (SourceFile source : sources) {
+      HaskellLexer lexer = new HaskellLexer(source.getCharStream("benchmark"));
+      while (lexer.nextToken().getType() != Token.EOF) {
+        tokens++;
+      }
+    }
+
+    return tokens;
+  }
+}
@@ -29,8 +29,7 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 import org.antlr.v4.runtime.*;
 
-import java.util.Stack;
-import java.util.LinkedList;
+import java.util.Arrays;
 
 public abstract class HaskellBaseLexer extends Lexer {
 
@@ -42,47 +41,25 @@ public abstract class HaskellBaseLexer extends Lexer {
     setChannel(HIDDEN);
   }
 
-  public class Pair<L, R> {
-    private final L left;
-    private final R right;
-
-    public Pair(L left, R right) {
-      this.left = left;
-      this.right = right;
-    }
-
-    public L first() {
-      return left;
-    }
-
-    public R second() {
-      return right;
-    }
-
-    @Override
-    public int hashCode() {
-      return left.hashCode() ^ right.hashCode();
-    }
-
-    @Override
-    public boolean equals(Object o) {
-      if (!(o instanceof Pair)) return false;
-      Pair pairo = (Pair) o;
-      return this.left.equals(pairo.first()) && this.right.equals(pairo.second());
-    }
-  }
+  // nextToken runs once per token, so the layout state is kept in primitive arrays: the stack of
+  // layout blocks stores the token type of the keyword that opened a block and the indent of the
+  // block, and the queue of extra tokens is a ring buffer.
 
   boolean pendingDent = true;
 
   // Current indent
   private int indentCount = 0;
-  // A queue where extra tokens are pushed on
-  private LinkedList<Token> tokenQueue = new LinkedList<>();
+  // A ring buffer where extra tokens are pushed on; its length is a power of two
+  private Token[] tokenQueue = new Token[16];
+  private int queueHead = 0;
+  private int queueSize = 0;
   // The stack that keeps key word and indent after that
-  private Stack<Pair<String, Integer>> indentStack = new Stack<>();
+  private int[] keyWordStack = new int[16];
+  private int[] indentStack = new int[16];
+  private int stackSize = 0;
   // Pointer keeps last indent token
   private Token initialIndentToken = null;
-  private String lastKeyWord = "";
+  private int lastKeyWord = Token.INVALID_TYPE;
 
   private boolean prevWasEndl = false;
   private boolean prevWasKeyWord = false;
@@ -122,7 +99,59 @@ public abstract class HaskellBaseLexer extends Lexer {
   }
 
   private int getSavedIndent() {
-    return indentStack.empty() ? startIndent : indentStack.peek().second();
+    return stackSize == 0 ? startIndent : indentStack[stackSize - 1];
+  }
+
+  private boolean topKeyWordIs(int type) {
+    return stackSize > 0 && keyWordStack[stackSize - 1] == type;
+  }
+
+  private void pushLayout(int keyWord, int indent) {
+    if (stackSize == indentStack.length) {
+      keyWordStack = Arrays.copyOf(keyWordStack, stackSize * 2);
+      indentStack = Arrays.copyOf(indentStack, stackSize * 2);
+    }
+    keyWordStack[stackSize] = keyWord;
+    indentStack[stackSize] = indent;
+    stackSize++;
+  }
+
+  private void popLayout() {
+    stackSize--;
+  }
+
+  private void offer(Token token) {
+    if (queueSize == tokenQueue.length) {
+      Token[] grown = new Token[queueSize * 2];
+      for (int i = 0; i < queueSize; i++) {
+        grown[i] = tokenQueue[(queueHead + i) & (tokenQueue.length - 1)];
+      }
+      tokenQueue = grown;
+      queueHead = 0;
+    }
+    tokenQueue[(queueHead + queueSize) & (tokenQueue.length - 1)] = token;
+    queueSize++;
+  }
+
+  private Token poll() {
+    Token token = tokenQueue[queueHead];
+    tokenQueue[queueHead] = null;
+    queueHead = (queueHead + 1) & (tokenQueue.length - 1);
+    queueSize--;
+    return token;
+  }
+
+  private void offerLayoutToken(int type, Token next) {
+    switch (type) {
+      case HaskellLexer.SEMI -> offer(createToken(type, "SEMI", next));
+      case HaskellLexer.VOCURLY -> offer(createToken(type, "VOCURLY", next));
+      default -> offer(createToken(type, "VCCURLY", next));
+    }
+  }
+
+  private void closeBlock(Token next) {
+    offerLayoutToken(HaskellLexer.SEMI, next);
+    offerLayoutToken(HaskellLexer.VCCURLY, next);
   }
 
   private CommonToken createToken(int type, String text, Token next) {
@@ -137,18 +166,16 @@ public abstract class HaskellBaseLexer extends Lexer {
   }
 
   private void processINToken(Token next) {
-    while (!indentStack.empty() && !indentStack.peek().first().equals("let")) {
-      tokenQueue.offer(createToken(HaskellLexer.SEMI, "SEMI", next));
-      tokenQueue.offer(createToken(HaskellLexer.VCCURLY, "VCCURLY", next));
+    while (stackSize > 0 && !topKeyWordIs(HaskellLexer.LET)) {
+      closeBlock(next);
       nestedLevel--;
-      indentStack.pop();
+      popLayout();
     }
 
-    if (!indentStack.empty() && indentStack.peek().first().equals("let")) {
-      tokenQueue.offer(createToken(HaskellLexer.SEMI, "SEMI", next));
-      tokenQueue.offer(createToken(HaskellLexer.VCCURLY, "VCCURLY", next));
+    if (topKeyWordIs(HaskellLexer.LET)) {
+      closeBlock(next);
       nestedLevel--;
-      indentStack.pop();
+      popLayout();
     }
   }
 
@@ -158,72 +185,84 @@ public abstract class HaskellBaseLexer extends Lexer {
       initialIndentToken = next;
     }
 
-    while (nestedLevel > indentStack.size()) {
+    while (nestedLevel > stackSize) {
       if (nestedLevel > 0) nestedLevel--;
 
-      tokenQueue.offer(createToken(HaskellLexer.SEMI, "SEMI", next));
-      tokenQueue.offer(createToken(HaskellLexer.VCCURLY, "VCCURLY", next));
+      closeBlock(next);
     }
 
     while (indentCount < getSavedIndent()) {
-      if (!indentStack.empty() && nestedLevel > 0) {
-        indentStack.pop();
+      if (stackSize > 0 && nestedLevel > 0) {
+        popLayout();
         nestedLevel--;
       }
 
-      tokenQueue.offer(createToken(HaskellLexer.SEMI, "SEMI", next));
-      tokenQueue.offer(createToken(HaskellLexer.VCCURLY, "VCCURLY", next));
+      closeBlock(next);
     }
 
     if (indentCount == getSavedIndent()) {
-      tokenQueue.offer(createToken(HaskellLexer.SEMI, "SEMI", next));
+      offerLayoutToken(HaskellLexer.SEMI, next);
     }
 
     if (wasModuleExport) {
-      tokenQueue.offer(createToken(HaskellLexer.VCCURLY, "VCCURLY", next));
+      offerLayoutToken(HaskellLexer.VCCURLY, next);
     }
 
     startIndent = -1;
   }
 
+  private static boolean isLayoutKeyWord(int type) {
+    return type == HaskellLexer.WHERE
+        || type == HaskellLexer.LET
+        || type == HaskellLexer.DO
+        || type == HaskellLexer.MDO
+        || type == HaskellLexer.OF
+        || type == HaskellLexer.LCASE
+        || type == HaskellLexer.REC;
+  }
+
   // Algorithm's description here:
   // https://www.haskell.org/onlinereport/haskell2010/haskellch10.html
   // https://en.wikibooks.org/wiki/Haskell/Indentation
   @Override
   public Token nextToken() {
-    if (!tokenQueue.isEmpty()) {
-      return tokenQueue.poll();
+    if (queueSize > 0) {
+      return poll();
     }
 
     Token next = super.nextToken();
     int type = next.getType();
 
+    // Comments used to be skipped, so they must not take part in the layout algorithm.
+    if (type == HaskellLexer.COMMENT || type == HaskellLexer.NCOMMENT) {
+      return next;
+    }
+
+    boolean isWhitespace =
+        type == HaskellLexer.NEWLINE || type == HaskellLexer.WS || type == HaskellLexer.TAB;
+
     if (type == HaskellLexer.OpenPragmaBracket) {
       inPragmas = true;
     }
 
-    if (startIndent == -1
-        && type != HaskellLexer.NEWLINE
-        && type != HaskellLexer.WS
-        && type != HaskellLexer.TAB
-        && type != HaskellLexer.OCURLY) {
+    if (startIndent == -1 && !isWhitespace && type != HaskellLexer.OCURLY) {
       if (type == HaskellLexer.MODULE) {
         moduleStartIndent = true;
         wasModuleExport = true;
       }
       if (type != HaskellLexer.MODULE && !moduleStartIndent && !inPragmas) {
         startIndent = next.getCharPositionInLine();
-      } else if (lastKeyWord.equals("where") && moduleStartIndent) {
-        lastKeyWord = "";
+      } else if (lastKeyWord == HaskellLexer.WHERE && moduleStartIndent) {
+        lastKeyWord = Token.INVALID_TYPE;
         prevWasKeyWord = false;
         nestedLevel = 0;
         moduleStartIndent = false;
         prevWasEndl = false;
         startIndent = next.getCharPositionInLine();
-        tokenQueue.offer(createToken(HaskellLexer.VOCURLY, "VOCURLY", next));
-        tokenQueue.offer(createToken(type, next.getText(), next));
+        offerLayoutToken(HaskellLexer.VOCURLY, next);
+        offer(createToken(type, next.getText(), next));
 
-        return tokenQueue.poll();
+        return poll();
       }
     }
 
@@ -250,24 +289,14 @@ public abstract class HaskellBaseLexer extends Lexer {
     if (prevWasKeyWord
         && !prevWasEndl
         && !moduleStartIndent
-        && type != HaskellLexer.WS
-        && type != HaskellLexer.NEWLINE
-        && type != HaskellLexer.TAB
+        && !isWhitespace
         && type != HaskellLexer.OCURLY) {
       prevWasKeyWord = false;
-      indentStack.push(new Pair<String, Integer>(lastKeyWord, next.getCharPositionInLine()));
-      tokenQueue.offer(createToken(HaskellLexer.VOCURLY, "VOCURLY", next));
-    }
-
-    if (ignoreIndent
-        && (type == HaskellLexer.WHERE
-            || type == HaskellLexer.DO
-            || type == HaskellLexer.MDO
-            || type == HaskellLexer.LET
-            || type == HaskellLexer.OF
-            || type == HaskellLexer.LCASE
-            || type == HaskellLexer.REC
-            || type == HaskellLexer.CCURLY)) {
+      pushLayout(lastKeyWord, next.getCharPositionInLine());
+      offerLayoutToken(HaskellLexer.VOCURLY, next);
+    }
+
+    if (ignoreIndent && (isLayoutKeyWord(type) || type == HaskellLexer.CCURLY)) {
       ignoreIndent = false;
     }
 
@@ -278,7 +307,7 @@ public abstract class HaskellBaseLexer extends Lexer {
         && type != HaskellLexer.NEWLINE
         && type != HaskellLexer.WS) {
 
-      tokenQueue.offer(createToken(HaskellLexer.VOCURLY, "VOCURLY", next));
+      offerLayoutToken(HaskellLexer.VOCURLY, next);
       prevWasKeyWord = false;
       prevWasEndl = true;
     }
@@ -299,25 +328,23 @@ public abstract class HaskellBaseLexer extends Lexer {
         && type != HaskellLexer.CCURLY
         && type != EOF) {
 
-      while (nestedLevel > indentStack.size()) {
+      while (nestedLevel > stackSize) {
         if (nestedLevel > 0) nestedLevel--;
 
-        tokenQueue.offer(createToken(HaskellLexer.SEMI, "SEMI", next));
-        tokenQueue.offer(createToken(HaskellLexer.VCCURLY, "VCCURLY", next));
+        closeBlock(next);
       }
 
       while (indentCount < getSavedIndent()) {
-        if (!indentStack.empty() && nestedLevel > 0) {
-          indentStack.pop();
+        if (stackSize > 0 && nestedLevel > 0) {
+          popLayout();
           nestedLevel--;
         }
 
-        tokenQueue.offer(createToken(HaskellLexer.SEMI, "SEMI", next));
-        tokenQueue.offer(createToken(HaskellLexer.VCCURLY, "VCCURLY", next));
+        closeBlock(next);
       }
 
       if (indentCount == getSavedIndent()) {
-        tokenQueue.offer(createToken(HaskellLexer.SEMI, "SEMI", next));
+        offerLayoutToken(HaskellLexer.SEMI, next);
       }
 
       prevWasEndl = false;
@@ -338,51 +365,41 @@ public abstract class HaskellBaseLexer extends Lexer {
       prevWasKeyWord = false;
 
       if (prevWasEndl) {
-        indentStack.push(new Pair<String, Integer>(lastKeyWord, indentCount));
+        pushLayout(lastKeyWord, indentCount);
         prevWasEndl = false;
       }
 
-      tokenQueue.offer(createToken(HaskellLexer.VOCURLY, "VOCURLY", next));
+      offerLayoutToken(HaskellLexer.VOCURLY, next);
     }
 
     if (pendingDent && initialIndentToken == null && HaskellLexer.NEWLINE != type) {
       initialIndentToken = next;
     }
 
-    if (next != null && type == HaskellLexer.NEWLINE) {
+    if (type == HaskellLexer.NEWLINE) {
       prevWasEndl = true;
     }
 
-    if (type == HaskellLexer.WHERE
-        || type == HaskellLexer.LET
-        || type == HaskellLexer.DO
-        || type == HaskellLexer.MDO
-        || type == HaskellLexer.OF
-        || type == HaskellLexer.LCASE
-        || type == HaskellLexer.REC) {
+    if (isLayoutKeyWord(type)) {
       // if next will be HaskellLexer.OCURLY need to decrement nestedLevel
       nestedLevel++;
       prevWasKeyWord = true;
       prevWasEndl = false;
-      lastKeyWord = next.getText();
-
-      if (type == HaskellLexer.WHERE) {
-        if (!indentStack.empty()
-            && (indentStack.peek().first().equals("do")
-                || indentStack.peek().first().equals("mdo"))) {
-          tokenQueue.offer(createToken(HaskellLexer.SEMI, "SEMI", next));
-          tokenQueue.offer(createToken(HaskellLexer.VCCURLY, "VCCURLY", next));
-          indentStack.pop();
-          nestedLevel--;
-        }
+      lastKeyWord = type;
+
+      if (type == HaskellLexer.WHERE
+          && (topKeyWordIs(HaskellLexer.DO) || topKeyWordIs(HaskellLexer.MDO))) {
+        closeBlock(next);
+        popLayout();
+        nestedLevel--;
       }
     }
 
-    if (next != null && type == HaskellLexer.OCURLY) {
+    if (type == HaskellLexer.OCURLY) {
       prevWasKeyWord = false;
     }
 
-    if (next == null || HIDDEN == next.getChannel() || HaskellLexer.NEWLINE == type) {
+    if (HIDDEN == next.getChannel() || HaskellLexer.NEWLINE == type) {
       return next;
     }
 
@@ -395,8 +412,12 @@ public abstract class HaskellBaseLexer extends Lexer {
     }
 
     pendingDent = true;
-    tokenQueue.offer(next);
+    if (queueSize == 0) {
+      return next;
+    }
+
+    offer(next);
 
-    return tokenQueue.poll();
+    return poll();
   }
 }
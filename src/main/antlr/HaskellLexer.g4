@@ -191,8 +191,10 @@ ClosePragmaBracket: '#-}';
 // MultiLineMacro : '#' (~ [\n]*? '\\' '\r'? '\n')+ ~ [\n]+ -> skip;
 // Directive : '#' ~ [\n]* -> skip;
 
-COMMENT  : '--' (~[\r\n])* -> skip;
-NCOMMENT : '{-'~[#] .*? '-}' -> skip;
+// Comments are kept on the hidden channel for the token based metrics of --fast. The parser only
+// reads the default channel, so it never sees them.
+COMMENT  : '--' (~[\r\n])* -> channel(HIDDEN);
+NCOMMENT : '{-'~[#] .*? '-}' -> channel(HIDDEN);
 
 OCURLY : '{';
 CCURLY : '}';
@@ -1,10 +1,14 @@
 package com.bramdekker.main;
 
+import com.bramdekker.main.batch.BatchRunner;
 import com.bramdekker.main.configuration.Configuration;
 import com.bramdekker.main.exceptions.InvalidCommandException;
 import com.bramdekker.main.exceptions.InvalidPathnameException;
 import com.bramdekker.main.report.Report;
+import com.bramdekker.main.resources.FileList;
+import com.bramdekker.main.session.AnalysisSession;
 import com.bramdekker.main.validator.Validator;
+import com.bramdekker.main.watcher.Watcher;
 
 /**
  * All code in this repository follows the Google Java style (<a
@@ -21,7 +25,8 @@ public class Main {
     // Maybe use flags for help and/or turning on/off certain metrics.
     try {
       // Check if program is invoked correctly and if given pathname points to a Haskell project.
-      boolean canContinue = new Validator().validate(args);
+      Validator validator = new Validator();
+      boolean canContinue = validator.validate(args);
       if (!canContinue) {
         return;
       }
@@ -29,9 +34,33 @@ public class Main {
       // Create the configuration object.
       Configuration config = new Configuration(args);
 
+      // Write a report per project and a combined summary.
+      if (config.isBatch()) {
+        new BatchRunner(config).run();
+        return;
+      }
+
+      // Reuse the Haskell files that were found while validating the pathname.
+      FileList fileList =
+          new FileList(config.getPathname(), config.getThreads(), validator.getHaskellFiles());
+      AnalysisSession session = new AnalysisSession(config, fileList);
+
+      // Keep the report up to date while the project is being edited.
+      if (config.isWatch()) {
+        new Watcher(session).watch();
+        return;
+      }
+
       // Create and display report based on configuration.
-      Report report = new Report(config);
+      Report report = new Report(session);
       report.display();
+
+      // Keep the report the same for every run, but tell how many modules needed full LL.
+      if (session.isParsed()) {
+        System.err.printf(
+            "Modules parsed again with full LL prediction: %d%n",
+            session.getParseTreeAnalysis().getLlFallbackCount());
+      }
     } catch (InvalidPathnameException | InvalidCommandException e) {
       System.err.println(e.getMessage());
     } catch (Exception e) {
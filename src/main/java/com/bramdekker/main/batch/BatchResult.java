@@ -0,0 +1,42 @@
+package com.bramdekker.main.batch;
+
+import java.nio.file.Path;
+
+/**
+ * Encapsulates the outcome of analyzing a single project root in batch mode. Either the report
+ * file is set or the error message explains why the project could not be analyzed.
+ */
+public class BatchResult {
+  public final String pathname;
+  public final Path reportFile;
+  public final int numFiles;
+  public final long elapsedMillis;
+  public final String error;
+
+  /**
+   * Constructor that initializes all fields of the class.
+   *
+   * @param pathname the root of the project as given on the command line or in the manifest.
+   * @param reportFile the file the report was written to or null if the analysis failed.
+   * @param numFiles the number of Haskell files in the project.
+   * @param elapsedMillis the time it took to analyze the project in milliseconds.
+   * @param error the reason the analysis failed or null if it succeeded.
+   */
+  public BatchResult(
+      String pathname, Path reportFile, int numFiles, long elapsedMillis, String error) {
+    this.pathname = pathname;
+    this.reportFile = reportFile;
+    this.numFiles = numFiles;
+    this.elapsedMillis = elapsedMillis;
+    this.error = error;
+  }
+
+  /**
+   * Check if the project was analyzed.
+   *
+   * @return true if a report was written; false otherwise.
+   */
+  public boolean succeeded() {
+    return error == null;
+  }
+}
@@ -0,0 +1,232 @@
+package com.bramdekker.main.batch;
+
+import com.bramdekker.main.configuration.Configuration;
+import com.bramdekker.main.exceptions.InvalidPathnameException;
+import com.bramdekker.main.report.Report;
+import com.bramdekker.main.resources.AnalysisCache;
+import com.bramdekker.main.resources.FileList;
+import com.bramdekker.main.session.AnalysisSession;
+import com.bramdekker.main.validator.Validator;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.bramdekker.main.util.MetricPrinter.getMetricString;
+
+/**
+ * Analyzes many Haskell projects in a single run. Every project gets its own AnalysisSession, but
+ * all sessions share one pool of worker threads and one cache, and the parser is only warmed up
+ * once for the whole batch. A report is written per project and a combined summary is written and
+ * printed at the end.
+ */
+public class BatchRunner {
+  private static final String SUMMARY_FILE = "summary.txt";
+  private final Configuration config;
+
+  /**
+   * Constructor that takes as argument a Configuration instance.
+   *
+   * @param config an instance of Configuration.
+   */
+  public BatchRunner(Configuration config) {
+    this.config = config;
+  }
+
+  /**
+   * Analyze every project root and write the reports and the summary to the output directory. A
+   * project that cannot be analyzed is recorded in the summary and does not stop the batch.
+   *
+   * @throws IOException if the manifest cannot be read or the output cannot be written.
+   */
+  public void run() throws IOException {
+    long start = System.nanoTime();
+    List<String> pathnames = getPathnames();
+    Path outputDirectory = Files.createDirectories(Path.of(config.getOutputDirectory()));
+    List<Path> reportFiles = getReportFiles(pathnames, outputDirectory);
+    AnalysisCache cache =
+        config.getCacheDirectory() == null
+            ? null
+            : new AnalysisCache(
+                Path.of(config.getCacheDirectory()), config.getCacheSize() * 1024L * 1024L);
+
+    // The projects wait for their modules on their own threads, so the workers never block.
+    ExecutorService workers = Executors.newFixedThreadPool(config.getThreads());
+    ExecutorService projects =
+        Executors.newFixedThreadPool(Math.max(1, Math.min(config.getThreads(), pathnames.size())));
+    List<BatchResult> results = new ArrayList<>();
+    try {
+      List<Future<BatchResult>> pendingResults = new ArrayList<>();
+      for (int i = 0; i < pathnames.size(); i++) {
+        String pathname = pathnames.get(i);
+        Path reportFile = reportFiles.get(i);
+        pendingResults.add(projects.submit(() -> analyze(pathname, reportFile, workers, cache)));
+      }
+
+      for (Future<BatchResult> result : pendingResults) {
+        results.add(awaitResult(result));
+      }
+    } finally {
+      projects.shutdownNow();
+      workers.shutdownNow();
+    }
+
+    String summary = getSummary(results, getElapsedMillis(start));
+    Files.writeString(outputDirectory.resolve(SUMMARY_FILE), summary);
+    System.out.print(summary);
+  }
+
+  /**
+   * Analyze a single project and write its report.
+   *
+   * @param pathname the root of the project.
+   * @param reportFile the file the report is written to.
+   * @param workers the pool of worker threads shared by all projects.
+   * @param cache the AnalysisCache shared by all projects or null if no cache is used.
+   * @return the BatchResult of the project.
+   */
+  private BatchResult analyze(
+      String pathname, Path reportFile, ExecutorService workers, AnalysisCache cache) {
+    long start = System.nanoTime();
+    int numFiles = 0;
+    try {
+      Validator validator = new Validator(config.getThreads());
+      validator.validatePathname(pathname);
+      FileList fileList = new FileList(pathname, config.getThreads(), validator.getHaskellFiles());
+      AnalysisSession session =
+          new AnalysisSession(
+              fileList,
+              config.getMetrics(),
+              config.getThreads(),
+              workers,
+              cache,
+              config.getParseMode(),
+              config.getParseBudget());
+      numFiles = session.getFileList().getHaskellFiles().size();
+      Files.writeString(reportFile, new Report(session).generate());
+
+      return new BatchResult(pathname, reportFile, numFiles, getElapsedMillis(start), null);
+    } catch (InvalidPathnameException | IOException | RuntimeException e) {
+      return new BatchResult(pathname, null, numFiles, getElapsedMillis(start), e.getMessage());
+    }
+  }
+
+  /**
+   * Get the project roots from the command line and from the manifest. Blank lines and lines
+   * starting with # in the manifest are skipped.
+   *
+   * @return List with the pathname of every project root in the order they were given.
+   * @throws IOException if the manifest cannot be read.
+   */
+  private List<String> getPathnames() throws IOException {
+    List<String> pathnames = new ArrayList<>(config.getPathnames());
+    if (config.getManifest() != null) {
+      for (String line : Files.readAllLines(Path.of(config.getManifest()))) {
+        String pathname = line.strip();
+        if (!pathname.isEmpty() && !pathname.startsWith("#")) {
+          pathnames.add(pathname);
+        }
+      }
+    }
+
+    return pathnames;
+  }
+
+  /**
+   * Get a unique report file for every project root. The file is named after the last part of
+   * the root; roots with the same name get a numbered suffix.
+   *
+   * @param pathnames the project roots.
+   * @param outputDirectory the directory the reports are written to.
+   * @return List with the report file of every project root.
+   */
+  private static List<Path> getReportFiles(List<String> pathnames, Path outputDirectory) {
+    Set<String> usedNames = new HashSet<>(Set.of(SUMMARY_FILE));
+    List<Path> reportFiles = new ArrayList<>();
+    for (String pathname : pathnames) {
+      Path fileName = Path.of(pathname).toAbsolutePath().normalize().getFileName();
+      String baseName = fileName == null ? "root" : fileName.toString();
+      if (baseName.endsWith(".hs")) {
+        baseName = baseName.substring(0, baseName.length() - ".hs".length());
+      }
+      String name = baseName + ".txt";
+      for (int i = 2; !usedNames.add(name); i++) {
+        name = baseName + "-" + i + ".txt";
+      }
+      reportFiles.add(outputDirectory.resolve(name));
+    }
+
+    return reportFiles;
+  }
+
+  /**
+   * Generate the combined summary of all projects in the batch.
+   *
+   * @param results the BatchResult of every project.
+   * @param elapsedMillis the time it took to run the whole batch in milliseconds.
+   * @return a String containing the summary.
+   */
+  private static String getSummary(List<BatchResult> results, long elapsedMillis) {
+    long numFailed = results.stream().filter(result -> !result.succeeded()).count();
+    long numFiles = results.stream().mapToLong(result -> result.numFiles).sum();
+
+    StringBuilder summary = new StringBuilder("Batch summary:\n");
+    summary.append(getMetricString("Projects analyzed", results.size() - numFailed));
+    summary.append(getMetricString("Projects failed", numFailed));
+    summary.append(getMetricString("Haskell files", numFiles));
+    summary.append(getMetricString("Total time (ms)", elapsedMillis));
+    summary.append("\n");
+
+    for (BatchResult result : results) {
+      String outcome =
+          result.succeeded()
+              ? String.format(
+                  "%d files, %d ms, %s", result.numFiles, result.elapsedMillis, result.reportFile)
+              : "failed: " + result.error;
+      summary.append(getMetricString(result.pathname, outcome));
+    }
+
+    return summary.toString();
+  }
+
+  /**
+   * Wait for a project to be analyzed.
+   *
+   * @param result the pending result of analyze.
+   * @return the BatchResult once it is available.
+   * @throws IOException if the batch was interrupted.
+   */
+  private static BatchResult awaitResult(Future<BatchResult> result) throws IOException {
+    try {
+      return result.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Analyzing the Haskell projects was interrupted!");
+    } catch (ExecutionException e) {
+      // analyze catches every exception itself, so only errors end up here.
+      if (e.getCause() instanceof Error error) {
+        throw error;
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  /**
+   * Get the time since the start of an analysis.
+   *
+   * @param start the value of System.nanoTime at the start.
+   * @return the elapsed time in milliseconds.
+   */
+  private static long getElapsedMillis(long start) {
+    return (System.nanoTime() - start) / 1_000_000;
+  }
+}
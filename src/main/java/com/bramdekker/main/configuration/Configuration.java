@@ -2,6 +2,8 @@ package com.bramdekker.main.configuration;
 
 import com.bramdekker.main.exceptions.InvalidCommandException;
 import com.bramdekker.main.metrics.MetricType;
+import com.bramdekker.main.resources.ParseBudget;
+import com.bramdekker.main.resources.ParseMode;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -14,8 +16,22 @@ import static com.bramdekker.main.metrics.MetricType.*;
  */
 public class Configuration {
   private static final List<MetricType> allMetrics = Arrays.asList(MetricType.values());
+  private static final List<MetricType> fastMetrics = List.of(SIZE, HALSTEAD, READABILITY);
+  private static final String threadsFlag = "--threads=";
   private final List<MetricType> metrics = new ArrayList<>();
   private final String pathname;
+  private final List<String> pathnames = new ArrayList<>();
+  private int threads = Runtime.getRuntime().availableProcessors();
+  private String cacheDirectory = null;
+  private int cacheSize = 256;
+  private boolean watch = false;
+  private boolean batch = false;
+  private boolean fast = false;
+  private boolean profileParser = false;
+  private int parseTimeout = 0;
+  private int maxTokens = 0;
+  private String manifest = null;
+  private String outputDirectory = "reports";
 
   /**
    * Constructor that takes all command line arguments as parameter. It initializes the directory
@@ -29,8 +45,14 @@ public class Configuration {
     // validator.
     this.pathname = args[args.length - 1];
 
-    // Fill the list with metrics according to the flags set.
-    for (int i = 0; i < args.length - 1; i++) {
+    // Fill the list with metrics according to the flags set. In batch mode every argument that is
+    // not a flag is a pathname.
+    for (int i = 0; i < args.length; i++) {
+      if (!args[i].startsWith("-")) {
+        this.pathnames.add(args[i]);
+        continue;
+      }
+
       switch (args[i]) {
         case "-sz" -> this.metrics.add(SIZE);
         case "-rc" -> this.metrics.add(RECURSION);
@@ -39,14 +61,97 @@ public class Configuration {
         case "-h" -> this.metrics.add(HALSTEAD);
         case "-st" -> this.metrics.add(STRUCTURAL);
         case "-c" -> this.metrics.add(CALLGRAPH);
-        default -> throw new InvalidCommandException("Unknown flag used!");
+        case "--watch" -> this.watch = true;
+        case "--batch" -> this.batch = true;
+        case "--fast" -> this.fast = true;
+        case "--profile-parser" -> this.profileParser = true;
+        default -> parseOption(args[i]);
       }
     }
 
-    // If no flags are set, then just calculate all metrics.
+    // If no flags are set, then just calculate all metrics that can be calculated.
     if (metrics.size() == 0) {
-      this.metrics.addAll(allMetrics);
+      this.metrics.addAll(fast ? fastMetrics : allMetrics);
+    }
+
+    if (fast && !fastMetrics.containsAll(metrics)) {
+      throw new InvalidCommandException("--fast can only be combined with -sz, -rd and -h!");
+    }
+
+    if (fast && profileParser) {
+      throw new InvalidCommandException("--fast does not parse, so it cannot be profiled!");
+    }
+  }
+
+  /**
+   * Parse a flag that carries a value, e.g. --threads=4.
+   *
+   * @param arg the command line argument containing the flag and its value.
+   * @throws InvalidCommandException when the flag is unknown or its value is invalid.
+   */
+  private void parseOption(String arg) throws InvalidCommandException {
+    if (arg.startsWith(threadsFlag)) {
+      this.threads = parsePositiveInt(arg.substring(threadsFlag.length()));
+    } else if (arg.startsWith("--cache=") && arg.length() > "--cache=".length()) {
+      this.cacheDirectory = arg.substring("--cache=".length());
+    } else if (arg.startsWith("--cache-size=")) {
+      this.cacheSize = parsePositiveInt(arg.substring("--cache-size=".length()));
+    } else if (arg.startsWith("--parse-timeout=")) {
+      this.parseTimeout = parsePositiveInt(arg.substring("--parse-timeout=".length()));
+    } else if (arg.startsWith("--max-tokens=")) {
+      this.maxTokens = parsePositiveInt(arg.substring("--max-tokens=".length()));
+    } else if (arg.startsWith("--manifest=") && arg.length() > "--manifest=".length()) {
+      this.manifest = arg.substring("--manifest=".length());
+      this.batch = true;
+    } else if (arg.startsWith("--output=") && arg.length() > "--output=".length()) {
+      this.outputDirectory = arg.substring("--output=".length());
+    } else {
+      throw new InvalidCommandException("Unknown flag used!");
+    }
+  }
+
+  /**
+   * Get the number of threads of the --threads flag without parsing the other flags, e.g. to search
+   * the project directory before the Configuration is created. The value is checked in the same
+   * way as by the constructor.
+   *
+   * @param args String array containing all command line arguments.
+   * @param defaultThreads the number of threads if there is no --threads flag.
+   * @return the value of the last --threads flag or defaultThreads.
+   * @throws InvalidCommandException when the value of a --threads flag is not a positive integer.
+   */
+  public static int parseThreads(String[] args, int defaultThreads)
+      throws InvalidCommandException {
+    int threads = defaultThreads;
+    for (String arg : args) {
+      if (arg.startsWith(threadsFlag)) {
+        threads = parsePositiveInt(arg.substring(threadsFlag.length()));
+      }
+    }
+
+    return threads;
+  }
+
+  /**
+   * Parse the value of a flag as a positive integer.
+   *
+   * @param value the value of the flag as String.
+   * @return the parsed value.
+   * @throws InvalidCommandException when the value is not a positive integer.
+   */
+  private static int parsePositiveInt(String value) throws InvalidCommandException {
+    int parsed;
+    try {
+      parsed = Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      throw new InvalidCommandException("Flag value must be a positive integer!");
+    }
+
+    if (parsed < 1) {
+      throw new InvalidCommandException("Flag value must be a positive integer!");
     }
+
+    return parsed;
   }
 
   /**
@@ -66,4 +171,118 @@ public class Configuration {
   public List<MetricType> getMetrics() {
     return metrics;
   }
+
+  /**
+   * Getter for the threads variable.
+   *
+   * @return the number of worker threads used to parse the Haskell files.
+   */
+  public int getThreads() {
+    return threads;
+  }
+
+  /**
+   * Getter for the cacheDirectory variable.
+   *
+   * @return the directory of the analysis cache or null if no cache is used.
+   */
+  public String getCacheDirectory() {
+    return cacheDirectory;
+  }
+
+  /**
+   * Getter for the cacheSize variable.
+   *
+   * @return the maximum size of the analysis cache in megabytes.
+   */
+  public int getCacheSize() {
+    return cacheSize;
+  }
+
+  /**
+   * Getter for the watch variable.
+   *
+   * @return true if the report must be updated after every change to the project; false otherwise.
+   */
+  public boolean isWatch() {
+    return watch;
+  }
+
+  /**
+   * Getter for the fast variable.
+   *
+   * @return true if the metrics are calculated from the tokens without parsing; false otherwise.
+   */
+  public boolean isFast() {
+    return fast;
+  }
+
+  /**
+   * Getter for the profileParser variable.
+   *
+   * @return true if the decisions of the parser are profiled; false otherwise.
+   */
+  public boolean isProfileParser() {
+    return profileParser;
+  }
+
+  /**
+   * Get the way in which the modules are analyzed according to the flags.
+   *
+   * @return the ParseMode of the fast and profile flags.
+   */
+  public ParseMode getParseMode() {
+    if (fast) {
+      return ParseMode.FAST;
+    } else if (profileParser) {
+      return ParseMode.PROFILE;
+    }
+
+    return ParseMode.FULL;
+  }
+
+  /**
+   * Get the budget of the parser per module according to the parse-timeout and max-tokens flags.
+   *
+   * @return the ParseBudget with the limits that were set; limits that were not set are 0.
+   */
+  public ParseBudget getParseBudget() {
+    return new ParseBudget(parseTimeout, maxTokens);
+  }
+
+  /**
+   * Getter for the pathnames variable.
+   *
+   * @return a List with every argument that is not a flag, i.e. the roots analyzed in batch mode.
+   */
+  public List<String> getPathnames() {
+    return pathnames;
+  }
+
+  /**
+   * Getter for the batch variable.
+   *
+   * @return true if every pathname gets its own report; false otherwise.
+   */
+  public boolean isBatch() {
+    return batch;
+  }
+
+  /**
+   * Getter for the manifest variable.
+   *
+   * @return the file with a project root per line or null if no manifest is used.
+   */
+  public String getManifest() {
+    return manifest;
+  }
+
+  /**
+   * Getter for the outputDirectory variable.
+   *
+   * @return the directory the reports are written to in batch mode.
+   */
+  public String getOutputDirectory() {
+    return outputDirectory;
+  }
 }
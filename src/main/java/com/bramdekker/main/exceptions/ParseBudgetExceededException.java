@@ -0,0 +1,10 @@
+package com.bramdekker.main.exceptions;
+
+/** Custom exception for modules that take too long or have too many tokens to be parsed. */
+public class ParseBudgetExceededException extends RuntimeException {
+  private static final long serialVersionUID = 1L;
+
+  public ParseBudgetExceededException(String message) {
+    super("ParseBudgetExceededException: " + message);
+  }
+}
@@ -1,12 +1,11 @@
 package com.bramdekker.main.metrics;
 
 import com.bramdekker.main.resources.CallGraph;
-import org.jgrapht.Graph;
-import org.jgrapht.alg.connectivity.KosarajuStrongConnectivityInspector;
-import org.jgrapht.alg.interfaces.StrongConnectivityAlgorithm;
-import org.jgrapht.graph.DefaultEdge;
-import org.jgrapht.graph.DirectedPseudograph;
-import org.jgrapht.graph.SimpleGraph;
+import com.bramdekker.main.resources.CompactGraph;
+import com.bramdekker.main.resources.StronglyConnectedComponents;
+import com.bramdekker.main.session.AnalysisSession;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.jgrapht.graph.SimpleWeightedGraph;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -20,25 +19,35 @@ import static com.bramdekker.main.util.MetricPrinter.getMetricString;
 // Arc-to-node ratio, depth and width oo subgraph of function
 /** Collection of methods that determine callgraph metrics. */
 public class Callgraph {
-  private static final List<CallgraphMetric> dataPerFunction = new ArrayList<>();
-  private static long numFunctions;
-  private static long internalReuse = 0;
-  private static double avgScss = 0.0;
-  private static long maxScss = 0;
-  private static String maxScssName = "";
-  private static double avgIndegree = 0.0;
-  private static long maxIndegree = 0;
-  private static String maxIndegreeName = "";
-  private static double avgOutdegree = 0.0;
-  private static long maxOutdegree = 0;
-  private static String maxOutdegreeName = "";
+  private final AnalysisSession session;
+  private final List<CallgraphMetric> dataPerFunction = new ArrayList<>();
+  private long numFunctions;
+  private long internalReuse = 0;
+  private double avgScss = 0.0;
+  private long maxScss = 0;
+  private String maxScssName = "";
+  private double avgIndegree = 0.0;
+  private long maxIndegree = 0;
+  private String maxIndegreeName = "";
+  private double avgOutdegree = 0.0;
+  private long maxOutdegree = 0;
+  private String maxOutdegreeName = "";
+
+  /**
+   * Constructor that sets the session of which the callgraph metrics are calculated.
+   *
+   * @param session the AnalysisSession that owns the resources of the analyzed project.
+   */
+  public Callgraph(AnalysisSession session) {
+    this.session = session;
+  }
 
   /**
    * Generate the section for callgraph metrics.
    *
    * @return a report section containing information about callgraph metrics as String.
    */
-  public static String getSection() throws IOException {
+  public String getSection() throws IOException {
     collectFunctionData();
     calculateMetrics();
 
@@ -65,32 +74,28 @@ public class Callgraph {
    *
    * @throws IOException when a file in the FileList resource cannot be found.
    */
-  private static void collectFunctionData() throws IOException {
-    DirectedPseudograph<String, DefaultEdge> callgraph = CallGraph.getInstance().getGraph();
-    numFunctions = callgraph.vertexSet().size();
-
-    StrongConnectivityAlgorithm<String, DefaultEdge> scAlg =
-        new KosarajuStrongConnectivityInspector<>(callgraph);
-    List<Graph<String, DefaultEdge>> stronglyConnectedSubgraphs =
-        scAlg.getStronglyConnectedComponents();
-
-    for (Graph<String, DefaultEdge> stronglyConnectedSubgraph : stronglyConnectedSubgraphs) {
-      long curScss = stronglyConnectedSubgraph.vertexSet().size();
-
-      for (String v : stronglyConnectedSubgraph.vertexSet()) {
-        dataPerFunction.add(
-            new CallgraphMetric(v, curScss, callgraph.inDegreeOf(v), callgraph.outDegreeOf(v)));
-      }
+  private void collectFunctionData() throws IOException {
+    CallGraph callGraph = session.getCallGraph();
+    CompactGraph callgraph = callGraph.getGraph();
+    StronglyConnectedComponents components = callGraph.getComponents();
+    numFunctions = callgraph.getVertexCount();
+
+    for (int v = 0; v < callgraph.getVertexCount(); v++) {
+      long curScss = components.getSize(components.getComponent(v));
+      dataPerFunction.add(
+          new CallgraphMetric(
+              callgraph.getName(v), curScss, callgraph.getInDegree(v), callgraph.getOutDegree(v)));
     }
   }
 
   /**
-   * Calculate all callgraph metrics and store them as static variables.
+   * Calculate all callgraph metrics and store them as fields.
    *
    * @throws IOException when a file in the FileList resource cannot be found.
    */
-  private static void calculateMetrics() throws IOException {
-    SimpleGraph<String, DefaultEdge> moduleGraph = CallGraph.getInstance().getModuleGraph();
+  private void calculateMetrics() throws IOException {
+    SimpleWeightedGraph<String, DefaultWeightedEdge> moduleGraph =
+        session.getCallGraph().getModuleGraph();
     internalReuse = moduleGraph.edgeSet().size() - moduleGraph.vertexSet().size() + 1;
 
     for (CallgraphMetric m : dataPerFunction) {
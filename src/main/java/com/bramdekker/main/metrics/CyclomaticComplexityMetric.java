@@ -1,10 +1,13 @@
 package com.bramdekker.main.metrics;
 
+import java.io.Serializable;
+
 /**
  * Class that encapsulates all info needed for cyclomatic complexity of a function and the number
  * of operators and operadns of it.
  */
-public class CyclomaticComplexityMetric {
+public class CyclomaticComplexityMetric implements Serializable {
+  private static final long serialVersionUID = 1L;
   private long numBranches = 0;
   private long numOperators = 0;
   private long numOperands = 0;
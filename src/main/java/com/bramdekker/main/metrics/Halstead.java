@@ -4,16 +4,15 @@ package com.bramdekker.main.metrics;
 // - Halstead vocabulary: number of unique operators + number of unique operands
 // - Halstead volume: N * log2(u)
 
-import com.bramdekker.main.resources.FileList;
-import com.bramdekker.main.resources.HaskellParseTree;
-import com.bramdekker.main.util.HalsteadVisitor;
-import org.antlr.v4.runtime.tree.ParseTree;
+import com.bramdekker.main.resources.ModuleSummary;
+import com.bramdekker.main.session.AnalysisSession;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static com.bramdekker.main.util.MathUtil.logN;
@@ -21,20 +20,30 @@ import static com.bramdekker.main.util.MetricPrinter.getMetricString;
 
 /** Collection of methods that determine halstead metrics. */
 public class Halstead {
-  private static final List<HalsteadFileMetric> dataPerFile = new ArrayList<>();
-
-  private static long halsteadLength = 0;
-  private static long halsteadVocabulary = 0;
-  private static double halsteadVolume = 0;
-  private static double avgHalsteadLength = 0;
-  private static long maxHalsteadLength = 0;
-  private static String maxHalsteadLengthName = "";
-  private static double avgHalsteadVocabulary = 0;
-  private static long maxHalsteadVocabulary = 0;
-  private static String maxHalsteadVocabularyName = "";
-  private static double avgHalsteadVolume = 0;
-  private static double maxHalsteadVolume = 0;
-  private static String maxHalsteadVolumeName = "";
+  private final AnalysisSession session;
+  private final List<HalsteadFileMetric> dataPerFile = new ArrayList<>();
+
+  private long halsteadLength = 0;
+  private long halsteadVocabulary = 0;
+  private double halsteadVolume = 0;
+  private double avgHalsteadLength = 0;
+  private long maxHalsteadLength = 0;
+  private String maxHalsteadLengthName = "";
+  private double avgHalsteadVocabulary = 0;
+  private long maxHalsteadVocabulary = 0;
+  private String maxHalsteadVocabularyName = "";
+  private double avgHalsteadVolume = 0;
+  private double maxHalsteadVolume = 0;
+  private String maxHalsteadVolumeName = "";
+
+  /**
+   * Constructor that sets the session of which the Halstead metrics are calculated.
+   *
+   * @param session the AnalysisSession that owns the resources of the analyzed project.
+   */
+  public Halstead(AnalysisSession session) {
+    this.session = session;
+  }
 
   /**
    * Get the section on Halstead metrics.
@@ -42,7 +51,7 @@ public class Halstead {
    * @return a String containing the section with Halstead metrics.
    * @throws IOException when a file in the FileList resource cannot be found.
    */
-  public static String getSection() throws IOException {
+  public String getSection() throws IOException {
     collectFileData();
     calculateMetrics();
 
@@ -77,24 +86,16 @@ public class Halstead {
    *
    * @throws IOException when a file in the FileList resource cannot be found.
    */
-  private static void collectFileData() throws IOException {
-    for (File file : FileList.getInstance().getHaskellFiles()) {
-      ParseTree parseTree =
-          HaskellParseTree.getInstance().getTreeDict().get(file.getCanonicalPath());
-      HalsteadVisitor halsteadVisitor = new HalsteadVisitor();
-      halsteadVisitor.createHalsteadMaps(parseTree);
-
-      long length = halsteadVisitor.getHalsteadLength();
-      long vocabulary = halsteadVisitor.getHalsteadVocabulary();
-
-      dataPerFile.add(
-          new HalsteadFileMetric(
-              file.getCanonicalPath(), length, vocabulary, (length * logN(2, vocabulary))));
+  private void collectFileData() throws IOException {
+    Map<String, ModuleSummary> summaryDict = session.getParseTreeAnalysis().getSummaryDict();
+    for (File file : session.getFileList().getHaskellFiles()) {
+      String pathname = file.getCanonicalPath();
+      dataPerFile.add(summaryDict.get(pathname).halstead.toHalsteadFileMetric(pathname));
     }
   }
 
-  /** Calculate all Halstead metrics and store them as static variables. */
-  private static void calculateMetrics() {
+  /** Calculate all Halstead metrics and store them as fields. */
+  private void calculateMetrics() {
     sumFileData();
 
     avgHalsteadLength = (double) halsteadLength / dataPerFile.size();
@@ -126,7 +127,7 @@ public class Halstead {
   }
 
   /** Sum the data per file to get overall metrics. */
-  private static void sumFileData() {
+  private void sumFileData() {
     for (HalsteadFileMetric metric : dataPerFile) {
       halsteadLength += metric.halsteadLength;
       halsteadVocabulary += metric.halsteadVocabulary;
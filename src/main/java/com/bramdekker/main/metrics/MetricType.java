@@ -1,47 +1,71 @@
 package com.bramdekker.main.metrics;
 
+import com.bramdekker.main.session.AnalysisSession;
+import com.bramdekker.main.util.CollectorType;
+
 import java.io.IOException;
+import java.util.List;
 
 /**
  * Enum for all different metric types. The types all have a different section which can be accessed
- * via the getSection method.
+ * via the getSection method. The section is calculated from the resources of an AnalysisSession.
  */
 public enum MetricType {
-  SIZE {
-    public String getSection() throws IOException {
-      return Size.getSection();
+  SIZE(CollectorType.PARSE_TREE_SIZE) {
+    public String getSection(AnalysisSession session) throws IOException {
+      return new Size(session).getSection();
     }
   },
-  HALSTEAD {
-    public String getSection() throws IOException {
-      return Halstead.getSection();
+  HALSTEAD(CollectorType.HALSTEAD) {
+    public String getSection(AnalysisSession session) throws IOException {
+      return new Halstead(session).getSection();
     }
   },
-  RECURSION {
-    public String getSection() throws IOException {
-      return Recursion.getSection();
+  RECURSION(CollectorType.CALL_REFERENCES) {
+    public String getSection(AnalysisSession session) throws IOException {
+      return new Recursion(session).getSection();
     }
   },
-  PATTERNS {
-    public String getSection() throws IOException {
-      return Patterns.getSection();
+  PATTERNS(CollectorType.PATTERNS) {
+    public String getSection(AnalysisSession session) throws IOException {
+      return new Patterns(session).getSection();
     }
   },
-  READABILITY {
-    public String getSection() throws IOException {
-      return Readability.getSection();
+  READABILITY() {
+    public String getSection(AnalysisSession session) throws IOException {
+      return new Readability(session).getSection();
     }
   },
-  CALLGRAPH {
-    public String getSection() throws IOException {
-      return Callgraph.getSection();
+  CALLGRAPH(CollectorType.CALL_REFERENCES) {
+    public String getSection(AnalysisSession session) throws IOException {
+      return new Callgraph(session).getSection();
     }
   },
-  STRUCTURAL {
-    public String getSection() throws IOException {
-      return Structural.getSection();
+  STRUCTURAL(CollectorType.HALSTEAD) {
+    public String getSection(AnalysisSession session) throws IOException {
+      return new Structural(session).getSection();
     }
   };
 
-  public abstract String getSection() throws IOException;
+  private final List<CollectorType> collectorTypes;
+
+  /**
+   * Constructor that sets the collectors the metric type needs while the parse trees are walked.
+   *
+   * @param collectorTypes the types of the needed collectors.
+   */
+  MetricType(CollectorType... collectorTypes) {
+    this.collectorTypes = List.of(collectorTypes);
+  }
+
+  public abstract String getSection(AnalysisSession session) throws IOException;
+
+  /**
+   * Getter for the collectorTypes field.
+   *
+   * @return the types of the collectors the metric type needs.
+   */
+  public List<CollectorType> getCollectorTypes() {
+    return collectorTypes;
+  }
 }
@@ -1,7 +1,10 @@
 package com.bramdekker.main.metrics;
 
+import java.io.Serializable;
+
 /** Encapsulates data for a specific pattern. */
-public class PatternMetric {
+public class PatternMetric implements Serializable {
+  private static final long serialVersionUID = 1L;
   public String name;
   public long numberOfVariables;
   public long numberOfConstructors;
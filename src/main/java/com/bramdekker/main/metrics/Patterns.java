@@ -1,10 +1,9 @@
 package com.bramdekker.main.metrics;
 
-import com.bramdekker.main.resources.HaskellParseTree;
-import com.bramdekker.main.util.LeafVisitor;
-import org.antlr.v4.runtime.tree.ParseTree;
-import org.antlr.v4.runtime.tree.TerminalNode;
+import com.bramdekker.main.resources.ModuleSummary;
+import com.bramdekker.main.session.AnalysisSession;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
@@ -12,20 +11,30 @@ import static com.bramdekker.main.util.MetricPrinter.getMetricString;
 
 /** Collection of methods that determine pattern metrics. */
 public class Patterns {
-  private static final List<PatternMetric> dataPerPattern = new ArrayList<>();
-  private static double avgNumberOfVariables = 0;
-  private static double avgNumberOfConstructors = 0;
-  private static double avgNumberOfWildcards = 0;
-  private static double wildcardVariablesRatio = 0;
-  private static double avgSumDepthOfNesting = 0;
-  private static long maxSumDepthOfNesting = 0;
-  private static String maxSumDepthOfNestingName = "";
-  private static double avgDepthOfNesting = 0;
-  private static long maxDepthOfNesting = 0;
-  private static String maxDepthOfNestingName = "";
-  private static double avgPatternSize = 0; // (nodes in parse tree)
-  private static long maxPatternSize = 0;
-  private static String maxPatternSizeName = "";
+  private final AnalysisSession session;
+  private final List<PatternMetric> dataPerPattern = new ArrayList<>();
+  private double avgNumberOfVariables = 0;
+  private double avgNumberOfConstructors = 0;
+  private double avgNumberOfWildcards = 0;
+  private double wildcardVariablesRatio = 0;
+  private double avgSumDepthOfNesting = 0;
+  private long maxSumDepthOfNesting = 0;
+  private String maxSumDepthOfNestingName = "";
+  private double avgDepthOfNesting = 0;
+  private long maxDepthOfNesting = 0;
+  private String maxDepthOfNestingName = "";
+  private double avgPatternSize = 0; // (nodes in parse tree)
+  private long maxPatternSize = 0;
+  private String maxPatternSizeName = "";
+
+  /**
+   * Constructor that sets the session of which the pattern metrics are calculated.
+   *
+   * @param session the AnalysisSession that owns the resources of the analyzed project.
+   */
+  public Patterns(AnalysisSession session) {
+    this.session = session;
+  }
 
   /**
    * Get the section on pattern metrics.
@@ -33,7 +42,7 @@ public class Patterns {
    * @return a String containing the section with pattern metrics.
    * @throws IOException when a file in the FileList resource cannot be found.
    */
-  public static String getSection() throws IOException {
+  public String getSection() throws IOException {
     collectFileData();
     calculateMetrics();
 
@@ -60,128 +69,34 @@ public class Patterns {
     return patternSection.toString();
   }
 
-  private static void collectFileData() throws IOException {
-    for (Map.Entry<String, ParseTree> entry :
-        HaskellParseTree.getInstance().getPatternDict().entrySet()) {
-      LeafVisitor leafVisitor = new LeafVisitor();
-      List<TerminalNode> leaves = leafVisitor.visit(entry.getValue());
-      leaves.remove(0);
-
-      long numberOfVariables = 0;
-      long numberOfConstructors = 0;
-      long numberOfWildcards = 0;
-      long curDepth = 0;
-      long depthOfNesting = 0;
-      long depthSumOfNesting = 0;
-
-      for (TerminalNode leaf : leaves) {
-        String leafText = leaf.getSymbol().getText();
-        if (leafText.equals("|")) {
-          break;
-        }
-
-        if (leafText.equals("_")) {
-          numberOfWildcards++;
-        } else if (Character.isUpperCase(leafText.charAt(0))) {
-          numberOfConstructors++;
-        } else if (leafText.equals("[") || leafText.equals("(")) {
-          depthSumOfNesting++;
-          curDepth++;
-          if (curDepth > depthOfNesting) {
-            depthOfNesting = curDepth;
-          }
-        } else if (leafText.equals("]") || leafText.equals(")")) {
-          curDepth--;
-        } else if (Character.isLowerCase(leafText.charAt(0)) || isLiteral(leafText)) {
-          numberOfVariables++;
-        }
-      }
-
-      dataPerPattern.add(
-          new PatternMetric(
-              entry.getKey(),
-              numberOfVariables,
-              numberOfConstructors,
-              numberOfWildcards,
-              depthSumOfNesting,
-              depthOfNesting,
-              getTreeSize(entry.getValue())));
-    }
-
-    for (ParseTree letPattern : HaskellParseTree.getInstance().getLetInPatternsList()) {
-      analyzePatternNode(letPattern, "let (line %d)");
-    }
-
-    for (ParseTree whereClause : HaskellParseTree.getInstance().getWherePatternsList()) {
-      analyzePatternNode(whereClause, "where (line %d)");
-    }
-
-    for (ParseTree casePattern : HaskellParseTree.getInstance().getCasePatternsList()) {
-      analyzePatternNode(casePattern, "case (line %d)");
-    }
-  }
-
   /**
-   * Check if the text is a string, character or integer literal.
+   * Collect the data of all patterns in all modules.
    *
-   * @param text String to be checked.
-   * @return true if text is a literal; false otherwise.
-   */
-  private static boolean isLiteral(String text) {
-    return text.startsWith("\"") || text.startsWith("'") || Character.isDigit(text.charAt(0));
-  }
-
-  /**
-   * Analyze a node representing a pattern.
-   *
-   * @param node the node.
-   * @param format the name format.
+   * @throws IOException when a file in the FileList resource cannot be found.
    */
-  private static void analyzePatternNode(ParseTree node, String format) {
-    LeafVisitor leafVisitor = new LeafVisitor();
-    List<TerminalNode> leaves = leafVisitor.visit(node);
-
-    long numberOfVariables = 0;
-    long numberOfConstructors = 0;
-    long numberOfWildcards = 0;
-    long curDepth = 0;
-    long depthOfNesting = 0;
-    long depthSumOfNesting = 0;
-
-    for (TerminalNode leaf : leaves) {
-      String leafText = leaf.getSymbol().getText();
-      if (leafText.equals("_")) {
-        numberOfWildcards++;
-      } else if (Character.isUpperCase(leafText.charAt(0))) {
-        numberOfConstructors++;
-      } else if (leafText.equals("[") || leafText.equals("(")) {
-        depthSumOfNesting++;
-        curDepth++;
-        if (curDepth > depthOfNesting) {
-          depthOfNesting = curDepth;
-        }
-      } else if (leafText.equals("]") || leafText.equals(")")) {
-        curDepth--;
-      } else if (Character.isLowerCase(leafText.charAt(0)) || isLiteral(leafText)) {
-        numberOfVariables++;
-      }
+  private void collectFileData() throws IOException {
+    Map<String, ModuleSummary> summaryDict = session.getParseTreeAnalysis().getSummaryDict();
+    Map<String, PatternMetric> functionPatterns = new HashMap<>();
+    List<PatternMetric> letPatterns = new ArrayList<>();
+    List<PatternMetric> wherePatterns = new ArrayList<>();
+    List<PatternMetric> casePatterns = new ArrayList<>();
+
+    for (File file : session.getFileList().getHaskellFiles()) {
+      ModuleSummary summary = summaryDict.get(file.getCanonicalPath());
+      functionPatterns.putAll(summary.functionPatterns);
+      letPatterns.addAll(summary.letPatterns);
+      wherePatterns.addAll(summary.wherePatterns);
+      casePatterns.addAll(summary.casePatterns);
     }
 
-    TerminalNode startToken = (TerminalNode) getLeftMostChild(node);
-
-    dataPerPattern.add(
-        new PatternMetric(
-            String.format(format, startToken.getSymbol().getLine()),
-            numberOfVariables,
-            numberOfConstructors,
-            numberOfWildcards,
-            depthSumOfNesting,
-            depthOfNesting,
-            getTreeSize(node)));
+    dataPerPattern.addAll(functionPatterns.values());
+    dataPerPattern.addAll(letPatterns);
+    dataPerPattern.addAll(wherePatterns);
+    dataPerPattern.addAll(casePatterns);
   }
 
-  /** Calculate all pattern metrics and store them as static variables. */
-  private static void calculateMetrics() {
+  /** Calculate all pattern metrics and store them as fields. */
+  private void calculateMetrics() {
     for (PatternMetric metric : dataPerPattern) {
       avgNumberOfVariables += metric.numberOfVariables;
       avgNumberOfConstructors += metric.numberOfConstructors;
@@ -221,34 +136,4 @@ public class Patterns {
       maxPatternSizeName = maxSize.get().name;
     }
   }
-
-  /**
-   * Get the size of the tree in number of nodes.
-   *
-   * @param tree the tree to be analyzed.
-   * @return long representing the number of nodes in the tree.
-   */
-  private static long getTreeSize(ParseTree tree) {
-    long nodes = 1;
-
-    for (int i = 0; i < tree.getChildCount(); i++) {
-      nodes += getTreeSize(tree.getChild(i));
-    }
-
-    return nodes;
-  }
-
-  /**
-   * Get the left most child from node using depth-first search.
-   *
-   * @param node the start node.
-   * @return the left most child of the node.
-   */
-  private static ParseTree getLeftMostChild(ParseTree node) {
-    if (node.getChildCount() > 0) {
-      return getLeftMostChild(node.getChild(0));
-    }
-
-    return node;
-  }
 }
@@ -1,39 +1,51 @@
 package com.bramdekker.main.metrics;
 
-import com.bramdekker.main.resources.FileList;
+import com.bramdekker.main.resources.ModuleSummary;
+import com.bramdekker.main.resources.SourceFile;
+import com.bramdekker.main.session.AnalysisSession;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Map;
 
 import static com.bramdekker.main.util.MetricPrinter.getMetricString;
 import static com.bramdekker.main.util.SyllableCounter.numberOfSyllables;
 
 /** Collection of methods that determine readability metrics. */
 public class Readability {
-  private static final List<ReadabilityFileMetric> dataPerFile = new ArrayList<>();
-  private static double commentDensity = 0;
+  private final AnalysisSession session;
+  private final List<ReadabilityFileMetric> dataPerFile = new ArrayList<>();
+  private double commentDensity = 0;
 
-  private static double avgCommentDensity = 0;
-  private static double maxCommentDensity = 0;
-  private static String maxCommentDensityName = "";
+  private double avgCommentDensity = 0;
+  private double maxCommentDensity = 0;
+  private String maxCommentDensityName = "";
 
-  private static double minCommentDensity = 0;
-  private static String minCommentDensityName = "";
-  private static long fogIndex = 0;
+  private double minCommentDensity = 0;
+  private String minCommentDensityName = "";
+  private long fogIndex = 0;
 
-  private static long avgFogIndex = 0;
-  private static long maxFogIndex = 0;
-  private static String maxFogIndexName = "";
+  private long avgFogIndex = 0;
+  private long maxFogIndex = 0;
+  private String maxFogIndexName = "";
+
+  /**
+   * Constructor that sets the session of which the readability metrics are calculated.
+   *
+   * @param session the AnalysisSession that owns the resources of the analyzed project.
+   */
+  public Readability(AnalysisSession session) {
+    this.session = session;
+  }
 
   /**
    * Generate the section for readability metrics.
    *
    * @return a report section containing information about readability metrics as String.
    */
-  public static String getSection() throws IOException {
+  public String getSection() throws IOException {
     collectFileData();
     calculateMetrics();
 
@@ -60,11 +72,11 @@ public class Readability {
   }
 
   /**
-   * Calculate all readability metrics and store them as static variables.
+   * Calculate all readability metrics and store them as fields.
    *
    * @throws IOException when a file in the FileList resource cannot be found.
    */
-  private static void calculateMetrics() throws IOException {
+  private void calculateMetrics() throws IOException {
     sumFileData();
 
     calculateCommentDensity();
@@ -75,43 +87,48 @@ public class Readability {
    *
    * @throws IOException when a file in the FileList resource cannot be found.
    */
-  private static void collectFileData() throws IOException {
-    for (File file : FileList.getInstance().getHaskellFiles()) {
-      Scanner curFileScanner = new Scanner(file);
-      String curLine;
-      int wordsInFile = 0;
-      int sentencesInFile = 0;
-      int complexWordsInFile = 0;
-
-      while (curFileScanner.hasNextLine()) {
-        curLine = curFileScanner.nextLine();
-        if (curLine.startsWith("--")) {
-          String[] splittedComment = curLine.substring(2).split(" ");
-          for (String part : splittedComment) {
-            if (!part.isEmpty()) {
-              wordsInFile++;
-
-              if (part.endsWith(".")) {
-                sentencesInFile++;
-              }
-              if (numberOfSyllables(part) >= 3) {
-                complexWordsInFile++;
-              }
+  private void collectFileData() throws IOException {
+    Map<String, ModuleSummary> summaryDict = session.getParseTreeAnalysis().getSummaryDict();
+    for (File file : session.getFileList().getHaskellFiles()) {
+      dataPerFile.add(summaryDict.get(file.getCanonicalPath()).readability);
+    }
+  }
+
+  /**
+   * Count the words, sentences and complex words in the comments of a single file.
+   *
+   * @param name the canonical path of the file.
+   * @param source the contents of the file.
+   * @return a ReadabilityFileMetric with the readability data of the file.
+   */
+  public static ReadabilityFileMetric measureFile(String name, SourceFile source) {
+    int wordsInFile = 0;
+    int sentencesInFile = 0;
+    int complexWordsInFile = 0;
+
+    for (String curLine : source.getLines()) {
+      if (curLine.startsWith("--")) {
+        String[] splittedComment = curLine.substring(2).split(" ");
+        for (String part : splittedComment) {
+          if (!part.isEmpty()) {
+            wordsInFile++;
+
+            if (part.endsWith(".")) {
+              sentencesInFile++;
+            }
+            if (numberOfSyllables(part) >= 3) {
+              complexWordsInFile++;
             }
           }
         }
       }
-
-      dataPerFile.add(
-          new ReadabilityFileMetric(
-              file.getCanonicalPath(), wordsInFile, sentencesInFile, complexWordsInFile));
-
-      curFileScanner.close();
     }
+
+    return new ReadabilityFileMetric(name, wordsInFile, sentencesInFile, complexWordsInFile);
   }
 
   /** Sum the data per file to get overall metrics. */
-  private static void sumFileData() {
+  private void sumFileData() {
     long curMaxFogIndex = 0;
     String curMaxFogIndexName = "";
 
@@ -162,7 +179,7 @@ public class Readability {
    *
    * @throws IOException when a file in the FileList resource cannot be found.
    */
-  private static void calculateCommentDensity() throws IOException {
+  private void calculateCommentDensity() throws IOException {
     double curMaxCommentDensity = 0;
     String curMaxCommentDensityName = "";
     double curMinCommentDensity = Long.MAX_VALUE;
@@ -172,7 +189,9 @@ public class Readability {
     long totalNcloc = 0;
     long totalCloc = 0;
 
-    for (SizeFileMetric metric : Size.getDataPerFile()) {
+    Map<String, ModuleSummary> summaryDict = session.getParseTreeAnalysis().getSummaryDict();
+    for (File file : session.getFileList().getHaskellFiles()) {
+      SizeFileMetric metric = summaryDict.get(file.getCanonicalPath()).size;
       totalCloc += metric.cloc;
       totalNcloc += metric.ncloc;
 
@@ -1,9 +1,12 @@
 package com.bramdekker.main.metrics;
 
+import java.io.Serializable;
+
 /**
  * Encapsulates readability data for a specific file.
  */
-public class ReadabilityFileMetric {
+public class ReadabilityFileMetric implements Serializable {
+  private static final long serialVersionUID = 1L;
   public String name;
   public long words;
   public long sentences;
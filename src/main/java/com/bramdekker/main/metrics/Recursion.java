@@ -1,36 +1,44 @@
 package com.bramdekker.main.metrics;
 
 import com.bramdekker.main.resources.CallGraph;
-import org.jgrapht.Graph;
-import org.jgrapht.alg.connectivity.KosarajuStrongConnectivityInspector;
-import org.jgrapht.alg.interfaces.StrongConnectivityAlgorithm;
-import org.jgrapht.graph.DefaultEdge;
-import org.jgrapht.graph.DirectedPseudograph;
+import com.bramdekker.main.resources.CompactGraph;
+import com.bramdekker.main.resources.StronglyConnectedComponents;
+import com.bramdekker.main.resources.SymbolTable;
+import com.bramdekker.main.session.AnalysisSession;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 import static com.bramdekker.main.util.MetricPrinter.getMetricString;
 
 /** Collection of methods that determine recursion metrics. */
 public class Recursion {
-  private static long numRecursiveFunctions = 0;
-  private static long numTrivialRecursiveFunctions = 0;
-  private static long numNonTrivialRecursiveFunctions = 0;
-  private static long longestNonTrivialPath = 0;
-  private static String longestNonTrivialPathName = "";
-  private static double recursiveFunctionRatio = 0.0;
-  private static long maxRecursiveFunctions = 0;
-  private static String maxRecursiveFunctionsModuleName = "";
+  private final AnalysisSession session;
+  private long numRecursiveFunctions = 0;
+  private long numTrivialRecursiveFunctions = 0;
+  private long numNonTrivialRecursiveFunctions = 0;
+  private long longestNonTrivialPath = 0;
+  private String longestNonTrivialPathName = "";
+  private double recursiveFunctionRatio = 0.0;
+  private long maxRecursiveFunctions = 0;
+  private String maxRecursiveFunctionsModuleName = "";
+
+  /**
+   * Constructor that sets the session of which the recursion metrics are calculated.
+   *
+   * @param session the AnalysisSession that owns the resources of the analyzed project.
+   */
+  public Recursion(AnalysisSession session) {
+    this.session = session;
+  }
 
   /**
    * Generate the section for recursion metrics.
    *
    * @return a report section containing information about recursion metrics as String.
    */
-  public static String getSection() throws IOException {
+  public String getSection() throws IOException {
     calculateMetrics();
 
     StringBuilder recursionSection = new StringBuilder("Recursion metrics:\n");
@@ -59,34 +67,30 @@ public class Recursion {
   }
 
   /**
-   * Calculate all recursion metrics and store them as static variables.
+   * Calculate all recursion metrics and store them as fields.
    *
    * @throws IOException when a file in the FileList resource cannot be found.
    */
-  private static void calculateMetrics() throws IOException {
-    DirectedPseudograph<String, DefaultEdge> callgraph = CallGraph.getInstance().getGraph();
-    int totalNumFunctions = callgraph.vertexSet().size();
-
-    Map<String, Integer> moduleRecursiveDict = new HashMap<>();
-
-    StrongConnectivityAlgorithm<String, DefaultEdge> scAlg =
-        new KosarajuStrongConnectivityInspector<>(callgraph);
-    List<Graph<String, DefaultEdge>> stronglyConnectedSubgraphs =
-        scAlg.getStronglyConnectedComponents();
-
-    for (Graph<String, DefaultEdge> stronglyConnectedSubgraph : stronglyConnectedSubgraphs) {
-      if (stronglyConnectedSubgraph.edgeSet().size() > 0) {
+  private void calculateMetrics() throws IOException {
+    CallGraph callGraph = session.getCallGraph();
+    CompactGraph callgraph = callGraph.getGraph();
+    SymbolTable symbols = callGraph.getSymbols();
+    int totalNumFunctions = callgraph.getVertexCount();
+
+    // The number of recursive functions per module, indexed by the ID of the module.
+    int[] moduleRecursiveCounts = new int[symbols.size()];
+
+    StronglyConnectedComponents components = callGraph.getComponents();
+    for (int c = 0; c < components.getComponentCount(); c++) {
+      if (components.isRecursive(c)) {
         numRecursiveFunctions++;
-        int subgraphSize = stronglyConnectedSubgraph.vertexSet().size();
-
-        for (String v : stronglyConnectedSubgraph.vertexSet()) {
-          String moduleName = v.split("\\.")[0];
-          if (moduleRecursiveDict.containsKey(moduleName)) {
-            int prevNum = moduleRecursiveDict.get(moduleName);
-            moduleRecursiveDict.put(moduleName, prevNum + 1);
-          } else {
-            moduleRecursiveDict.put(moduleName, 1);
-          }
+        int subgraphSize = components.getSize(c);
+
+        List<String> names = new ArrayList<>();
+        for (int i = components.getMemberStart(c); i < components.getMemberEnd(c); i++) {
+          int v = components.getMember(i);
+          names.add(callgraph.getName(v));
+          moduleRecursiveCounts[symbols.getModule(callgraph.getFunction(v))]++;
         }
 
         if (subgraphSize == 1) {
@@ -97,19 +101,16 @@ public class Recursion {
 
         if (subgraphSize > longestNonTrivialPath && subgraphSize > 1) {
           longestNonTrivialPath = subgraphSize;
-          longestNonTrivialPathName =
-              String.valueOf(
-                      stronglyConnectedSubgraph.vertexSet().stream().reduce((s, a) -> s + ", " + a))
-                  .replace("Optional", "");
+          longestNonTrivialPathName = "[" + String.join(", ", names) + "]";
         }
       }
     }
 
     recursiveFunctionRatio = (double) numRecursiveFunctions / totalNumFunctions;
-    for (Map.Entry<String, Integer> e : moduleRecursiveDict.entrySet()) {
-      if (e.getValue() > maxRecursiveFunctions) {
-        maxRecursiveFunctions = e.getValue();
-        maxRecursiveFunctionsModuleName = e.getKey();
+    for (int module = 0; module < moduleRecursiveCounts.length; module++) {
+      if (moduleRecursiveCounts[module] > maxRecursiveFunctions) {
+        maxRecursiveFunctions = moduleRecursiveCounts[module];
+        maxRecursiveFunctionsModuleName = symbols.getName(module);
       }
     }
   }
@@ -1,8 +1,9 @@
 package com.bramdekker.main.metrics;
 
-import com.bramdekker.main.resources.FileList;
-import com.bramdekker.main.resources.HaskellParseTree;
-import org.antlr.v4.runtime.tree.ParseTree;
+import com.bramdekker.main.resources.ModuleSummary;
+import com.bramdekker.main.resources.ParseMode;
+import com.bramdekker.main.resources.SourceFile;
+import com.bramdekker.main.session.AnalysisSession;
 
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -30,28 +31,38 @@ import static com.bramdekker.main.util.MetricPrinter.getMetricString;
 
 /** Collection of methods that determine size metrics. */
 public class Size {
-  private static final List<SizeFileMetric> dataPerFile = new ArrayList<>();
-  private static long loc = 0;
-  private static long blankLines = 0;
-  private static long ncloc = 0;
-  private static long cloc = 0;
-  private static long dsi = 0;
-  private static long es = 0;
-  private static long bytes = 0;
-  private static long chars = 0;
-  private static long graphSize = 0;
-  private static long parseTreeSize = 0;
-  private static long avgModuleSize = 0;
-  private static long maxModuleSize = 0;
-  private static double sizeGiniCoefficient = 0.0;
-  private static String maxModuleName = "";
+  private final AnalysisSession session;
+  private final List<SizeFileMetric> dataPerFile = new ArrayList<>();
+  private long loc = 0;
+  private long blankLines = 0;
+  private long ncloc = 0;
+  private long cloc = 0;
+  private long dsi = 0;
+  private long es = 0;
+  private long bytes = 0;
+  private long chars = 0;
+  private long graphSize = 0;
+  private long parseTreeSize = 0;
+  private long avgModuleSize = 0;
+  private long maxModuleSize = 0;
+  private double sizeGiniCoefficient = 0.0;
+  private String maxModuleName = "";
+
+  /**
+   * Constructor that sets the session of which the size metrics are calculated.
+   *
+   * @param session the AnalysisSession that owns the resources of the analyzed project.
+   */
+  public Size(AnalysisSession session) {
+    this.session = session;
+  }
 
   /**
    * Generate the section for size metrics.
    *
    * @return a report section containing information about size metrics as String.
    */
-  public static String getSection() throws IOException {
+  public String getSection() throws IOException {
     if (dataPerFile.isEmpty()) {
       collectFileData();
     }
@@ -66,7 +77,10 @@ public class Size {
     sizeSection.append(getMetricString("Blank lines", blankLines));
     sizeSection.append(getMetricString("Size in bytes", bytes));
     sizeSection.append(getMetricString("Size in characters", chars));
-    sizeSection.append(getMetricString("Number of nodes in the parse tree", parseTreeSize));
+    // There is no parse tree in fast mode.
+    if (session.getParseMode() != ParseMode.FAST) {
+      sizeSection.append(getMetricString("Number of nodes in the parse tree", parseTreeSize));
+    }
 
     if (dataPerFile.size() > 1) {
       sizeSection.append(getMetricString("Average module size (NCLOC)", avgModuleSize));
@@ -85,79 +99,84 @@ public class Size {
    *
    * @throws IOException when a file in the FileList resource cannot be found.
    */
-  private static void collectFileData() throws IOException {
-    for (File file : FileList.getInstance().getHaskellFiles()) {
-      boolean inModuleExports = false;
-      boolean inTypeSynonymOrDataType = false;
-
-      Scanner curFileScanner = new Scanner(file);
-      String curLine;
-      int charsInFile = 0;
-      int clocInFile = 0;
-      int nclocInFile = 0;
-      int blanklinesInFile = 0;
-      int esInFile = 0;
-      int dsiInFile = 0;
-      while (curFileScanner.hasNextLine()) {
-        curLine = curFileScanner.nextLine();
-
-        // Line separator is excluded from nextLine, hence the +1.
-        charsInFile += curLine.length() + 1;
-
-        if (inTypeSynonymOrDataType && (isBlank(curLine) || isEndOfDataDeclaration(curLine))) {
-          inTypeSynonymOrDataType = false;
-        }
+  private void collectFileData() throws IOException {
+    Map<String, ModuleSummary> summaryDict = session.getParseTreeAnalysis().getSummaryDict();
+    for (File file : session.getFileList().getHaskellFiles()) {
+      dataPerFile.add(summaryDict.get(file.getCanonicalPath()).size);
+    }
+  }
 
-        if (curLine.startsWith("module ")) {
-          inModuleExports = true;
-        } else if (curLine.startsWith("data ") || curLine.startsWith("type ")) {
-          inTypeSynonymOrDataType = true;
-        }
+  /**
+   * Classify every line of a single file and count the size data of the file.
+   *
+   * @param name the canonical path of the file.
+   * @param source the contents of the file.
+   * @return a SizeFileMetric with the size data of the file.
+   */
+  public static SizeFileMetric measureFile(String name, SourceFile source) {
+    boolean inModuleExports = false;
+    boolean inTypeSynonymOrDataType = false;
+
+    int charsInFile = 0;
+    int clocInFile = 0;
+    int nclocInFile = 0;
+    int blanklinesInFile = 0;
+    int esInFile = 0;
+    int dsiInFile = 0;
+    for (String curLine : source.getLines()) {
+      // Line separator is excluded from the line, hence the +1.
+      charsInFile += curLine.length() + 1;
+
+      if (inTypeSynonymOrDataType && (isBlank(curLine) || isEndOfDataDeclaration(curLine))) {
+        inTypeSynonymOrDataType = false;
+      }
 
-        if (!isBlank(curLine)) {
-          if (inModuleExports || isImportOrPragma(curLine)) { // Heading
-            nclocInFile++;
-            dsiInFile++;
-          } else if (inTypeSynonymOrDataType) { // Data declaration
-            nclocInFile++;
-            dsiInFile++;
-          } else if (isComment(curLine)) { // Comment
-            clocInFile++;
-          } else { // Code line
-            nclocInFile++;
-            esInFile++;
-            dsiInFile++;
-          }
-        } else {
-          blanklinesInFile++;
-        }
+      if (curLine.startsWith("module ")) {
+        inModuleExports = true;
+      } else if (curLine.startsWith("data ") || curLine.startsWith("type ")) {
+        inTypeSynonymOrDataType = true;
+      }
 
-        if (inModuleExports && isEndOfModuleExport(curLine)) {
-          inModuleExports = false;
+      if (!isBlank(curLine)) {
+        if (inModuleExports || isImportOrPragma(curLine)) { // Heading
+          nclocInFile++;
+          dsiInFile++;
+        } else if (inTypeSynonymOrDataType) { // Data declaration
+          nclocInFile++;
+          dsiInFile++;
+        } else if (isComment(curLine)) { // Comment
+          clocInFile++;
+        } else { // Code line
+          nclocInFile++;
+          esInFile++;
+          dsiInFile++;
         }
+      } else {
+        blanklinesInFile++;
       }
 
-      dataPerFile.add(
-          new SizeFileMetric(
-              file.getCanonicalPath(),
-              file.length(),
-              charsInFile,
-              clocInFile,
-              nclocInFile,
-              blanklinesInFile,
-              esInFile,
-              dsiInFile));
-
-      curFileScanner.close();
+      if (inModuleExports && isEndOfModuleExport(curLine)) {
+        inModuleExports = false;
+      }
     }
+
+    return new SizeFileMetric(
+        name,
+        source.getSize(),
+        charsInFile,
+        clocInFile,
+        nclocInFile,
+        blanklinesInFile,
+        esInFile,
+        dsiInFile);
   }
 
   /**
-   * Calculate all size metrics and store them as static variables.
+   * Calculate all size metrics and store them as fields.
    *
    * @throws IOException when a file in the FileList resource cannot be found.
    */
-  private static void calculateMetrics() throws IOException {
+  private void calculateMetrics() throws IOException {
     sumFileData();
 
     parseTreeSize = calculateParseTreeSize();
@@ -182,33 +201,17 @@ public class Size {
    * @return long representing the number of nodes in the parse tree.
    * @throws FileNotFoundException when a file in the FileList resource cannot be found.
    */
-  private static long calculateParseTreeSize() throws IOException {
+  private long calculateParseTreeSize() throws IOException {
     long totalParseTreeSize = 0;
-    for (ParseTree tree : HaskellParseTree.getInstance().getTreeDict().values()) {
-      totalParseTreeSize += getChildren(tree) + 1;
+    for (ModuleSummary summary : session.getParseTreeAnalysis().getSummaryDict().values()) {
+      totalParseTreeSize += summary.parseTreeSize;
     }
 
     return totalParseTreeSize;
   }
 
-  /**
-   * Get the number of children of a ParseTree node.
-   *
-   * @param node ParseTree where the number of children is calculated for.
-   * @return long representing the number of children of node.
-   */
-  private static long getChildren(ParseTree node) {
-    long childCount = 0;
-
-    for (int i = 0; i < node.getChildCount(); i++) {
-      childCount += getChildren(node.getChild(i)) + 1;
-    }
-
-    return childCount;
-  }
-
   /** Sum the data per file to get overall metrics. */
-  private static void sumFileData() {
+  private void sumFileData() {
     for (SizeFileMetric metric : dataPerFile) {
       bytes += metric.bytes;
       chars += metric.chars;
@@ -271,128 +274,128 @@ public class Size {
   }
 
   /**
-   * Getter for the chars static variable.
+   * Getter for the chars field.
    *
    * @return int representing the size in characters measure.
    */
-  public static long getChars() {
+  public long getChars() {
     return chars;
   }
 
   /**
-   * Getter for the bytes static variable.
+   * Getter for the bytes field.
    *
    * @return int representing the size in bytes measure.
    */
-  public static long getBytes() {
+  public long getBytes() {
     return bytes;
   }
 
   /**
-   * Getter for the CLOC static variable.
+   * Getter for the CLOC field.
    *
    * @return int representing the number of comment lines measure.
    */
-  public static long getCLOC() {
+  public long getCLOC() {
     return cloc;
   }
 
   /**
-   * Getter for the blankLines static variable.
+   * Getter for the blankLines field.
    *
    * @return int representing the number of blank lines measure.
    */
-  public static long getBlankLines() {
+  public long getBlankLines() {
     return blankLines;
   }
 
   /**
-   * Getter for the DSI static variable.
+   * Getter for the DSI field.
    *
    * @return int representing the number of Delivered Source Instructions measure.
    */
-  public static long getDSI() {
+  public long getDSI() {
     return dsi;
   }
 
   /**
-   * Getter for the ES static variable.
+   * Getter for the ES field.
    *
    * @return int representing the number of Executable Statements measure.
    */
-  public static long getES() {
+  public long getES() {
     return es;
   }
 
   /**
-   * Getter for the graphSize static variable.
+   * Getter for the graphSize field.
    *
    * @return int representing the graph size measure.
    */
-  public static long getGraphSize() {
+  public long getGraphSize() {
     return graphSize;
   }
 
   /**
-   * Getter for the LOC static variable.
+   * Getter for the LOC field.
    *
    * @return int representing the number of lines of code in the project.
    */
-  public static long getLOC() {
+  public long getLOC() {
     return loc;
   }
 
   /**
-   * Getter for the NCLOC static variable.
+   * Getter for the NCLOC field.
    *
    * @return int representing the number of non-comment lines in the project.
    */
-  public static long getNCLOC() {
+  public long getNCLOC() {
     return ncloc;
   }
 
   /**
-   * Getter for the parsetreeSize static variable.
+   * Getter for the parsetreeSize field.
    *
    * @return int representing the size of the parse tree.
    */
-  public static long getParseTreeSize() {
+  public long getParseTreeSize() {
     return parseTreeSize;
   }
 
   /**
-   * Getter for the avgModuleSize static variable.
+   * Getter for the avgModuleSize field.
    *
    * @return int representing the average size of a module in the project.
    */
-  public static long getAvgModuleSize() {
+  public long getAvgModuleSize() {
     return avgModuleSize;
   }
 
   /**
-   * Getter for the maxModuleSize static variable.
+   * Getter for the maxModuleSize field.
    *
    * @return int representing the maximum size of a module in the project.
    */
-  public static long getMaxModuleSize() {
+  public long getMaxModuleSize() {
     return maxModuleSize;
   }
 
   /**
-   * Getter for the maxModuleName static variable.
+   * Getter for the maxModuleName field.
    *
    * @return String representing the name of the biggest module in the project.
    */
-  public static String getMaxModuleName() {
+  public String getMaxModuleName() {
     return maxModuleName;
   }
 
   /**
-   * Getter for the dataPerFile static variable. If not yet populated
+   * Getter for the dataPerFile field. If not yet populated
    *
    * @return List of SizeFileMetric objects representing with size data per file.
    */
-  public static List<SizeFileMetric> getDataPerFile() throws IOException {
+  public List<SizeFileMetric> getDataPerFile() throws IOException {
     if (dataPerFile.isEmpty()) {
       collectFileData();
     }
@@ -1,7 +1,10 @@
 package com.bramdekker.main.metrics;
 
+import java.io.Serializable;
+
 /** Encapsulates size data for a specific file. */
-public class SizeFileMetric {
+public class SizeFileMetric implements Serializable {
+  private static final long serialVersionUID = 1L;
   public String name;
   public long bytes;
   public long chars;
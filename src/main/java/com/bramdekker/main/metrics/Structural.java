@@ -1,9 +1,7 @@
 package com.bramdekker.main.metrics;
 
-import com.bramdekker.main.resources.CallGraph;
-import com.bramdekker.main.resources.HaskellParseTree;
-import com.bramdekker.main.util.HalsteadVisitor;
-import org.antlr.v4.runtime.tree.ParseTree;
+import com.bramdekker.main.resources.ModuleSummary;
+import com.bramdekker.main.session.AnalysisSession;
 
 import java.io.IOException;
 import java.util.*;
@@ -20,52 +18,59 @@ import static com.bramdekker.main.util.MetricPrinter.getMetricString;
 
 /** Collection of methods that determine structural metrics. */
 public class Structural {
-  private static final List<StructuralFileMetric> dataPerFile = new ArrayList<>();
-  private static final Map<String, CyclomaticComplexityMetric> cycloMap = new HashMap<>();
-  private static long totalBranches = 0;
-  private static long totalOperators = 0;
-  private static long totalOperands = 0;
-  private static double avgCyclomaticComplexity = 0;
-  private static long maxCyclomaticComplexity = 0;
-  private static String maxCyclomaticComplexityName = "";
-  private static double avgNumOperators = 0;
-  private static long maxNumOperators = 0;
-  private static String maxNumOperatorsName = "";
-  private static double avgNumOperands = 0;
-  private static long maxNumOperands = 0;
-  private static String maxNumOperandsName = "";
-  private static long totalFunctions = 0;
-  private static long totalTypeSynonyms = 0;
-  private static long totalDataTypes = 0;
-  private static double modulesFunctions = 0;
-  private static double avgNumFunctionInModule = 0;
-  private static long maxNumFunctionInModule = 0;
-  private static String maxNumFunctionInModuleName = "";
-  private static long minNumFunctionInModule = 0;
-  private static String minNumFunctionInModuleName = "";
-  private static double modulesTypeSynonyms = 0;
-  private static double avgNumTypeSynonymsInModule = 0;
-  private static long maxNumTypeSynonymsInModule = 0;
-  private static String maxNumTypeSynonymsInModuleName = "";
-  private static long minNumTypeSynonymsInModule = 0;
-  private static String minNumTypeSynonymsInModuleName = "";
-  private static double modulesDataTypes = 0;
-  private static double avgNumDataTypesInModule = 0;
-  private static long maxNumDataTypesInModule = 0;
-  private static String maxNumDataTypesInModuleName = "";
-  private static long minNumDataTypesInModule = 0;
-  private static String minNumDataTypesInModuleName = "";
+  private final AnalysisSession session;
+  private final List<StructuralFileMetric> dataPerFile = new ArrayList<>();
+  private final Map<String, CyclomaticComplexityMetric> cycloMap = new HashMap<>();
+  private long totalBranches = 0;
+  private long totalOperators = 0;
+  private long totalOperands = 0;
+  private double avgCyclomaticComplexity = 0;
+  private long maxCyclomaticComplexity = 0;
+  private String maxCyclomaticComplexityName = "";
+  private double avgNumOperators = 0;
+  private long maxNumOperators = 0;
+  private String maxNumOperatorsName = "";
+  private double avgNumOperands = 0;
+  private long maxNumOperands = 0;
+  private String maxNumOperandsName = "";
+  private long totalFunctions = 0;
+  private long totalTypeSynonyms = 0;
+  private long totalDataTypes = 0;
+  private double modulesFunctions = 0;
+  private double avgNumFunctionInModule = 0;
+  private long maxNumFunctionInModule = 0;
+  private String maxNumFunctionInModuleName = "";
+  private long minNumFunctionInModule = 0;
+  private String minNumFunctionInModuleName = "";
+  private double modulesTypeSynonyms = 0;
+  private double avgNumTypeSynonymsInModule = 0;
+  private long maxNumTypeSynonymsInModule = 0;
+  private String maxNumTypeSynonymsInModuleName = "";
+  private long minNumTypeSynonymsInModule = 0;
+  private String minNumTypeSynonymsInModuleName = "";
+  private double modulesDataTypes = 0;
+  private double avgNumDataTypesInModule = 0;
+  private long maxNumDataTypesInModule = 0;
+  private String maxNumDataTypesInModuleName = "";
+  private long minNumDataTypesInModule = 0;
+  private String minNumDataTypesInModuleName = "";
+
+  /**
+   * Constructor that sets the session of which the structural metrics are calculated.
+   *
+   * @param session the AnalysisSession that owns the resources of the analyzed project.
+   */
+  public Structural(AnalysisSession session) {
+    this.session = session;
+  }
 
   /**
    * Generate the section for size metrics.
    *
    * @return a report section containing information about size metrics as String.
    */
-  public static String getSection() throws IOException {
+  public String getSection() throws IOException {
     collectFileData();
-
-    CallGraph graph = CallGraph.getInstance();
-
     calculateMetrics();
     StringBuilder structuralSection = new StringBuilder("Structural metrics:\n");
 
@@ -137,25 +142,15 @@ public class Structural {
   }
 
   /** Collect all data per file needed to calculate metrics. */
-  private static void collectFileData() throws IOException {
-    for (Map.Entry<String, ParseTree> entry :
-        HaskellParseTree.getInstance().getTreeDict().entrySet()) {
-      HalsteadVisitor visitor = new HalsteadVisitor();
-      visitor.visit(entry.getValue());
-
-      cycloMap.putAll(visitor.getFunctionMap());
-
-      dataPerFile.add(
-          new StructuralFileMetric(
-              entry.getKey(),
-              visitor.getFunctions().size(),
-              visitor.getTypeSynonyms().size(),
-              visitor.getDataTypes().size()));
+  private void collectFileData() throws IOException {
+    for (ModuleSummary summary : session.getParseTreeAnalysis().getSummaryDict().values()) {
+      cycloMap.putAll(summary.halstead.functionMap);
+      dataPerFile.add(summary.halstead.toStructuralFileMetric(summary.name));
     }
   }
 
   /** Sum the data per file to get overall metrics. */
-  private static void sumFileData() {
+  private void sumFileData() {
     for (StructuralFileMetric metric : dataPerFile) {
       totalFunctions += metric.functions;
       totalDataTypes += metric.dataTypes;
@@ -169,8 +164,8 @@ public class Structural {
     }
   }
 
-  /** Calculate all size metrics and store them as static variables. */
-  private static void calculateMetrics() {
+  /** Calculate all size metrics and store them as fields. */
+  private void calculateMetrics() {
     sumFileData();
 
     avgCyclomaticComplexity = (double) totalBranches / totalFunctions + 1;
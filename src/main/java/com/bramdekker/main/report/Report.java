@@ -2,42 +2,164 @@ package com.bramdekker.main.report;
 
 import com.bramdekker.main.configuration.Configuration;
 import com.bramdekker.main.metrics.MetricType;
-import com.bramdekker.main.resources.FileList;
+import com.bramdekker.main.resources.ParseMode;
+import com.bramdekker.main.resources.ParseTreeAnalysis;
+import com.bramdekker.main.resources.ParserProfile;
+import com.bramdekker.main.resources.ParserProfile.RuleProfile;
+import com.bramdekker.main.session.AnalysisSession;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static com.bramdekker.main.util.MetricPrinter.getMetricString;
 
 /**
  * Class that assembles the final report. It contains sections with metrics measuring the same
  * attribute, e.g. size, recursion, patterns.
  */
 public class Report {
+  private static final int profiledRules = 25;
+  private static final int profiledFiles = 10;
   private String report;
-  private final Configuration config;
+  private final AnalysisSession session;
 
   /**
    * Constructor that takes as argument a Configuration instance. It also initialized the report
-   * variable and initializes resources.
+   * variable and creates the session that owns the resources.
    *
    * @param config an instance of Configuration.
+   * @throws IOException if the cache directory cannot be created.
    */
-  public Report(Configuration config) {
-    this.report = "";
-    this.config = config;
-    initializeResources();
+  public Report(Configuration config) throws IOException {
+    this(new AnalysisSession(config));
   }
 
-  /** Initialize the resources with information they need to generate the resources. */
-  private void initializeResources() {
-    FileList.init(config.getPathname());
+  /**
+   * Constructor that takes as argument the AnalysisSession of which the report is displayed.
+   *
+   * @param session the AnalysisSession that owns the resources of the analyzed project.
+   */
+  public Report(AnalysisSession session) {
+    this.report = "";
+    this.session = session;
   }
 
-  /** Prints out the report in sections. */
+  /**
+   * Prints out the report in sections.
+   *
+   * @throws IOException when a file in the FileList resource cannot be read.
+   */
   public void display() throws IOException {
-    System.out.printf("Report for %s\n%n", config.getPathname());
-    for (MetricType metric : config.getMetrics()) {
-      System.out.println(metric.getSection());
-      System.out.println();
+    System.out.print(generate());
+  }
+
+  /**
+   * Generate the report in sections. Every section is calculated again from the resources of the
+   * session, so the report can be generated again after the resources have been updated.
+   *
+   * @return String representing the report.
+   * @throws IOException when a file in the FileList resource cannot be read.
+   */
+  public String generate() throws IOException {
+    this.report = "";
+    appendSection(String.format("Report for %s\n%n", session.getPathname()));
+    for (MetricType metric : session.getMetrics()) {
+      appendSection(metric.getSection(session) + System.lineSeparator() + System.lineSeparator());
+    }
+
+    // Only report on the parser if the modules were parsed and the flags asked for it.
+    boolean profiled = session.getParseMode() == ParseMode.PROFILE;
+    boolean budgeted = !session.getParseBudget().isUnlimited();
+    if (session.isParsed() && (profiled || budgeted)) {
+      appendSection(
+          getParserSection(profiled, budgeted) + System.lineSeparator() + System.lineSeparator());
+      if (profiled) {
+        appendSection(getProfileSection() + System.lineSeparator() + System.lineSeparator());
+      }
     }
+
+    return this.report;
+  }
+
+  /**
+   * Generate the section with statistics about parsing the modules. When profiling, it gives the
+   * number of modules that needed full LL prediction. With a parse budget, the modules that went
+   * over it are listed, since they only have the metrics that can be computed without parsing.
+   *
+   * @param profiled true if the report is made with --profile-parser; false otherwise.
+   * @param budgeted true if the modules were parsed with a parse budget; false otherwise.
+   * @return a String containing the section on the parser.
+   * @throws IOException when a file in the FileList resource cannot be read.
+   */
+  private String getParserSection(boolean profiled, boolean budgeted) throws IOException {
+    ParseTreeAnalysis analysis = session.getParseTreeAnalysis();
+    StringBuilder section = new StringBuilder("Parser statistics:\n");
+    if (profiled) {
+      section.append(
+          getMetricString(
+              "Modules parsed again with full LL prediction", analysis.getLlFallbackCount()));
+    }
+
+    if (budgeted) {
+      List<String> partialModules = analysis.getPartiallyAnalyzedModules();
+      section.append(
+          getMetricString(
+              "Modules over the parse budget (partially analyzed)", partialModules.size()));
+      for (String pathname : partialModules) {
+        section.append(String.format("    %s%n", pathname));
+      }
+    }
+
+    return section.toString();
+  }
+
+  /**
+   * Generate the section with the parser profile: the rules of HaskellParser.g4 that spent the
+   * most time in prediction and the modules that took the longest to parse.
+   *
+   * @return a String containing the section on the parser profile.
+   * @throws IOException when a file in the FileList resource cannot be read.
+   */
+  private String getProfileSection() throws IOException {
+    ParserProfile profile = session.getParseTreeAnalysis().getParserProfile();
+    StringBuilder section = new StringBuilder("Parser profile (most expensive rules first):\n");
+    section.append(
+        String.format(
+            "%-28s %10s %12s %10s %8s %10s %8s %10s %10s %10s%n",
+            "Rule",
+            "Decisions",
+            "Time (ms)",
+            "SLL look",
+            "SLL max",
+            "LL look",
+            "LL max",
+            "Fallbacks",
+            "Ambiguous",
+            "Context"));
+
+    for (RuleProfile rule : profile.getRules().stream().limit(profiledRules).toList()) {
+      section.append(
+          String.format(
+              "%-28s %10d %12.2f %10d %8d %10d %8d %10d %10d %10d%n",
+              rule.name,
+              rule.invocations,
+              rule.decisionNanos / 1e6,
+              rule.sllLookahead,
+              rule.sllMaxLookahead,
+              rule.llLookahead,
+              rule.llMaxLookahead,
+              rule.llFallbacks,
+              rule.ambiguities,
+              rule.contextSensitivities));
+    }
+
+    section.append("\nSlowest modules:\n");
+    for (Map.Entry<String, Long> file : profile.getSlowestFiles(profiledFiles)) {
+      section.append(String.format("%12.2f ms  %s%n", file.getValue() / 1e6, file.getKey()));
+    }
+
+    return section.toString();
   }
 
   /**
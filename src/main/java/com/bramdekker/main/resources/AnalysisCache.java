@@ -0,0 +1,495 @@
+package com.bramdekker.main.resources;
+
+import antlr.HaskellLexer;
+import antlr.HaskellParser;
+import com.bramdekker.main.metrics.CyclomaticComplexityMetric;
+import com.bramdekker.main.metrics.PatternMetric;
+import com.bramdekker.main.metrics.ReadabilityFileMetric;
+import com.bramdekker.main.metrics.SizeFileMetric;
+import com.bramdekker.main.resources.ModuleReferences.ImportDeclaration;
+import com.bramdekker.main.resources.ModuleReferences.Reference;
+import com.bramdekker.main.resources.ModuleReferences.ReferenceKind;
+import com.bramdekker.main.util.CollectorType;
+import org.antlr.v4.runtime.RuntimeMetaData;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * A persistent cache on disk with a ModuleSummary per module. Entries are keyed by a hash of the
+ * contents of the file, the collectors that ran and the version of the tool, the grammar and the
+ * classes that lex, parse and analyze a module, so an unchanged file does not have to be parsed
+ * again. The cache also stores the CompactTree of every parsed module, keyed by the contents only,
+ * so a module whose summary is missing because other collectors ran does not have to be parsed
+ * either. The cache is bounded in size: the least recently used entries of both kinds are evicted
+ * first.
+ */
+public class AnalysisCache {
+  /** Increment when the collectors or the summaries change in a way that invalidates entries. */
+  private static final int FORMAT_VERSION = 4;
+  private static final String ENTRY_SUFFIX = ".summary";
+  private static final String TREE_SUFFIX = ".tree";
+
+  /**
+   * The packages of which the class files decide the tokens and the CompactTree of a module,
+   * besides the grammar: the generated lexer and parser with the layout algorithm of
+   * HaskellBaseLexer, the parse tree and its budget.
+   */
+  static final List<String> treePackages =
+      List.of("antlr/", "com/bramdekker/main/resources/", "com/bramdekker/main/exceptions/");
+
+  /**
+   * The packages of which the class files decide the ModuleSummary of a module. This is every class
+   * file of the tool, so the collectors, their nested classes and everything they use are covered
+   * without listing them.
+   */
+  static final List<String> summaryPackages = List.of("");
+
+  private static final byte[] treeVersionBytes = getVersionBytes(treePackages);
+  private static final byte[] versionBytes = getVersionBytes(summaryPackages);
+
+  /**
+   * The classes that occur in a serialized ModuleSummary. The JDK classes are the collections of
+   * its fields, including the immutable lists of List.of and Stream.toList, which are serialized as
+   * a CollSer with an Object array.
+   */
+  private static final Set<String> summaryClasses =
+      Set.of(
+          ModuleSummary.class.getName(),
+          SizeFileMetric.class.getName(),
+          ReadabilityFileMetric.class.getName(),
+          HalsteadResult.class.getName(),
+          CyclomaticComplexityMetric.class.getName(),
+          PatternMetric.class.getName(),
+          ModuleReferences.class.getName(),
+          ImportDeclaration.class.getName(),
+          Reference.class.getName(),
+          ReferenceKind.class.getName(),
+          Enum.class.getName(),
+          Number.class.getName(),
+          Integer.class.getName(),
+          Object.class.getName(),
+          ArrayList.class.getName(),
+          HashMap.class.getName(),
+          LinkedHashMap.class.getName(),
+          Map.Entry.class.getName(),
+          "java.util.CollSer",
+          "java.util.ImmutableCollections$List12",
+          "java.util.ImmutableCollections$ListN");
+  private final Path directory;
+  private final long maxBytes;
+
+  /**
+   * Constructor that sets the directory and the maximum size of the cache. The directory is created
+   * if it does not exist yet.
+   *
+   * @param directory the directory in which the entries are stored.
+   * @param maxBytes the maximum total size of all entries in bytes.
+   * @throws IOException if the directory cannot be created.
+   */
+  public AnalysisCache(Path directory, long maxBytes) throws IOException {
+    this.directory = Files.createDirectories(directory);
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Get the key of the entry for a module.
+   *
+   * @param contents the contents of the Haskell file.
+   * @param collectorTypes the collectors that are used to analyze the module.
+   * @return a hexadecimal String that identifies the entry.
+   */
+  public String getKey(byte[] contents, Set<CollectorType> collectorTypes) {
+    return getKey(contents, collectorTypes, false);
+  }
+
+  /**
+   * Get the key of the entry for a module. Modules analyzed in fast mode have their own entries,
+   * because their Halstead data is counted from the tokens.
+   *
+   * @param contents the contents of the Haskell file.
+   * @param collectorTypes the collectors that are used to analyze the module.
+   * @param fast true if the module is analyzed without parsing it.
+   * @return a hexadecimal String that identifies the entry.
+   */
+  public String getKey(byte[] contents, Set<CollectorType> collectorTypes, boolean fast) {
+    MessageDigest digest = newDigest();
+    digest.update(versionBytes);
+    digest.update(collectorTypes.toString().getBytes(StandardCharsets.UTF_8));
+    if (fast) {
+      digest.update("fast".getBytes(StandardCharsets.UTF_8));
+    }
+    digest.update(contents);
+
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  /**
+   * Load the ModuleSummary of an entry and mark the entry as recently used. Only the classes of a
+   * ModuleSummary are deserialized, so an entry that contains any other class is rejected before
+   * it is instantiated. An entry that cannot be read is removed from the cache.
+   *
+   * @param key the key of the entry.
+   * @param pathname the canonical path of the module that is loaded.
+   * @return the cached ModuleSummary or null if the cache has no valid entry for the key.
+   * @throws IOException if an invalid entry cannot be removed.
+   */
+  public ModuleSummary load(String key, String pathname) throws IOException {
+    Path entry = getEntry(key);
+    if (!Files.isRegularFile(entry)) {
+      return null;
+    }
+
+    try (ObjectInputStream in =
+        new ObjectInputStream(new BufferedInputStream(Files.newInputStream(entry)))) {
+      in.setObjectInputFilter(AnalysisCache::filterSummaryClass);
+      ModuleSummary summary = (ModuleSummary) in.readObject();
+      summary.setName(pathname);
+      Files.setLastModifiedTime(entry, FileTime.from(Instant.now()));
+      return summary;
+    } catch (IOException | ClassNotFoundException | ClassCastException e) {
+      Files.deleteIfExists(entry);
+      return null;
+    }
+  }
+
+  /**
+   * Store the ModuleSummary of a module. The entry is written to a temporary file first, so other
+   * threads and processes never see a partially written entry.
+   *
+   * @param key the key of the entry.
+   * @param summary the ModuleSummary to be stored.
+   * @throws IOException if the entry cannot be written.
+   */
+  public void store(String key, ModuleSummary summary) throws IOException {
+    Path temporary = Files.createTempFile(directory, key, ".tmp");
+    try {
+      try (ObjectOutputStream out =
+          new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+        out.writeObject(summary);
+      }
+      Files.move(
+          temporary,
+          getEntry(key),
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  /**
+   * Get the key of the tree entry for a module. The tree does not depend on the collectors, so all
+   * analyses of the same contents share it.
+   *
+   * @param contents the contents of the Haskell file.
+   * @return a hexadecimal String that identifies the tree entry.
+   */
+  public String getTreeKey(byte[] contents) {
+    MessageDigest digest = newDigest();
+    digest.update(treeVersionBytes);
+    digest.update("tree".getBytes(StandardCharsets.UTF_8));
+    digest.update(contents);
+
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  /**
+   * Load the parse result of a tree entry and mark the entry as recently used. The entry is
+   * memory-mapped and every column of the tree is copied from the mapping into a heap array with a
+   * single bulk copy, so nothing is decoded per value. An entry that cannot be read is removed from
+   * the cache.
+   *
+   * @param key the key of the tree entry.
+   * @return the cached ParseResult or null if the cache has no valid entry for the key.
+   * @throws IOException if an invalid entry cannot be removed.
+   */
+  public ParseResult loadTree(String key) throws IOException {
+    Path entry = getTreeEntry(key);
+    if (!Files.isRegularFile(entry)) {
+      return null;
+    }
+
+    try (FileChannel channel = FileChannel.open(entry, StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      boolean usedLlFallback = buffer.get() != 0;
+      ParseResult result = new ParseResult(CompactTree.read(buffer), usedLlFallback);
+      Files.setLastModifiedTime(entry, FileTime.from(Instant.now()));
+      return result;
+    } catch (IOException
+        | BufferUnderflowException
+        | IllegalArgumentException
+        | IndexOutOfBoundsException e) {
+      Files.deleteIfExists(entry);
+      return null;
+    }
+  }
+
+  /**
+   * Store the parse result of a module in a tree entry. The entry is written to a temporary file
+   * first, so other threads and processes never see a partially written entry.
+   *
+   * @param key the key of the tree entry.
+   * @param result the ParseResult to be stored.
+   * @throws IOException if the entry cannot be written.
+   */
+  public void storeTree(String key, ParseResult result) throws IOException {
+    Path temporary = Files.createTempFile(directory, key, ".tmp");
+    try {
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+        out.writeBoolean(result.usedLlFallback);
+        result.tree.write(out);
+      }
+      Files.move(
+          temporary,
+          getTreeEntry(key),
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  /**
+   * Remove the least recently used entries until the total size of the cache is within bounds.
+   *
+   * @throws IOException if the directory cannot be listed or an entry cannot be removed.
+   */
+  public void evict() throws IOException {
+    List<CacheEntry> entries = new ArrayList<>();
+    long totalBytes = 0;
+
+    try (DirectoryStream<Path> stream =
+        Files.newDirectoryStream(directory, "*{" + ENTRY_SUFFIX + "," + TREE_SUFFIX + "}")) {
+      for (Path path : stream) {
+        BasicFileAttributes attributes;
+        try {
+          attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+          // Another analysis that shares the cache evicted the entry in the meantime.
+          continue;
+        }
+        entries.add(new CacheEntry(path, attributes.size(), attributes.lastModifiedTime()));
+        totalBytes += attributes.size();
+      }
+    }
+
+    entries.sort(Comparator.comparing(entry -> entry.lastUsed));
+    for (CacheEntry entry : entries) {
+      if (totalBytes <= maxBytes) {
+        break;
+      }
+      Files.deleteIfExists(entry.path);
+      totalBytes -= entry.size;
+    }
+  }
+
+  /**
+   * Decide whether a class may be deserialized from a summary entry. Arrays are checked by the
+   * class of their elements.
+   *
+   * @param info the class and the limits of the object that is about to be deserialized.
+   * @return ALLOWED for the classes of a ModuleSummary, REJECTED for other classes and UNDECIDED if
+   *     no class is being deserialized.
+   */
+  private static ObjectInputFilter.Status filterSummaryClass(ObjectInputFilter.FilterInfo info) {
+    Class<?> serialClass = info.serialClass();
+    if (serialClass == null) {
+      return ObjectInputFilter.Status.UNDECIDED;
+    }
+    while (serialClass.isArray()) {
+      serialClass = serialClass.getComponentType();
+    }
+
+    return serialClass.isPrimitive() || summaryClasses.contains(serialClass.getName())
+        ? ObjectInputFilter.Status.ALLOWED
+        : ObjectInputFilter.Status.REJECTED;
+  }
+
+  /**
+   * Get the path of the file that stores an entry.
+   *
+   * @param key the key of the entry.
+   * @return Path of the entry inside the cache directory.
+   */
+  private Path getEntry(String key) {
+    return directory.resolve(key + ENTRY_SUFFIX);
+  }
+
+  /**
+   * Get the path of the file that stores a tree entry.
+   *
+   * @param key the key of the tree entry.
+   * @return Path of the tree entry inside the cache directory.
+   */
+  private Path getTreeEntry(String key) {
+    return directory.resolve(key + TREE_SUFFIX);
+  }
+
+  /**
+   * Get the bytes that identify the version of the tool, the grammar and the implementation. The
+   * grammar is identified by the serialized ATNs of the generated lexer and parser, so any change
+   * to a rule, a token or a predicate gives new keys. The implementation is identified by the class
+   * files in the given packages, so a change to the layout algorithm of the lexer or to a collector
+   * gives new keys as well. Entries that were created by a different version are never found,
+   * because the version is part of every key.
+   *
+   * @param packages the paths of the packages whose class files are part of the version, ending
+   *     in a slash; an empty String includes every class file.
+   * @return a SHA-256 hash of the versions, the serialized ATNs and the class files.
+   */
+  private static byte[] getVersionBytes(List<String> packages) {
+    String toolVersion = AnalysisCache.class.getPackage().getImplementationVersion();
+    MessageDigest digest = newDigest();
+    for (String part :
+        List.of(
+            String.valueOf(FORMAT_VERSION),
+            toolVersion == null ? "" : toolVersion,
+            RuntimeMetaData.VERSION,
+            HaskellLexer._serializedATN,
+            HaskellParser._serializedATN)) {
+      digest.update(part.getBytes(StandardCharsets.UTF_8));
+      // Separate the parts, so moving text from one part to the next changes the hash.
+      digest.update((byte) 0);
+    }
+
+    try {
+      Path codeSource = getCodeSource();
+      if (codeSource != null) {
+        if (Files.isDirectory(codeSource)) {
+          updateClassFiles(digest, codeSource, packages);
+        } else {
+          try (FileSystem jar = FileSystems.newFileSystem(codeSource)) {
+            updateClassFiles(digest, jar.getPath("/"), packages);
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    return digest.digest();
+  }
+
+  /**
+   * Get the jar or the classes directory from which the classes of the tool are loaded.
+   *
+   * @return Path of the code source or null if the class loader does not tell where it is.
+   */
+  static Path getCodeSource() {
+    CodeSource codeSource = AnalysisCache.class.getProtectionDomain().getCodeSource();
+    if (codeSource == null || codeSource.getLocation() == null) {
+      return null;
+    }
+
+    try {
+      return Path.of(codeSource.getLocation().toURI());
+    } catch (URISyntaxException | IllegalArgumentException | FileSystemNotFoundException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Get the class files of some packages in a jar or a classes directory, including the nested
+   * classes and the classes of subpackages.
+   *
+   * @param root the root of the jar or the classes directory.
+   * @param packages the paths of the packages, ending in a slash; an empty String includes every
+   *     class file.
+   * @return the paths of the class files relative to the root, separated by slashes and sorted.
+   * @throws IOException if the root cannot be walked.
+   */
+  static List<String> getClassFiles(Path root, List<String> packages) throws IOException {
+    String separator = root.getFileSystem().getSeparator();
+    try (Stream<Path> files = Files.walk(root)) {
+      return files
+          .filter(Files::isRegularFile)
+          .map(file -> root.relativize(file).toString().replace(separator, "/"))
+          .filter(name -> name.endsWith(".class"))
+          .filter(name -> packages.stream().anyMatch(name::startsWith))
+          .sorted()
+          .toList();
+    }
+  }
+
+  /**
+   * Add the names and the contents of the class files of some packages to a digest, in the order
+   * of their names so the hash does not depend on the order of the file system.
+   *
+   * @param digest the MessageDigest of the version.
+   * @param root the root of the jar or the classes directory.
+   * @param packages the paths of the packages, ending in a slash.
+   * @throws IOException if a class file cannot be read.
+   */
+  private static void updateClassFiles(MessageDigest digest, Path root, List<String> packages)
+      throws IOException {
+    for (String name : getClassFiles(root, packages)) {
+      digest.update(name.getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+      digest.update(Files.readAllBytes(root.resolve(name)));
+    }
+  }
+
+  /**
+   * Create a new SHA-256 message digest.
+   *
+   * @return a MessageDigest that computes SHA-256 hashes.
+   */
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** The path, size and last use of a single entry. */
+  private static class CacheEntry {
+    private final Path path;
+    private final long size;
+    private final FileTime lastUsed;
+
+    private CacheEntry(Path path, long size, FileTime lastUsed) {
+      this.path = path;
+      this.size = size;
+      this.lastUsed = lastUsed;
+    }
+  }
+}
@@ -1,93 +1,680 @@
 package com.bramdekker.main.resources;
 
-import com.bramdekker.main.util.CallGraphVisitor;
-import org.antlr.v4.runtime.tree.ParseTree;
-import org.jgrapht.graph.DefaultEdge;
-import org.jgrapht.graph.DirectedPseudograph;
-import org.jgrapht.graph.SimpleGraph;
+import com.bramdekker.main.resources.ModuleReferences.ImportDeclaration;
+import com.bramdekker.main.resources.ModuleReferences.Reference;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.jgrapht.graph.SimpleWeightedGraph;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
- * A singleton class that contains functionality to generate a callgraph on all the functions in the
- * project.
+ * Contains functionality to generate a callgraph on all the functions in a project. Every function
+ * is interned in a SymbolTable, which also knows the module of every function. The references of
+ * the modules are resolved in parallel, every module into its own EdgeBuffer, while the shared
+ * state is only read. The buffers are then merged one after the other in a fixed order into a
+ * growing int array of calls per caller, so the result does not depend on the scheduling of the
+ * workers. Once all references are resolved, they are stored in a CompactGraph. When modules
+ * change, the rows of their functions in the CompactGraph, their components and the weights of
+ * their module edges are updated in place.
  */
 public class CallGraph {
-  private static CallGraph instance;
-  private DirectedPseudograph<String, DefaultEdge> graph;
-  private SimpleGraph<String, DefaultEdge> moduleGraph;
+  private final ParseTreeAnalysis analysis;
+  private final int threads;
+  private final ExecutorService executor;
+  private final SymbolTable symbols = new SymbolTable();
+  private final BitSet definedFunctions = new BitSet();
+  private final Map<String, Set<String>> exportedFunctions;
+  private final SimpleWeightedGraph<String, DefaultWeightedEdge> moduleGraph =
+      new SimpleWeightedGraph<>(DefaultWeightedEdge.class);
+  private int[] numDefinitions = new int[0];
+  private int[] numModuleFunctions = new int[0];
+  private int[][] calls = new int[0][];
+  private int[] numCalls = new int[0];
+  private final CompactGraph graph;
+  private final StronglyConnectedComponents components;
 
-  /** Private constructor to make it singleton. */
-  private CallGraph() {}
+  /**
+   * Constructor that generates the callgraphs from the summaries of the modules.
+   *
+   * @param fileList the FileList that determines the order of the functions.
+   * @param analysis the ParseTreeAnalysis with the references of every module.
+   * @param threads the maximum number of modules that are resolved at the same time.
+   * @param executor a pool of worker threads shared with other sessions or null to start a pool
+   *     whenever references are resolved.
+   * @throws IOException if the canonical path of a file cannot be determined.
+   */
+  public CallGraph(
+      FileList fileList, ParseTreeAnalysis analysis, int threads, ExecutorService executor)
+      throws IOException {
+    this.analysis = analysis;
+    this.threads = threads;
+    this.executor = executor;
+
+    // The functions in the order of the FileList. A function that is defined in multiple files
+    // with the same module name is only included once.
+    Map<String, ModuleSummary> summaryDict = analysis.getSummaryDict();
+    List<ModuleSummary> summaries = new ArrayList<>();
+    List<Integer> functions = new ArrayList<>();
+    for (File file : fileList.getHaskellFiles()) {
+      ModuleSummary summary = summaryDict.get(file.getCanonicalPath());
+      summaries.add(summary);
+      functions.addAll(addDefinitions(summary, 1));
+    }
+    exportedFunctions = getExportedFunctions(functions);
+    addEdges(summaries, exportedFunctions);
+
+    graph = new CompactGraph(symbols, functions, calls, numCalls);
+    components = new StronglyConnectedComponents(graph);
+    for (int v = 0; v < graph.getVertexCount(); v++) {
+      addModuleFunction(graph.getFunction(v), 1);
+    }
+    for (int v = 0; v < graph.getVertexCount(); v++) {
+      addModuleCalls(v, 1);
+    }
+  }
+
+  /**
+   * Update the callgraphs after modules changed. Only the edges of the changed modules and of the
+   * modules that import them or share their name are resolved again; the calls of the other
+   * functions are kept as they are. The rows of the functions of which the calls changed are
+   * replaced in the CompactGraph, the components are only found again in the range of components
+   * that the changed calls can reach, and the module callgraph gets the difference of the calls of
+   * the resolved functions.
+   *
+   * @param changes the summaries that were replaced, added or removed.
+   * @throws IOException if the canonical path of a file cannot be determined.
+   */
+  public void update(SummaryChanges changes) throws IOException {
+    if (changes.isEmpty()) {
+      return;
+    }
+
+    Set<String> changedModules = new HashSet<>();
+    for (ModuleSummary summary : changes.outdated) {
+      changedModules.add(summary.references.getModule());
+    }
+    for (ModuleSummary summary : changes.updated) {
+      changedModules.add(summary.references.getModule());
+    }
+
+    List<ModuleSummary> resolvedSummaries = new ArrayList<>(changes.updated);
+    for (ModuleSummary summary : analysis.getSummaryDict().values()) {
+      if (!changes.updated.contains(summary) && dependsOn(summary.references, changedModules)) {
+        resolvedSummaries.add(summary);
+      }
+    }
+
+    // A function is removed when no module defines it anymore and added when a module defines it
+    // for the first time. Added functions get their vertices in the order of the updated modules.
+    List<Integer> removedFunctions = new ArrayList<>();
+    for (ModuleSummary summary : changes.outdated) {
+      removedFunctions.addAll(addDefinitions(summary, -1));
+    }
+    List<Integer> addedFunctions = new ArrayList<>();
+    for (ModuleSummary summary : changes.updated) {
+      addedFunctions.addAll(addDefinitions(summary, 1));
+    }
+    // A function that moved to another module with the same name is neither removed nor added.
+    BitSet movedFunctions = new BitSet();
+    for (int function : removedFunctions) {
+      if (definedFunctions.get(function)) {
+        movedFunctions.set(function);
+      }
+    }
+    removedFunctions.removeIf(movedFunctions::get);
+    addedFunctions.removeIf(movedFunctions::get);
+    for (int function : removedFunctions) {
+      Set<String> moduleFunctions = exportedFunctions.get(getModuleName(function));
+      if (moduleFunctions != null) {
+        moduleFunctions.remove(getLocalName(function));
+      }
+    }
+    for (int function : addedFunctions) {
+      exportFunction(function, exportedFunctions);
+    }
+
+    // Drop the calls that will be resolved again.
+    BitSet changedFunctions = new BitSet();
+    List<ModuleSummary> droppedSummaries = new ArrayList<>(changes.outdated);
+    droppedSummaries.addAll(resolvedSummaries);
+    for (ModuleSummary summary : droppedSummaries) {
+      ModuleReferences references = summary.references;
+      for (Reference reference : references.getReferences()) {
+        String function = references.getNames().get(reference.function);
+        int source = symbols.getId(getSource(references.getModule(), function));
+        if (source != SymbolTable.NONE && !changedFunctions.get(source)) {
+          changedFunctions.set(source);
+          if (source < numCalls.length) {
+            numCalls[source] = 0;
+          }
+        }
+      }
+    }
+
+    // The module edges of every row that may change are taken out and added again afterwards.
+    BitSet resolvedFunctions = (BitSet) changedFunctions.clone();
+    for (int function : removedFunctions) {
+      int v = graph.getVertexOfFunction(function);
+      resolvedFunctions.set(function);
+      for (int i = graph.getInStart(v); i < graph.getInEnd(v); i++) {
+        resolvedFunctions.set(graph.getFunction(graph.getSource(graph.getInEdge(i))));
+      }
+    }
+    addModuleCalls(resolvedFunctions, -1);
+
+    addEdges(resolvedSummaries, exportedFunctions);
+    int[] changedRows =
+        graph.update(removedFunctions, addedFunctions, changedFunctions, calls, numCalls);
+    components.update(changedRows, removedFunctions);
+
+    for (int function : removedFunctions) {
+      addModuleFunction(function, -1);
+    }
+    for (int function : addedFunctions) {
+      addModuleFunction(function, 1);
+      resolvedFunctions.set(function);
+    }
+    addModuleCalls(resolvedFunctions, 1);
+  }
+
+  /**
+   * Count the definitions of the functions of a module. A function is defined as long as at least
+   * one module defines it, which also updates the definedFunctions.
+   *
+   * @param summary the summary of the module.
+   * @param sign 1 if the module was added; -1 if it was removed.
+   * @return the functions that became defined or undefined.
+   */
+  private List<Integer> addDefinitions(ModuleSummary summary, int sign) {
+    List<Integer> changed = new ArrayList<>();
+    for (String function : summary.references.getFunctions()) {
+      int id = symbols.internFunction(function);
+      if (id >= numDefinitions.length) {
+        numDefinitions = Arrays.copyOf(numDefinitions, Math.max(symbols.size(), id * 2));
+      }
+      numDefinitions[id] += sign;
+      if ((numDefinitions[id] > 0) != definedFunctions.get(id)) {
+        definedFunctions.flip(id);
+        changed.add(id);
+      }
+    }
+
+    return changed;
+  }
 
   /**
-   * Get the instance of CallGraph. If it does not exist yet, generate one.
+   * Add or remove a function in the count of functions per module, and add or remove the vertex of
+   * the module in the module callgraph when its first function is added or its last one removed.
    *
-   * @return instance of CallGraph with the graph constructed.
+   * @param function the ID of the function.
+   * @param sign 1 if the function was added; -1 if it was removed.
    */
-  public static CallGraph getInstance() throws IOException {
-    if (instance == null) {
-      instance = generateInstance();
+  private void addModuleFunction(int function, int sign) {
+    int module = symbols.getModule(function);
+    if (module >= numModuleFunctions.length) {
+      numModuleFunctions = Arrays.copyOf(numModuleFunctions, Math.max(symbols.size(), module * 2));
+    }
+
+    numModuleFunctions[module] += sign;
+    if (sign > 0 && numModuleFunctions[module] == 1) {
+      moduleGraph.addVertex(symbols.getName(module));
+    } else if (sign < 0 && numModuleFunctions[module] == 0) {
+      moduleGraph.removeVertex(symbols.getName(module));
     }
+  }
 
-    return instance;
+  /**
+   * Add or subtract the calls of functions to the weights of the module callgraph.
+   *
+   * @param functions the IDs of the functions; functions without a vertex are skipped.
+   * @param sign 1 to add the calls; -1 to subtract them.
+   */
+  private void addModuleCalls(BitSet functions, int sign) {
+    for (int f = functions.nextSetBit(0); f >= 0; f = functions.nextSetBit(f + 1)) {
+      int v = graph.getVertexOfFunction(f);
+      if (v != SymbolTable.NONE) {
+        addModuleCalls(v, sign);
+      }
+    }
   }
 
   /**
-   * Generate an instance of the CallGraph singleton by generating the callgraph.
+   * Add or subtract the calls of a vertex to the weights of the module callgraph. The modules of
+   * the caller and the called function are looked up by ID in the SymbolTable, so no names are
+   * split. Two modules share an edge if a function of one calls a function of the other, weighted
+   * by the number of such calls in both directions. An edge of which the weight drops to 0 is
+   * removed.
    *
-   * @return an instance of CallGraph with the callgraph populated.
-   * @throws IOException if HaskellParseTree finds a File that doesn't exist.
+   * @param vertex the calling vertex.
+   * @param sign 1 to add the calls; -1 to subtract them.
+   * @throws IllegalStateException if calls are subtracted from modules that do not share an edge.
    */
-  private static CallGraph generateInstance() throws IOException {
-    CallGraph callGraph = new CallGraph();
-    callGraph.graph = new DirectedPseudograph<>(DefaultEdge.class);
-    callGraph.moduleGraph = new SimpleGraph<>(DefaultEdge.class);
+  void addModuleCalls(int vertex, int sign) {
+    int source = symbols.getModule(graph.getFunction(vertex));
+    for (int e = graph.getOutStart(vertex); e < graph.getOutEnd(vertex); e++) {
+      int target = symbols.getModule(graph.getFunction(graph.getTarget(e)));
+      if (source == target) {
+        continue;
+      }
 
-    List<String> userDefinedFunctions = HaskellParseTree.getInstance().getFunctionNames();
-    for (String functionName : userDefinedFunctions) {
-      String moduleName = functionName.split("\\.")[0];
-      callGraph.moduleGraph.addVertex(moduleName);
-      callGraph.graph.addVertex(functionName);
+      String sourceName = symbols.getName(source);
+      String targetName = symbols.getName(target);
+      DefaultWeightedEdge moduleEdge = moduleGraph.getEdge(sourceName, targetName);
+      if (moduleEdge == null) {
+        if (sign < 0) {
+          throw new IllegalStateException(
+              "No calls between " + sourceName + " and " + targetName + " to subtract!");
+        }
+        moduleEdge = moduleGraph.addEdge(sourceName, targetName);
+        moduleGraph.setEdgeWeight(moduleEdge, graph.getCount(e));
+      } else {
+        double weight = moduleGraph.getEdgeWeight(moduleEdge) + sign * graph.getCount(e);
+        if (weight == 0) {
+          moduleGraph.removeEdge(moduleEdge);
+        } else {
+          moduleGraph.setEdgeWeight(moduleEdge, weight);
+        }
+      }
     }
+  }
 
-    CallGraphVisitor callGraphVisitor = new CallGraphVisitor(userDefinedFunctions, callGraph.graph);
-    for (Map.Entry<String, ParseTree> entry :
-        HaskellParseTree.getInstance().getTreeDict().entrySet()) {
-      callGraphVisitor.visit(entry.getValue());
+  /**
+   * Check if a module has to be resolved again when other modules changed, because it imports one
+   * of them or has the same name as one of them.
+   *
+   * @param references the imports and references of the module.
+   * @param changedModules the names of the modules that changed.
+   * @return true if the edges of the module may have changed; false otherwise.
+   */
+  private static boolean dependsOn(ModuleReferences references, Set<String> changedModules) {
+    if (changedModules.contains(references.getModule())) {
+      return true;
     }
 
-    for (DefaultEdge e : callGraph.graph.edgeSet()) {
-      String[] vertexNames = e.toString().replaceAll("[(\\[\\])]", "").split(" : ");
-      String source = vertexNames[0].split("\\.")[0];
-      String target = vertexNames[1].split("\\.")[0];
-      if (!source.equals(target)
-          && callGraph.moduleGraph.containsVertex(source)
-          && callGraph.moduleGraph.containsVertex(target)) {
-        callGraph.moduleGraph.addEdge(source, target);
+    for (ImportDeclaration importDeclaration : references.getImports()) {
+      if (changedModules.contains(importDeclaration.module)) {
+        return true;
       }
     }
 
-    return callGraph;
+    return false;
+  }
+
+  /**
+   * Get the name of the vertex of a function that calls another function.
+   *
+   * @param module the name of the module or an empty String if it has no module header.
+   * @param function the name of the calling function.
+   * @return the name of the function prefixed with the name of its module.
+   */
+  private static String getSource(String module, String function) {
+    return module.isEmpty() ? function : module + "." + function;
+  }
+
+  /**
+   * Group the user defined functions by the module prefix of their names, which is looked up in
+   * the SymbolTable. Functions without a module prefix cannot be imported, so they are left out.
+   *
+   * @param userDefinedFunctions the IDs of the functions that the user defined in this project.
+   * @return dictionary from a module prefix to the names of its functions without the prefix.
+   */
+  private Map<String, Set<String>> getExportedFunctions(List<Integer> userDefinedFunctions) {
+    Map<String, Set<String>> exportedFunctions = new HashMap<>();
+    for (int function : userDefinedFunctions) {
+      exportFunction(function, exportedFunctions);
+    }
+
+    return exportedFunctions;
+  }
+
+  /**
+   * Add a function to the names of the functions of its module prefix, unless it has no prefix.
+   *
+   * @param function the ID of the function.
+   * @param exportedFunctions dictionary from a module prefix to the names of its functions.
+   */
+  private void exportFunction(int function, Map<String, Set<String>> exportedFunctions) {
+    if (symbols.getModule(function) != function) {
+      exportedFunctions
+          .computeIfAbsent(getModuleName(function), m -> new HashSet<>())
+          .add(getLocalName(function));
+    }
+  }
+
+  /**
+   * Get the name of the module of a function.
+   *
+   * @param function the ID of the function.
+   * @return the module prefix of the name of the function.
+   */
+  private String getModuleName(int function) {
+    return symbols.getName(symbols.getModule(function));
+  }
+
+  /**
+   * Get the name of a function without its module prefix.
+   *
+   * @param function the ID of the function, which has a module prefix.
+   * @return the name of the function after the prefix and the dot.
+   */
+  private String getLocalName(int function) {
+    return symbols.getName(function).substring(getModuleName(function).length() + 1);
+  }
+
+  /**
+   * Resolve the references of modules into calls of the callgraph on function level. Every module
+   * is resolved by a worker thread into its own EdgeBuffer; the buffers are merged in the order of
+   * the summaries. The shared pool is used if there is one; otherwise a pool is started for these
+   * modules only.
+   *
+   * @param summaries the summaries of the modules of which the references are resolved.
+   * @param exportedFunctions dictionary from a module prefix to the names of its functions.
+   * @throws IOException if resolving the references was interrupted.
+   */
+  private void addEdges(List<ModuleSummary> summaries, Map<String, Set<String>> exportedFunctions)
+      throws IOException {
+    if (summaries.isEmpty()) {
+      return;
+    }
+
+    List<EdgeBuffer> buffers;
+    if (executor != null) {
+      buffers = resolveAll(summaries, exportedFunctions, executor);
+    } else {
+      ExecutorService ownExecutor =
+          Executors.newFixedThreadPool(Math.max(1, Math.min(threads, summaries.size())));
+      try {
+        buffers = resolveAll(summaries, exportedFunctions, ownExecutor);
+      } finally {
+        ownExecutor.shutdownNow();
+      }
+    }
+
+    for (EdgeBuffer buffer : buffers) {
+      for (int i = 0; i < buffer.size; i++) {
+        addCall(buffer.sources[i], buffer.targets[i]);
+      }
+    }
+  }
+
+  /**
+   * Submit the references of every module to a pool of worker threads and wait until all of them
+   * are resolved.
+   *
+   * @param summaries the summaries of the modules of which the references are resolved.
+   * @param exportedFunctions dictionary from a module prefix to the names of its functions.
+   * @param workers the pool of worker threads that resolves the references.
+   * @return an EdgeBuffer per module in the order of the summaries.
+   * @throws IOException if resolving the references was interrupted.
+   */
+  private List<EdgeBuffer> resolveAll(
+      List<ModuleSummary> summaries,
+      Map<String, Set<String>> exportedFunctions,
+      ExecutorService workers)
+      throws IOException {
+    List<Future<EdgeBuffer>> pendingBuffers = new ArrayList<>();
+    for (ModuleSummary summary : summaries) {
+      pendingBuffers.add(workers.submit(() -> resolve(summary.references, exportedFunctions)));
+    }
+
+    List<EdgeBuffer> buffers = new ArrayList<>();
+    try {
+      for (Future<EdgeBuffer> buffer : pendingBuffers) {
+        buffers.add(awaitResult(buffer));
+      }
+    } finally {
+      // Do not leave work in a shared pool when one of the modules failed.
+      for (Future<EdgeBuffer> buffer : pendingBuffers) {
+        buffer.cancel(true);
+      }
+    }
+
+    return buffers;
+  }
+
+  /**
+   * Wait for the EdgeBuffer of a module and rethrow the exception of the worker if there was one.
+   *
+   * @param buffer the pending result of a worker.
+   * @return the EdgeBuffer of the module.
+   * @throws IOException if waiting was interrupted.
+   */
+  private static EdgeBuffer awaitResult(Future<EdgeBuffer> buffer) throws IOException {
+    try {
+      return buffer.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Resolving the callgraph was interrupted!");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  /**
+   * Resolve the references of a single module into calls between user defined functions. Every
+   * name of the module is resolved to a function ID once, so a reference only looks up the IDs of
+   * its two names by index. This runs on a worker thread, so it only reads the SymbolTable and the
+   * functions and writes to its own EdgeBuffer.
+   *
+   * @param references the imports and references recorded while walking the module.
+   * @param exportedFunctions dictionary from a module prefix to the names of its functions.
+   * @return EdgeBuffer with the calls of the module in the order of the references.
+   */
+  private EdgeBuffer resolve(
+      ModuleReferences references, Map<String, Set<String>> exportedFunctions) {
+    String module = references.getModule();
+    Map<String, Integer> importedFunctions = getImportedFunctions(references, exportedFunctions);
+    Set<String> internalFunctions = exportedFunctions.getOrDefault(module, Set.of());
+
+    // The ID of a name as a caller, as an unqualified name and as an imported name.
+    List<String> names = references.getNames();
+    int[] sources = new int[names.size()];
+    int[] unqualifiedTargets = new int[names.size()];
+    int[] importedTargets = new int[names.size()];
+    for (int i = 0; i < names.size(); i++) {
+      String name = names.get(i);
+      sources[i] = symbols.getId(getSource(module, name));
+      importedTargets[i] = importedFunctions.getOrDefault(name, SymbolTable.NONE);
+      unqualifiedTargets[i] =
+          internalFunctions.contains(name)
+              ? symbols.getId(module + "." + name)
+              : importedTargets[i];
+    }
+
+    EdgeBuffer buffer = new EdgeBuffer();
+    for (Reference reference : references.getReferences()) {
+      int source = sources[reference.function];
+      switch (reference.kind) {
+        case RECURSIVE -> addEdge(buffer, source, source);
+        case UNQUALIFIED -> addEdge(buffer, source, unqualifiedTargets[reference.name]);
+        case QUALIFIED -> addEdge(buffer, source, importedTargets[reference.name]);
+        default -> throw new IllegalStateException("Unknown reference kind!");
+      }
+    }
+
+    return buffer;
+  }
+
+  /**
+   * Build the name resolution table of a module from all of its import declarations. The table
+   * maps every name under which an imported function can be referenced to the ID of the function,
+   * so a reference is resolved with a single lookup.
+   *
+   * @param references the imports and references recorded while walking the module.
+   * @param exportedFunctions dictionary from a module prefix to the names of its functions.
+   * @return a dictionary from the name used in the module to the ID of the function.
+   */
+  private Map<String, Integer> getImportedFunctions(
+      ModuleReferences references, Map<String, Set<String>> exportedFunctions) {
+    Map<String, Integer> importedFunctions = new HashMap<>();
+    for (ImportDeclaration importDeclaration : references.getImports()) {
+      Set<String> exported = exportedFunctions.get(importDeclaration.module);
+      if (exported != null) {
+        resolveImport(importDeclaration, exported, importedFunctions);
+      }
+    }
+
+    return importedFunctions;
+  }
+
+  /**
+   * Determine which functions an import declaration brings into scope and under which name they
+   * can be referenced. Only the functions of the imported module are visited.
+   *
+   * @param importDeclaration the import declaration to be resolved.
+   * @param exported the names of the functions of the imported module.
+   * @param importedFunctions dictionary from the name used in the importing module to the ID of
+   *     the function, to which the functions of this import are added.
+   */
+  private void resolveImport(
+      ImportDeclaration importDeclaration,
+      Set<String> exported,
+      Map<String, Integer> importedFunctions) {
+    String modulePrefix = importDeclaration.module + ".";
+    String localPrefix;
+    if (importDeclaration.alias != null) {
+      localPrefix = importDeclaration.alias + ".";
+    } else if (importDeclaration.qualified) {
+      localPrefix = modulePrefix;
+    } else {
+      localPrefix = "";
+    }
+
+    Iterable<String> names;
+    if (importDeclaration.names == null) {
+      names = exported;
+    } else if (importDeclaration.hiding) {
+      Set<String> visible = new HashSet<>(exported);
+      importDeclaration.names.forEach(visible::remove);
+      names = visible;
+    } else {
+      names = importDeclaration.names;
+    }
+
+    for (String name : names) {
+      if (exported.contains(name)) {
+        importedFunctions.put(localPrefix + name, symbols.getId(modulePrefix + name));
+      }
+    }
+  }
+
+  /**
+   * Add an edge to the EdgeBuffer of a module if both functions are user defined.
+   *
+   * @param buffer the EdgeBuffer of the module.
+   * @param source the ID of the calling function.
+   * @param target the ID of the called function.
+   */
+  private void addEdge(EdgeBuffer buffer, int source, int target) {
+    if (isDefined(source) && isDefined(target)) {
+      buffer.add(source, target);
+    }
+  }
+
+  /**
+   * Check if an ID is one of the user defined functions.
+   *
+   * @param id the ID of a name in the SymbolTable or NONE.
+   * @return true if the ID is a user defined function; false otherwise.
+   */
+  private boolean isDefined(int id) {
+    return id != SymbolTable.NONE && definedFunctions.get(id);
+  }
+
+  /**
+   * Append a call to the calls of a function.
+   *
+   * @param source the ID of the calling function.
+   * @param target the ID of the called function.
+   */
+  private void addCall(int source, int target) {
+    if (source >= calls.length) {
+      int capacity = Math.max(symbols.size(), calls.length * 2);
+      calls = Arrays.copyOf(calls, capacity);
+      numCalls = Arrays.copyOf(numCalls, capacity);
+    }
+    if (calls[source] == null) {
+      calls[source] = new int[4];
+    } else if (numCalls[source] == calls[source].length) {
+      calls[source] = Arrays.copyOf(calls[source], numCalls[source] * 2);
+    }
+    calls[source][numCalls[source]++] = target;
+  }
+
+  /**
+   * Getter for the symbols field.
+   *
+   * @return the SymbolTable with the functions and modules of the callgraph.
+   */
+  public SymbolTable getSymbols() {
+    return symbols;
   }
 
   /**
    * Getter for the directed callgraph on functions.
    *
-   * @return DirectedPseudoGraph representing the function callgraph.
+   * @return CompactGraph representing the function callgraph.
    */
-  public DirectedPseudograph<String, DefaultEdge> getGraph() {
+  public CompactGraph getGraph() {
     return graph;
   }
 
   /**
-   * Getter for the directed callgraph on modules.
+   * Getter for the strongly connected components of the callgraph on functions.
+   *
+   * @return StronglyConnectedComponents of the function callgraph with its condensation.
+   */
+  public StronglyConnectedComponents getComponents() {
+    return components;
+  }
+
+  /**
+   * Getter for the callgraph on modules. The weight of an edge is the number of calls between the
+   * functions of the two modules.
    *
-   * @return SimpleDirectedGraph representing the module callgraph.
+   * @return SimpleWeightedGraph representing the module callgraph.
    */
-  public SimpleGraph<String, DefaultEdge> getModuleGraph() {
+  public SimpleWeightedGraph<String, DefaultWeightedEdge> getModuleGraph() {
     return moduleGraph;
   }
+
+  /** The calls found in a single module, as two growing arrays of caller and callee IDs. */
+  private static class EdgeBuffer {
+    private int[] sources = new int[16];
+    private int[] targets = new int[16];
+    private int size = 0;
+
+    /**
+     * Append a call to the buffer.
+     *
+     * @param source the ID of the calling function.
+     * @param target the ID of the called function.
+     */
+    private void add(int source, int target) {
+      if (size == sources.length) {
+        sources = Arrays.copyOf(sources, size * 2);
+        targets = Arrays.copyOf(targets, size * 2);
+      }
+      sources[size] = source;
+      targets[size] = target;
+      size++;
+    }
+  }
 }
@@ -0,0 +1,535 @@
+package com.bramdekker.main.resources;
+
+import org.jgrapht.Graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The callgraph on function level in compressed sparse row form. The vertices are numbered from 0
+ * and every vertex is a function of the SymbolTable. The calls of vertex v are the edges from
+ * getOutStart(v) up to getOutEnd(v): every edge has a target and the number of times the function
+ * calls it, so repeated calls between two functions take up a single edge. The edges to a vertex
+ * are indexed the same way in parallel arrays. Compared to a jgrapht graph there is no object per
+ * edge or vertex and no hash set of edges per vertex. The edges store the IDs of their functions,
+ * so when a vertex is removed the edges of the other vertices stay as they are. The graph is
+ * read-only for everyone but the CallGraph that updates it; asGraph gives a read-only jgrapht view
+ * for algorithms that need one.
+ */
+public class CompactGraph {
+  private static final int TARGET = 0;
+  private static final int COUNT = 1;
+  private static final int SOURCE = 2;
+  private static final int CALLER = 0;
+  private static final int RANK = 1;
+  private final SymbolTable symbols;
+  private final CompressedRows out = new CompressedRows(3);
+  private final CompressedRows in = new CompressedRows(2);
+  private int[] functions = new int[16];
+  private int numVertices = 0;
+  private int[] vertices = new int[0];
+  private int[] rowPositions = new int[0];
+
+  /**
+   * Constructor that builds the graph from the calls of every function.
+   *
+   * @param symbols the SymbolTable with the functions.
+   * @param functions the IDs of the functions in the order of the vertices.
+   * @param calls the IDs of the functions called by every function, indexed by the ID of the
+   *     caller. A function that is called multiple times occurs multiple times. Calls to IDs that
+   *     are not one of the functions are left out.
+   * @param numCalls the number of calls in calls per function, indexed by the ID of the caller.
+   */
+  public CompactGraph(SymbolTable symbols, List<Integer> functions, int[][] calls, int[] numCalls) {
+    this.symbols = symbols;
+    update(List.of(), functions, new BitSet(), calls, numCalls);
+  }
+
+  /**
+   * Update the graph after functions were removed or added or their calls changed. Only the rows
+   * of the functions of which the calls changed are merged again and written over their old rows;
+   * the rows of the other vertices are moved as blocks. The vertices keep their order, the removed
+   * vertices are left out and the added functions get the last vertices.
+   *
+   * @param removedFunctions the functions that are no longer defined.
+   * @param addedFunctions the functions that are defined now, in the order of their new vertices.
+   * @param changedFunctions the functions of which the calls may have changed. The functions that
+   *     call a removed function are checked as well.
+   * @param calls the IDs of the functions called by every function, indexed by the ID of the
+   *     caller. Calls to IDs that are not one of the functions are left out.
+   * @param numCalls the number of calls in calls per function, indexed by the ID of the caller.
+   * @return the IDs of the functions of which the calls changed and of the added functions, in the
+   *     order of their vertices.
+   */
+  int[] update(
+      List<Integer> removedFunctions,
+      List<Integer> addedFunctions,
+      BitSet changedFunctions,
+      int[][] calls,
+      int[] numCalls) {
+    if (vertices.length < symbols.size()) {
+      int oldLength = vertices.length;
+      vertices = Arrays.copyOf(vertices, symbols.size());
+      Arrays.fill(vertices, oldLength, vertices.length, SymbolTable.NONE);
+      rowPositions = Arrays.copyOf(rowPositions, symbols.size());
+      Arrays.fill(rowPositions, oldLength, rowPositions.length, -1);
+    }
+
+    BitSet removed = new BitSet();
+    BitSet candidates = (BitSet) changedFunctions.clone();
+    for (int function : removedFunctions) {
+      removed.set(function);
+      int v = vertices[function];
+      for (int i = in.getStart(v); i < in.getEnd(v); i++) {
+        candidates.set(in.get(CALLER, i));
+      }
+    }
+    BitSet added = new BitSet();
+    addedFunctions.forEach(added::set);
+    candidates.andNot(removed);
+    candidates.andNot(added);
+
+    // The new rows by old vertex, or null for a removed vertex.
+    TreeMap<Integer, int[][]> changedRows = new TreeMap<>();
+    for (int function : removedFunctions) {
+      changedRows.put(vertices[function], null);
+    }
+    for (int f = candidates.nextSetBit(0); f >= 0; f = candidates.nextSetBit(f + 1)) {
+      int v = f < vertices.length ? vertices[f] : SymbolTable.NONE;
+      if (v != SymbolTable.NONE) {
+        int[][] row = mergeCalls(f, calls, numCalls, removed, added);
+        if (!isRow(v, row)) {
+          changedRows.put(v, row);
+        }
+      }
+    }
+    List<int[][]> addedRows = new ArrayList<>();
+    for (int function : addedFunctions) {
+      addedRows.add(mergeCalls(function, calls, numCalls, removed, added));
+    }
+
+    // The edges of the changed rows are taken out of the incoming edges of their old targets and
+    // the edges of the new rows are added to those of their new targets.
+    BitSet changedSources = new BitSet();
+    Map<Integer, List<int[]>> newCallers = new HashMap<>();
+    int[] changed = new int[changedRows.size() + addedFunctions.size()];
+    int numChanged = 0;
+    TreeMap<Integer, int[][]> changedTargets = new TreeMap<>();
+    for (Map.Entry<Integer, int[][]> entry : changedRows.entrySet()) {
+      int function = functions[entry.getKey()];
+      changedSources.set(function);
+      for (int e = out.getStart(entry.getKey()); e < out.getEnd(entry.getKey()); e++) {
+        changedTargets.put(vertices[out.get(TARGET, e)], null);
+      }
+      if (entry.getValue() != null) {
+        addCallers(function, entry.getValue()[TARGET], newCallers);
+        changed[numChanged++] = function;
+      }
+    }
+    for (int i = 0; i < addedFunctions.size(); i++) {
+      addCallers(addedFunctions.get(i), addedRows.get(i)[TARGET], newCallers);
+      changed[numChanged++] = addedFunctions.get(i);
+    }
+    for (int target : newCallers.keySet()) {
+      if (!added.get(target)) {
+        changedTargets.put(vertices[target], null);
+      }
+    }
+    for (int function : removedFunctions) {
+      changedTargets.put(vertices[function], null);
+    }
+
+    // The function and the old incoming edges of every changed target that is still a vertex.
+    Map<Integer, Integer> targetFunctions = new HashMap<>();
+    for (Map.Entry<Integer, int[][]> entry : changedTargets.entrySet()) {
+      int v = entry.getKey();
+      if (!removed.get(functions[v])) {
+        targetFunctions.put(v, functions[v]);
+        entry.setValue(new int[][] {in.getRow(CALLER, v), in.getRow(RANK, v)});
+      }
+    }
+
+    patch(out, changedRows, addedRows);
+    renumberVertices(removedFunctions, addedFunctions);
+
+    for (Map.Entry<Integer, int[][]> entry : changedTargets.entrySet()) {
+      if (entry.getValue() != null) {
+        int target = targetFunctions.get(entry.getKey());
+        entry.setValue(mergeCallers(entry.getValue(), changedSources, newCallers.get(target)));
+      }
+    }
+    List<int[][]> addedCallers = new ArrayList<>();
+    for (int function : addedFunctions) {
+      addedCallers.add(mergeCallers(new int[2][0], changedSources, newCallers.get(function)));
+    }
+    patch(in, changedTargets, addedCallers);
+
+    return Arrays.copyOf(changed, numChanged);
+  }
+
+  /**
+   * Merge the calls of a function into the targets and counts of its row. Repeated calls become a
+   * single edge, in the order of their first call.
+   *
+   * @param function the ID of the calling function.
+   * @param calls the IDs of the functions called by every function, indexed by the ID of the
+   *     caller.
+   * @param numCalls the number of calls in calls per function, indexed by the ID of the caller.
+   * @param removed the functions that are no longer vertices.
+   * @param added the functions that become vertices.
+   * @return the targets, counts and sources of the edges of the row.
+   */
+  private int[][] mergeCalls(
+      int function, int[][] calls, int[] numCalls, BitSet removed, BitSet added) {
+    int length = function < numCalls.length ? numCalls[function] : 0;
+    int[] rowTargets = new int[length];
+    int[] rowCounts = new int[length];
+    int numEdges = 0;
+    for (int i = 0; i < length; i++) {
+      int target = calls[function][i];
+      boolean isVertex = vertices[target] != SymbolTable.NONE && !removed.get(target);
+      if (!isVertex && !added.get(target)) {
+        continue;
+      } else if (rowPositions[target] >= 0) {
+        rowCounts[rowPositions[target]]++;
+      } else {
+        rowPositions[target] = numEdges;
+        rowTargets[numEdges] = target;
+        rowCounts[numEdges] = 1;
+        numEdges++;
+      }
+    }
+
+    int[] rowSources = new int[numEdges];
+    Arrays.fill(rowSources, function);
+    for (int i = 0; i < numEdges; i++) {
+      rowPositions[rowTargets[i]] = -1;
+    }
+
+    return new int[][] {
+      Arrays.copyOf(rowTargets, numEdges), Arrays.copyOf(rowCounts, numEdges), rowSources
+    };
+  }
+
+  /**
+   * Check if a vertex already has the edges of a row.
+   *
+   * @param vertex the vertex.
+   * @param row the targets and counts of the edges of the row.
+   * @return true if the vertex has the same edges in the same order; false otherwise.
+   */
+  private boolean isRow(int vertex, int[][] row) {
+    int start = out.getStart(vertex);
+    if (out.getEnd(vertex) - start != row[TARGET].length) {
+      return false;
+    }
+
+    for (int i = 0; i < row[TARGET].length; i++) {
+      if (out.get(TARGET, start + i) != row[TARGET][i]
+          || out.get(COUNT, start + i) != row[COUNT][i]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Add the edges of a new row to the new incoming edges of their targets.
+   *
+   * @param function the ID of the calling function.
+   * @param rowTargets the targets of the edges of the row in order.
+   * @param newCallers dictionary from the ID of a target to its new incoming edges, as the ID of
+   *     the caller and the position of the edge in the row of the caller.
+   */
+  private static void addCallers(
+      int function, int[] rowTargets, Map<Integer, List<int[]>> newCallers) {
+    for (int rank = 0; rank < rowTargets.length; rank++) {
+      newCallers.computeIfAbsent(rowTargets[rank], t -> new ArrayList<>()).add(
+          new int[] {function, rank});
+    }
+  }
+
+  /**
+   * Merge the incoming edges of a vertex that are kept with its new incoming edges. The incoming
+   * edges are ordered by the vertex of the caller and then by the position in its row, which is
+   * the order of the edges themselves.
+   *
+   * @param oldCallers the callers and ranks of the old incoming edges in order.
+   * @param changedSources the functions of which the row was replaced or removed.
+   * @param newCallers the callers and ranks of the new incoming edges in any order, or null.
+   * @return the callers and ranks of the incoming edges in order.
+   */
+  private int[][] mergeCallers(int[][] oldCallers, BitSet changedSources, List<int[]> newCallers) {
+    List<int[]> added = newCallers == null ? new ArrayList<>() : newCallers;
+    added.sort(
+        Comparator.<int[]>comparingInt(edge -> vertices[edge[CALLER]])
+            .thenComparingInt(edge -> edge[RANK]));
+
+    // A caller is either kept with all of its edges or has only new edges.
+    int length = oldCallers[CALLER].length + added.size();
+    int[] callers = new int[length];
+    int[] ranks = new int[length];
+    int numCallers = 0;
+    int next = 0;
+    for (int i = 0; i < oldCallers[CALLER].length; i++) {
+      int caller = oldCallers[CALLER][i];
+      if (changedSources.get(caller)) {
+        continue;
+      }
+      for (; next < added.size() && vertices[added.get(next)[CALLER]] < vertices[caller]; next++) {
+        callers[numCallers] = added.get(next)[CALLER];
+        ranks[numCallers++] = added.get(next)[RANK];
+      }
+      callers[numCallers] = caller;
+      ranks[numCallers++] = oldCallers[RANK][i];
+    }
+    for (; next < added.size(); next++) {
+      callers[numCallers] = added.get(next)[CALLER];
+      ranks[numCallers++] = added.get(next)[RANK];
+    }
+
+    return new int[][] {Arrays.copyOf(callers, numCallers), Arrays.copyOf(ranks, numCallers)};
+  }
+
+  /**
+   * Replace, remove and append rows of the outgoing or incoming edges.
+   *
+   * @param rows the rows of the edges.
+   * @param changedRows dictionary from a vertex to its new row, or to null to remove its row.
+   * @param addedRows the rows of the added vertices in order.
+   */
+  private static void patch(
+      CompressedRows rows, TreeMap<Integer, int[][]> changedRows, List<int[][]> addedRows) {
+    CompressedRows.Patch patch = rows.patch();
+    for (Map.Entry<Integer, int[][]> entry : changedRows.entrySet()) {
+      patch.replace(entry.getKey(), entry.getKey() + 1);
+      if (entry.getValue() != null) {
+        patch.addRow(entry.getValue());
+      }
+    }
+    if (!addedRows.isEmpty()) {
+      patch.replace(rows.getRowCount(), rows.getRowCount());
+      addedRows.forEach(patch::addRow);
+    }
+    patch.apply();
+  }
+
+  /**
+   * Leave the removed functions out of the vertices and add the added functions at the end. Only
+   * the vertices after the first removed one get a new number.
+   *
+   * @param removedFunctions the functions that are no longer defined.
+   * @param addedFunctions the functions that are defined now, in the order of their new vertices.
+   */
+  private void renumberVertices(List<Integer> removedFunctions, List<Integer> addedFunctions) {
+    int first = numVertices;
+    for (int function : removedFunctions) {
+      first = Math.min(first, vertices[function]);
+      vertices[function] = SymbolTable.NONE;
+    }
+    int numKept = first;
+    for (int v = first; v < numVertices; v++) {
+      if (vertices[functions[v]] != SymbolTable.NONE) {
+        functions[numKept] = functions[v];
+        vertices[functions[numKept]] = numKept;
+        numKept++;
+      }
+    }
+    numVertices = numKept;
+
+    if (numVertices + addedFunctions.size() > functions.length) {
+      functions =
+          Arrays.copyOf(functions, Math.max(numVertices + addedFunctions.size(), numVertices * 2));
+    }
+    for (int function : addedFunctions) {
+      functions[numVertices] = function;
+      vertices[function] = numVertices++;
+    }
+  }
+
+  /**
+   * Get the number of vertices.
+   *
+   * @return the number of functions in the graph.
+   */
+  public int getVertexCount() {
+    return numVertices;
+  }
+
+  /**
+   * Get the number of distinct edges. Repeated calls between two functions are a single edge.
+   *
+   * @return the number of pairs of functions of which the first calls the second.
+   */
+  public int getEdgeCount() {
+    return out.getSize();
+  }
+
+  /**
+   * Get the vertex of a function.
+   *
+   * @param name the name of the function prefixed with the name of its module.
+   * @return the vertex of the function or SymbolTable.NONE if it is not in the graph.
+   */
+  public int getVertex(String name) {
+    int id = symbols.getId(name);
+    return id == SymbolTable.NONE || id >= vertices.length ? SymbolTable.NONE : vertices[id];
+  }
+
+  /**
+   * Get the function of a vertex.
+   *
+   * @param vertex the vertex.
+   * @return the ID of the function in the SymbolTable.
+   */
+  public int getFunction(int vertex) {
+    return functions[vertex];
+  }
+
+  /**
+   * Get the vertex of a function by its ID.
+   *
+   * @param function the ID of the function in the SymbolTable.
+   * @return the vertex of the function or SymbolTable.NONE if it is not in the graph.
+   */
+  int getVertexOfFunction(int function) {
+    return function < vertices.length ? vertices[function] : SymbolTable.NONE;
+  }
+
+  /**
+   * Get the name of the function of a vertex.
+   *
+   * @param vertex the vertex.
+   * @return the name of the function prefixed with the name of its module.
+   */
+  public String getName(int vertex) {
+    return symbols.getName(functions[vertex]);
+  }
+
+  /**
+   * Get the index of the first call of a vertex.
+   *
+   * @param vertex the calling vertex.
+   * @return the index of the first edge from the vertex.
+   */
+  public int getOutStart(int vertex) {
+    return out.getStart(vertex);
+  }
+
+  /**
+   * Get the index after the last call of a vertex.
+   *
+   * @param vertex the calling vertex.
+   * @return the index after the last edge from the vertex.
+   */
+  public int getOutEnd(int vertex) {
+    return out.getEnd(vertex);
+  }
+
+  /**
+   * Get the index of the first edge to a vertex in the incoming order, see getInEdge.
+   *
+   * @param vertex the called vertex.
+   * @return the position of the first edge to the vertex.
+   */
+  public int getInStart(int vertex) {
+    return in.getStart(vertex);
+  }
+
+  /**
+   * Get the position after the last edge to a vertex in the incoming order, see getInEdge.
+   *
+   * @param vertex the called vertex.
+   * @return the position after the last edge to the vertex.
+   */
+  public int getInEnd(int vertex) {
+    return in.getEnd(vertex);
+  }
+
+  /**
+   * Get an edge to a vertex.
+   *
+   * @param position a position from getInStart(v) up to getInEnd(v) of the called vertex v.
+   * @return the index of the edge.
+   */
+  public int getInEdge(int position) {
+    return out.getStart(vertices[in.get(CALLER, position)]) + in.get(RANK, position);
+  }
+
+  /**
+   * Get the calling vertex of an edge.
+   *
+   * @param edge the index of the edge.
+   * @return the vertex of the caller.
+   */
+  public int getSource(int edge) {
+    return vertices[out.get(SOURCE, edge)];
+  }
+
+  /**
+   * Get the called vertex of an edge.
+   *
+   * @param edge the index of the edge.
+   * @return the vertex of the called function.
+   */
+  public int getTarget(int edge) {
+    return vertices[out.get(TARGET, edge)];
+  }
+
+  /**
+   * Get the number of calls that an edge stands for.
+   *
+   * @param edge the index of the edge.
+   * @return the number of times the source calls the target, at least 1.
+   */
+  public int getCount(int edge) {
+    return out.get(COUNT, edge);
+  }
+
+  /**
+   * Get the number of calls from a vertex, counting repeated calls to the same function.
+   *
+   * @param vertex the calling vertex.
+   * @return the sum of the counts of the edges from the vertex.
+   */
+  public int getOutDegree(int vertex) {
+    int degree = 0;
+    for (int e = out.getStart(vertex); e < out.getEnd(vertex); e++) {
+      degree += out.get(COUNT, e);
+    }
+
+    return degree;
+  }
+
+  /**
+   * Get the number of calls to a vertex, counting repeated calls from the same function.
+   *
+   * @param vertex the called vertex.
+   * @return the sum of the counts of the edges to the vertex.
+   */
+  public int getInDegree(int vertex) {
+    int degree = 0;
+    for (int i = in.getStart(vertex); i < in.getEnd(vertex); i++) {
+      degree += out.get(COUNT, getInEdge(i));
+    }
+
+    return degree;
+  }
+
+  /**
+   * Get a read-only jgrapht view of the graph. The vertices and edges of the view are the vertex
+   * and edge indices of this graph, with the count of an edge as its weight.
+   *
+   * @return Graph that reads from the arrays of this graph.
+   */
+  public Graph<Integer, Integer> asGraph() {
+    return new CompactGraphAdapter(this);
+  }
+}
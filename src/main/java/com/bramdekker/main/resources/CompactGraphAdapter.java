@@ -0,0 +1,261 @@
+package com.bramdekker.main.resources;
+
+import org.jgrapht.GraphType;
+import org.jgrapht.graph.AbstractGraph;
+import org.jgrapht.graph.DefaultGraphType;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * A read-only jgrapht view of a CompactGraph, so the algorithms of jgrapht can run on the callgraph
+ * without copying it. The vertices and edges of the view are the vertex and edge indices of the
+ * CompactGraph, and every set of the view reads straight from its arrays. Repeated calls between
+ * two functions are a single edge with the number of calls as weight, so the degrees of the view
+ * count every pair of functions once. Every method that modifies the graph throws an
+ * UnsupportedOperationException.
+ */
+class CompactGraphAdapter extends AbstractGraph<Integer, Integer> {
+  private static final GraphType type =
+      new DefaultGraphType.Builder()
+          .directed()
+          .allowSelfLoops(true)
+          .allowMultipleEdges(false)
+          .weighted(true)
+          .modifiable(false)
+          .build();
+  private final CompactGraph graph;
+
+  /**
+   * Constructor that sets the graph that is viewed.
+   *
+   * @param graph the CompactGraph that is read.
+   */
+  CompactGraphAdapter(CompactGraph graph) {
+    this.graph = graph;
+  }
+
+  @Override
+  public Set<Integer> getAllEdges(Integer sourceVertex, Integer targetVertex) {
+    if (!containsVertex(sourceVertex) || !containsVertex(targetVertex)) {
+      return null;
+    }
+
+    Integer edge = getEdge(sourceVertex, targetVertex);
+    return edge == null ? Set.of() : Set.of(edge);
+  }
+
+  @Override
+  public Integer getEdge(Integer sourceVertex, Integer targetVertex) {
+    if (!containsVertex(sourceVertex) || !containsVertex(targetVertex)) {
+      return null;
+    }
+
+    for (int e = graph.getOutStart(sourceVertex); e < graph.getOutEnd(sourceVertex); e++) {
+      if (graph.getTarget(e) == targetVertex) {
+        return e;
+      }
+    }
+
+    return null;
+  }
+
+  @Override
+  public Supplier<Integer> getVertexSupplier() {
+    return null;
+  }
+
+  @Override
+  public Supplier<Integer> getEdgeSupplier() {
+    return null;
+  }
+
+  @Override
+  public Integer addEdge(Integer sourceVertex, Integer targetVertex) {
+    throw new UnsupportedOperationException("The callgraph cannot be modified!");
+  }
+
+  @Override
+  public boolean addEdge(Integer sourceVertex, Integer targetVertex, Integer e) {
+    throw new UnsupportedOperationException("The callgraph cannot be modified!");
+  }
+
+  @Override
+  public Integer addVertex() {
+    throw new UnsupportedOperationException("The callgraph cannot be modified!");
+  }
+
+  @Override
+  public boolean addVertex(Integer v) {
+    throw new UnsupportedOperationException("The callgraph cannot be modified!");
+  }
+
+  @Override
+  public boolean containsEdge(Integer e) {
+    return e != null && e >= 0 && e < graph.getEdgeCount();
+  }
+
+  @Override
+  public boolean containsVertex(Integer v) {
+    return v != null && v >= 0 && v < graph.getVertexCount();
+  }
+
+  @Override
+  public Set<Integer> edgeSet() {
+    return new IndexSet(graph.getEdgeCount(), i -> i);
+  }
+
+  @Override
+  public int degreeOf(Integer vertex) {
+    return inDegreeOf(vertex) + outDegreeOf(vertex);
+  }
+
+  @Override
+  public Set<Integer> edgesOf(Integer vertex) {
+    Set<Integer> edges = new LinkedHashSet<>(outgoingEdgesOf(vertex));
+    edges.addAll(incomingEdgesOf(vertex));
+    return edges;
+  }
+
+  @Override
+  public int inDegreeOf(Integer vertex) {
+    int v = getExistingVertex(vertex);
+    return graph.getInEnd(v) - graph.getInStart(v);
+  }
+
+  @Override
+  public Set<Integer> incomingEdgesOf(Integer vertex) {
+    int v = getExistingVertex(vertex);
+    int start = graph.getInStart(v);
+    return new IndexSet(graph.getInEnd(v) - start, i -> graph.getInEdge(start + i));
+  }
+
+  @Override
+  public int outDegreeOf(Integer vertex) {
+    int v = getExistingVertex(vertex);
+    return graph.getOutEnd(v) - graph.getOutStart(v);
+  }
+
+  @Override
+  public Set<Integer> outgoingEdgesOf(Integer vertex) {
+    int v = getExistingVertex(vertex);
+    int start = graph.getOutStart(v);
+    return new IndexSet(graph.getOutEnd(v) - start, i -> start + i);
+  }
+
+  @Override
+  public Integer removeEdge(Integer sourceVertex, Integer targetVertex) {
+    throw new UnsupportedOperationException("The callgraph cannot be modified!");
+  }
+
+  @Override
+  public boolean removeEdge(Integer e) {
+    throw new UnsupportedOperationException("The callgraph cannot be modified!");
+  }
+
+  @Override
+  public boolean removeVertex(Integer v) {
+    throw new UnsupportedOperationException("The callgraph cannot be modified!");
+  }
+
+  @Override
+  public Set<Integer> vertexSet() {
+    return new IndexSet(graph.getVertexCount(), i -> i);
+  }
+
+  @Override
+  public Integer getEdgeSource(Integer e) {
+    return graph.getSource(getExistingEdge(e));
+  }
+
+  @Override
+  public Integer getEdgeTarget(Integer e) {
+    return graph.getTarget(getExistingEdge(e));
+  }
+
+  @Override
+  public GraphType getType() {
+    return type;
+  }
+
+  @Override
+  public double getEdgeWeight(Integer e) {
+    return graph.getCount(getExistingEdge(e));
+  }
+
+  @Override
+  public void setEdgeWeight(Integer e, double weight) {
+    throw new UnsupportedOperationException("The callgraph cannot be modified!");
+  }
+
+  /**
+   * Check that a vertex is in the graph.
+   *
+   * @param vertex the vertex.
+   * @return the vertex as int.
+   * @throws IllegalArgumentException if the vertex is not in the graph.
+   */
+  private int getExistingVertex(Integer vertex) {
+    if (!containsVertex(vertex)) {
+      throw new IllegalArgumentException("No such vertex in graph: " + vertex);
+    }
+
+    return vertex;
+  }
+
+  /**
+   * Check that an edge is in the graph.
+   *
+   * @param edge the index of the edge.
+   * @return the index of the edge as int.
+   * @throws IllegalArgumentException if the edge is not in the graph.
+   */
+  private int getExistingEdge(Integer edge) {
+    if (!containsEdge(edge)) {
+      throw new IllegalArgumentException("No such edge in graph: " + edge);
+    }
+
+    return edge;
+  }
+
+  /** An unmodifiable set of the values of a function on 0 up to a size, in that order. */
+  private static class IndexSet extends AbstractSet<Integer> {
+    private final int size;
+    private final IntUnaryOperator values;
+
+    private IndexSet(int size, IntUnaryOperator values) {
+      this.size = size;
+      this.values = values;
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+      return new Iterator<>() {
+        private int next = 0;
+
+        @Override
+        public boolean hasNext() {
+          return next < size;
+        }
+
+        @Override
+        public Integer next() {
+          if (next >= size) {
+            throw new NoSuchElementException();
+          }
+          return values.applyAsInt(next++);
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+}
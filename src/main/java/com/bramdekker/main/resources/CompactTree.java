@@ -0,0 +1,418 @@
+package com.bramdekker.main.resources;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The parse tree of a module in a compact form. A node is an index and every property of the nodes
+ * is a column of ints: the kind of the node, its parent, its first child, its next sibling and the
+ * span of tokens it covers. The tokens of the leaves are stored in a TokenTable. The nodes are
+ * numbered in the order in which a walk enters them, so node 0 is the root and the leaves of a
+ * subtree cover a consecutive range of tokens. Compared to the ParserRuleContext objects of ANTLR,
+ * there is no object per node, no list of children and no Token object per leaf. A tree can be
+ * written in a versioned binary format and read back without parsing the module again.
+ */
+public class CompactTree {
+  /** The index of a node that does not exist, e.g. the parent of the root. */
+  public static final int NONE = -1;
+  /** The kind of a leaf with a token. Rule nodes have the index of their rule as kind. */
+  public static final int TERMINAL = Integer.MIN_VALUE;
+  /** The kind of a leaf with a token that the parser inserted or skipped to recover an error. */
+  public static final int ERROR = Integer.MIN_VALUE + 1;
+  /** The first bytes of the binary format: "HCT" followed by the version of the format. */
+  private static final int MAGIC = 0x48435401;
+  private static final int INITIAL_CAPACITY = 512;
+  private int[] kinds = new int[INITIAL_CAPACITY];
+  private int[] parents = new int[INITIAL_CAPACITY];
+  private int[] firstChildren = new int[INITIAL_CAPACITY];
+  private int[] nextSiblings = new int[INITIAL_CAPACITY];
+  private int[] tokenStarts = new int[INITIAL_CAPACITY];
+  private int[] tokenStops = new int[INITIAL_CAPACITY];
+  private int[] leaves = new int[INITIAL_CAPACITY];
+  private int[] lastChildren = new int[INITIAL_CAPACITY];
+  private TokenTable tokens = new TokenTable();
+  private int size = 0;
+
+  /** Private constructor, because trees are only created from a ParseTree or read back. */
+  private CompactTree() {}
+
+  /**
+   * Convert a ParseTree into a CompactTree. The tree is walked without recursion, so deeply nested
+   * expressions do not overflow the stack.
+   *
+   * @param root the root of the ParseTree, e.g. the module node returned by the parser.
+   * @return a CompactTree with the same nodes and tokens.
+   */
+  public static CompactTree of(ParseTree root) {
+    CompactTree tree = new CompactTree();
+    ParseTree[] pendingNodes = new ParseTree[64];
+    int[] pendingParents = new int[64];
+    pendingNodes[0] = root;
+    pendingParents[0] = NONE;
+    int pending = 1;
+
+    while (pending > 0) {
+      pending--;
+      ParseTree node = pendingNodes[pending];
+      int index = tree.addNode(node, pendingParents[pending]);
+
+      int childCount = node.getChildCount();
+      if (pending + childCount > pendingNodes.length) {
+        int capacity = Math.max(pendingNodes.length * 2, pending + childCount);
+        pendingNodes = Arrays.copyOf(pendingNodes, capacity);
+        pendingParents = Arrays.copyOf(pendingParents, capacity);
+      }
+
+      // Push the children in reverse, so the first child is added next.
+      for (int i = childCount - 1; i >= 0; i--) {
+        pendingNodes[pending] = node.getChild(i);
+        pendingParents[pending] = index;
+        pending++;
+      }
+    }
+
+    tree.finish();
+    return tree;
+  }
+
+  /**
+   * Write the tree in its binary format: a header with the format version and the number of nodes,
+   * the node columns, the leaf column and the TokenTable. All ints are big-endian, like those of a
+   * ByteBuffer, so the columns can be read with bulk copies.
+   *
+   * @param out the stream the tree is written to.
+   * @throws IOException if the stream cannot be written.
+   */
+  public void write(DataOutputStream out) throws IOException {
+    out.writeInt(MAGIC);
+    out.writeInt(size);
+    for (int[] column :
+        new int[][] {kinds, parents, firstChildren, nextSiblings, tokenStarts, tokenStops}) {
+      TokenTable.writeColumn(out, column, size);
+    }
+    tokens.write(out);
+    TokenTable.writeColumn(out, leaves, tokens.size());
+  }
+
+  /**
+   * Read a tree that was written by write, e.g. from a memory-mapped file. Every column is copied
+   * from the buffer into an array of the tree, so the tree does not keep the buffer alive and is
+   * walked with plain array access.
+   *
+   * @param in the buffer positioned at the start of the tree.
+   * @return the CompactTree of the buffer.
+   * @throws IllegalArgumentException if the buffer does not start with the current format.
+   */
+  public static CompactTree read(ByteBuffer in) {
+    int magic = in.getInt();
+    if (magic != MAGIC) {
+      throw new IllegalArgumentException(
+          String.format("Unknown CompactTree format %08x, expected %08x!", magic, MAGIC));
+    }
+
+    CompactTree tree = new CompactTree();
+    tree.size = TokenTable.readLength(in);
+    tree.kinds = TokenTable.readColumn(in, tree.size);
+    tree.parents = TokenTable.readColumn(in, tree.size);
+    tree.firstChildren = TokenTable.readColumn(in, tree.size);
+    tree.nextSiblings = TokenTable.readColumn(in, tree.size);
+    tree.tokenStarts = TokenTable.readColumn(in, tree.size);
+    tree.tokenStops = TokenTable.readColumn(in, tree.size);
+    tree.tokens = TokenTable.read(in);
+    tree.leaves = TokenTable.readColumn(in, tree.tokens.size());
+    tree.lastChildren = null;
+    return tree;
+  }
+
+  /**
+   * Add a node as the last child of its parent.
+   *
+   * @param node the node of the ParseTree.
+   * @param parent the index of the parent or NONE for the root.
+   * @return the index of the node.
+   */
+  private int addNode(ParseTree node, int parent) {
+    if (size == kinds.length) {
+      grow(size * 2);
+    }
+
+    int index = size++;
+    parents[index] = parent;
+    firstChildren[index] = NONE;
+    nextSiblings[index] = NONE;
+    lastChildren[index] = NONE;
+    if (parent != NONE) {
+      if (lastChildren[parent] == NONE) {
+        firstChildren[parent] = index;
+      } else {
+        nextSiblings[lastChildren[parent]] = index;
+      }
+      lastChildren[parent] = index;
+    }
+
+    if (node instanceof TerminalNode leaf) {
+      kinds[index] = leaf instanceof ErrorNode ? ERROR : TERMINAL;
+      int token = tokens.add(leaf.getSymbol());
+      if (token == leaves.length) {
+        leaves = Arrays.copyOf(leaves, token * 2);
+      }
+      leaves[token] = index;
+      tokenStarts[index] = token;
+    } else {
+      kinds[index] = ((ParserRuleContext) node).getRuleIndex();
+      tokenStarts[index] = tokens.size();
+    }
+
+    return index;
+  }
+
+  /**
+   * Set the last token of every node and release the unused capacity. The children of a node have
+   * higher indices, so they are done before their parent.
+   */
+  private void finish() {
+    for (int i = size - 1; i >= 0; i--) {
+      if (isLeaf(i)) {
+        tokenStops[i] = tokenStarts[i];
+      } else if (lastChildren[i] == NONE) {
+        tokenStops[i] = tokenStarts[i] - 1;
+      } else {
+        tokenStops[i] = tokenStops[lastChildren[i]];
+      }
+    }
+
+    grow(size);
+    leaves = Arrays.copyOf(leaves, tokens.size());
+    lastChildren = null;
+    tokens.trim();
+  }
+
+  /**
+   * Resize all columns.
+   *
+   * @param capacity the new number of nodes that fit in the columns.
+   */
+  private void grow(int capacity) {
+    kinds = Arrays.copyOf(kinds, capacity);
+    parents = Arrays.copyOf(parents, capacity);
+    firstChildren = Arrays.copyOf(firstChildren, capacity);
+    nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+    tokenStarts = Arrays.copyOf(tokenStarts, capacity);
+    tokenStops = Arrays.copyOf(tokenStops, capacity);
+    if (lastChildren != null) {
+      lastChildren = Arrays.copyOf(lastChildren, capacity);
+    }
+  }
+
+  /**
+   * Get the number of nodes in the tree.
+   *
+   * @return the number of rule nodes and leaves.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Get the root of the tree.
+   *
+   * @return the index of the root.
+   */
+  public int getRoot() {
+    return 0;
+  }
+
+  /**
+   * Get the kind of a node.
+   *
+   * @param node the index of the node.
+   * @return the rule index of HaskellParser for rule nodes; TERMINAL or ERROR for leaves.
+   */
+  public int getKind(int node) {
+    return kinds[node];
+  }
+
+  /**
+   * Check if a node is a leaf, i.e. a terminal or an error node.
+   *
+   * @param node the index of the node.
+   * @return true if the node has a token; false if it is a rule node.
+   */
+  public boolean isLeaf(int node) {
+    return kinds[node] == TERMINAL || kinds[node] == ERROR;
+  }
+
+  /**
+   * Check if a node is a leaf that was inserted or skipped by the error recovery of the parser.
+   *
+   * @param node the index of the node.
+   * @return true if the node is an error node; false otherwise.
+   */
+  public boolean isErrorNode(int node) {
+    return kinds[node] == ERROR;
+  }
+
+  /**
+   * Get the parent of a node.
+   *
+   * @param node the index of the node.
+   * @return the index of the parent or NONE for the root.
+   */
+  public int getParent(int node) {
+    return parents[node];
+  }
+
+  /**
+   * Get the first child of a node.
+   *
+   * @param node the index of the node.
+   * @return the index of the first child or NONE if the node has no children.
+   */
+  public int getFirstChild(int node) {
+    return firstChildren[node];
+  }
+
+  /**
+   * Get the next sibling of a node.
+   *
+   * @param node the index of the node.
+   * @return the index of the next child of the same parent or NONE for the last child.
+   */
+  public int getNextSibling(int node) {
+    return nextSiblings[node];
+  }
+
+  /**
+   * Get a child of a node.
+   *
+   * @param node the index of the node.
+   * @param i the position of the child, starting at 0.
+   * @return the index of the child or NONE if the node has at most i children.
+   */
+  public int getChild(int node, int i) {
+    int child = firstChildren[node];
+    for (int j = 0; j < i && child != NONE; j++) {
+      child = nextSiblings[child];
+    }
+
+    return child;
+  }
+
+  /**
+   * Count the children of a node.
+   *
+   * @param node the index of the node.
+   * @return the number of children.
+   */
+  public int getChildCount(int node) {
+    int count = 0;
+    for (int child = firstChildren[node]; child != NONE; child = nextSiblings[child]) {
+      count++;
+    }
+
+    return count;
+  }
+
+  /**
+   * Get the left most descendant of a node by following the first children.
+   *
+   * @param node the index of the node.
+   * @return the index of the first leaf or of the first rule node without children.
+   */
+  public int getLeftMostChild(int node) {
+    while (firstChildren[node] != NONE) {
+      node = firstChildren[node];
+    }
+
+    return node;
+  }
+
+  /**
+   * Get the leaves of a subtree that are not error nodes, in the order of the module.
+   *
+   * @param node the index of the root of the subtree.
+   * @return List with the indices of the leaves.
+   */
+  public List<Integer> getLeaves(int node) {
+    List<Integer> subtreeLeaves = new ArrayList<>();
+    for (int token = tokenStarts[node]; token <= tokenStops[node]; token++) {
+      if (kinds[leaves[token]] != ERROR) {
+        subtreeLeaves.add(leaves[token]);
+      }
+    }
+
+    return subtreeLeaves;
+  }
+
+  /**
+   * Get the index of the first token of a node.
+   *
+   * @param node the index of the node.
+   * @return the index of the token in the TokenTable.
+   */
+  public int getTokenStart(int node) {
+    return tokenStarts[node];
+  }
+
+  /**
+   * Get the index of the last token of a node.
+   *
+   * @param node the index of the node.
+   * @return the index of the token in the TokenTable or one less than the start if the node does
+   *     not cover any token.
+   */
+  public int getTokenStop(int node) {
+    return tokenStops[node];
+  }
+
+  /**
+   * Get the text of a node: the text of its token for a leaf and the texts of all leaves of its
+   * subtree without whitespace for a rule node, like ParseTree.getText().
+   *
+   * @param node the index of the node.
+   * @return String with the text of the node.
+   */
+  public String getText(int node) {
+    if (tokenStarts[node] == tokenStops[node]) {
+      return tokens.getText(tokenStarts[node]);
+    }
+
+    StringBuilder text = new StringBuilder();
+    for (int token = tokenStarts[node]; token <= tokenStops[node]; token++) {
+      text.append(tokens.getText(token));
+    }
+
+    return text.toString();
+  }
+
+  /**
+   * Get the line of the first token of a node. A node that does not cover any token starts at the
+   * token after it, but an empty node at the end of the module has no token after it, so it gets
+   * the line of the last token of the module instead.
+   *
+   * @param node the index of the node.
+   * @return the line of the token, starting at 1, or -1 if the module has no tokens.
+   */
+  public int getLine(int node) {
+    int token = Math.min(tokenStarts[node], tokens.size() - 1);
+    return token < 0 ? -1 : tokens.getLine(token);
+  }
+
+  /**
+   * Getter for the tokens field.
+   *
+   * @return the TokenTable with the tokens of all leaves.
+   */
+  public TokenTable getTokens() {
+    return tokens;
+  }
+}
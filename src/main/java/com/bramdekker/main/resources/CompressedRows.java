@@ -0,0 +1,239 @@
+package com.bramdekker.main.resources;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rows of ints in compressed sparse row form: the values of row r are the positions from
+ * getStart(r) up to getEnd(r) of every column. The columns are parallel arrays, so a row can hold
+ * several ints per position, e.g. the target and the count of an edge. Rows can be replaced,
+ * removed and inserted with a Patch. The rows after a patched row are moved with System.arraycopy
+ * instead of being built again, so patching a few rows does not touch the values of the others.
+ */
+class CompressedRows {
+  private final int[][] columns;
+  private int[] offsets = new int[1];
+  private int numRows = 0;
+
+  /**
+   * Constructor that creates a structure without rows.
+   *
+   * @param numColumns the number of ints per position.
+   */
+  CompressedRows(int numColumns) {
+    columns = new int[numColumns][16];
+  }
+
+  /**
+   * Get the number of rows.
+   *
+   * @return the number of rows.
+   */
+  int getRowCount() {
+    return numRows;
+  }
+
+  /**
+   * Get the number of positions of all rows together.
+   *
+   * @return the position after the last row.
+   */
+  int getSize() {
+    return offsets[numRows];
+  }
+
+  /**
+   * Get the first position of a row.
+   *
+   * @param row the index of the row.
+   * @return the position of the first value of the row.
+   */
+  int getStart(int row) {
+    return offsets[row];
+  }
+
+  /**
+   * Get the position after the last value of a row.
+   *
+   * @param row the index of the row.
+   * @return the position after the last value of the row.
+   */
+  int getEnd(int row) {
+    return offsets[row + 1];
+  }
+
+  /**
+   * Get a value of a column.
+   *
+   * @param column the index of the column.
+   * @param position a position of one of the rows.
+   * @return the value of the column at the position.
+   */
+  int get(int column, int position) {
+    return columns[column][position];
+  }
+
+  /**
+   * Overwrite a value of a column. The length of the row does not change.
+   *
+   * @param column the index of the column.
+   * @param position a position of one of the rows.
+   * @param value the new value.
+   */
+  void set(int column, int position, int value) {
+    columns[column][position] = value;
+  }
+
+  /**
+   * Get a copy of the values of a column in a row.
+   *
+   * @param column the index of the column.
+   * @param row the index of the row.
+   * @return array with the values of the row in order.
+   */
+  int[] getRow(int column, int row) {
+    return Arrays.copyOfRange(columns[column], offsets[row], offsets[row + 1]);
+  }
+
+  /**
+   * Start a patch of the rows. Nothing changes until the patch is applied.
+   *
+   * @return an empty Patch of this structure.
+   */
+  Patch patch() {
+    return new Patch();
+  }
+
+  /**
+   * A list of ranges of rows that are replaced by new rows. The ranges are added in increasing
+   * order and must not overlap. A range without rows inserts rows, a range without new rows removes
+   * its rows.
+   */
+  class Patch {
+    private final List<int[]> ranges = new ArrayList<>();
+    private final List<List<int[][]>> replacements = new ArrayList<>();
+
+    /**
+     * Replace the rows from start up to end by the rows added with addRow until the next range.
+     *
+     * @param start the index of the first replaced row.
+     * @param end the index after the last replaced row; start to insert rows before start.
+     * @return this Patch.
+     */
+    Patch replace(int start, int end) {
+      ranges.add(new int[] {start, end});
+      replacements.add(new ArrayList<>());
+      return this;
+    }
+
+    /**
+     * Add a row to the last range.
+     *
+     * @param values the values of the row for every column, all of the same length.
+     * @return this Patch.
+     */
+    Patch addRow(int[]... values) {
+      replacements.get(replacements.size() - 1).add(values);
+      return this;
+    }
+
+    /**
+     * Apply the patch. The rows between the ranges keep their values and move as blocks: blocks
+     * that move to a lower position are moved from left to right and the others from right to left,
+     * so no block overwrites one that still has to move. The new rows are written last.
+     */
+    void apply() {
+      if (ranges.isEmpty()) {
+        return;
+      }
+
+      // The blocks of rows that are kept, as old first row, old end row and new first position.
+      List<int[]> blocks = new ArrayList<>();
+      int newSize = 0;
+      int newNumRows = 0;
+      int row = 0;
+      for (int i = 0; i <= ranges.size(); i++) {
+        int start = i < ranges.size() ? ranges.get(i)[0] : numRows;
+        if (start > row) {
+          blocks.add(new int[] {row, start, newSize});
+          newSize += offsets[start] - offsets[row];
+          newNumRows += start - row;
+        }
+        if (i < ranges.size()) {
+          for (int[][] values : replacements.get(i)) {
+            newSize += values[0].length;
+            newNumRows++;
+          }
+          row = ranges.get(i)[1];
+        }
+      }
+
+      int[][] target = columns;
+      if (newSize > columns[0].length) {
+        target = new int[columns.length][Math.max(newSize, columns[0].length * 2)];
+      }
+      for (int[] block : blocks) {
+        if (block[2] <= offsets[block[0]]) {
+          moveBlock(block, target);
+        }
+      }
+      for (int i = blocks.size() - 1; i >= 0; i--) {
+        if (blocks.get(i)[2] > offsets[blocks.get(i)[0]]) {
+          moveBlock(blocks.get(i), target);
+        }
+      }
+
+      // The offsets before the first range stay the same.
+      int first = ranges.get(0)[0];
+      int[] newOffsets = new int[newNumRows - first + 1];
+      int newRow = 0;
+      int position = offsets[first];
+      row = first;
+      for (int i = 0; i <= ranges.size(); i++) {
+        int start = i < ranges.size() ? ranges.get(i)[0] : numRows;
+        for (; row < start; row++) {
+          newOffsets[newRow++] = position;
+          position += offsets[row + 1] - offsets[row];
+        }
+        if (i < ranges.size()) {
+          for (int[][] values : replacements.get(i)) {
+            newOffsets[newRow++] = position;
+            for (int c = 0; c < columns.length; c++) {
+              System.arraycopy(values[c], 0, target[c], position, values[c].length);
+            }
+            position += values[0].length;
+          }
+          row = ranges.get(i)[1];
+        }
+      }
+      newOffsets[newRow] = position;
+
+      if (newNumRows + 1 > offsets.length) {
+        offsets = Arrays.copyOf(offsets, Math.max(newNumRows + 1, offsets.length * 2));
+      }
+      System.arraycopy(newOffsets, 0, offsets, first, newOffsets.length);
+      System.arraycopy(target, 0, columns, 0, columns.length);
+      numRows = newNumRows;
+    }
+
+    /**
+     * Move the values of a block of rows in every column.
+     *
+     * @param block the old first row, the old end row and the new first position of the block.
+     * @param target the columns the block is moved to, which are the current columns if they are
+     *     large enough.
+     */
+    private void moveBlock(int[] block, int[][] target) {
+      int start = offsets[block[0]];
+      if (target == columns && start == block[2]) {
+        return;
+      }
+
+      int length = offsets[block[1]] - start;
+      for (int c = 0; c < columns.length; c++) {
+        System.arraycopy(columns[c], start, target[c], block[2], length);
+      }
+    }
+  }
+}
@@ -1,105 +1,77 @@
 package com.bramdekker.main.resources;
 
-import com.bramdekker.main.util.HaskellFileFilter;
-import com.bramdekker.main.util.SubdirectoryFilter;
+import com.bramdekker.main.util.HaskellFileFinder;
 
 import java.io.File;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
 
 /**
- * A singleton class that contains functionality to generate, get and set a list of File objects
- * containing all Haskell files in the project.
+ * Contains functionality to generate, get and refresh a list of File objects containing all Haskell
+ * files in a project.
  */
 public class FileList {
-  private static FileList instance;
+  private final String pathname;
+  private final int threads;
   private List<File> haskellFiles = Collections.emptyList();
-  private static String pathname;
-
-  /** Private constructor to make it singleton. */
-  private FileList() {}
 
   /**
-   * Generates an instance of FileList by setting the haskellFiles and returning a class instance.
+   * Constructor that generates the list of Haskell files for a pathname.
    *
-   * @return instance of FileList with the haskellFiles populated.
+   * @param pathname the pathname of the Haskell project or a single Haskell file.
    */
-  private static FileList generateInstance() {
-    FileList newFileList = new FileList();
-
-    // If the pathname is a Haskell file, set this file as the file list.
-    if (pathname.endsWith(".hs")) {
-      newFileList.setHaskellFiles(List.of(new File(pathname)));
-      return newFileList;
-    }
-
-    newFileList.setHaskellFiles(newFileList.getHaskellFilesFromDir(pathname));
-
-    return newFileList;
+  public FileList(String pathname) {
+    this(pathname, Runtime.getRuntime().availableProcessors());
   }
 
   /**
-   * Gets all Haskell files from the project root directory and puts them in a List.
+   * Constructor that generates the list of Haskell files for a pathname.
    *
-   * @param directory the directory of the Haskell project.
-   * @return all Haskell files in the directory as a List of File objects.
+   * @param pathname the pathname of the Haskell project or a single Haskell file.
+   * @param threads the number of directories that are read at the same time.
    */
-  private List<File> getHaskellFilesFromDir(String directory) {
-    List<File> files = new ArrayList<>();
-
-    if (directory != null) {
-      File dir = new File(directory);
-
-      getAllFiles(files, dir);
-    }
-
-    return files;
+  public FileList(String pathname, int threads) {
+    this.pathname = pathname;
+    this.threads = threads;
+    refresh();
   }
 
   /**
-   * For a certain directory, adds all Haskell files in it to the files List.
+   * Constructor that takes a list of Haskell files that was already generated, e.g. while the
+   * pathname was validated, so the project is not searched twice.
    *
-   * @param files a List with File objects.
-   * @param dir a File object representing a directory.
+   * @param pathname the pathname of the Haskell project or a single Haskell file.
+   * @param threads the number of directories that are read at the same time on a refresh.
+   * @param haskellFiles all Haskell files in the project.
    */
-  private void getAllFiles(List<File> files, File dir) {
-    File[] haskellFiles = dir.listFiles(new HaskellFileFilter());
-    if (haskellFiles == null) {
-      return;
-    }
-    files.addAll(Arrays.stream(haskellFiles).toList());
-
-    File[] subdirectories = dir.listFiles(new SubdirectoryFilter());
-    if (subdirectories == null) {
-      return;
-    }
-    for (File subDir : subdirectories) {
-      getAllFiles(files, subDir);
-    }
+  public FileList(String pathname, int threads, List<File> haskellFiles) {
+    this.pathname = pathname;
+    this.threads = threads;
+    setHaskellFiles(haskellFiles);
   }
 
   /**
-   * Initializes the static variable directory.
-   *
-   * @param newPathname the value with which the directory variable is initialized.
+   * Generate the list of Haskell files again, so files that were added or removed since the last
+   * time are taken into account.
    */
-  public static void init(String newPathname) {
-    pathname = newPathname;
+  public void refresh() {
+    // If the pathname is a Haskell file, set this file as the file list.
+    if (pathname.endsWith(".hs")) {
+      setHaskellFiles(List.of(new File(pathname)));
+      return;
+    }
+
+    setHaskellFiles(HaskellFileFinder.find(Path.of(pathname), threads));
   }
 
   /**
-   * Getter for the static variable instance.
+   * Getter for the pathname variable.
    *
-   * @return the singleton FileList instance.
+   * @return the pathname of the Haskell project or a single Haskell file.
    */
-  public static FileList getInstance() {
-    if (instance == null) {
-      instance = generateInstance();
-    }
-
-    return instance;
+  public String getPathname() {
+    return this.pathname;
   }
 
   /**
@@ -0,0 +1,99 @@
+package com.bramdekker.main.resources;
+
+import com.bramdekker.main.metrics.CyclomaticComplexityMetric;
+import com.bramdekker.main.metrics.HalsteadFileMetric;
+import com.bramdekker.main.metrics.StructuralFileMetric;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+import static com.bramdekker.main.util.MathUtil.logN;
+
+/**
+ * Encapsulates the results of a single HalsteadVisitor walk over a module: the operator and operand
+ * dictionaries, the cyclomatic data per function and the declared functions and types. Both the
+ * Halstead and the Structural section read from it, so a module is only visited once.
+ */
+public class HalsteadResult implements Serializable {
+  private static final long serialVersionUID = 1L;
+  public final Map<String, Integer> operatorMap;
+  public final Map<String, Integer> operandMap;
+  public final Map<String, CyclomaticComplexityMetric> functionMap;
+  public final List<String> functions;
+  public final List<String> typeSynonyms;
+  public final List<String> dataTypes;
+
+  /**
+   * Constructor that initializes all fields of the class.
+   *
+   * @param operatorMap number of occurrences per operator.
+   * @param operandMap number of occurrences per operand.
+   * @param functionMap cyclomatic data per function.
+   * @param functions all functions defined in the module.
+   * @param typeSynonyms all type synonyms defined in the module.
+   * @param dataTypes all data types defined in the module.
+   */
+  public HalsteadResult(
+      Map<String, Integer> operatorMap,
+      Map<String, Integer> operandMap,
+      Map<String, CyclomaticComplexityMetric> functionMap,
+      List<String> functions,
+      List<String> typeSynonyms,
+      List<String> dataTypes) {
+    this.operatorMap = operatorMap;
+    this.operandMap = operandMap;
+    this.functionMap = functionMap;
+    this.functions = functions;
+    this.typeSynonyms = typeSynonyms;
+    this.dataTypes = dataTypes;
+  }
+
+  /**
+   * Calculates the halstead length based on the dictionaries.
+   *
+   * @return long representing the sum of total occurrences of operands and operators.
+   */
+  public long getHalsteadLength() {
+    long length = 0;
+    for (int number : operandMap.values()) {
+      length += number;
+    }
+    for (int number : operatorMap.values()) {
+      length += number;
+    }
+    return length;
+  }
+
+  /**
+   * Calculates the halstead vocabulary based on the dictionaries.
+   *
+   * @return long representing the sum of unique occurrences of operands and operators.
+   */
+  public long getHalsteadVocabulary() {
+    return operandMap.size() + operatorMap.size();
+  }
+
+  /**
+   * Create the Halstead metrics of the module.
+   *
+   * @param name the name of the module.
+   * @return a HalsteadFileMetric with the length, vocabulary and volume of the module.
+   */
+  public HalsteadFileMetric toHalsteadFileMetric(String name) {
+    long length = getHalsteadLength();
+    long vocabulary = getHalsteadVocabulary();
+
+    return new HalsteadFileMetric(name, length, vocabulary, length * logN(2, vocabulary));
+  }
+
+  /**
+   * Create the structural metrics of the module.
+   *
+   * @param name the name of the module.
+   * @return a StructuralFileMetric with the number of functions, type synonyms and data types.
+   */
+  public StructuralFileMetric toStructuralFileMetric(String name) {
+    return new StructuralFileMetric(name, functions.size(), typeSynonyms.size(), dataTypes.size());
+  }
+}
@@ -2,196 +2,221 @@ package com.bramdekker.main.resources;
 
 import antlr.HaskellLexer;
 import antlr.HaskellParser;
-import org.antlr.v4.runtime.CharStreams;
+import com.bramdekker.main.exceptions.ParseBudgetExceededException;
+import org.antlr.v4.runtime.BailErrorStrategy;
 import org.antlr.v4.runtime.CommonTokenStream;
-import org.antlr.v4.runtime.tree.ParseTree;
-import org.antlr.v4.runtime.tree.TerminalNode;
-import org.antlr.v4.runtime.tree.xpath.XPath;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.*;
 
 /**
- * A singleton class that contains functionality to generate, get and set a parse tree representing
- * the Haskell program with the help of Antlr.
+ * A class that contains functionality to generate a parse tree representing a Haskell module with
+ * the help of Antlr. The parse tree of ANTLR is converted into a CompactTree as soon as the parser
+ * is done and is not retained. Callers analyze a CompactTree and drop it, so only the trees of the
+ * modules that are being analyzed at the same time are in memory. With an AnalysisCache, the
+ * CompactTree of a module that did not change is loaded from disk instead of parsing it again.
  */
 public class HaskellParseTree {
-  private static HaskellParseTree instance;
-  private Map<String, ParseTree> treeDict;
-  private Map<String, ParseTree> patternDict;
-  private List<ParseTree> letInPatternsList;
-  private List<ParseTree> wherePatternsList;
-  private List<ParseTree> casePatternsList;
-  private List<String> functionNames;
-
-  /** Private constructor to make it singleton. */
+  /** Private constructor, because the class only has static methods. */
   private HaskellParseTree() {}
 
   /**
-   * Get the instance of HaskellParseTree. If it does not exist yet, generate one.
+   * Lex and parse a single Haskell file. Every call uses its own lexer and parser, so files can be
+   * parsed concurrently.
    *
-   * @return instance of HaskellParseTree with the tree populated.
-   * @throws FileNotFoundException if there is a File in the FileList instance that does not exist.
+   * @param file the Haskell file to be parsed.
+   * @return the CompactTree of the module in the file.
+   * @throws IOException if the file cannot be read.
    */
-  public static HaskellParseTree getInstance() throws IOException {
-    if (instance == null) {
-      instance = generateInstance();
-    }
-
-    return instance;
+  public static CompactTree parse(File file) throws IOException {
+    return parse(file.getPath(), SourceFile.read(file)).tree;
   }
 
   /**
-   * Get the contents of a File as a StringBuilder.
+   * Lex and parse the contents of a Haskell file that was already read. The module is parsed in
+   * two stages: first with SLL prediction, which is much faster, and the parser bails out on the
+   * first syntax error. Only if that fails, the module is parsed again with full LL prediction and
+   * the default error recovery. SLL prediction either gives the tree full LL prediction would give
+   * or fails, so the trees and errors are the same as with full LL prediction alone.
    *
-   * @param file a File object from which the contents are read.
-   * @return StringBuilder that contains the contents of the file.
-   * @throws FileNotFoundException if there is a File in the FileList instance that does not exist.
+   * @param pathname the name of the file that is used in error messages.
+   * @param source the contents of the file.
+   * @return a ParseResult with the CompactTree of the module in the file.
    */
-  private String getFileContents(File file) throws FileNotFoundException {
-    Scanner scanner = new Scanner(file);
-    StringBuilder contents = new StringBuilder();
-
-    while (scanner.hasNextLine()) {
-      contents.append(scanner.nextLine()).append('\n');
-    }
-
-    scanner.close();
-
-    return contents.toString();
+  public static ParseResult parse(String pathname, SourceFile source) {
+    return parse(pathname, source, null);
   }
 
   /**
-   * Generate a new instance of HaskellParseTree. It will create an antlr ParseTree based on the
-   * lexer and parser generated by antlr.
+   * Lex and parse the contents of a Haskell file like parse(pathname, source) and add the
+   * decisions the parser made to a profile. The profiling ATN simulator keeps statistics for every
+   * decision, which makes parsing slower.
    *
-   * @return a new instance of HaskellParseTree.
-   * @throws FileNotFoundException if there is a File in the FileList instance that does not exist.
+   * @param pathname the name of the file that is used in error messages.
+   * @param source the contents of the file.
+   * @param profile the ParserProfile the decisions are added to or null to parse without profiling.
+   * @return a ParseResult with the CompactTree of the module in the file.
    */
-  private static HaskellParseTree generateInstance() throws IOException {
-    HaskellParseTree parseTree = new HaskellParseTree();
-    parseTree.treeDict = new HashMap<>();
-    parseTree.patternDict = new HashMap<>();
-    parseTree.letInPatternsList = new ArrayList<>();
-    parseTree.wherePatternsList = new ArrayList<>();
-    parseTree.casePatternsList = new ArrayList<>();
-    parseTree.functionNames = new ArrayList<>();
-
-    for (File file : FileList.getInstance().getHaskellFiles()) {
-      HaskellLexer lexer =
-          new HaskellLexer(CharStreams.fromString(parseTree.getFileContents(file)));
-      HaskellParser parser = new HaskellParser(new CommonTokenStream(lexer));
-
-      ParseTree tree = parser.module();
-      parseTree.treeDict.put(file.getCanonicalPath(), tree);
-
-      for (ParseTree t : XPath.findAll(tree, "//topdecls/topdecl/decl_no_th/infixexp", parser)) {
-        String moduleName = getModuleName(t);
-        TerminalNode function = (TerminalNode) getLeftMostChild(t);
-        String patternName =
-            String.format(
-                "%s%s (line %d)", moduleName, function.getText(), function.getSymbol().getLine());
-        parseTree.patternDict.put(patternName, t);
-        String functionName = String.format("%s%s", moduleName, function.getText());
-        if (!parseTree.functionNames.contains(functionName)) {
-          parseTree.functionNames.add(functionName);
-        }
-      }
+  public static ParseResult parse(String pathname, SourceFile source, ParserProfile profile) {
+    return parse(pathname, source, profile, ParseBudget.UNLIMITED);
+  }
 
-      parseTree.letInPatternsList.addAll(
-          XPath.findAll(tree, "//aexp/decllist/decls/decl/decl_no_th/infixexp", parser));
-      parseTree.wherePatternsList.addAll(
-          XPath.findAll(
-              tree, "//wherebinds/binds/decllist/decls/decl/decl_no_th/infixexp", parser));
-      parseTree.casePatternsList.addAll(XPath.findAll(tree, "//alts/alt/pat", parser));
+  /**
+   * Lex and parse the contents of a Haskell file like parse(pathname, source, profile), but give up
+   * as soon as the module goes over its budget. The tokens are counted before the parser starts.
+   * The time is checked whenever the parser reads a token, which includes the lookahead of
+   * prediction and the fallback to full LL prediction.
+   *
+   * @param pathname the name of the file that is used in error messages.
+   * @param source the contents of the file.
+   * @param profile the ParserProfile the decisions are added to or null to parse without profiling.
+   * @param budget the maximum time and number of tokens that may be spent on the module.
+   * @return a ParseResult with the CompactTree of the module in the file.
+   * @throws ParseBudgetExceededException if the module has too many tokens or takes too long.
+   */
+  public static ParseResult parse(
+      String pathname, SourceFile source, ParserProfile profile, ParseBudget budget) {
+    long start = System.nanoTime();
+    HaskellLexer lexer = new HaskellLexer(source.getCharStream(pathname));
+    long maxMillis = budget.getMaxMillis();
+    CommonTokenStream tokens =
+        maxMillis > 0
+            ? new DeadlineTokenStream(lexer, pathname, maxMillis, start + maxMillis * 1_000_000)
+            : new CommonTokenStream(lexer);
+    HaskellParser parser = new HaskellParser(tokens);
+    if (profile != null) {
+      parser.setProfile(true);
     }
 
-    return parseTree;
-  }
-
-  private static String getModuleName(ParseTree tree) {
-    ParseTree moduleContentNode = tree;
-    while (moduleContentNode != null) {
-      if (moduleContentNode instanceof HaskellParser.Module_contentContext) {
-        break;
+    long maxTokens = budget.getMaxTokens();
+    if (maxTokens > 0) {
+      tokens.fill();
+      // Comments are on the hidden channel and the EOF token is not part of the module.
+      int numTokens = tokens.getNumberOfOnChannelTokens() - 1;
+      if (numTokens > maxTokens) {
+        throw new ParseBudgetExceededException(
+            String.format(
+                "%s has %d tokens, more than the %d allowed!",
+                pathname, numTokens, maxTokens));
       }
-      moduleContentNode = moduleContentNode.getParent();
     }
 
-    if (moduleContentNode != null) {
-      return getLeftMostChild(moduleContentNode.getChild(1)).getText() + ".";
+    ParseResult result = parse(parser);
+    if (profile != null) {
+      profile.add(pathname, System.nanoTime() - start, parser);
     }
 
-    return "";
+    return result;
   }
 
   /**
-   * Get the left most child from node using depth-first search.
+   * Load the CompactTree of a module from the cache if the contents of the file did not change
+   * since it was stored, and parse it like parse(pathname, source, profile, budget) otherwise. A
+   * parsed tree is stored for the next run. The cache is not used while profiling, because the
+   * profile needs the decisions of the parser.
    *
-   * @param node the start node.
-   * @return the left most child of the node.
+   * @param pathname the name of the file that is used in error messages.
+   * @param source the contents of the file.
+   * @param profile the ParserProfile the decisions are added to or null to parse without profiling.
+   * @param budget the maximum time and number of tokens that may be spent on the module.
+   * @param cache the AnalysisCache with the trees of earlier runs or null to always parse.
+   * @return a ParseResult with the CompactTree of the module in the file.
+   * @throws ParseBudgetExceededException if the module is parsed and has too many tokens or takes
+   *     too long.
+   * @throws IOException if the tree cannot be stored in the cache.
    */
-  private static ParseTree getLeftMostChild(ParseTree node) {
-    if (node.getChildCount() > 0) {
-      return getLeftMostChild(node.getChild(0));
+  public static ParseResult parse(
+      String pathname,
+      SourceFile source,
+      ParserProfile profile,
+      ParseBudget budget,
+      AnalysisCache cache)
+      throws IOException {
+    if (cache == null || profile != null) {
+      return parse(pathname, source, profile, budget);
     }
 
-    return node;
-  }
-
-  /**
-   * Getter for the treeDict field.
-   *
-   * @return a dictionary with ParseTree per module.
-   */
-  public Map<String, ParseTree> getTreeDict() {
-    return this.treeDict;
-  }
+    String key = cache.getTreeKey(source.getBytes());
+    ParseResult result = cache.loadTree(key);
+    if (result == null) {
+      result = parse(pathname, source, null, budget);
+      cache.storeTree(key, result);
+    }
 
-  /**
-   * Getter for the patternTree field.
-   *
-   * @return a dictionary with all patterns ParseTree in all modules.
-   */
-  public Map<String, ParseTree> getPatternDict() {
-    return this.patternDict;
+    return result;
   }
 
   /**
-   * Getter for the letInList field.
+   * Parse a module with SLL prediction and parse it again with full LL prediction if that fails.
    *
-   * @return a List with all let-in expressions in all modules.
+   * @param parser the parser of the module.
+   * @return a ParseResult with the CompactTree of the module.
    */
-  public List<ParseTree> getLetInPatternsList() {
-    return this.letInPatternsList;
+  private static ParseResult parse(HaskellParser parser) {
+    parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+    parser.removeErrorListeners();
+    parser.setErrorHandler(new BailErrorStrategy());
+    try {
+      return new ParseResult(CompactTree.of(parser.module()), false);
+    } catch (ParseCancellationException e) {
+      // The tokens are buffered, so only the parser runs again.
+      parser.reset();
+      parser.addErrorListener(ConsoleErrorListener.INSTANCE);
+      parser.setErrorHandler(new DefaultErrorStrategy());
+      parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+      return new ParseResult(CompactTree.of(parser.module()), true);
+    }
   }
 
   /**
-   * Getter for the whereList field.
-   *
-   * @return a List with all where clauses in all modules.
+   * Token stream that stops the parser once the deadline of a module has passed. The parser reads
+   * every token through LT, also for LA and the lookahead of adaptive prediction, so a single
+   * decision that looks far ahead is stopped as well. The clock is only read every CHECK_INTERVAL
+   * tokens, so the stream hardly slows down the parser.
    */
-  public List<ParseTree> getWherePatternsList() {
-    return this.wherePatternsList;
-  }
+  private static class DeadlineTokenStream extends CommonTokenStream {
+    private static final int CHECK_INTERVAL = 64;
+    private final String pathname;
+    private final long maxMillis;
+    private final long deadline;
+    private int reads = 0;
+
+    /**
+     * Constructor that initializes all fields of the class.
+     *
+     * @param lexer the lexer of the module.
+     * @param pathname the name of the file that is used in the error message.
+     * @param maxMillis the time the module may take in milliseconds.
+     * @param deadline the value of System.nanoTime() at which the parser is stopped.
+     */
+    private DeadlineTokenStream(
+        HaskellLexer lexer, String pathname, long maxMillis, long deadline) {
+      super(lexer);
+      this.pathname = pathname;
+      this.maxMillis = maxMillis;
+      this.deadline = deadline;
+    }
 
-  /**
-   * Getter for the caseList field.
-   *
-   * @return a List with all case patterns in all modules.
-   */
-  public List<ParseTree> getCasePatternsList() {
-    return this.casePatternsList;
-  }
+    /**
+     * Get a token of the lookahead and stop the parser if the deadline has passed.
+     *
+     * @param k the position of the token relative to the current token.
+     * @return the token at the position.
+     * @throws ParseBudgetExceededException if the module took longer than allowed.
+     */
+    @Override
+    public Token LT(int k) {
+      if (++reads % CHECK_INTERVAL == 0 && System.nanoTime() - deadline > 0) {
+        throw new ParseBudgetExceededException(
+            String.format("%s took longer than %d ms to parse!", pathname, maxMillis));
+      }
 
-  /**
-   * Getter for the functionNames field.
-   *
-   * @return a List with all functionNames in all modules.
-   */
-  public List<String> getFunctionNames() {
-    return this.functionNames;
+      return super.LT(k);
+    }
   }
 }
@@ -0,0 +1,193 @@
+package com.bramdekker.main.resources;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encapsulates the imports and function references of a single module. They are recorded while
+ * the parse tree is walked and resolved into callgraph edges once the functions of all modules are
+ * known. Every distinct name in the references is stored once in a table of the module, and the
+ * references point into that table by index, so each name is resolved once for the whole module
+ * instead of at every call site.
+ */
+public class ModuleReferences implements Serializable {
+  private static final long serialVersionUID = 1L;
+  private final List<ImportDeclaration> imports = new ArrayList<>();
+  private final List<Reference> references = new ArrayList<>();
+  private final List<String> names = new ArrayList<>();
+  private transient Map<String, Integer> nameIds;
+  private final List<String> functions = new ArrayList<>();
+  private String module = "";
+
+  /**
+   * Add an import declaration of the module.
+   *
+   * @param importDeclaration the import declaration to be added.
+   */
+  public void addImport(ImportDeclaration importDeclaration) {
+    imports.add(importDeclaration);
+  }
+
+  /**
+   * Get the index of a name in the table of the module and add the name if it is not in it yet.
+   *
+   * @param name a function or a referenced name as written in the source.
+   * @return the index of the name in the list returned by getNames.
+   */
+  public int intern(String name) {
+    if (nameIds == null) {
+      nameIds = new HashMap<>();
+      for (int i = 0; i < names.size(); i++) {
+        nameIds.put(names.get(i), i);
+      }
+    }
+
+    Integer id = nameIds.get(name);
+    if (id == null) {
+      id = names.size();
+      names.add(name);
+      nameIds.put(name, id);
+    }
+
+    return id;
+  }
+
+  /**
+   * Add a reference from a function of the module to another name.
+   *
+   * @param function the index of the function in which the reference occurs, see intern.
+   * @param name the index of the referenced name as written in the source, see intern.
+   * @param kind the kind of reference.
+   */
+  public void addReference(int function, int name, ReferenceKind kind) {
+    references.add(new Reference(function, name, kind));
+  }
+
+  /**
+   * Add a top level function defined in the module. Functions with multiple equations are only
+   * added once.
+   *
+   * @param function the name of the function prefixed with the name of the module.
+   */
+  public void addFunction(String function) {
+    if (!functions.contains(function)) {
+      functions.add(function);
+    }
+  }
+
+  /**
+   * Setter for the module field.
+   *
+   * @param module the name of the module as written in the module header.
+   */
+  public void setModule(String module) {
+    this.module = module;
+  }
+
+  /**
+   * Getter for the module field.
+   *
+   * @return the name of the module or an empty String if it has no module header.
+   */
+  public String getModule() {
+    return module;
+  }
+
+  /**
+   * Getter for the imports field.
+   *
+   * @return List with all import declarations of the module in source order.
+   */
+  public List<ImportDeclaration> getImports() {
+    return imports;
+  }
+
+  /**
+   * Getter for the references field.
+   *
+   * @return List with all references of the module in source order.
+   */
+  public List<Reference> getReferences() {
+    return references;
+  }
+
+  /**
+   * Getter for the names field.
+   *
+   * @return List with every name used in the references, in the order in which they were added.
+   */
+  public List<String> getNames() {
+    return names;
+  }
+
+  /**
+   * Getter for the functions field.
+   *
+   * @return List with all top level functions of the module in source order.
+   */
+  public List<String> getFunctions() {
+    return functions;
+  }
+
+  /** Enum for the different kinds of references. */
+  public enum ReferenceKind {
+    /** The function refers to itself on its right-hand side. */
+    RECURSIVE,
+    /** An unqualified name that can be an internal or an imported function. */
+    UNQUALIFIED,
+    /** A qualified name that can only be an imported function. */
+    QUALIFIED
+  }
+
+  /** Encapsulates a single import declaration. */
+  public static class ImportDeclaration implements Serializable {
+    private static final long serialVersionUID = 1L;
+    public final String module;
+    public final boolean qualified;
+    public final String alias;
+    public final boolean hiding;
+    public final List<String> names;
+
+    /**
+     * Constructor that sets all fields of the import declaration.
+     *
+     * @param module the name of the imported module.
+     * @param qualified whether the import is qualified.
+     * @param alias the name after 'as' or null if the module is not renamed.
+     * @param hiding whether the names are hidden instead of imported.
+     * @param names the names in the import list or null if there is no import list.
+     */
+    public ImportDeclaration(
+        String module, boolean qualified, String alias, boolean hiding, List<String> names) {
+      this.module = module;
+      this.qualified = qualified;
+      this.alias = alias;
+      this.hiding = hiding;
+      this.names = names;
+    }
+  }
+
+  /** Encapsulates a single reference from a function to a name, both as indices into the names. */
+  public static class Reference implements Serializable {
+    private static final long serialVersionUID = 2L;
+    public final int function;
+    public final int name;
+    public final ReferenceKind kind;
+
+    /**
+     * Constructor that sets all fields of the reference.
+     *
+     * @param function the index of the function in which the reference occurs.
+     * @param name the index of the referenced name.
+     * @param kind the kind of reference.
+     */
+    public Reference(int function, int name, ReferenceKind kind) {
+      this.function = function;
+      this.name = name;
+      this.kind = kind;
+    }
+  }
+}
@@ -0,0 +1,58 @@
+package com.bramdekker.main.resources;
+
+import com.bramdekker.main.metrics.PatternMetric;
+import com.bramdekker.main.metrics.ReadabilityFileMetric;
+import com.bramdekker.main.metrics.SizeFileMetric;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encapsulates all data the collectors gathered while walking the parse tree of a single module,
+ * together with the size and readability data of its lines. Fields of collectors that did not run
+ * keep their empty default value, as do the fields of all collectors if the module went over its
+ * parse budget.
+ */
+public class ModuleSummary implements Serializable {
+  private static final long serialVersionUID = 1L;
+  public String name;
+  public SizeFileMetric size;
+  public ReadabilityFileMetric readability;
+  public long parseTreeSize = 0;
+  public boolean usedLlFallback = false;
+  public boolean partiallyAnalyzed = false;
+  public HalsteadResult halstead;
+  public Map<String, PatternMetric> functionPatterns = new LinkedHashMap<>();
+  public List<PatternMetric> letPatterns = new ArrayList<>();
+  public List<PatternMetric> wherePatterns = new ArrayList<>();
+  public List<PatternMetric> casePatterns = new ArrayList<>();
+  public ModuleReferences references = new ModuleReferences();
+  public transient ParserProfile parserProfile;
+
+  /**
+   * Constructor that sets the name of the module.
+   *
+   * @param name the canonical path of the module.
+   */
+  public ModuleSummary(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Set the name of the module, e.g. when a summary of a file with the same contents is reused.
+   *
+   * @param name the canonical path of the module.
+   */
+  public void setName(String name) {
+    this.name = name;
+    if (size != null) {
+      size.name = name;
+    }
+    if (readability != null) {
+      readability.name = name;
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package com.bramdekker.main.resources;
+
+/**
+ * The maximum time and number of tokens that may be spent on parsing a single module. A module that
+ * goes over its budget is not parsed and only gets the metrics that can be computed from its lines
+ * and tokens, so one pathological module does not hold up the rest of the project.
+ */
+public class ParseBudget {
+  /** A budget without limits, i.e. every module is parsed no matter how long it takes. */
+  public static final ParseBudget UNLIMITED = new ParseBudget(0, 0);
+  private final long maxMillis;
+  private final long maxTokens;
+
+  /**
+   * Constructor that initializes all fields of the class.
+   *
+   * @param maxMillis the maximum time to parse a module in milliseconds or 0 for no limit.
+   * @param maxTokens the maximum number of tokens of a module that is parsed or 0 for no limit.
+   */
+  public ParseBudget(long maxMillis, long maxTokens) {
+    this.maxMillis = maxMillis;
+    this.maxTokens = maxTokens;
+  }
+
+  /**
+   * Check if the budget limits the parser in any way.
+   *
+   * @return true if there is neither a time nor a token limit; false otherwise.
+   */
+  public boolean isUnlimited() {
+    return maxMillis == 0 && maxTokens == 0;
+  }
+
+  /**
+   * Getter for the maxMillis field.
+   *
+   * @return the maximum time to parse a module in milliseconds or 0 for no limit.
+   */
+  public long getMaxMillis() {
+    return maxMillis;
+  }
+
+  /**
+   * Getter for the maxTokens field.
+   *
+   * @return the maximum number of tokens of a module that is parsed or 0 for no limit.
+   */
+  public long getMaxTokens() {
+    return maxTokens;
+  }
+}
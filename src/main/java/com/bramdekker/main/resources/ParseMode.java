@@ -0,0 +1,11 @@
+package com.bramdekker.main.resources;
+
+/** Enum for the ways in which the modules of a project are turned into metrics. */
+public enum ParseMode {
+  /** Parse every module that is needed by a collector. */
+  FULL,
+  /** Only lex the modules and calculate the metrics from the tokens. */
+  FAST,
+  /** Parse every module that is needed by a collector and profile the decisions of the parser. */
+  PROFILE
+}
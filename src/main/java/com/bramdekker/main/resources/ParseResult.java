@@ -0,0 +1,19 @@
+package com.bramdekker.main.resources;
+
+/** Encapsulates the parse tree of a module and how the parser arrived at it. */
+public class ParseResult {
+  public final CompactTree tree;
+  public final boolean usedLlFallback;
+
+  /**
+   * Constructor that initializes all fields of the class.
+   *
+   * @param tree the CompactTree of the module.
+   * @param usedLlFallback true if the fast SLL parse failed and the module was parsed again with
+   *     full LL prediction; false otherwise.
+   */
+  public ParseResult(CompactTree tree, boolean usedLlFallback) {
+    this.tree = tree;
+    this.usedLlFallback = usedLlFallback;
+  }
+}
@@ -0,0 +1,385 @@
+package com.bramdekker.main.resources;
+
+import com.bramdekker.main.exceptions.ParseBudgetExceededException;
+import com.bramdekker.main.metrics.MetricType;
+import com.bramdekker.main.metrics.Readability;
+import com.bramdekker.main.metrics.Size;
+import com.bramdekker.main.util.CollectorType;
+import com.bramdekker.main.util.CompactTreeListener;
+import com.bramdekker.main.util.CompactTreeWalker;
+import com.bramdekker.main.util.DeclarationExtractor;
+import com.bramdekker.main.util.HalsteadTokenCounter;
+import com.bramdekker.main.util.MetricCollector;
+import com.bramdekker.main.util.MultiplexListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Walks the parse tree of every module of a project exactly once. Every file is read once; its
+ * lines are measured and during the walk all collectors needed by the selected metrics listen to
+ * the same events and store their results in a ModuleSummary per module. Modules are analyzed as
+ * a stream: a module is parsed, walked and its parse tree is dropped right away, so only the
+ * compact summaries are kept for the whole run.
+ */
+public class ParseTreeAnalysis {
+  private final FileList fileList;
+  private final Set<CollectorType> collectorTypes;
+  private final int threads;
+  private final ExecutorService executor;
+  private final AnalysisCache cache;
+  private final ParseMode parseMode;
+  private final ParseBudget budget;
+  private final Map<String, ModuleSummary> summaryDict = new LinkedHashMap<>();
+
+  /**
+   * Constructor that parses and walks every module in the FileList. A bounded pool of worker
+   * threads analyzes the modules, so at most one parse tree per worker is alive at any time. Only
+   * the given collectors are used, and the summaries are kept in the order of the FileList. In
+   * fast mode the modules are only lexed: the Halstead data is counted from the tokens and the
+   * other collectors are not used. In profile mode the cache is not used, so every module is
+   * parsed. A module that goes over the parse budget only gets the metrics of the fast mode.
+   *
+   * @param fileList the FileList with the Haskell files of the project.
+   * @param collectorTypes the collectors needed by the metrics in the report.
+   * @param threads the maximum number of modules that are analyzed at the same time.
+   * @param executor a pool of worker threads shared with other projects or null to start a pool of
+   *     at most threads workers for every batch of modules.
+   * @param cache the AnalysisCache to be used or null to always parse every module.
+   * @param parseMode the way in which the modules are analyzed.
+   * @param budget the maximum time and number of tokens that may be spent on parsing a module.
+   * @throws IOException if there is a File in the FileList that cannot be read.
+   */
+  public ParseTreeAnalysis(
+      FileList fileList,
+      Set<CollectorType> collectorTypes,
+      int threads,
+      ExecutorService executor,
+      AnalysisCache cache,
+      ParseMode parseMode,
+      ParseBudget budget)
+      throws IOException {
+    this.fileList = fileList;
+    this.collectorTypes = EnumSet.noneOf(CollectorType.class);
+    this.collectorTypes.addAll(collectorTypes);
+    this.threads = threads;
+    this.executor = executor;
+    this.cache = cache;
+    this.parseMode = parseMode;
+    this.budget = budget;
+
+    for (ModuleSummary summary : analyzeAll(fileList.getHaskellFiles())) {
+      summaryDict.put(summary.name, summary);
+    }
+  }
+
+  /**
+   * Get the collectors that are needed by a list of metrics. A collector needed by multiple metrics
+   * is only included once.
+   *
+   * @param metrics the metric types that are part of the report.
+   * @return a Set with the collector types of all metrics.
+   */
+  public static Set<CollectorType> getCollectorTypes(List<MetricType> metrics) {
+    Set<CollectorType> collectorTypes = EnumSet.noneOf(CollectorType.class);
+    for (MetricType metric : metrics) {
+      collectorTypes.addAll(metric.getCollectorTypes());
+    }
+
+    return collectorTypes;
+  }
+
+  /**
+   * Analyze the files that changed and drop the summaries of the files that were removed. The
+   * summaries of all other modules are kept as they are. Afterwards the summaries are put back in
+   * the order of the FileList, which must already contain the added files.
+   *
+   * @param changedFiles the Haskell files that were added or modified.
+   * @param removedPathnames the canonical paths of the Haskell files that were removed.
+   * @return the outdated and the updated summaries.
+   * @throws IOException if one of the changed files cannot be read.
+   */
+  public SummaryChanges update(List<File> changedFiles, Set<String> removedPathnames)
+      throws IOException {
+    SummaryChanges changes = new SummaryChanges();
+    for (String pathname : removedPathnames) {
+      ModuleSummary outdated = summaryDict.remove(pathname);
+      if (outdated != null) {
+        changes.outdated.add(outdated);
+      }
+    }
+
+    for (ModuleSummary summary : analyzeAll(changedFiles)) {
+      ModuleSummary outdated = summaryDict.put(summary.name, summary);
+      if (outdated != null) {
+        changes.outdated.add(outdated);
+      }
+      changes.updated.add(summary);
+    }
+    sortSummaries();
+
+    return changes;
+  }
+
+  /**
+   * Put the summaries in the order of the files in the FileList, so metrics that break ties by
+   * the first module give the same result as a fresh analysis.
+   *
+   * @throws IOException if the canonical path of a file cannot be determined.
+   */
+  private void sortSummaries() throws IOException {
+    Map<String, ModuleSummary> summaries = new HashMap<>(summaryDict);
+    summaryDict.clear();
+    for (File file : fileList.getHaskellFiles()) {
+      ModuleSummary summary = summaries.remove(file.getCanonicalPath());
+      if (summary != null) {
+        summaryDict.put(summary.name, summary);
+      }
+    }
+    // Keep the summaries of files that are not in the FileList at the end.
+    summaryDict.putAll(summaries);
+  }
+
+  /**
+   * Analyze a list of files with a bounded pool of worker threads, so at most one parse tree per
+   * worker is alive at any time. The shared pool is used if there is one; otherwise a pool is
+   * started for this list only.
+   *
+   * @param files the Haskell files to be analyzed.
+   * @return the summaries in the order of the files.
+   * @throws IOException if one of the files cannot be read.
+   */
+  private List<ModuleSummary> analyzeAll(List<File> files) throws IOException {
+    List<ModuleSummary> summaries;
+    if (executor != null) {
+      summaries = analyzeAll(files, executor);
+    } else {
+      ExecutorService ownExecutor =
+          Executors.newFixedThreadPool(Math.max(1, Math.min(threads, files.size())));
+      try {
+        summaries = analyzeAll(files, ownExecutor);
+      } finally {
+        ownExecutor.shutdownNow();
+      }
+    }
+
+    if (cache != null) {
+      cache.evict();
+    }
+
+    return summaries;
+  }
+
+  /**
+   * Submit every file to a pool of worker threads and wait until all of them are analyzed.
+   *
+   * @param files the Haskell files to be analyzed.
+   * @param workers the pool of worker threads that analyzes the files.
+   * @return the summaries in the order of the files.
+   * @throws IOException if one of the files cannot be read.
+   */
+  private List<ModuleSummary> analyzeAll(List<File> files, ExecutorService workers)
+      throws IOException {
+    List<Future<ModuleSummary>> pendingSummaries = new ArrayList<>();
+    for (File file : files) {
+      pendingSummaries.add(workers.submit(() -> analyze(file)));
+    }
+
+    List<ModuleSummary> summaries = new ArrayList<>();
+    try {
+      for (Future<ModuleSummary> summary : pendingSummaries) {
+        summaries.add(awaitResult(summary));
+      }
+    } finally {
+      // Do not leave work in a shared pool when one of the modules failed.
+      for (Future<ModuleSummary> summary : pendingSummaries) {
+        summary.cancel(true);
+      }
+    }
+
+    return summaries;
+  }
+
+  /**
+   * Parse a single module and walk its parse tree. The file is read only once and the parse tree
+   * goes out of scope when this method returns. If the cache has an entry for the contents of the
+   * file, the module is not parsed at all. Modules that went over the parse budget are not stored
+   * in the cache, so they are parsed again when the budget is raised.
+   *
+   * @param file the Haskell file of the module.
+   * @return a ModuleSummary with the results of all collectors.
+   * @throws IOException if the file cannot be read.
+   */
+  private ModuleSummary analyze(File file) throws IOException {
+    String pathname = file.getCanonicalPath();
+    SourceFile source = SourceFile.read(file);
+    if (cache == null || parseMode == ParseMode.PROFILE) {
+      return analyze(pathname, source);
+    }
+
+    String key = cache.getKey(source.getBytes(), collectorTypes, parseMode == ParseMode.FAST);
+    ModuleSummary summary = cache.load(key, pathname);
+    if (summary == null) {
+      summary = analyze(pathname, source);
+      if (!summary.partiallyAnalyzed) {
+        cache.store(key, summary);
+      }
+    }
+
+    return summary;
+  }
+
+  /**
+   * Wait for a module to be analyzed and unwrap any exception thrown by the worker thread.
+   *
+   * @param summary the pending result of analyze.
+   * @return the ModuleSummary once it is available.
+   * @throws IOException if the file could not be read or the analysis was interrupted.
+   */
+  private static ModuleSummary awaitResult(Future<ModuleSummary> summary) throws IOException {
+    try {
+      return summary.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Analyzing the Haskell files was interrupted!");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException ioException) {
+        throw ioException;
+      } else if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  /**
+   * Measure the lines of a single module and walk its parse tree once with all collectors. The
+   * module is not parsed if none of the collectors is needed or in fast mode. If the module goes
+   * over the parse budget, the results of the collectors are dropped and the module is analyzed
+   * like in fast mode instead. The tree of a module that is in the cache is not parsed again.
+   *
+   * @param pathname the canonical path of the module.
+   * @param source the contents of the module.
+   * @return a ModuleSummary with the results of all collectors.
+   * @throws IOException if the tree of the module cannot be stored in the cache.
+   */
+  private ModuleSummary analyze(String pathname, SourceFile source) throws IOException {
+    ModuleSummary summary = new ModuleSummary(pathname);
+    summary.size = Size.measureFile(pathname, source);
+    summary.readability = Readability.measureFile(pathname, source);
+    if (parseMode == ParseMode.FAST) {
+      countTokens(summary, source);
+      return summary;
+    }
+
+    if (collectorTypes.isEmpty()) {
+      return summary;
+    }
+
+    DeclarationExtractor declarations = new DeclarationExtractor();
+    List<MetricCollector> collectors = new ArrayList<>();
+    for (CollectorType type : collectorTypes) {
+      collectors.add(type.create(declarations));
+    }
+
+    // The extractor receives every event before the collectors that depend on it.
+    List<CompactTreeListener> listeners = new ArrayList<>();
+    listeners.add(declarations);
+    listeners.addAll(collectors);
+
+    if (parseMode == ParseMode.PROFILE) {
+      summary.parserProfile = new ParserProfile();
+    }
+
+    ParseResult result;
+    try {
+      result = HaskellParseTree.parse(pathname, source, summary.parserProfile, budget, cache);
+    } catch (ParseBudgetExceededException e) {
+      summary.parserProfile = null;
+      summary.partiallyAnalyzed = true;
+      countTokens(summary, source);
+      return summary;
+    }
+
+    summary.usedLlFallback = result.usedLlFallback;
+    CompactTreeWalker.walk(new MultiplexListener(listeners), result.tree);
+
+    for (MetricCollector collector : collectors) {
+      collector.collectInto(summary);
+    }
+
+    return summary;
+  }
+
+  /**
+   * Count the Halstead data of a module from its tokens if it is needed.
+   *
+   * @param summary the ModuleSummary of the module.
+   * @param source the contents of the module.
+   */
+  private void countTokens(ModuleSummary summary, SourceFile source) {
+    if (collectorTypes.contains(CollectorType.HALSTEAD)) {
+      summary.halstead = HalsteadTokenCounter.count(summary.name, source);
+    }
+  }
+
+  /**
+   * Getter for the summaryDict field.
+   *
+   * @return a dictionary with a ModuleSummary per module in the order of the FileList.
+   */
+  public Map<String, ModuleSummary> getSummaryDict() {
+    return this.summaryDict;
+  }
+
+  /**
+   * Count the modules that could not be parsed with SLL prediction alone.
+   *
+   * @return the number of modules that were parsed again with full LL prediction.
+   */
+  public long getLlFallbackCount() {
+    return summaryDict.values().stream().filter(summary -> summary.usedLlFallback).count();
+  }
+
+  /**
+   * Get the modules that went over the parse budget and only have the metrics of the fast mode.
+   *
+   * @return a sorted List with the canonical paths of the partially analyzed modules.
+   */
+  public List<String> getPartiallyAnalyzedModules() {
+    return summaryDict.values().stream()
+        .filter(summary -> summary.partiallyAnalyzed)
+        .map(summary -> summary.name)
+        .sorted()
+        .toList();
+  }
+
+  /**
+   * Merge the parser profiles of all modules. Only modules that were parsed in profile mode have a
+   * profile.
+   *
+   * @return a ParserProfile with the decisions made while parsing the current modules.
+   */
+  public ParserProfile getParserProfile() {
+    ParserProfile profile = new ParserProfile();
+    for (ModuleSummary summary : summaryDict.values()) {
+      if (summary.parserProfile != null) {
+        profile.merge(summary.parserProfile);
+      }
+    }
+
+    return profile;
+  }
+}
@@ -0,0 +1,141 @@
+package com.bramdekker.main.resources;
+
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.atn.DecisionInfo;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The decision statistics of ANTLR's profiling ATN simulator, summed per rule of HaskellParser.g4,
+ * together with the time it took to parse every module. A profile is made per module while it is
+ * parsed; the profiles of all modules are merged for the report.
+ */
+public class ParserProfile {
+  private final Map<String, RuleProfile> rules = new HashMap<>();
+  private final Map<String, Long> parseNanos = new HashMap<>();
+
+  /**
+   * Add the decisions of a parser that parsed a single module.
+   *
+   * @param pathname the canonical path of the module.
+   * @param nanos the time it took to parse the module in nanoseconds.
+   * @param parser the parser with a profiling ATN simulator that parsed the module.
+   */
+  public void add(String pathname, long nanos, Parser parser) {
+    parseNanos.merge(pathname, nanos, Long::sum);
+
+    String[] ruleNames = parser.getRuleNames();
+    for (DecisionInfo decision : parser.getParseInfo().getDecisionInfo()) {
+      if (decision.invocations == 0) {
+        continue;
+      }
+
+      int ruleIndex = parser.getATN().getDecisionState(decision.decision).ruleIndex;
+      rules.computeIfAbsent(ruleNames[ruleIndex], RuleProfile::new).add(decision);
+    }
+  }
+
+  /**
+   * Add the statistics of another profile to this one.
+   *
+   * @param other the profile of other modules.
+   */
+  public void merge(ParserProfile other) {
+    for (RuleProfile rule : other.rules.values()) {
+      rules.computeIfAbsent(rule.name, RuleProfile::new).merge(rule);
+    }
+    other.parseNanos.forEach((pathname, nanos) -> parseNanos.merge(pathname, nanos, Long::sum));
+  }
+
+  /**
+   * Get the statistics of every rule with at least one decision that was made.
+   *
+   * @return List with a RuleProfile per rule, the most expensive rule first.
+   */
+  public List<RuleProfile> getRules() {
+    List<RuleProfile> sortedRules = new ArrayList<>(rules.values());
+    sortedRules.sort(
+        Comparator.comparingLong((RuleProfile rule) -> rule.decisionNanos)
+            .reversed()
+            .thenComparing(rule -> rule.name));
+
+    return sortedRules;
+  }
+
+  /**
+   * Get the modules that took the longest to parse.
+   *
+   * @param limit the maximum number of modules.
+   * @return List with the pathnames and parse times in nanoseconds, the slowest module first.
+   */
+  public List<Map.Entry<String, Long>> getSlowestFiles(int limit) {
+    return parseNanos.entrySet().stream()
+        .sorted(
+            Map.Entry.<String, Long>comparingByValue()
+                .reversed()
+                .thenComparing(Map.Entry.comparingByKey()))
+        .limit(limit)
+        .toList();
+  }
+
+  /** The decision statistics of a single grammar rule. */
+  public static class RuleProfile {
+    public final String name;
+    public long invocations = 0;
+    public long decisionNanos = 0;
+    public long sllLookahead = 0;
+    public long sllMaxLookahead = 0;
+    public long llLookahead = 0;
+    public long llMaxLookahead = 0;
+    public long llFallbacks = 0;
+    public long ambiguities = 0;
+    public long contextSensitivities = 0;
+
+    /**
+     * Constructor that sets the name of the rule.
+     *
+     * @param name the name of the rule in HaskellParser.g4.
+     */
+    public RuleProfile(String name) {
+      this.name = name;
+    }
+
+    /**
+     * Add the statistics of a decision of this rule.
+     *
+     * @param decision the DecisionInfo of the profiling ATN simulator.
+     */
+    private void add(DecisionInfo decision) {
+      invocations += decision.invocations;
+      decisionNanos += decision.timeInPrediction;
+      sllLookahead += decision.SLL_TotalLook;
+      sllMaxLookahead = Math.max(sllMaxLookahead, decision.SLL_MaxLook);
+      llLookahead += decision.LL_TotalLook;
+      llMaxLookahead = Math.max(llMaxLookahead, decision.LL_MaxLook);
+      llFallbacks += decision.LL_Fallback;
+      ambiguities += decision.ambiguities.size();
+      contextSensitivities += decision.contextSensitivities.size();
+    }
+
+    /**
+     * Add the statistics of the same rule in another profile.
+     *
+     * @param other the RuleProfile of the same rule.
+     */
+    private void merge(RuleProfile other) {
+      invocations += other.invocations;
+      decisionNanos += other.decisionNanos;
+      sllLookahead += other.sllLookahead;
+      sllMaxLookahead = Math.max(sllMaxLookahead, other.sllMaxLookahead);
+      llLookahead += other.llLookahead;
+      llMaxLookahead = Math.max(llMaxLookahead, other.llMaxLookahead);
+      llFallbacks += other.llFallbacks;
+      ambiguities += other.ambiguities;
+      contextSensitivities += other.contextSensitivities;
+    }
+  }
+}
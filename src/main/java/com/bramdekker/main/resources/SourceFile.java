@@ -0,0 +1,118 @@
+package com.bramdekker.main.resources;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The contents of a single Haskell file, read from disk exactly once. The same buffer is used for
+ * the cache key, the line based size and readability data and the parser. A SourceFile is only
+ * referenced while its module is analyzed, so the buffer is freed as soon as the last of these
+ * consumers is done.
+ */
+public class SourceFile {
+  /** The line separators recognized by java.util.Scanner, which the metrics used to read lines. */
+  private static final Pattern lineSeparator = Pattern.compile("\r\n|[\n\r\u2028\u2029\u0085]");
+  private final byte[] bytes;
+  private final String contents;
+  private List<String> lines;
+
+  /**
+   * Constructor that takes the raw contents of a file.
+   *
+   * @param bytes the contents of the file as bytes.
+   */
+  public SourceFile(byte[] bytes) {
+    this.bytes = bytes;
+    this.contents = new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Read a file from disk.
+   *
+   * @param file the Haskell file to be read.
+   * @return a SourceFile with the contents of the file.
+   * @throws IOException if the file cannot be read.
+   */
+  public static SourceFile read(File file) throws IOException {
+    return new SourceFile(Files.readAllBytes(file.toPath()));
+  }
+
+  /**
+   * Getter for the bytes field.
+   *
+   * @return the contents of the file as bytes.
+   */
+  public byte[] getBytes() {
+    return bytes;
+  }
+
+  /**
+   * Get the size of the file.
+   *
+   * @return the number of bytes in the file.
+   */
+  public long getSize() {
+    return bytes.length;
+  }
+
+  /**
+   * Get the lines of the file without their line separators. A line separator at the end of the
+   * file does not start another line.
+   *
+   * @return List with every line of the file.
+   */
+  public List<String> getLines() {
+    if (lines == null) {
+      lines = new ArrayList<>(List.of(lineSeparator.split(contents, -1)));
+      if (!lines.isEmpty() && lines.get(lines.size() - 1).isEmpty()) {
+        lines.remove(lines.size() - 1);
+      }
+    }
+
+    return lines;
+  }
+
+  /**
+   * Get a CharStream for the lexer. Every line ends with a single newline, no matter which line
+   * separator the file uses.
+   *
+   * @param pathname the name of the source that is used in error messages.
+   * @return a CharStream with the contents of the file.
+   */
+  public CharStream getCharStream(String pathname) {
+    if (contents.isEmpty() || (contents.endsWith("\n") && !hasOtherLineSeparators())) {
+      return CharStreams.fromString(contents, pathname);
+    }
+
+    StringBuilder normalized = new StringBuilder(contents.length() + 1);
+    for (String line : getLines()) {
+      normalized.append(line).append('\n');
+    }
+
+    return CharStreams.fromString(normalized.toString(), pathname);
+  }
+
+  /**
+   * Check if the file contains a line separator other than a single newline.
+   *
+   * @return true if the lines have to be normalized before they are lexed; false otherwise.
+   */
+  private boolean hasOtherLineSeparators() {
+    for (int i = 0; i < contents.length(); i++) {
+      char c = contents.charAt(i);
+      if (c == '\r' || c == '\u2028' || c == '\u2029' || c == '\u0085') {
+        return true;
+      }
+    }
+
+    return false;
+  }
+}
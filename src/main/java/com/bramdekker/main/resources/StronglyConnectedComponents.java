@@ -0,0 +1,466 @@
+package com.bramdekker.main.resources;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * The strongly connected components of a CompactGraph and the condensation of the graph, which has
+ * a vertex per component and an edge between two components if a function of the first calls a
+ * function of the second. The components are found with an iterative version of Tarjan's
+ * algorithm, so deep call chains do not overflow the stack. Tarjan's algorithm completes a
+ * component after every component that it can reach, so every edge of the condensation goes from a
+ * component to one with a lower ID. The vertices of a component are stored in the order of the
+ * vertices of the graph.
+ *
+ * <p>When the graph is updated, only the components between the lowest and the highest ID that a
+ * changed edge can reach are found again. A cycle through a changed edge only passes components in
+ * that range, because every edge that did not change goes to a lower ID.
+ */
+public class StronglyConnectedComponents {
+  private final CompactGraph graph;
+  private final CompressedRows members = new CompressedRows(1);
+  private final CompressedRows successors = new CompressedRows(1);
+  private boolean[] recursive = new boolean[16];
+  private int[] components = new int[0];
+  private int[] localIndex = new int[0];
+  private int[] marks = new int[0];
+
+  /**
+   * Constructor that determines the components and the condensation of a graph.
+   *
+   * @param graph the CompactGraph of which the components are determined.
+   */
+  public StronglyConnectedComponents(CompactGraph graph) {
+    this.graph = graph;
+    int[] functions = new int[graph.getVertexCount()];
+    for (int v = 0; v < functions.length; v++) {
+      functions[v] = graph.getFunction(v);
+    }
+    update(functions, List.of());
+  }
+
+  /**
+   * Update the components after the graph was updated. The components of the changed functions
+   * are merged with every component between them and the components of their new targets, and
+   * the components of this range are found again on the vertices of the range only. The components
+   * after the range get a new ID only if the range has a different number of components than
+   * before.
+   *
+   * @param changedFunctions the functions of which the calls changed and the added functions.
+   * @param removedFunctions the functions that are no longer in the graph.
+   */
+  void update(int[] changedFunctions, List<Integer> removedFunctions) {
+    int maxFunction = components.length - 1;
+    for (int function : changedFunctions) {
+      maxFunction = Math.max(maxFunction, function);
+    }
+    if (maxFunction >= components.length) {
+      int oldLength = components.length;
+      components = Arrays.copyOf(components, maxFunction + 1);
+      Arrays.fill(components, oldLength, components.length, SymbolTable.NONE);
+      localIndex = Arrays.copyOf(localIndex, maxFunction + 1);
+      Arrays.fill(localIndex, oldLength, localIndex.length, -1);
+    }
+
+    // The range of component IDs that a cycle through a changed edge can pass.
+    int numComponents = members.getRowCount();
+    int lo = Integer.MAX_VALUE;
+    int up = -1;
+    for (int function : removedFunctions) {
+      lo = Math.min(lo, components[function]);
+      up = Math.max(up, components[function]);
+    }
+    for (int function : changedFunctions) {
+      if (components[function] != SymbolTable.NONE) {
+        lo = Math.min(lo, components[function]);
+        up = Math.max(up, components[function]);
+      }
+    }
+    if (lo == Integer.MAX_VALUE) {
+      // Only new functions changed, so nothing calls them yet and they go after the others.
+      lo = numComponents;
+      up = numComponents - 1;
+    } else {
+      for (int function : changedFunctions) {
+        int v = graph.getVertexOfFunction(function);
+        for (int e = graph.getOutStart(v); e < graph.getOutEnd(v); e++) {
+          up = Math.max(up, components[graph.getFunction(graph.getTarget(e))]);
+        }
+      }
+    }
+
+    int[] functions = getFunctionsInRange(lo, up, changedFunctions);
+    for (int i = 0; i < functions.length; i++) {
+      localIndex[functions[i]] = i;
+    }
+    int[] localComponents = new int[functions.length];
+    int numNewComponents = findComponents(functions, localComponents);
+    int delta = numNewComponents - (up - lo + 1);
+
+    // The new rows of the range, with the members of every component in the order of the vertices.
+    int[][] newMembers = new int[numNewComponents][];
+    int[] sizes = new int[numNewComponents];
+    for (int c : localComponents) {
+      sizes[c]++;
+    }
+    for (int c = 0; c < numNewComponents; c++) {
+      newMembers[c] = new int[sizes[c]];
+      sizes[c] = 0;
+    }
+    for (int i = 0; i < functions.length; i++) {
+      newMembers[localComponents[i]][sizes[localComponents[i]]++] = functions[i];
+    }
+
+    if (marks.length < numComponents + Math.max(delta, 0)) {
+      int oldLength = marks.length;
+      marks = Arrays.copyOf(marks, numComponents + Math.max(delta, 0));
+      Arrays.fill(marks, oldLength, marks.length, -1);
+    }
+    boolean[] newRecursive = new boolean[numNewComponents];
+    int[][] newSuccessors = new int[numNewComponents][];
+    for (int c = 0; c < numNewComponents; c++) {
+      newRecursive[c] = newMembers[c].length > 1 || callsItself(newMembers[c][0]);
+      newSuccessors[c] = getSuccessors(newMembers[c], lo + c, lo, up, delta, localComponents);
+    }
+
+    // The components after the range that call a function in the range.
+    TreeSet<Integer> predecessors = new TreeSet<>();
+    for (int function : functions) {
+      int v = graph.getVertexOfFunction(function);
+      for (int i = graph.getInStart(v); i < graph.getInEnd(v); i++) {
+        int caller = graph.getFunction(graph.getSource(graph.getInEdge(i)));
+        if (localIndex[caller] < 0) {
+          predecessors.add(components[caller]);
+        }
+      }
+    }
+
+    CompressedRows.Patch successorPatch = successors.patch().replace(lo, up + 1);
+    for (int[] row : newSuccessors) {
+      successorPatch.addRow(row);
+    }
+    for (int c : predecessors) {
+      int[] row = members.getRow(0, c);
+      successorPatch
+          .replace(c, c + 1)
+          .addRow(getSuccessors(row, c + delta, lo, up, delta, localComponents));
+    }
+    CompressedRows.Patch memberPatch = members.patch().replace(lo, up + 1);
+    for (int[] row : newMembers) {
+      memberPatch.addRow(row);
+    }
+    successorPatch.apply();
+    memberPatch.apply();
+
+    if (numComponents + delta > recursive.length) {
+      recursive = Arrays.copyOf(recursive, Math.max(numComponents + delta, recursive.length * 2));
+    }
+    System.arraycopy(
+        recursive, up + 1, recursive, lo + numNewComponents, numComponents - up - 1);
+    System.arraycopy(newRecursive, 0, recursive, lo, numNewComponents);
+
+    for (int function : removedFunctions) {
+      components[function] = SymbolTable.NONE;
+    }
+    for (int i = 0; i < functions.length; i++) {
+      components[functions[i]] = lo + localComponents[i];
+      localIndex[functions[i]] = -1;
+    }
+    if (delta != 0) {
+      shiftComponents(lo + numNewComponents, up, delta, predecessors);
+    }
+  }
+
+  /**
+   * Get the functions of the components in a range of IDs that are still in the graph and the
+   * added functions, in the order of their vertices.
+   *
+   * @param lo the first ID of the range.
+   * @param up the last ID of the range.
+   * @param changedFunctions the functions of which the calls changed and the added functions.
+   * @return the IDs of the functions ordered by their vertices.
+   */
+  private int[] getFunctionsInRange(int lo, int up, int[] changedFunctions) {
+    int numFunctions = 0;
+    int[] vertices = new int[members.getEnd(up) - members.getStart(lo) + changedFunctions.length];
+    for (int i = members.getStart(lo); i < members.getEnd(up); i++) {
+      int v = graph.getVertexOfFunction(members.get(0, i));
+      if (v != SymbolTable.NONE) {
+        vertices[numFunctions++] = v;
+      }
+    }
+    for (int function : changedFunctions) {
+      if (components[function] == SymbolTable.NONE) {
+        vertices[numFunctions++] = graph.getVertexOfFunction(function);
+      }
+    }
+
+    int[] functions = Arrays.copyOf(vertices, numFunctions);
+    Arrays.sort(functions);
+    for (int i = 0; i < numFunctions; i++) {
+      functions[i] = graph.getFunction(functions[i]);
+    }
+
+    return functions;
+  }
+
+  /**
+   * Get the components that the members of a component call. Every successor is listed once, in
+   * the order of the first call.
+   *
+   * @param functions the members of the component.
+   * @param component the new ID of the component.
+   * @param lo the first ID of the range that is found again.
+   * @param up the last old ID of the range.
+   * @param delta the change of the number of components of the range.
+   * @param localComponents the new component in the range of every function in the range, by its
+   *     local index.
+   * @return the new IDs of the successors of the component.
+   */
+  private int[] getSuccessors(
+      int[] functions, int component, int lo, int up, int delta, int[] localComponents) {
+    List<Integer> row = new ArrayList<>();
+    for (int function : functions) {
+      int v = graph.getVertexOfFunction(function);
+      for (int e = graph.getOutStart(v); e < graph.getOutEnd(v); e++) {
+        int target = graph.getFunction(graph.getTarget(e));
+        int c;
+        if (localIndex[target] >= 0) {
+          c = lo + localComponents[localIndex[target]];
+        } else {
+          c = components[target] > up ? components[target] + delta : components[target];
+        }
+
+        if (c != component && marks[c] != component) {
+          marks[c] = component;
+          row.add(c);
+        }
+      }
+    }
+    for (int c : row) {
+      marks[c] = -1;
+    }
+
+    return row.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  /**
+   * Check if a function calls itself.
+   *
+   * @param function the ID of the function.
+   * @return true if the vertex of the function has an edge to itself; false otherwise.
+   */
+  private boolean callsItself(int function) {
+    int v = graph.getVertexOfFunction(function);
+    for (int e = graph.getOutStart(v); e < graph.getOutEnd(v); e++) {
+      if (graph.getTarget(e) == v) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Give the components after the range their new IDs when the range has a different number of
+   * components than before. The successors of the predecessors of the range already have their new
+   * IDs.
+   *
+   * @param start the new ID of the first component after the range.
+   * @param up the last old ID of the range.
+   * @param delta the change of the number of components.
+   * @param predecessors the old IDs of the components after the range that call into the range.
+   */
+  private void shiftComponents(int start, int up, int delta, TreeSet<Integer> predecessors) {
+    for (int c = start; c < members.getRowCount(); c++) {
+      for (int i = members.getStart(c); i < members.getEnd(c); i++) {
+        components[members.get(0, i)] = c;
+      }
+      if (!predecessors.contains(c - delta)) {
+        for (int i = successors.getStart(c); i < successors.getEnd(c); i++) {
+          if (successors.get(0, i) > up) {
+            successors.set(0, i, successors.get(0, i) + delta);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Find the components of the subgraph on some functions with Tarjan's algorithm. Instead of
+   * recursing, the vertices that are being visited are kept on an explicit stack together with the
+   * next edge that they still have to follow. Edges to functions outside the subgraph are skipped.
+   *
+   * @param functions the functions of the subgraph in the order of their vertices; localIndex
+   *     gives the position of every one of them in this array.
+   * @param localComponents the array in which the component of every function is stored, by its
+   *     position in functions. A component gets its ID when it is completed.
+   * @return the number of components.
+   */
+  private int findComponents(int[] functions, int[] localComponents) {
+    int numVertices = functions.length;
+    int[] index = new int[numVertices];
+    int[] lowLink = new int[numVertices];
+    int[] nextEdge = new int[numVertices];
+    boolean[] onStack = new boolean[numVertices];
+    int[] stack = new int[numVertices];
+    int[] visiting = new int[numVertices];
+    Arrays.fill(index, -1);
+    int stackSize = 0;
+    int numVisited = 0;
+    int numComponents = 0;
+
+    for (int root = 0; root < numVertices; root++) {
+      if (index[root] != -1) {
+        continue;
+      }
+
+      int depth = 0;
+      visiting[depth++] = root;
+      index[root] = lowLink[root] = numVisited++;
+      nextEdge[root] = graph.getOutStart(graph.getVertexOfFunction(functions[root]));
+      stack[stackSize++] = root;
+      onStack[root] = true;
+
+      while (depth > 0) {
+        int v = visiting[depth - 1];
+        if (nextEdge[v] < graph.getOutEnd(graph.getVertexOfFunction(functions[v]))) {
+          int w = localIndex[graph.getFunction(graph.getTarget(nextEdge[v]++))];
+          if (w == -1) {
+            continue;
+          } else if (index[w] == -1) {
+            visiting[depth++] = w;
+            index[w] = lowLink[w] = numVisited++;
+            nextEdge[w] = graph.getOutStart(graph.getVertexOfFunction(functions[w]));
+            stack[stackSize++] = w;
+            onStack[w] = true;
+          } else if (onStack[w]) {
+            lowLink[v] = Math.min(lowLink[v], index[w]);
+          }
+          continue;
+        }
+
+        depth--;
+        if (depth > 0) {
+          int caller = visiting[depth - 1];
+          lowLink[caller] = Math.min(lowLink[caller], lowLink[v]);
+        }
+        if (lowLink[v] == index[v]) {
+          int w;
+          do {
+            w = stack[--stackSize];
+            onStack[w] = false;
+            localComponents[w] = numComponents;
+          } while (w != v);
+          numComponents++;
+        }
+      }
+    }
+
+    return numComponents;
+  }
+
+  /**
+   * Get the number of components.
+   *
+   * @return the number of strongly connected components, which is at most the number of vertices.
+   */
+  public int getComponentCount() {
+    return members.getRowCount();
+  }
+
+  /**
+   * Get the component of a vertex.
+   *
+   * @param vertex a vertex of the CompactGraph.
+   * @return the ID of the component that contains the vertex.
+   */
+  public int getComponent(int vertex) {
+    return components[graph.getFunction(vertex)];
+  }
+
+  /**
+   * Get the number of vertices in a component.
+   *
+   * @param component the ID of the component.
+   * @return the number of functions in the component.
+   */
+  public int getSize(int component) {
+    return members.getEnd(component) - members.getStart(component);
+  }
+
+  /**
+   * Get the position of the first vertex of a component, see getMember.
+   *
+   * @param component the ID of the component.
+   * @return the position of the first vertex of the component.
+   */
+  public int getMemberStart(int component) {
+    return members.getStart(component);
+  }
+
+  /**
+   * Get the position after the last vertex of a component, see getMember.
+   *
+   * @param component the ID of the component.
+   * @return the position after the last vertex of the component.
+   */
+  public int getMemberEnd(int component) {
+    return members.getEnd(component);
+  }
+
+  /**
+   * Get a vertex of a component.
+   *
+   * @param position a position from getMemberStart(c) up to getMemberEnd(c) of the component c.
+   * @return the vertex of the CompactGraph.
+   */
+  public int getMember(int position) {
+    return graph.getVertexOfFunction(members.get(0, position));
+  }
+
+  /**
+   * Check if the functions of a component are recursive, which is the case if the component has
+   * more than one function or its only function calls itself.
+   *
+   * @param component the ID of the component.
+   * @return true if the component contains an edge; false otherwise.
+   */
+  public boolean isRecursive(int component) {
+    return recursive[component];
+  }
+
+  /**
+   * Get the position of the first successor of a component in the condensation, see getSuccessor.
+   *
+   * @param component the ID of the component.
+   * @return the position of the first successor of the component.
+   */
+  public int getSuccessorStart(int component) {
+    return successors.getStart(component);
+  }
+
+  /**
+   * Get the position after the last successor of a component in the condensation, see
+   * getSuccessor.
+   *
+   * @param component the ID of the component.
+   * @return the position after the last successor of the component.
+   */
+  public int getSuccessorEnd(int component) {
+    return successors.getEnd(component);
+  }
+
+  /**
+   * Get a component that is called by another component. Every successor is listed once.
+   *
+   * @param position a position from getSuccessorStart(c) up to getSuccessorEnd(c) of the calling
+   *     component c.
+   * @return the ID of the called component, which is lower than the ID of c.
+   */
+  public int getSuccessor(int position) {
+    return successors.get(0, position);
+  }
+}
@@ -0,0 +1,26 @@
+package com.bramdekker.main.resources;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Encapsulates the summaries that changed when ParseTreeAnalysis was updated. Resources that are
+ * built from the summaries use it to update only the parts that depend on these modules. The
+ * updated summaries are a Set, so resources can check whether a module was analyzed again without
+ * scanning them.
+ */
+public class SummaryChanges {
+  public final List<ModuleSummary> outdated = new ArrayList<>();
+  public final Set<ModuleSummary> updated = new LinkedHashSet<>();
+
+  /**
+   * Check if any module changed.
+   *
+   * @return true if no summary was replaced, added or removed; false otherwise.
+   */
+  public boolean isEmpty() {
+    return outdated.isEmpty() && updated.isEmpty();
+  }
+}
@@ -0,0 +1,103 @@
+package com.bramdekker.main.resources;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gives dense int IDs to the names of a project: modules, functions and the identifiers that refer
+ * to them. Every distinct name is stored once and gets the next free ID, so the IDs can index
+ * arrays. For every function the ID of its module is stored as well, so the module of a function
+ * is looked up instead of splitting its name again. The table only grows: the ID of a name never
+ * changes, also when the name is no longer used. The table is not thread-safe.
+ */
+public class SymbolTable {
+  /** The ID of a name that is not in the table or of the module of a symbol that is no function. */
+  public static final int NONE = -1;
+  private final Map<String, Integer> ids = new HashMap<>();
+  private final List<String> names = new ArrayList<>();
+  private int[] modules = new int[64];
+
+  /**
+   * Get the ID of a name and add the name to the table if it is not in it yet.
+   *
+   * @param name the name of a module, function or identifier.
+   * @return the ID of the name.
+   */
+  public int intern(String name) {
+    Integer id = ids.get(name);
+    if (id != null) {
+      return id;
+    }
+
+    int newId = names.size();
+    names.add(name);
+    ids.put(name, newId);
+    if (newId == modules.length) {
+      modules = Arrays.copyOf(modules, newId * 2);
+    }
+    modules[newId] = NONE;
+
+    return newId;
+  }
+
+  /**
+   * Get the ID of a function prefixed with the name of its module and add it to the table if it is
+   * not in it yet. The module is the part of the name before the first dot, or the whole name if it
+   * does not have a dot.
+   *
+   * @param function the name of the function prefixed with the name of its module.
+   * @return the ID of the function.
+   */
+  public int internFunction(String function) {
+    int id = intern(function);
+    if (modules[id] == NONE) {
+      int dot = function.indexOf('.');
+      int module = dot < 0 ? id : intern(function.substring(0, dot));
+      modules[id] = module;
+    }
+
+    return id;
+  }
+
+  /**
+   * Get the ID of a name without adding it to the table.
+   *
+   * @param name the name to be looked up.
+   * @return the ID of the name or NONE if it is not in the table.
+   */
+  public int getId(String name) {
+    return ids.getOrDefault(name, NONE);
+  }
+
+  /**
+   * Get the name of an ID.
+   *
+   * @param id the ID of the name.
+   * @return the name that was interned with the ID.
+   */
+  public String getName(int id) {
+    return names.get(id);
+  }
+
+  /**
+   * Get the module of a function.
+   *
+   * @param function the ID of a function that was added with internFunction.
+   * @return the ID of the name of its module or NONE if the ID is not a function.
+   */
+  public int getModule(int function) {
+    return modules[function];
+  }
+
+  /**
+   * Get the number of names in the table.
+   *
+   * @return the number of IDs that were given out, which is one more than the highest ID.
+   */
+  public int size() {
+    return names.size();
+  }
+}
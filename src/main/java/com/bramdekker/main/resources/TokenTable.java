@@ -0,0 +1,215 @@
+package com.bramdekker.main.resources;
+
+import org.antlr.v4.runtime.Token;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The tokens of the leaves of a CompactTree, stored column by column. Instead of a Token object per
+ * leaf, the type, line and column of every token are kept in primitive arrays and only the text is
+ * an object. The index of a token is the position of its leaf among all leaves of the tree.
+ */
+public class TokenTable {
+  private static final int INITIAL_CAPACITY = 256;
+  private int[] types = new int[INITIAL_CAPACITY];
+  private int[] lines = new int[INITIAL_CAPACITY];
+  private int[] columns = new int[INITIAL_CAPACITY];
+  private String[] texts = new String[INITIAL_CAPACITY];
+  private int size = 0;
+
+  /**
+   * Add a token at the end of the table.
+   *
+   * @param token the token of the next leaf.
+   * @return the index of the token in the table.
+   */
+  public int add(Token token) {
+    if (size == types.length) {
+      int capacity = size * 2;
+      types = Arrays.copyOf(types, capacity);
+      lines = Arrays.copyOf(lines, capacity);
+      columns = Arrays.copyOf(columns, capacity);
+      texts = Arrays.copyOf(texts, capacity);
+    }
+
+    types[size] = token.getType();
+    lines[size] = token.getLine();
+    columns[size] = token.getCharPositionInLine();
+    texts[size] = token.getText();
+    return size++;
+  }
+
+  /**
+   * Write the table in the binary format of CompactTree. Every distinct text is written once to a
+   * pool at the end and the tokens refer to it by index, since most identifiers and symbols occur
+   * many times in a module.
+   *
+   * @param out the stream the table is written to.
+   * @throws IOException if the stream cannot be written.
+   */
+  void write(DataOutputStream out) throws IOException {
+    Map<String, Integer> poolIndices = new HashMap<>();
+    List<String> pool = new ArrayList<>();
+    int[] textIds = new int[size];
+    for (int i = 0; i < size; i++) {
+      textIds[i] =
+          poolIndices.computeIfAbsent(
+              texts[i],
+              text -> {
+                pool.add(text);
+                return pool.size() - 1;
+              });
+    }
+
+    out.writeInt(size);
+    writeColumn(out, types, size);
+    writeColumn(out, lines, size);
+    writeColumn(out, columns, size);
+    writeColumn(out, textIds, size);
+    out.writeInt(pool.size());
+    for (String text : pool) {
+      byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  /**
+   * Read a table that was written by write. Every occurrence of a text shares the same String.
+   *
+   * @param in the buffer positioned at the start of the table.
+   * @return the TokenTable with the tokens of the buffer.
+   */
+  static TokenTable read(ByteBuffer in) {
+    TokenTable table = new TokenTable();
+    table.size = readLength(in);
+    table.types = readColumn(in, table.size);
+    table.lines = readColumn(in, table.size);
+    table.columns = readColumn(in, table.size);
+    int[] textIds = readColumn(in, table.size);
+
+    String[] pool = new String[readLength(in)];
+    for (int i = 0; i < pool.length; i++) {
+      byte[] bytes = new byte[readLength(in)];
+      in.get(bytes);
+      pool[i] = new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    table.texts = new String[table.size];
+    for (int i = 0; i < table.size; i++) {
+      table.texts[i] = pool[textIds[i]];
+    }
+
+    return table;
+  }
+
+  /**
+   * Write the first length values of a column.
+   *
+   * @param out the stream the column is written to.
+   * @param column the column to be written.
+   * @param length the number of values to write.
+   * @throws IOException if the stream cannot be written.
+   */
+  static void writeColumn(DataOutputStream out, int[] column, int length) throws IOException {
+    for (int i = 0; i < length; i++) {
+      out.writeInt(column[i]);
+    }
+  }
+
+  /**
+   * Read a column of ints with a single bulk copy from the buffer.
+   *
+   * @param in the buffer positioned at the start of the column.
+   * @param length the number of values in the column.
+   * @return the values of the column.
+   */
+  static int[] readColumn(ByteBuffer in, int length) {
+    int[] column = new int[length];
+    in.asIntBuffer().get(column);
+    in.position(in.position() + length * Integer.BYTES);
+    return column;
+  }
+
+  /**
+   * Read a length or count and check that it fits in the rest of the buffer. Every element that is
+   * counted takes at least one byte, so a larger value means that the buffer is corrupt.
+   *
+   * @param in the buffer positioned at the length.
+   * @return the length.
+   * @throws IllegalArgumentException if the length is negative or does not fit in the buffer.
+   */
+  static int readLength(ByteBuffer in) {
+    int length = in.getInt();
+    if (length < 0 || length > in.remaining()) {
+      throw new IllegalArgumentException("Invalid length " + length + " in a CompactTree!");
+    }
+
+    return length;
+  }
+
+  /** Release the unused capacity once all tokens have been added. */
+  void trim() {
+    types = Arrays.copyOf(types, size);
+    lines = Arrays.copyOf(lines, size);
+    columns = Arrays.copyOf(columns, size);
+    texts = Arrays.copyOf(texts, size);
+  }
+
+  /**
+   * Get the number of tokens in the table.
+   *
+   * @return the number of tokens.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Get the type of a token.
+   *
+   * @param index the index of the token.
+   * @return the token type of HaskellLexer.
+   */
+  public int getType(int index) {
+    return types[index];
+  }
+
+  /**
+   * Get the line of a token.
+   *
+   * @param index the index of the token.
+   * @return the line on which the token starts, starting at 1.
+   */
+  public int getLine(int index) {
+    return lines[index];
+  }
+
+  /**
+   * Get the column of a token.
+   *
+   * @param index the index of the token.
+   * @return the position of the token in its line, starting at 0.
+   */
+  public int getColumn(int index) {
+    return columns[index];
+  }
+
+  /**
+   * Get the text of a token.
+   *
+   * @param index the index of the token.
+   * @return the text of the token.
+   */
+  public String getText(int index) {
+    return texts[index];
+  }
+}
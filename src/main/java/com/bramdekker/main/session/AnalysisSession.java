@@ -0,0 +1,270 @@
+package com.bramdekker.main.session;
+
+import com.bramdekker.main.configuration.Configuration;
+import com.bramdekker.main.metrics.MetricType;
+import com.bramdekker.main.resources.AnalysisCache;
+import com.bramdekker.main.resources.CallGraph;
+import com.bramdekker.main.resources.FileList;
+import com.bramdekker.main.resources.ParseBudget;
+import com.bramdekker.main.resources.ParseMode;
+import com.bramdekker.main.resources.ParseTreeAnalysis;
+import com.bramdekker.main.resources.SummaryChanges;
+import com.bramdekker.main.util.CollectorType;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Owns all resources of the analysis of a single Haskell project: the FileList, the
+ * ParseTreeAnalysis and the CallGraph. The resources are generated the first time they are needed.
+ * Nothing is shared between sessions, so one JVM can analyze many projects after each other or at
+ * the same time.
+ */
+public class AnalysisSession {
+  private final FileList fileList;
+  private final List<MetricType> metrics;
+  private final Set<CollectorType> collectorTypes;
+  private final int threads;
+  private final ExecutorService executor;
+  private final AnalysisCache cache;
+  private final ParseMode parseMode;
+  private final ParseBudget budget;
+  private ParseTreeAnalysis parseTreeAnalysis;
+  private CallGraph callGraph;
+
+  /**
+   * Constructor for a session that calculates all metrics without a cache.
+   *
+   * @param pathname the pathname of the Haskell project or a single Haskell file.
+   */
+  public AnalysisSession(String pathname) {
+    this(
+        new FileList(pathname),
+        Arrays.asList(MetricType.values()),
+        Runtime.getRuntime().availableProcessors(),
+        null,
+        null,
+        ParseMode.FULL,
+        ParseBudget.UNLIMITED);
+  }
+
+  /**
+   * Constructor for a session with the pathname, metrics, threads and cache of a Configuration.
+   *
+   * @param config an instance of Configuration.
+   * @throws IOException if the cache directory cannot be created.
+   */
+  public AnalysisSession(Configuration config) throws IOException {
+    this(config, new FileList(config.getPathname(), config.getThreads()));
+  }
+
+  /**
+   * Constructor for a session with the metrics, threads and cache of a Configuration and a FileList
+   * that was already generated.
+   *
+   * @param config an instance of Configuration.
+   * @param fileList the FileList with all Haskell files of the project.
+   * @throws IOException if the cache directory cannot be created.
+   */
+  public AnalysisSession(Configuration config, FileList fileList) throws IOException {
+    this(
+        fileList,
+        config.getMetrics(),
+        config.getThreads(),
+        null,
+        config.getCacheDirectory() == null
+            ? null
+            : new AnalysisCache(
+                Path.of(config.getCacheDirectory()), config.getCacheSize() * 1024L * 1024L),
+        config.getParseMode(),
+        config.getParseBudget());
+  }
+
+  /**
+   * Constructor that initializes all fields of the class. Only the collectors needed by the metrics
+   * run while the parse trees are walked.
+   *
+   * @param fileList the FileList with all Haskell files of the project.
+   * @param metrics the metric types that are part of the report.
+   * @param threads the maximum number of modules that are analyzed at the same time.
+   * @param executor a pool of worker threads shared with other sessions or null to start a pool
+   *     whenever modules are analyzed.
+   * @param cache the AnalysisCache to be used or null to always parse every module.
+   * @param parseMode the way in which the modules are analyzed.
+   * @param budget the maximum time and number of tokens that may be spent on parsing a module.
+   */
+  public AnalysisSession(
+      FileList fileList,
+      List<MetricType> metrics,
+      int threads,
+      ExecutorService executor,
+      AnalysisCache cache,
+      ParseMode parseMode,
+      ParseBudget budget) {
+    this.fileList = fileList;
+    this.metrics = metrics;
+    this.collectorTypes = ParseTreeAnalysis.getCollectorTypes(metrics);
+    this.threads = threads;
+    this.executor = executor;
+    this.cache = cache;
+    this.parseMode = parseMode;
+    this.budget = budget;
+  }
+
+  /**
+   * Getter for the fileList field.
+   *
+   * @return the FileList with all Haskell files of the project.
+   */
+  public FileList getFileList() {
+    return fileList;
+  }
+
+  /**
+   * Get the ParseTreeAnalysis of the project. If it does not exist yet, generate one.
+   *
+   * @return the ParseTreeAnalysis with the summaries populated.
+   * @throws IOException if there is a File in the FileList that cannot be read.
+   */
+  public synchronized ParseTreeAnalysis getParseTreeAnalysis() throws IOException {
+    if (parseTreeAnalysis == null) {
+      parseTreeAnalysis =
+          new ParseTreeAnalysis(
+              fileList, collectorTypes, threads, executor, cache, parseMode, budget);
+    }
+
+    return parseTreeAnalysis;
+  }
+
+  /**
+   * Get the CallGraph of the project. If it does not exist yet, generate one.
+   *
+   * @return the CallGraph with the graphs constructed.
+   * @throws IOException if there is a File in the FileList that cannot be read.
+   */
+  public synchronized CallGraph getCallGraph() throws IOException {
+    if (callGraph == null) {
+      callGraph = new CallGraph(fileList, getParseTreeAnalysis(), threads, executor);
+    }
+
+    return callGraph;
+  }
+
+  /**
+   * Update the resources after files changed. Only the changed modules are analyzed again and the
+   * callgraphs are updated in place. Resources that were never generated are not generated just to
+   * be updated.
+   *
+   * @param modifiedFiles the absolute paths of the files that were created or modified.
+   * @return true if any Haskell module changed; false otherwise.
+   * @throws IOException if a changed file cannot be read.
+   */
+  public synchronized boolean update(Set<Path> modifiedFiles) throws IOException {
+    Set<String> oldPathnames = getCanonicalPathnames();
+    fileList.refresh();
+    Set<String> newPathnames = new HashSet<>();
+
+    List<File> changedFiles = new ArrayList<>();
+    for (File file : fileList.getHaskellFiles()) {
+      String pathname = file.getCanonicalPath();
+      newPathnames.add(pathname);
+      if (!oldPathnames.contains(pathname)
+          || modifiedFiles.contains(file.toPath().toAbsolutePath().normalize())) {
+        changedFiles.add(file);
+      }
+    }
+
+    Set<String> removedPathnames = new HashSet<>(oldPathnames);
+    removedPathnames.removeAll(newPathnames);
+
+    if (parseTreeAnalysis == null) {
+      return !changedFiles.isEmpty() || !removedPathnames.isEmpty();
+    }
+
+    SummaryChanges changes = parseTreeAnalysis.update(changedFiles, removedPathnames);
+    if (callGraph != null) {
+      callGraph.update(changes);
+    }
+
+    return !changes.isEmpty();
+  }
+
+  /**
+   * Find the Haskell files of the project again and drop the ParseTreeAnalysis and the CallGraph,
+   * for when it is not known which files changed. The resources are generated again the next time
+   * they are needed; with an AnalysisCache, only the modules that changed are parsed again.
+   */
+  public synchronized void rebuild() {
+    fileList.refresh();
+    parseTreeAnalysis = null;
+    callGraph = null;
+  }
+
+  /**
+   * Getter for the metrics field.
+   *
+   * @return the metric types that are part of the report.
+   */
+  public List<MetricType> getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Getter for the parseMode field.
+   *
+   * @return the way in which the modules are analyzed.
+   */
+  public ParseMode getParseMode() {
+    return parseMode;
+  }
+
+  /**
+   * Check if the modules are parsed, which is the case if a metric needs a collector and the
+   * session does not run in fast mode.
+   *
+   * @return true if the modules are parsed; false otherwise.
+   */
+  public boolean isParsed() {
+    return parseMode != ParseMode.FAST && !collectorTypes.isEmpty();
+  }
+
+  /**
+   * Getter for the budget field.
+   *
+   * @return the maximum time and number of tokens that may be spent on parsing a module.
+   */
+  public ParseBudget getParseBudget() {
+    return budget;
+  }
+
+  /**
+   * Get the pathname of the project.
+   *
+   * @return the pathname of the Haskell project or a single Haskell file.
+   */
+  public String getPathname() {
+    return fileList.getPathname();
+  }
+
+  /**
+   * Get the canonical paths of all files in the FileList.
+   *
+   * @return Set with the canonical path of every Haskell file.
+   * @throws IOException if the canonical path of a file cannot be determined.
+   */
+  private Set<String> getCanonicalPathnames() throws IOException {
+    Set<String> pathnames = new HashSet<>();
+    for (File file : fileList.getHaskellFiles()) {
+      pathnames.add(file.getCanonicalPath());
+    }
+
+    return pathnames;
+  }
+}
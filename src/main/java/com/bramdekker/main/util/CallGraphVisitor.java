@@ -1,262 +1,219 @@
 package com.bramdekker.main.util;
 
 import antlr.HaskellParser;
-import antlr.HaskellParserBaseVisitor;
-import org.antlr.v4.runtime.tree.ParseTree;
-import org.antlr.v4.runtime.tree.TerminalNode;
-import org.jgrapht.graph.DefaultEdge;
-import org.jgrapht.graph.DirectedPseudograph;
+import com.bramdekker.main.resources.CompactTree;
+import com.bramdekker.main.resources.ModuleReferences;
+import com.bramdekker.main.resources.ModuleReferences.ImportDeclaration;
+import com.bramdekker.main.resources.ModuleReferences.ReferenceKind;
+import com.bramdekker.main.resources.ModuleSummary;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+
+import static com.bramdekker.main.resources.CompactTree.NONE;
 
 /**
- * A ParseTree visitor that will add edges to the callgraph on function level.
+ * A CompactTree listener that records the imports and function references of a module. The
+ * references are resolved into edges of the callgraph on function level once the functions of all
+ * modules are known.
  */
-public class CallGraphVisitor extends HaskellParserBaseVisitor<Void> {
-  private final List<String> userDefinedFunctions;
-  private List<String> internalFunctions;
-  private String module;
-  private final LeafVisitor leafVisitor = new LeafVisitor();
-  private final DirectedPseudograph<String, DefaultEdge> callGraph;
-  private Map<String, String> importedFunctions;
-  private String currentFunction;
+public class CallGraphVisitor implements MetricCollector {
+  private final ModuleReferences references = new ModuleReferences();
+  private final DeclarationExtractor declarations;
+  private String currentFunction = "";
+  private int currentFunctionId = references.intern("");
+  private int skippedSubtree = NONE;
 
   /**
-   * Constructor for the callgraph visitor instance settinf the userDefinedFunctions and callgraph
-   * accordingly. Also currentFunction and importedFunction are initialized.
+   * Constructor that sets the extractor that recognizes the functions of the module.
    *
-   * @param userDefinedFunctions List of Strings with functions that the user defined in this
-   *                             project.
-   * @param callGraph The callgraph with all vertices already in place.
+   * @param declarations the DeclarationExtractor that listens to the same walk.
    */
-  public CallGraphVisitor(
-      List<String> userDefinedFunctions, DirectedPseudograph<String, DefaultEdge> callGraph) {
-    this.userDefinedFunctions = userDefinedFunctions;
-    this.callGraph = callGraph;
-    this.currentFunction = "";
-    this.importedFunctions = new HashMap<>();
-    this.internalFunctions = new ArrayList<>();
+  public CallGraphVisitor(DeclarationExtractor declarations) {
+    this.declarations = declarations;
+  }
+
+  @Override
+  public void enterRule(CompactTree tree, int node) {
+    switch (tree.getKind(node)) {
+      case HaskellParser.RULE_module -> setCurrentFunction("");
+      case HaskellParser.RULE_impdecl -> enterImpdecl(tree, node);
+      case HaskellParser.RULE_module_content ->
+          references.setModule(declarations.getModuleName());
+      case HaskellParser.RULE_infixexp -> enterInfixexp(tree, node);
+      case HaskellParser.RULE_decl_no_th -> enterDecl_no_th(tree, node);
+      case HaskellParser.RULE_qvarid, HaskellParser.RULE_qvarsym -> {
+        if (skippedSubtree == NONE && tree.getChildCount(node) == 3) {
+          addQualifiedReference(tree, node);
+        }
+      }
+      case HaskellParser.RULE_varid -> enterVarid(tree, node);
+      default -> {}
+    }
   }
 
   @Override
-  public Void visitModule(HaskellParser.ModuleContext ctx) {
-    this.currentFunction = "";
-    this.importedFunctions = new HashMap<>();
-    return super.visitModule(ctx);
+  public void exitRule(CompactTree tree, int node) {
+    if (node == skippedSubtree) {
+      skippedSubtree = NONE;
+    }
   }
 
   @Override
-  public Void visitImpdecl(HaskellParser.ImpdeclContext ctx) {
-    String renamed;
+  public void collectInto(ModuleSummary summary) {
+    summary.references = references;
+  }
+
+  /**
+   * Record an import declaration and skip the rest of its subtree.
+   *
+   * @param tree the tree of the module.
+   * @param node an impdecl node.
+   */
+  private void enterImpdecl(CompactTree tree, int node) {
+    if (skippedSubtree != NONE) {
+      return;
+    }
+
     String originalModule = "";
+    String renamed = null;
     boolean afterRenaming = false;
     boolean qualified = false;
-    Map<String, String> curImportedFunctions = new HashMap<>();
-
-    for (int i = 0; i < ctx.getChildCount(); i++) {
-      ParseTree curChild = ctx.getChild(i);
+    boolean hiding = false;
+    List<String> names = null;
 
-      if (curChild instanceof TerminalNode && curChild.getText().equals("qualified")) {
+    for (int child = tree.getFirstChild(node);
+        child != NONE;
+        child = tree.getNextSibling(child)) {
+      if (tree.isLeaf(child) && tree.getText(child).equals("qualified")) {
         qualified = true;
       }
 
-      if (curChild instanceof HaskellParser.ModidContext) {
+      if (tree.getKind(child) == HaskellParser.RULE_modid) {
         if (afterRenaming) {
-          renamed = getLeftMostChild(curChild).getText();
-          String finalOriginalModule = originalModule;
-          String finalRenamed = renamed;
-
-          if (qualified) {
-            curImportedFunctions.replaceAll((k, v) -> v.replace(finalOriginalModule, finalRenamed));
-          } else {
-            String finalRenamed1 = renamed;
-            curImportedFunctions.replaceAll((k, v) -> finalRenamed1 + "." + v);
-          }
+          renamed = tree.getText(tree.getLeftMostChild(child));
         } else {
-          originalModule = getLeftMostChild(curChild).getText();
-          String modulePrefix = originalModule + ".";
-          for (String func : userDefinedFunctions) {
-            if (func.startsWith(modulePrefix)) {
-              curImportedFunctions.put(func, func);
-            }
-          }
-          if (!qualified) {
-            curImportedFunctions.replaceAll((k, v) -> v.substring(modulePrefix.length()));
-          }
+          originalModule = tree.getText(tree.getLeftMostChild(child));
         }
       }
 
-      if (curChild instanceof TerminalNode && curChild.getText().equals("as")) {
+      if (tree.isLeaf(child) && tree.getText(child).equals("as")) {
         afterRenaming = true;
       }
 
-      if (curChild instanceof HaskellParser.ImpspecContext) {
-        List<TerminalNode> leaves = leafVisitor.visit(curChild);
-        List<String> funcs =
-            leaves.stream()
-                .map(ParseTree::getText)
+      if (tree.getKind(child) == HaskellParser.RULE_impspec) {
+        names =
+            tree.getLeaves(child).stream()
+                .map(tree::getText)
                 .filter(
                     f -> !(f.equals(",") || f.equals("(") || f.equals(")") || f.equals("hiding")))
                 .toList();
-
-        if (curChild.getChild(0).getText().equals("hiding")) {
-          for (String name : funcs) {
-            curImportedFunctions.remove(originalModule + "." + name);
-          }
-        } else {
-          Map<String, String> actualImported = new HashMap<>();
-          for (String name : funcs) {
-            actualImported.put(
-                originalModule + "." + name, curImportedFunctions.get(originalModule + "." + name));
-          }
-          curImportedFunctions = actualImported;
-        }
+        hiding = tree.getText(tree.getFirstChild(child)).equals("hiding");
       }
     }
 
-    importedFunctions.putAll(curImportedFunctions);
+    references.addImport(new ImportDeclaration(originalModule, qualified, renamed, hiding, names));
 
-    return null;
-  }
-
-  @Override
-  public Void visitModule_content(HaskellParser.Module_contentContext ctx) {
-    StringBuilder currentModule = new StringBuilder();
-    ParseTree modid = ctx.getChild(1);
-    for (int i = 0; i < modid.getChildCount(); i++) {
-      currentModule.append(modid.getChild(i).getText());
-    }
-    module = currentModule.toString();
-    this.internalFunctions =
-        userDefinedFunctions.stream()
-            .filter(f -> f.startsWith(module + "."))
-            .map(f -> f.substring(module.length() + 1))
-            .toList();
-    return super.visitModule_content(ctx);
+    // Names in the import list are not function calls.
+    skippedSubtree = node;
   }
 
-  @Override
-  public Void visitDecl_no_th(HaskellParser.Decl_no_thContext ctx) {
-    if (!(ctx.getChild(0) instanceof HaskellParser.SigdeclContext)) {
-      List<TerminalNode> leaves = leafVisitor.visit(ctx);
-      currentFunction = leaves.remove(0).getText();
-      return super.visitDecl_no_th(ctx);
+  /**
+   * Record the function that is defined by a top level declaration.
+   *
+   * @param tree the tree of the module.
+   * @param node an infixexp node.
+   */
+  private void enterInfixexp(CompactTree tree, int node) {
+    // Only the left-hand side of a top level declaration names a function.
+    if (declarations.getCurrentKind() == DeclarationKind.FUNCTION) {
+      references.addFunction(
+          declarations.getModulePrefix() + tree.getText(tree.getLeftMostChild(node)));
     }
-
-    return null;
   }
 
-  @Override
-  public Void visitQvarid(HaskellParser.QvaridContext ctx) {
-    if (ctx.getChildCount() == 3) {
-      List<TerminalNode> leaves = leafVisitor.visit(ctx);
-      String operatorName = String.join("", leaves.stream().map(ParseTree::getText).toList());
-      checkIfImportedFunction(operatorName);
-      return null;
+  /**
+   * Set the function the references in a declaration belong to. Type signatures are skipped.
+   *
+   * @param tree the tree of the module.
+   * @param node a decl_no_th node.
+   */
+  private void enterDecl_no_th(CompactTree tree, int node) {
+    if (skippedSubtree != NONE) {
+      return;
     }
-    return super.visitQvarid(ctx);
-  }
 
-  @Override
-  public Void visitQvarsym(HaskellParser.QvarsymContext ctx) {
-    if (ctx.getChildCount() == 3) {
-      List<TerminalNode> leaves = leafVisitor.visit(ctx);
-      String operatorName = String.join("", leaves.stream().map(ParseTree::getText).toList());
-      checkIfImportedFunction(operatorName);
-      return null;
+    if (tree.getKind(tree.getFirstChild(node)) == HaskellParser.RULE_sigdecl) {
+      skippedSubtree = node;
+      return;
     }
-    return super.visitQvarsym(ctx);
-  }
 
-  @Override
-  public Void visitVarid(HaskellParser.VaridContext ctx) {
-    String operatorName = ctx.getChild(0).getText();
-    if (operatorName.equals(currentFunction) && onRightHandSide(ctx)) {
-      // Add edge from currentFunction to currentFunction: recursion!
-      if (callGraph.containsVertex(getFunctionName())) {
-        callGraph.addEdge(getFunctionName(), getFunctionName());
-      }
-    } else if (operatorName.equals(currentFunction)) {
-      return null;
-    } else if (this.internalFunctions.contains(operatorName)) {
-      // Add edge from currentFunction to called function: intra-module function call!
-      if (callGraph.containsVertex(getFunctionName())
-          && callGraph.containsVertex(module + "." + operatorName)) {
-        callGraph.addEdge(getFunctionName(), module + "." + operatorName);
-      }
-    } else {
-      checkIfImportedFunction(operatorName);
+    List<Integer> leaves = tree.getLeaves(node);
+    if (!leaves.isEmpty()) {
+      setCurrentFunction(tree.getText(leaves.get(0)));
     }
-
-    return null;
   }
 
   /**
-   * Checks if the operator is an imported function and adds an edge to the callgraph if it is.
+   * Set the function the next references belong to and intern its name once for all of them.
    *
-   * @param operatorName the name of the operator.
+   * @param function the name of the function as written in the source.
    */
-  private void checkIfImportedFunction(String operatorName) {
-    if (importedFunctions.containsValue(operatorName)) {
-      String targetNodeName = "";
-
-      for (Map.Entry<String, String> e : importedFunctions.entrySet()) {
-        if (e.getValue() != null && e.getValue().equals(operatorName)) {
-          targetNodeName = e.getKey();
-        }
-      }
-
-      if (callGraph.containsVertex(getFunctionName()) && callGraph.containsVertex(targetNodeName)) {
-        callGraph.addEdge(getFunctionName(), targetNodeName);
-      }
-    }
+  private void setCurrentFunction(String function) {
+    currentFunction = function;
+    currentFunctionId = references.intern(function);
   }
 
   /**
-   * Check if the node is a child of a rhs node.
+   * Record a reference to an unqualified name.
    *
-   * @param node the node to be checked.
-   * @return true if it is a child of a rhs node; false otherwise.
+   * @param tree the tree of the module.
+   * @param node a varid node.
    */
-  private boolean onRightHandSide(ParseTree node) {
-    while (node != null) {
-      if (node instanceof HaskellParser.Exp10pContext || node instanceof HaskellParser.RhsContext) {
-        return true;
-      }
-
-      node = node.getParent();
+  private void enterVarid(CompactTree tree, int node) {
+    if (skippedSubtree != NONE) {
+      return;
     }
 
-    return false;
+    String operatorName = tree.getText(tree.getFirstChild(node));
+    if (operatorName.equals(currentFunction) && onRightHandSide(tree, node)) {
+      references.addReference(currentFunctionId, currentFunctionId, ReferenceKind.RECURSIVE);
+    } else if (!operatorName.equals(currentFunction)) {
+      references.addReference(
+          currentFunctionId, references.intern(operatorName), ReferenceKind.UNQUALIFIED);
+    }
   }
 
   /**
-   * Get the left most child from node using depth-first search.
+   * Record a qualified name like Module.function and skip the rest of its subtree.
    *
-   * @param node the start node.
-   * @return the left most child of the node.
+   * @param tree the tree of the module.
+   * @param node a qvarid or qvarsym node with a module qualifier.
    */
-  private ParseTree getLeftMostChild(ParseTree node) {
-    if (node.getChildCount() > 0) {
-      return getLeftMostChild(node.getChild(0));
-    }
-
-    return node;
+  private void addQualifiedReference(CompactTree tree, int node) {
+    String operatorName =
+        String.join("", tree.getLeaves(node).stream().map(tree::getText).toList());
+    references.addReference(
+        currentFunctionId, references.intern(operatorName), ReferenceKind.QUALIFIED);
+    skippedSubtree = node;
   }
 
   /**
-   * Get the name of the function potentially prepended with a module name.
+   * Check if the node is a child of a rhs node.
    *
-   * @return the most specific name for the function.
+   * @param tree the tree of the module.
+   * @param node the node to be checked.
+   * @return true if it is a child of a rhs node; false otherwise.
    */
-  private String getFunctionName() {
-    if (module.isEmpty()) {
-      return currentFunction;
+  private boolean onRightHandSide(CompactTree tree, int node) {
+    while (node != NONE) {
+      if (tree.getKind(node) == HaskellParser.RULE_exp10p
+          || tree.getKind(node) == HaskellParser.RULE_rhs) {
+        return true;
+      }
+
+      node = tree.getParent(node);
     }
 
-    return module + "." + currentFunction;
+    return false;
   }
 }
@@ -0,0 +1,35 @@
+package com.bramdekker.main.util;
+
+import java.util.function.Function;
+
+/**
+ * Enum for all collectors that can listen to the walk over the parse tree of a module. Metric
+ * types that need the same data share a collector type, so that its work is only done once.
+ */
+public enum CollectorType {
+  PARSE_TREE_SIZE(declarations -> new ParseTreeSizeCollector()),
+  HALSTEAD(declarations -> new HalsteadVisitor()),
+  PATTERNS(PatternCollector::new),
+  CALL_REFERENCES(CallGraphVisitor::new);
+
+  private final Function<DeclarationExtractor, MetricCollector> factory;
+
+  /**
+   * Constructor that sets the factory for new collectors of this type.
+   *
+   * @param factory Function that creates a new collector from the extractor of the module.
+   */
+  CollectorType(Function<DeclarationExtractor, MetricCollector> factory) {
+    this.factory = factory;
+  }
+
+  /**
+   * Create a new collector of this type for a single module.
+   *
+   * @param declarations the DeclarationExtractor that listens to the same walk as the collector.
+   * @return a new MetricCollector.
+   */
+  public MetricCollector create(DeclarationExtractor declarations) {
+    return factory.apply(declarations);
+  }
+}
@@ -0,0 +1,42 @@
+package com.bramdekker.main.util;
+
+import com.bramdekker.main.resources.CompactTree;
+
+/**
+ * Listener for the events of a walk over a CompactTree. The events are the same as those of a
+ * ParseTreeListener, but the nodes are indices in the tree. There are no events per grammar rule;
+ * a listener checks the kind of the node instead. Every event does nothing by default.
+ */
+public interface CompactTreeListener {
+  /**
+   * Called when the walk enters a rule node, before its children.
+   *
+   * @param tree the tree that is walked.
+   * @param node the index of the rule node.
+   */
+  default void enterRule(CompactTree tree, int node) {}
+
+  /**
+   * Called when the walk leaves a rule node, after its children.
+   *
+   * @param tree the tree that is walked.
+   * @param node the index of the rule node.
+   */
+  default void exitRule(CompactTree tree, int node) {}
+
+  /**
+   * Called when the walk visits a leaf that is not an error node.
+   *
+   * @param tree the tree that is walked.
+   * @param node the index of the leaf.
+   */
+  default void visitTerminal(CompactTree tree, int node) {}
+
+  /**
+   * Called when the walk visits an error node.
+   *
+   * @param tree the tree that is walked.
+   * @param node the index of the error node.
+   */
+  default void visitErrorNode(CompactTree tree, int node) {}
+}
@@ -0,0 +1,54 @@
+package com.bramdekker.main.util;
+
+import com.bramdekker.main.resources.CompactTree;
+
+import static com.bramdekker.main.resources.CompactTree.NONE;
+
+/**
+ * Walks a CompactTree depth-first, in the same order as the ParseTreeWalker of ANTLR. The walk
+ * follows the first child, next sibling and parent columns, so it needs neither recursion nor a
+ * stack.
+ */
+public class CompactTreeWalker {
+  /** Private constructor, because the class only has static methods. */
+  private CompactTreeWalker() {}
+
+  /**
+   * Walk a tree and send every event to a listener.
+   *
+   * @param listener the listener that receives the events.
+   * @param tree the tree to be walked.
+   */
+  public static void walk(CompactTreeListener listener, CompactTree tree) {
+    int root = tree.getRoot();
+    int node = root;
+    while (true) {
+      if (tree.isErrorNode(node)) {
+        listener.visitErrorNode(tree, node);
+      } else if (tree.isLeaf(node)) {
+        listener.visitTerminal(tree, node);
+      } else {
+        listener.enterRule(tree, node);
+        if (tree.getFirstChild(node) != NONE) {
+          node = tree.getFirstChild(node);
+          continue;
+        }
+      }
+
+      // The subtree of node is done: leave it and every ancestor of which it is the last child.
+      while (true) {
+        if (!tree.isLeaf(node)) {
+          listener.exitRule(tree, node);
+        }
+        if (node == root) {
+          return;
+        }
+        if (tree.getNextSibling(node) != NONE) {
+          node = tree.getNextSibling(node);
+          break;
+        }
+        node = tree.getParent(node);
+      }
+    }
+  }
+}
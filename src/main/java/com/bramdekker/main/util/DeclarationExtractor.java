@@ -0,0 +1,53 @@
+package com.bramdekker.main.util;
+
+import antlr.HaskellParser;
+import com.bramdekker.main.resources.CompactTree;
+
+/**
+ * CompactTree listener that extracts the structure of a module during the shared walk: the name of
+ * the module and the kind of declaration every node is the root of. It is the first listener of the
+ * walk, so collectors can ask for the kind of the node they are entering instead of classifying it
+ * themselves. The module name is built once per module.
+ */
+public class DeclarationExtractor implements CompactTreeListener {
+  private String moduleName = "";
+  private String modulePrefix = "";
+  private DeclarationKind currentKind;
+
+  @Override
+  public void enterRule(CompactTree tree, int node) {
+    currentKind = DeclarationKind.of(tree, node);
+    if (tree.getKind(node) == HaskellParser.RULE_module_content) {
+      int modid = tree.getChild(node, 1);
+      moduleName = tree.getText(modid);
+      modulePrefix = tree.getText(tree.getLeftMostChild(modid)) + ".";
+    }
+  }
+
+  /**
+   * Getter for the moduleName field.
+   *
+   * @return the full name of the module or an empty String if it has no module header.
+   */
+  public String getModuleName() {
+    return moduleName;
+  }
+
+  /**
+   * Getter for the modulePrefix field.
+   *
+   * @return the prefix of the functions of the module or an empty String if it has no header.
+   */
+  public String getModulePrefix() {
+    return modulePrefix;
+  }
+
+  /**
+   * Get the kind of declaration the node that was entered last is the root of.
+   *
+   * @return the DeclarationKind of the current node or null if it is not a declaration.
+   */
+  public DeclarationKind getCurrentKind() {
+    return currentKind;
+  }
+}
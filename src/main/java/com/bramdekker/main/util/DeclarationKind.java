@@ -0,0 +1,86 @@
+package com.bramdekker.main.util;
+
+import antlr.HaskellParser;
+import com.bramdekker.main.resources.CompactTree;
+
+import java.util.List;
+
+/**
+ * The kinds of declarations that are extracted from a module, with the path of ancestors that
+ * identifies them. Only infixexp and pat nodes can be the root of a declaration, so all other nodes
+ * are rejected without looking at their ancestors.
+ */
+public enum DeclarationKind {
+  FUNCTION(
+      HaskellParser.RULE_infixexp,
+      HaskellParser.RULE_decl_no_th,
+      HaskellParser.RULE_topdecl,
+      HaskellParser.RULE_topdecls),
+  LET(
+      HaskellParser.RULE_infixexp,
+      HaskellParser.RULE_decl_no_th,
+      HaskellParser.RULE_decl,
+      HaskellParser.RULE_decls,
+      HaskellParser.RULE_decllist,
+      HaskellParser.RULE_aexp),
+  WHERE(
+      HaskellParser.RULE_infixexp,
+      HaskellParser.RULE_decl_no_th,
+      HaskellParser.RULE_decl,
+      HaskellParser.RULE_decls,
+      HaskellParser.RULE_decllist,
+      HaskellParser.RULE_binds,
+      HaskellParser.RULE_wherebinds),
+  CASE(HaskellParser.RULE_pat, HaskellParser.RULE_alt, HaskellParser.RULE_alts);
+
+  private static final List<DeclarationKind> bindings = List.of(FUNCTION, LET, WHERE);
+  private final int[] path;
+
+  /**
+   * Constructor that sets the path of the declaration kind.
+   *
+   * @param path the rule of the declaration node followed by the rules of its ancestors.
+   */
+  DeclarationKind(int... path) {
+    this.path = path;
+  }
+
+  /**
+   * Get the kind of declaration the node is the root of.
+   *
+   * @param tree the tree of the module.
+   * @param node the node to be checked.
+   * @return the DeclarationKind of the node or null if it is not the root of a declaration.
+   */
+  public static DeclarationKind of(CompactTree tree, int node) {
+    if (tree.getKind(node) == HaskellParser.RULE_infixexp) {
+      for (DeclarationKind kind : bindings) {
+        if (kind.matches(tree, node)) {
+          return kind;
+        }
+      }
+    } else if (tree.getKind(node) == HaskellParser.RULE_pat && CASE.matches(tree, node)) {
+      return CASE;
+    }
+
+    return null;
+  }
+
+  /**
+   * Check if the node and its ancestors follow the path of this declaration kind.
+   *
+   * @param tree the tree of the module.
+   * @param node the node to be checked.
+   * @return true if the node is the root of a declaration of this kind; false otherwise.
+   */
+  private boolean matches(CompactTree tree, int node) {
+    for (int rule : path) {
+      if (node == CompactTree.NONE || tree.getKind(node) != rule) {
+        return false;
+      }
+      node = tree.getParent(node);
+    }
+
+    return true;
+  }
+}
@@ -0,0 +1,267 @@
+package com.bramdekker.main.util;
+
+import antlr.HaskellLexer;
+import com.bramdekker.main.resources.HalsteadResult;
+import com.bramdekker.main.resources.SourceFile;
+import org.antlr.v4.runtime.Token;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Splits the tokens of a module into operators and operands without parsing it. This is what the
+ * --fast mode uses instead of the HalsteadVisitor. A declaration starts at every token in the first
+ * column of a line. Within a declaration the variables bound by the left-hand side, by where and
+ * let bindings (name = ...) and by lambdas are operands, as are constructors, literals and
+ * wildcards. Every other identifier, keyword and symbol is an operator. Symbols that are not
+ * separated by whitespace form a single operator. The counts are an approximation of those of the
+ * HalsteadVisitor, which knows the exact scope of every variable.
+ */
+public class HalsteadTokenCounter {
+  private static final List<String> ignoredTokens =
+      List.of("}", "]", ")", ",", "<EOF>", "SEMI", "VOCURLY", "VCCURLY");
+  private static final String symbolCharacters = "!#$%&*+./<=>?@\\^|-~:";
+  private final Map<String, Integer> operatorMap = new HashMap<>();
+  private final Map<String, Integer> operandMap = new HashMap<>();
+  private final StringBuilder pendingOperator = new StringBuilder();
+  private String lastOperator = "";
+  private boolean leftHandSide = true;
+
+  /** Private constructor, since a counter is only used by the count method. */
+  private HalsteadTokenCounter() {}
+
+  /**
+   * Lex a single module and count its operators and operands. The module is not parsed.
+   *
+   * @param pathname the name of the file that is used in error messages.
+   * @param source the contents of the file.
+   * @return a HalsteadResult with the operator and operand dictionaries of the module. It has no
+   *     cyclomatic data and no declared functions or types, since those need a parse tree.
+   */
+  public static HalsteadResult count(String pathname, SourceFile source) {
+    HaskellLexer lexer = new HaskellLexer(source.getCharStream(pathname));
+    List<Token> tokens = new ArrayList<>();
+    Token token = lexer.nextToken();
+    while (token.getType() != Token.EOF) {
+      if (token.getChannel() == Token.DEFAULT_CHANNEL
+          && !ignoredTokens.contains(token.getText())) {
+        tokens.add(token);
+      }
+      token = lexer.nextToken();
+    }
+
+    HalsteadTokenCounter counter = new HalsteadTokenCounter();
+    int declarationStart = 0;
+    for (int i = 1; i <= tokens.size(); i++) {
+      if (i == tokens.size() || startsDeclaration(tokens.get(i), tokens.get(i - 1))) {
+        counter.countDeclaration(tokens.subList(declarationStart, i));
+        declarationStart = i;
+      }
+    }
+
+    return new HalsteadResult(
+        counter.operatorMap,
+        counter.operandMap,
+        new HashMap<>(),
+        new ArrayList<>(),
+        new ArrayList<>(),
+        new ArrayList<>());
+  }
+
+  /**
+   * Count the operators and operands of a single declaration.
+   *
+   * @param tokens the tokens of the declaration.
+   */
+  private void countDeclaration(List<Token> tokens) {
+    String function = tokens.get(0).getType() == HaskellLexer.VARID ? tokens.get(0).getText() : "";
+    Set<String> scope = getBoundVariables(tokens);
+    leftHandSide = true;
+    lastOperator = "";
+
+    for (int i = 0; i < tokens.size(); i++) {
+      Token token = tokens.get(i);
+      String text = token.getText();
+
+      if (isSymbol(text)) {
+        if (!isAdjacent(tokens.get(Math.max(i - 1, 0)), token)) {
+          flushOperator();
+        }
+        pendingOperator.append(text);
+        continue;
+      }
+
+      flushOperator();
+      if (token.getType() == HaskellLexer.VARID) {
+        if (text.equals(function) ? leftHandSide : isVariable(text, scope, lastOperator)) {
+          updateMap(operandMap, text);
+        } else {
+          updateMap(operatorMap, text);
+        }
+      } else if (isOperand(token)) {
+        updateMap(operandMap, text);
+      } else {
+        updateMap(operatorMap, text);
+      }
+
+      lastOperator = "";
+    }
+
+    flushOperator();
+  }
+
+  /**
+   * Count the symbols that were collected since the last token that is not a symbol as a single
+   * operator. The right-hand side of a declaration starts after its first equals sign or guard.
+   */
+  private void flushOperator() {
+    if (pendingOperator.length() == 0) {
+      return;
+    }
+
+    lastOperator = pendingOperator.toString();
+    updateMap(operatorMap, lastOperator);
+    pendingOperator.setLength(0);
+    if (lastOperator.equals("=") || lastOperator.equals("|")) {
+      leftHandSide = false;
+    }
+  }
+
+  /**
+   * Get the variables that are bound within a declaration: the identifiers on the left-hand side,
+   * the names of where and let bindings and the parameters of lambdas.
+   *
+   * @param tokens the tokens of the declaration.
+   * @return Set with the names of all bound variables.
+   */
+  private static Set<String> getBoundVariables(List<Token> tokens) {
+    Set<String> variables = new HashSet<>();
+    boolean leftHandSide = true;
+    boolean lambdaParameters = false;
+
+    for (int i = 0; i < tokens.size(); i++) {
+      Token token = tokens.get(i);
+      if (isSingleSymbol(tokens, i, "=") || isSingleSymbol(tokens, i, "|")) {
+        leftHandSide = false;
+      } else if (token.getType() == HaskellLexer.ReverseSlash) {
+        lambdaParameters = true;
+      } else if (token.getType() == HaskellLexer.Arrow) {
+        lambdaParameters = false;
+      } else if (token.getType() == HaskellLexer.VARID
+          && (leftHandSide || lambdaParameters || isSingleSymbol(tokens, i + 1, "="))) {
+        variables.add(token.getText());
+      }
+    }
+
+    return variables;
+  }
+
+  /**
+   * Check if an identifier that is not the name of the declaration is an operand.
+   *
+   * @param text the text of the identifier.
+   * @param scope the variables bound within the declaration.
+   * @param lastOperator the operator right before the identifier.
+   * @return true if the identifier is a variable; false if it is a function that is applied.
+   */
+  private static boolean isVariable(String text, Set<String> scope, String lastOperator) {
+    return scope.contains(text) || (lastOperator.equals("|") && text.equals("otherwise"));
+  }
+
+  /**
+   * Check if a token other than an identifier is an operand.
+   *
+   * @param token the token to be checked.
+   * @return true if the token is a constructor, literal or wildcard; false otherwise.
+   */
+  private static boolean isOperand(Token token) {
+    return switch (token.getType()) {
+      case HaskellLexer.CONID,
+          HaskellLexer.WILDCARD,
+          HaskellLexer.DECIMAL,
+          HaskellLexer.OCTAL,
+          HaskellLexer.HEXADECIMAL,
+          HaskellLexer.FLOAT,
+          HaskellLexer.CHAR,
+          HaskellLexer.STRING -> true;
+      default -> false;
+    };
+  }
+
+  /**
+   * Check if a token is the start of a new declaration.
+   *
+   * @param token the token to be checked.
+   * @param previous the token before it.
+   * @return true if the token is the first token on its line and in the first column.
+   */
+  private static boolean startsDeclaration(Token token, Token previous) {
+    return token.getCharPositionInLine() == 0 && token.getLine() > previous.getLine();
+  }
+
+  /**
+   * Check if the token at an index is a symbol on its own, e.g. an = that is not part of ==.
+   *
+   * @param tokens the tokens of the declaration.
+   * @param index the index of the token to be checked.
+   * @param symbol the expected symbol.
+   * @return true if the token is the symbol and is not adjacent to another symbol.
+   */
+  private static boolean isSingleSymbol(List<Token> tokens, int index, String symbol) {
+    if (index >= tokens.size() || !tokens.get(index).getText().equals(symbol)) {
+      return false;
+    }
+
+    boolean joinsPrevious =
+        index > 0
+            && isSymbol(tokens.get(index - 1).getText())
+            && isAdjacent(tokens.get(index - 1), tokens.get(index));
+    boolean joinsNext =
+        index + 1 < tokens.size()
+            && isSymbol(tokens.get(index + 1).getText())
+            && isAdjacent(tokens.get(index), tokens.get(index + 1));
+
+    return !joinsPrevious && !joinsNext;
+  }
+
+  /**
+   * Check if a token consists of symbol characters only.
+   *
+   * @param text the text of the token.
+   * @return true if the token is (part of) an operator symbol; false otherwise.
+   */
+  private static boolean isSymbol(String text) {
+    for (int i = 0; i < text.length(); i++) {
+      if (symbolCharacters.indexOf(text.charAt(i)) < 0) {
+        return false;
+      }
+    }
+
+    return !text.isEmpty();
+  }
+
+  /**
+   * Check if there is no whitespace between two tokens.
+   *
+   * @param first the first token.
+   * @param second the token right after it.
+   * @return true if the second token starts right after the first one; false otherwise.
+   */
+  private static boolean isAdjacent(Token first, Token second) {
+    return first.getStopIndex() + 1 == second.getStartIndex();
+  }
+
+  /**
+   * Update a dictionary when an occurrence of key is found.
+   *
+   * @param map the operator or operand dictionary.
+   * @param key String representing the operator or operand that is found.
+   */
+  private static void updateMap(Map<String, Integer> map, String key) {
+    map.merge(key, 1, Integer::sum);
+  }
+}
@@ -6,23 +6,26 @@ package com.bramdekker.main.util;
 // Guards: every guard is a branch except for | otherwise
 // Patterns: every function pattern is a branch except for _
 import antlr.HaskellParser;
-import antlr.HaskellParserBaseVisitor;
 import com.bramdekker.main.metrics.CyclomaticComplexityMetric;
-import org.antlr.v4.runtime.tree.ParseTree;
-import org.antlr.v4.runtime.tree.TerminalNode;
+import com.bramdekker.main.resources.CompactTree;
+import com.bramdekker.main.resources.HalsteadResult;
+import com.bramdekker.main.resources.ModuleSummary;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import static com.bramdekker.main.resources.CompactTree.NONE;
+
 /**
- * Visitor that can split the tokens into operators and operands.
+ * Listener that can split the tokens into operators and operands. It also counts the branches,
+ * operators and operands per function and the functions, type synonyms and data types per module.
  */
-public class HalsteadVisitor extends HaskellParserBaseVisitor<Void> {
-  private static final LeafVisitor leafVisitor = new LeafVisitor();
+public class HalsteadVisitor implements MetricCollector {
   private String currentFunction = "";
   private String module = "";
+  private String functionName = "";
   private String lastOperator = "";
   private final Map<String, CyclomaticComplexityMetric> functionMap = new HashMap<>();
   private final List<String> functions = new ArrayList<>();
@@ -37,7 +40,7 @@ public class HalsteadVisitor extends HaskellParserBaseVisitor<Void> {
   private static final List<String> branchingLeaves =
           List.of("if", "||", "&&");
 
-  private static final List<List<String>> variablesInScope = new ArrayList<>();
+  private final List<List<String>> variablesInScope = new ArrayList<>();
   private final Map<String, Integer> operatorMap;
   private final Map<String, Integer> operandMap;
 
@@ -55,27 +58,56 @@ public class HalsteadVisitor extends HaskellParserBaseVisitor<Void> {
   }
 
   @Override
-  public Void visitModule(HaskellParser.ModuleContext ctx) {
-    super.visitModule(ctx);
+  public void enterRule(CompactTree tree, int node) {
+    switch (tree.getKind(node)) {
+      case HaskellParser.RULE_module_content -> enterModule_content(tree, node);
+      case HaskellParser.RULE_topdecl -> enterTopdecl();
+      case HaskellParser.RULE_ty_decl -> enterTy_decl(tree, node);
+      case HaskellParser.RULE_decl_no_th -> enterDecl_no_th(tree, node);
+      case HaskellParser.RULE_aexp -> enterAexp(tree, node);
+      case HaskellParser.RULE_alts -> enterAlts(tree, node);
+      default -> {}
+    }
+  }
 
+  @Override
+  public void exitRule(CompactTree tree, int node) {
+    switch (tree.getKind(node)) {
+      case HaskellParser.RULE_module -> exitModule();
+      case HaskellParser.RULE_module_content -> exitModule_content();
+      case HaskellParser.RULE_aexp -> exitAexp(tree, node);
+      default -> {}
+    }
+  }
+
+  /** Count the operator that is still pending at the end of the module. */
+  private void exitModule() {
     if (!lastOperator.isEmpty()) {
       updateOperatorMap(lastOperator);
       updateNumOperators(getFunctionName());
     }
-    return null;
   }
 
-  @Override
-  public Void visitModule_content(HaskellParser.Module_contentContext ctx) {
-    currentFunction = "";
+  /**
+   * Set the name of the module that is prepended to the names of its functions.
+   *
+   * @param tree the tree of the module.
+   * @param node a module_content node.
+   */
+  private void enterModule_content(CompactTree tree, int node) {
     StringBuilder currentModule = new StringBuilder();
-    ParseTree modid = ctx.getChild(1);
-    for (int i = 0; i < modid.getChildCount(); i++) {
-      currentModule.append(modid.getChild(i).getText());
+    int modid = tree.getChild(node, 1);
+    for (int child = tree.getFirstChild(modid);
+        child != NONE;
+        child = tree.getNextSibling(child)) {
+      currentModule.append(tree.getText(child));
     }
     module = currentModule.toString();
-    super.visitModule_content(ctx);
+    setCurrentFunction("");
+  }
 
+  /** Count the operator that is still pending at the end of the module content. */
+  private void exitModule_content() {
     if (!lastOperator.isEmpty()) {
       if (lastOperator.equals("|")) {
         incrementNumBranches(getFunctionName());
@@ -84,12 +116,10 @@ public class HalsteadVisitor extends HaskellParserBaseVisitor<Void> {
       updateNumOperators(getFunctionName());
       lastOperator = "";
     }
-
-    return null;
   }
 
-  @Override
-  public Void visitTopdecl(HaskellParser.TopdeclContext ctx) {
+  /** Count the pending operator and clear the scope, since a top level declaration starts. */
+  private void enterTopdecl() {
     // Top-level declaration has new scope.
     if (!lastOperator.isEmpty()) {
       if (lastOperator.equals("|")) {
@@ -101,37 +131,44 @@ public class HalsteadVisitor extends HaskellParserBaseVisitor<Void> {
 
     lastOperator = "";
     variablesInScope.clear();
-    currentFunction = "";
-    return super.visitTopdecl(ctx);
+    setCurrentFunction("");
   }
 
-  @Override
-  public Void visitTy_decl(HaskellParser.Ty_declContext ctx) {
-    if (ctx.getChild(0).getText().equals("type")) {
-      this.typeSynonyms.add(getLeftMostChild(ctx.getChild(1)).getText());
-    } else if (ctx.getChild(0).getText().equals("data")) {
-      this.dataTypes.add(getLeftMostChild(ctx.getChild(1)).getText());
+  /**
+   * Record the name of a type synonym or data type.
+   *
+   * @param tree the tree of the module.
+   * @param node a ty_decl node.
+   */
+  private void enterTy_decl(CompactTree tree, int node) {
+    String keyword = tree.getText(tree.getFirstChild(node));
+    if (keyword.equals("type")) {
+      this.typeSynonyms.add(tree.getText(tree.getLeftMostChild(tree.getChild(node, 1))));
+    } else if (keyword.equals("data")) {
+      this.dataTypes.add(tree.getText(tree.getLeftMostChild(tree.getChild(node, 1))));
     }
-
-    return super.visitTy_decl(ctx);
   }
 
-  @Override
-  public Void visitDecl_no_th(HaskellParser.Decl_no_thContext ctx) {
-    if (ctx.getChildCount() > 0) {
+  /**
+   * Record a function and add the variables of its left-hand side and where-clause to the scope.
+   *
+   * @param tree the tree of the module.
+   * @param node a decl_no_th node.
+   */
+  private void enterDecl_no_th(CompactTree tree, int node) {
+    if (tree.getFirstChild(node) != NONE) {
       // If in where, don't do anything
-      if (inWhereClause(ctx)) {
-        return super.visitDecl_no_th(ctx);
+      if (inWhereClause(tree, node)) {
+        return;
       }
 
-      ParseTree rootLeftSubtree = getRootLeftSubtree(ctx);
-      List<TerminalNode> leaves = leafVisitor.visit(rootLeftSubtree);
+      List<Integer> leaves = tree.getLeaves(getRootLeftSubtree(tree, node));
 
-      if (ctx.getParent() instanceof HaskellParser.TopdeclContext) {
-        TerminalNode functionName = leaves.remove(0);
-        currentFunction = functionName.getText();
-        if (!(ctx.getChild(0) instanceof HaskellParser.SigdeclContext)
-                && !isWildcardPattern(leaves)) {
+      if (tree.getKind(tree.getParent(node)) == HaskellParser.RULE_topdecl) {
+        int nameLeaf = leaves.remove(0);
+        setCurrentFunction(tree.getText(nameLeaf));
+        if (tree.getKind(tree.getFirstChild(node)) != HaskellParser.RULE_sigdecl
+                && !isWildcardPattern(tree, leaves)) {
           incrementNumBranches(getFunctionName());
         }
         if (!this.functions.contains(getFunctionName())) {
@@ -140,47 +177,45 @@ public class HalsteadVisitor extends HaskellParserBaseVisitor<Void> {
       }
 
       // If right-hand side has a where-clause, add those variables to scope.
-      ParseTree connectedWhere = getConnectedWhere(ctx);
-      if (connectedWhere != null) {
-        List<TerminalNode> whereLeaves = leafVisitor.visit(connectedWhere);
+      int connectedWhere = getConnectedWhere(tree, node);
+      if (connectedWhere != NONE) {
+        List<Integer> whereLeaves = tree.getLeaves(connectedWhere);
         List<String> whereVariables = new ArrayList<>();
         for (int i = 0; i < whereLeaves.size() - 1; i++) {
-          if (whereLeaves.get(i + 1).getText().equals("=")) {
-            whereVariables.add(whereLeaves.get(i).getText());
+          if (tree.getText(whereLeaves.get(i + 1)).equals("=")) {
+            whereVariables.add(tree.getText(whereLeaves.get(i)));
           }
         }
 
         variablesInScope.add(filterOutOperators(whereVariables));
       }
 
-      List<String> leavesNoGuards = removeGuards(leavesToStringList(leaves));
+      List<String> leavesNoGuards = removeGuards(leavesToStringList(tree, leaves));
       variablesInScope.add(filterOutOperators(leavesNoGuards));
     }
-
-    return super.visitDecl_no_th(ctx);
   }
 
   @Override
-  public Void visitTerminal(TerminalNode node) {
+  public void visitTerminal(CompactTree tree, int node) {
     boolean setLastOperator = false;
-    String text = node.getText();
+    String text = tree.getText(node);
 
     if (branchingLeaves.contains(text)) {
       incrementNumBranches(getFunctionName());
     }
 
     if (!(ignoredTokens.contains(text))) {
-      if (text.equals(currentFunction) && onRightHandSide(node)) {
+      if (text.equals(currentFunction) && onRightHandSide(tree, node)) {
         updateOperatorMap(text);
         updateNumOperators(getFunctionName());
       } else if (text.equals(currentFunction)) {
         updateOperandMap(text);
         updateNumOperands(getFunctionName());
       } else if (inScope(text)
-          || isTypeInSigdecl(node)
+          || isTypeInSigdecl(tree, node)
           || text.equals("_")
           || (lastOperator.equals("|") && text.equals("otherwise"))
-          || isLiteral(node)
+          || isLiteral(tree, node)
           || isType(text)) {
         updateOperandMap(text);
         updateNumOperands(getFunctionName());
@@ -228,47 +263,74 @@ public class HalsteadVisitor extends HaskellParserBaseVisitor<Void> {
         lastOperator = "";
       }
     }
-
-    return null;
   }
 
-  @Override
-  public Void visitAexp(HaskellParser.AexpContext ctx) {
-    if (ctx.getChildCount() > 1 && ctx.getChild(0).getText().equals("\\")) {
+  /**
+   * Add the parameters of a lambda to the scope.
+   *
+   * @param tree the tree of the module.
+   * @param node an aexp node.
+   */
+  private void enterAexp(CompactTree tree, int node) {
+    if (isLambda(tree, node)) {
       // The second child is apats.
-      List<TerminalNode> lambdaParameters = leafVisitor.visit(ctx.getChild(1));
-      variablesInScope.add(filterOutOperators(leavesToStringList(lambdaParameters)));
+      List<Integer> lambdaParameters = tree.getLeaves(tree.getChild(node, 1));
+      variablesInScope.add(filterOutOperators(leavesToStringList(tree, lambdaParameters)));
     }
+  }
 
-    super.visitAexp(ctx);
-
-    if (ctx.getChildCount() > 1 && ctx.getChild(0).getText().equals("\\")) {
+  /**
+   * Remove the parameters of a lambda from the scope.
+   *
+   * @param tree the tree of the module.
+   * @param node an aexp node.
+   */
+  private void exitAexp(CompactTree tree, int node) {
+    if (isLambda(tree, node)) {
       variablesInScope.remove(variablesInScope.size() - 1);
     }
-
-    return null;
   }
 
-  @Override
-  public Void visitAlts(HaskellParser.AltsContext ctx) {
-    for (int i = 0; i < ctx.getChildCount(); i++) {
-      if (ctx.getChild(i) instanceof HaskellParser.AltContext
-              && !getLeftMostChild(ctx.getChild(i)).getText().equals("_")) {
+  /**
+   * Count every alternative of a case expression that is not a wildcard as a branch.
+   *
+   * @param tree the tree of the module.
+   * @param node an alts node.
+   */
+  private void enterAlts(CompactTree tree, int node) {
+    for (int child = tree.getFirstChild(node);
+        child != NONE;
+        child = tree.getNextSibling(child)) {
+      if (tree.getKind(child) == HaskellParser.RULE_alt
+              && !tree.getText(tree.getLeftMostChild(child)).equals("_")) {
         incrementNumBranches(getFunctionName());
       }
     }
+  }
 
-    return super.visitAlts(ctx);
+  /**
+   * Check if an aexp node is a lambda.
+   *
+   * @param tree the tree of the module.
+   * @param node an aexp node.
+   * @return true if the node has multiple children and starts with a backslash; false otherwise.
+   */
+  private static boolean isLambda(CompactTree tree, int node) {
+    int first = tree.getFirstChild(node);
+    return first != NONE
+        && tree.getNextSibling(first) != NONE
+        && tree.getText(first).equals("\\");
   }
 
   /**
    * Checks if the function pattern is a wildcard pattern or not.
    *
+   * @param tree the tree of the module.
    * @param leaves the leaves of the function pattern.
    * @return true if it is a wildcard pattern; false otherwise.
    */
-  private boolean isWildcardPattern(List<TerminalNode> leaves) {
-    return leaves.size() == 0 || leaves.size() == 1 && leaves.get(0).getText().equals("_");
+  private boolean isWildcardPattern(CompactTree tree, List<Integer> leaves) {
+    return leaves.size() == 0 || leaves.size() == 1 && tree.getText(leaves.get(0)).equals("_");
   }
 
   /**
@@ -281,17 +343,24 @@ public class HalsteadVisitor extends HaskellParserBaseVisitor<Void> {
     return variables.stream().filter(str -> str.matches("[A-Za-z]+")).toList();
   }
 
+  /**
+   * Set the function the tokens belong to. Its name prepended with the module name is built once
+   * here instead of for every token.
+   *
+   * @param function the name of the function without module name.
+   */
+  private void setCurrentFunction(String function) {
+    currentFunction = function;
+    functionName = module.isEmpty() ? function : module + "." + function;
+  }
+
   /**
    * Get the name of the function potentially prepended with a module name.
    *
    * @return the most specific name for the function.
    */
   private String getFunctionName() {
-    if (module.isEmpty()) {
-      return currentFunction;
-    }
-
-    return module + "." + currentFunction;
+    return functionName;
   }
 
   /**
@@ -312,37 +381,55 @@ public class HalsteadVisitor extends HaskellParserBaseVisitor<Void> {
   /**
    * Get the connected where-clause for a node, if it has one.
    *
+   * @param tree the tree of the module.
    * @param node the node to be checked.
-   * @return the wherebinds node if it has one; null otherwise.
-   */
-  private static ParseTree getConnectedWhere(ParseTree node) {
-    for (int i = 0; i < node.getChildCount(); i++) {
-      if (node.getChild(i) instanceof HaskellParser.RhsContext) {
-        ParseTree rhs = node.getChild(i);
-        for (int j = 0; j < rhs.getChildCount(); j++) {
-          if (rhs.getChild(j) instanceof HaskellParser.WherebindsContext) {
-            return rhs.getChild(j);
+   * @return the wherebinds node if it has one; NONE otherwise.
+   */
+  private static int getConnectedWhere(CompactTree tree, int node) {
+    for (int child = tree.getFirstChild(node);
+        child != NONE;
+        child = tree.getNextSibling(child)) {
+      if (tree.getKind(child) == HaskellParser.RULE_rhs) {
+        for (int rhsChild = tree.getFirstChild(child);
+            rhsChild != NONE;
+            rhsChild = tree.getNextSibling(rhsChild)) {
+          if (tree.getKind(rhsChild) == HaskellParser.RULE_wherebinds) {
+            return rhsChild;
           }
         }
       }
     }
 
-    return null;
+    return NONE;
   }
 
   /**
    * Check if the node is a child of a rhs node.
    *
+   * @param tree the tree of the module.
    * @param node the node to be checked.
    * @return true if it is a child of a rhs node; false otherwise.
    */
-  private boolean onRightHandSide(ParseTree node) {
-    while (node != null) {
-      if (node instanceof HaskellParser.Exp10pContext || node instanceof HaskellParser.RhsContext) {
+  private boolean onRightHandSide(CompactTree tree, int node) {
+    return hasAncestor(tree, node, HaskellParser.RULE_exp10p)
+        || hasAncestor(tree, node, HaskellParser.RULE_rhs);
+  }
+
+  /**
+   * Check if a node or one of its ancestors is of a kind.
+   *
+   * @param tree the tree of the module.
+   * @param node the node to be checked.
+   * @param kind the rule index of HaskellParser.
+   * @return true if the node or one of its ancestors has the kind; false otherwise.
+   */
+  private static boolean hasAncestor(CompactTree tree, int node, int kind) {
+    while (node != NONE) {
+      if (tree.getKind(node) == kind) {
         return true;
       }
 
-      node = node.getParent();
+      node = tree.getParent(node);
     }
 
     return false;
@@ -370,16 +457,8 @@ public class HalsteadVisitor extends HaskellParserBaseVisitor<Void> {
    * @param node the node to be checked.
    * @return true if the node has a wherebinds as parent; false otherwise.
    */
-  private boolean inWhereClause(ParseTree node) {
-    while (node != null) {
-      if (node instanceof HaskellParser.WherebindsContext) {
-        return true;
-      }
-
-      node = node.getParent();
-    }
-
-    return false;
+  private boolean inWhereClause(CompactTree tree, int node) {
+    return hasAncestor(tree, node, HaskellParser.RULE_wherebinds);
   }
 
   /**
@@ -389,18 +468,9 @@ public class HalsteadVisitor extends HaskellParserBaseVisitor<Void> {
    * @return true if the node has a sigdecl node as parent and starts with lowercase letter;
    *         false otherwise.
    */
-  private boolean isTypeInSigdecl(ParseTree node) {
-    if (node.getText().matches("^[a-zA-Z]*$")) {
-      while (node != null) {
-        if (node instanceof HaskellParser.SigdeclContext) {
-          return true;
-        }
-
-        node = node.getParent();
-      }
-    }
-
-    return false;
+  private boolean isTypeInSigdecl(CompactTree tree, int node) {
+    return tree.getText(node).matches("^[a-zA-Z]*$")
+        && hasAncestor(tree, node, HaskellParser.RULE_sigdecl);
   }
 
   /**
@@ -409,8 +479,9 @@ public class HalsteadVisitor extends HaskellParserBaseVisitor<Void> {
    * @param node the node to be checked.
    * @return true is the grandparent of the node is a literal; false otherwise.
    */
-  private boolean isLiteral(ParseTree node) {
-    return node.getParent().getParent() instanceof HaskellParser.LiteralContext;
+  private boolean isLiteral(CompactTree tree, int node) {
+    int grandparent = tree.getParent(tree.getParent(node));
+    return grandparent != NONE && tree.getKind(grandparent) == HaskellParser.RULE_literal;
   }
 
   /**
@@ -424,44 +495,36 @@ public class HalsteadVisitor extends HaskellParserBaseVisitor<Void> {
   }
 
   /**
-   * Convert a List of TerminalNode's into a List of String's using the getText()-method.
+   * Convert a List of leaves into a List of String's using the getText()-method.
    *
-   * @param nodes the List of TerminalNode's to be converted.
-   * @return List of Strings containing the text for every TerminalNode.
+   * @param tree the tree of the module.
+   * @param nodes the List of leaves to be converted.
+   * @return List of Strings containing the text for every leaf.
    */
-  private List<String> leavesToStringList(List<TerminalNode> nodes) {
-    return nodes.stream().map(ParseTree::getText).toList();
+  private List<String> leavesToStringList(CompactTree tree, List<Integer> nodes) {
+    return nodes.stream().map(tree::getText).toList();
   }
 
   /**
    * Get the root of the first left subtree with multiple children.
    *
+   * @param tree the tree of the module.
    * @param node the start node.
    * @return the root of the first left subtree with multiple children.
    * @throws RuntimeException if the node does not have any children.
    */
-  private ParseTree getRootLeftSubtree(ParseTree node) {
-    if (node.getChildCount() == 1) {
-      return getRootLeftSubtree(node.getChild(0));
-    } else if (node.getChildCount() == 0) {
-      throw new RuntimeException("Node does not have a child!");
+  private int getRootLeftSubtree(CompactTree tree, int node) {
+    int first = tree.getFirstChild(node);
+    while (first != NONE && tree.getNextSibling(first) == NONE) {
+      node = first;
+      first = tree.getFirstChild(node);
     }
 
-    return node.getChild(0);
-  }
-
-  /**
-   * Get the left most child from node using depth-first search.
-   *
-   * @param node the start node.
-   * @return the left most child of the node.
-   */
-  private ParseTree getLeftMostChild(ParseTree node) {
-    if (node.getChildCount() > 0) {
-      return getLeftMostChild(node.getChild(0));
+    if (first == NONE) {
+      throw new RuntimeException("Node does not have a child!");
     }
 
-    return node;
+    return first;
   }
 
   /**
@@ -494,10 +557,25 @@ public class HalsteadVisitor extends HaskellParserBaseVisitor<Void> {
   /**
    * Use the listener to walk the parse tree and populate the dictionaries.
    *
-   * @param tree ParseTree generated by antlr.
+   * @param tree the CompactTree of a module.
    */
-  public void createHalsteadMaps(ParseTree tree) {
-    this.visit(tree);
+  public void createHalsteadMaps(CompactTree tree) {
+    CompactTreeWalker.walk(this, tree);
+  }
+
+  @Override
+  public void collectInto(ModuleSummary summary) {
+    summary.halstead = getResult();
+  }
+
+  /**
+   * Get the results of the walk, so they can be shared by all metrics that need them.
+   *
+   * @return a HalsteadResult with the dictionaries, cyclomatic data and declarations.
+   */
+  public HalsteadResult getResult() {
+    return new HalsteadResult(
+        operatorMap, operandMap, functionMap, functions, typeSynonyms, dataTypes);
   }
 
   /**
@@ -506,14 +584,7 @@ public class HalsteadVisitor extends HaskellParserBaseVisitor<Void> {
    * @return long representing the sum of total occurrences of operands and operators.
    */
   public long getHalsteadLength() {
-    long length = 0;
-    for (int number : this.operandMap.values()) {
-      length += number;
-    }
-    for (int number : this.operatorMap.values()) {
-      length += number;
-    }
-    return length;
+    return getResult().getHalsteadLength();
   }
 
   /**
@@ -522,7 +593,7 @@ public class HalsteadVisitor extends HaskellParserBaseVisitor<Void> {
    * @return long representing the sum of unique occurrences of operands and operators.
    */
   public long getHalsteadVocabulary() {
-    return operandMap.size() + operatorMap.size();
+    return getResult().getHalsteadVocabulary();
   }
 
   /**
@@ -0,0 +1,113 @@
+package com.bramdekker.main.util;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Finds all Haskell files in a directory tree. Every directory is read only once: the Haskell files
+ * and the subdirectories are taken from the same listing. Subtrees can be traversed in parallel,
+ * which pays off on slow or network-mounted file systems. The files of a directory always come
+ * before the files of its subdirectories, in the order in which the directory lists them.
+ */
+public class HaskellFileFinder {
+  private static final FilenameFilter haskellFilter = new HaskellFileFilter();
+
+  /** Private constructor, since all methods are static. */
+  private HaskellFileFinder() {}
+
+  /**
+   * Find all Haskell files in a directory and its subdirectories. Directories that cannot be read
+   * are skipped.
+   *
+   * @param root the root of the directory tree.
+   * @param threads the number of directories that are read at the same time.
+   * @return List of File objects containing all Haskell files in the tree.
+   */
+  public static List<File> find(Path root, int threads) {
+    if (threads <= 1) {
+      List<File> files = new ArrayList<>();
+      walk(root, files);
+      return files;
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      return pool.invoke(new DirectoryTask(root));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Add the Haskell files in a directory tree to a list, one directory after the other.
+   *
+   * @param directory the root of the directory tree.
+   * @param files the List to which the Haskell files are added.
+   */
+  private static void walk(Path directory, List<File> files) {
+    for (Path subdirectory : list(directory, files)) {
+      walk(subdirectory, files);
+    }
+  }
+
+  /**
+   * Read a single directory. The Haskell files are added to a list and the subdirectories are
+   * returned. Entries with a Haskell file name are never checked for being a directory.
+   *
+   * @param directory the directory to be read.
+   * @param files the List to which the Haskell files are added.
+   * @return List with the subdirectories of the directory.
+   */
+  private static List<Path> list(Path directory, List<File> files) {
+    List<Path> subdirectories = new ArrayList<>();
+    File parent = directory.toFile();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+      for (Path entry : stream) {
+        if (haskellFilter.accept(parent, entry.getFileName().toString())) {
+          files.add(entry.toFile());
+        } else if (Files.isDirectory(entry)) {
+          subdirectories.add(entry);
+        }
+      }
+    } catch (IOException e) {
+      // Like File.listFiles, the rest of a directory that cannot be read is skipped.
+      return List.of();
+    }
+
+    return subdirectories;
+  }
+
+  /** Finds the Haskell files of a subtree while the subdirectories are traversed in parallel. */
+  private static class DirectoryTask extends RecursiveTask<List<File>> {
+    private static final long serialVersionUID = 1L;
+    private final Path directory;
+
+    private DirectoryTask(Path directory) {
+      this.directory = directory;
+    }
+
+    @Override
+    protected List<File> compute() {
+      List<File> files = new ArrayList<>();
+      List<DirectoryTask> subtasks = new ArrayList<>();
+      for (Path subdirectory : list(directory, files)) {
+        subtasks.add(new DirectoryTask(subdirectory));
+      }
+
+      invokeAll(subtasks);
+      for (DirectoryTask subtask : subtasks) {
+        files.addAll(subtask.join());
+      }
+
+      return files;
+    }
+  }
+}
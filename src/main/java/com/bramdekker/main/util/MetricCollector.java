@@ -0,0 +1,16 @@
+package com.bramdekker.main.util;
+
+import com.bramdekker.main.resources.ModuleSummary;
+
+/**
+ * A CompactTree listener that collects the data of a metric category while the parse tree of a
+ * single module is walked. A new collector is created for every module.
+ */
+public interface MetricCollector extends CompactTreeListener {
+  /**
+   * Store the data collected during the walk in the summary of the module.
+   *
+   * @param summary the ModuleSummary of the module that was walked.
+   */
+  void collectInto(ModuleSummary summary);
+}
@@ -0,0 +1,50 @@
+package com.bramdekker.main.util;
+
+import com.bramdekker.main.resources.CompactTree;
+
+import java.util.List;
+
+/**
+ * CompactTree listener that forwards every event to a list of listeners. This way multiple
+ * listeners share a single walk over the tree.
+ */
+public class MultiplexListener implements CompactTreeListener {
+  private final List<? extends CompactTreeListener> listeners;
+
+  /**
+   * Constructor that sets the listeners to which all events are forwarded.
+   *
+   * @param listeners the listeners in the order in which they receive the events.
+   */
+  public MultiplexListener(List<? extends CompactTreeListener> listeners) {
+    this.listeners = listeners;
+  }
+
+  @Override
+  public void enterRule(CompactTree tree, int node) {
+    for (CompactTreeListener listener : listeners) {
+      listener.enterRule(tree, node);
+    }
+  }
+
+  @Override
+  public void exitRule(CompactTree tree, int node) {
+    for (CompactTreeListener listener : listeners) {
+      listener.exitRule(tree, node);
+    }
+  }
+
+  @Override
+  public void visitTerminal(CompactTree tree, int node) {
+    for (CompactTreeListener listener : listeners) {
+      listener.visitTerminal(tree, node);
+    }
+  }
+
+  @Override
+  public void visitErrorNode(CompactTree tree, int node) {
+    for (CompactTreeListener listener : listeners) {
+      listener.visitErrorNode(tree, node);
+    }
+  }
+}
@@ -0,0 +1,29 @@
+package com.bramdekker.main.util;
+
+import com.bramdekker.main.resources.CompactTree;
+import com.bramdekker.main.resources.ModuleSummary;
+
+/** Collector that counts the number of nodes in the parse tree of a module. */
+public class ParseTreeSizeCollector implements MetricCollector {
+  private long nodes = 0;
+
+  @Override
+  public void enterRule(CompactTree tree, int node) {
+    nodes++;
+  }
+
+  @Override
+  public void visitTerminal(CompactTree tree, int node) {
+    nodes++;
+  }
+
+  @Override
+  public void visitErrorNode(CompactTree tree, int node) {
+    nodes++;
+  }
+
+  @Override
+  public void collectInto(ModuleSummary summary) {
+    summary.parseTreeSize = nodes;
+  }
+}
@@ -0,0 +1,185 @@
+package com.bramdekker.main.util;
+
+import com.bramdekker.main.metrics.PatternMetric;
+import com.bramdekker.main.resources.CompactTree;
+import com.bramdekker.main.resources.ModuleSummary;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collector that analyzes the patterns of a module: the patterns of top level functions, let
+ * expressions, where clauses and case expressions. The patterns are recognized by the
+ * DeclarationExtractor, so nested patterns are analyzed during the same walk as the rest of the
+ * module.
+ */
+public class PatternCollector implements MetricCollector {
+  private final Deque<PatternAccumulator> activePatterns = new ArrayDeque<>();
+  private final Map<String, PatternMetric> functionPatterns = new LinkedHashMap<>();
+  private final List<PatternMetric> letPatterns = new ArrayList<>();
+  private final List<PatternMetric> wherePatterns = new ArrayList<>();
+  private final List<PatternMetric> casePatterns = new ArrayList<>();
+  private final DeclarationExtractor declarations;
+
+  /**
+   * Constructor that sets the extractor that recognizes the patterns of the module.
+   *
+   * @param declarations the DeclarationExtractor that listens to the same walk.
+   */
+  public PatternCollector(DeclarationExtractor declarations) {
+    this.declarations = declarations;
+  }
+
+  @Override
+  public void enterRule(CompactTree tree, int node) {
+    for (PatternAccumulator pattern : activePatterns) {
+      pattern.size++;
+    }
+
+    DeclarationKind kind = declarations.getCurrentKind();
+    if (kind != null) {
+      int line = tree.getLine(tree.getLeftMostChild(node));
+      activePatterns.push(new PatternAccumulator(kind, node, line));
+    }
+  }
+
+  @Override
+  public void exitRule(CompactTree tree, int node) {
+    if (!activePatterns.isEmpty() && activePatterns.peek().root == node) {
+      addPattern(activePatterns.pop());
+    }
+  }
+
+  @Override
+  public void visitTerminal(CompactTree tree, int node) {
+    for (PatternAccumulator pattern : activePatterns) {
+      pattern.size++;
+      pattern.addLeaf(tree.getText(node));
+    }
+  }
+
+  @Override
+  public void visitErrorNode(CompactTree tree, int node) {
+    for (PatternAccumulator pattern : activePatterns) {
+      pattern.size++;
+    }
+  }
+
+  @Override
+  public void collectInto(ModuleSummary summary) {
+    summary.functionPatterns = functionPatterns;
+    summary.letPatterns = letPatterns;
+    summary.wherePatterns = wherePatterns;
+    summary.casePatterns = casePatterns;
+  }
+
+  /**
+   * Store the metrics of a pattern of which the whole subtree has been walked.
+   *
+   * @param pattern the accumulator of the pattern.
+   */
+  private void addPattern(PatternAccumulator pattern) {
+    switch (pattern.kind) {
+      case FUNCTION -> {
+        String name =
+            String.format(
+                "%s%s (line %d)", declarations.getModulePrefix(), pattern.firstLeaf, pattern.line);
+        functionPatterns.put(name, pattern.toMetric(name));
+      }
+      case LET -> letPatterns.add(pattern.toMetric(String.format("let (line %d)", pattern.line)));
+      case WHERE ->
+          wherePatterns.add(pattern.toMetric(String.format("where (line %d)", pattern.line)));
+      case CASE ->
+          casePatterns.add(pattern.toMetric(String.format("case (line %d)", pattern.line)));
+      default -> throw new IllegalStateException("Unknown pattern kind!");
+    }
+  }
+
+  /**
+   * Check if the text is a string, character or integer literal.
+   *
+   * @param text String to be checked.
+   * @return true if text is a literal; false otherwise.
+   */
+  private static boolean isLiteral(String text) {
+    return text.startsWith("\"") || text.startsWith("'") || Character.isDigit(text.charAt(0));
+  }
+
+  /** The metrics of a pattern of which the subtree is being walked. */
+  private static class PatternAccumulator {
+    private final DeclarationKind kind;
+    private final int root;
+    private final int line;
+    private String firstLeaf;
+    private boolean afterGuard = false;
+    private long size = 1;
+    private long numberOfVariables = 0;
+    private long numberOfConstructors = 0;
+    private long numberOfWildcards = 0;
+    private long curDepth = 0;
+    private long depthOfNesting = 0;
+    private long depthSumOfNesting = 0;
+
+    private PatternAccumulator(DeclarationKind kind, int root, int line) {
+      this.kind = kind;
+      this.root = root;
+      this.line = line;
+    }
+
+    /**
+     * Classify a leaf of the pattern. The first leaf of a function pattern is the function name and
+     * the leaves of a function pattern after the first guard are not part of the pattern.
+     *
+     * @param leafText the text of the leaf.
+     */
+    private void addLeaf(String leafText) {
+      if (kind == DeclarationKind.FUNCTION) {
+        if (firstLeaf == null) {
+          firstLeaf = leafText;
+          return;
+        }
+        if (afterGuard || leafText.equals("|")) {
+          afterGuard = true;
+          return;
+        }
+      }
+
+      if (leafText.equals("_")) {
+        numberOfWildcards++;
+      } else if (Character.isUpperCase(leafText.charAt(0))) {
+        numberOfConstructors++;
+      } else if (leafText.equals("[") || leafText.equals("(")) {
+        depthSumOfNesting++;
+        curDepth++;
+        if (curDepth > depthOfNesting) {
+          depthOfNesting = curDepth;
+        }
+      } else if (leafText.equals("]") || leafText.equals(")")) {
+        curDepth--;
+      } else if (Character.isLowerCase(leafText.charAt(0)) || isLiteral(leafText)) {
+        numberOfVariables++;
+      }
+    }
+
+    /**
+     * Create the PatternMetric of the walked pattern.
+     *
+     * @param name the name of the pattern.
+     * @return a PatternMetric with the accumulated data.
+     */
+    private PatternMetric toMetric(String name) {
+      return new PatternMetric(
+          name,
+          numberOfVariables,
+          numberOfConstructors,
+          numberOfWildcards,
+          depthSumOfNesting,
+          depthOfNesting,
+          size);
+    }
+  }
+}
@@ -1,21 +1,35 @@
 package com.bramdekker.main.validator;
 
+import com.bramdekker.main.configuration.Configuration;
 import com.bramdekker.main.exceptions.InvalidCommandException;
 import com.bramdekker.main.exceptions.InvalidPathnameException;
-import com.bramdekker.main.util.HaskellFileFilter;
-import com.bramdekker.main.util.SubdirectoryFilter;
+import com.bramdekker.main.util.HaskellFileFinder;
 
 import java.io.File;
-import java.io.FilenameFilter;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * Provides methods for validating the pathname entered by the user. The pathname should point to a
  * directory that exists and contains at least 1 Haskell file (.hs extension).
  */
 public class Validator {
-  private static final FilenameFilter haskellFilter = new HaskellFileFilter();
-  private static final FilenameFilter subdirectoriesFilter = new SubdirectoryFilter();
+  private int threads;
+  private List<File> haskellFiles = List.of();
+
+  /** Constructor for a Validator that searches directories with a thread for every core. */
+  public Validator() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Constructor for a Validator that searches directories with a limited number of threads.
+   *
+   * @param threads the number of directories that are read at the same time.
+   */
+  public Validator(int threads) {
+    this.threads = threads;
+  }
 
   /**
    * Check if a File object is an existing directory containing a Haskell project.
@@ -37,15 +51,36 @@ public class Validator {
       return false;
     }
 
-    // Get the pathname from all the arguments.
-    String rawPathname = getPathname(args);
+    if (isBatch(args)) {
+      validateBatch(args);
+      return true;
+    }
+
+    // Get the pathname from all the arguments and search it with the threads of --threads.
+    String pathname = getPathname(args);
+    threads = Configuration.parseThreads(args, threads);
+    validatePathname(pathname);
+
+    return true;
+  }
+
+  /**
+   * Check if a pathname points to a Haskell file or to an existing directory containing a Haskell
+   * project. The Haskell files that are found are kept, so the project does not have to be searched
+   * again to generate the FileList.
+   *
+   * @param rawPathname the pathname of a Haskell file or project directory.
+   * @throws InvalidPathnameException if pathname is not a valid one.
+   */
+  public void validatePathname(String rawPathname) throws InvalidPathnameException {
     File pathname = new File(rawPathname);
 
     // If the pathname is a file, check if it is a Haskell file.
     if (pathname.isFile() && !isHaskellFile(pathname)) {
       throw new InvalidPathnameException("The given file must be a Haskell file!");
     } else if (pathname.isFile()) {
-      return true;
+      haskellFiles = List.of(pathname);
+      return;
     }
 
     if (!pathname.isDirectory()) {
@@ -54,13 +89,55 @@ public class Validator {
 
     // If the pathname is a directory, check if it is an existing directory containing Haskell
     // code.
-    if (!dirContainsHaskell(pathname)) {
+    haskellFiles = HaskellFileFinder.find(pathname.toPath(), threads);
+    if (haskellFiles.isEmpty()) {
       throw new InvalidPathnameException("Directory must contain at least 1 Haskell file!");
     }
+  }
+
+  /**
+   * Check the arguments of a batch run. The pathnames themselves are checked when their project
+   * is analyzed, so one invalid project does not stop the whole batch.
+   *
+   * @param args command line arguments containing the flags followed by the project roots.
+   * @throws InvalidPathnameException if the manifest does not exist.
+   * @throws InvalidCommandException if the arguments are missing or ordered wrongly.
+   */
+  private void validateBatch(String[] args)
+      throws InvalidPathnameException, InvalidCommandException {
+    boolean hasPathname = false;
+    String manifest = null;
+    for (String arg : args) {
+      if (!isFlag(arg)) {
+        hasPathname = true;
+      } else if (hasPathname) {
+        throw new InvalidCommandException("Flags should come before the pathnames!");
+      } else if (arg.equals("--watch")) {
+        throw new InvalidCommandException("Batch mode cannot be combined with --watch!");
+      } else if (arg.startsWith("--manifest=")) {
+        manifest = arg.substring("--manifest=".length());
+      }
+    }
 
-    return true;
+    if (manifest != null && !new File(manifest).isFile()) {
+      throw new InvalidPathnameException("Manifest must point to an existing file!");
+    }
+
+    if (!hasPathname && manifest == null) {
+      throw new InvalidCommandException("Batch mode needs at least 1 pathname or a manifest!");
+    }
   }
 
+  /**
+   * Check if the tool is invoked in batch mode.
+   *
+   * @param args array of Strings containing all command line arguments.
+   * @return true if every pathname gets its own report; false otherwise.
+   */
+  private boolean isBatch(String[] args) {
+    return Arrays.stream(args)
+        .anyMatch(arg -> arg.equals("--batch") || arg.startsWith("--manifest="));
+  }
 
   /**
    * Print a help message for the user. It lists all flags and their functionality.
@@ -68,6 +145,7 @@ public class Validator {
   private void printHelp() {
     String helpMessage = """
                 USAGE: ./gradlew run --args="[flags] <path-to-haskell-project-dir>"
+                       ./gradlew run --args="--batch [flags] <path-to-project-dir>..."
                 
                 Flags:
                     -sz             Compute and report on size metrics.
@@ -77,6 +155,17 @@ public class Validator {
                     -h              Compute and report on Halstead metrics.
                     -st             Compute and report on structural metrics.
                     -c              Compute and report on callgraph metrics.
+                    --threads=<n>   Parse at most n files at the same time (default: all cores).
+                    --watch         Display the report again after every change to the project.
+                    --fast          Compute -sz, -rd and -h from the tokens without parsing.
+                    --profile-parser Report the grammar rules and files that are slowest to parse.
+                    --parse-timeout=<ms> Only lex files that take longer than ms to parse.
+                    --max-tokens=<n> Only lex files with more than n tokens.
+                    --cache=<dir>   Reuse the results of unchanged files stored in dir.
+                    --cache-size=<n> Keep at most n megabytes in the cache (default: 256).
+                    --batch         Analyze every pathname as a separate project.
+                    --manifest=<f>  Also analyze the projects listed in f, one per line.
+                    --output=<dir>  Write the batch reports to dir (default: reports).
                     --help          Show this help message.
                 """;
     System.out.println(helpMessage.trim());
@@ -138,24 +227,11 @@ public class Validator {
   }
 
   /**
-   * Check if a File object contains at least 1 Haskell file.
+   * Getter for the haskellFiles variable.
    *
-   * @param projectPath File object representing a Haskell project directory.
-   * @return true if projectPath contains a Haskell file.
+   * @return the Haskell files found while the last pathname was validated.
    */
-  private boolean dirContainsHaskell(File projectPath) {
-    // Get all Haskell files in the directory.
-    File[] files = projectPath.listFiles(haskellFilter);
-
-    if (files != null && files.length > 0) {
-      return true;
-    } else { // no Haskell files in current directory
-      File[] subDirectories = projectPath.listFiles(subdirectoriesFilter);
-      if (subDirectories != null && subDirectories.length > 0) {
-        return Arrays.stream(subDirectories).anyMatch(this::dirContainsHaskell);
-      }
-    }
-
-    return false;
+  public List<File> getHaskellFiles() {
+    return haskellFiles;
   }
 }
@@ -0,0 +1,162 @@
+package com.bramdekker.main.watcher;
+
+import com.bramdekker.main.report.Report;
+import com.bramdekker.main.session.AnalysisSession;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the report up to date while the Haskell project is being edited. The project tree is
+ * registered with a WatchService; after files are saved only the changed modules are analyzed again
+ * and the callgraphs are updated in place before the report is displayed again. If the WatchService
+ * lost events, the whole session is rebuilt, since it is not known which files changed.
+ */
+public class Watcher {
+  /** Events that arrive within this time of each other are handled as a single change. */
+  private static final long DEBOUNCE_MILLIS = 100;
+  private final AnalysisSession session;
+  private final Consumer<String> output;
+  private final Map<WatchKey, Path> directories = new HashMap<>();
+
+  /**
+   * Constructor that takes as argument the AnalysisSession that is kept up to date. The reports and
+   * messages are printed to standard output.
+   *
+   * @param session the AnalysisSession that owns the resources of the watched project.
+   */
+  public Watcher(AnalysisSession session) {
+    this(session, System.out::print);
+  }
+
+  /**
+   * Constructor that initializes all fields of the class.
+   *
+   * @param session the AnalysisSession that owns the resources of the watched project.
+   * @param output the consumer that displays every version of the report and the messages.
+   */
+  public Watcher(AnalysisSession session, Consumer<String> output) {
+    this.session = session;
+    this.output = output;
+  }
+
+  /**
+   * Display the report and display it again after every change to the Haskell files. This method
+   * only returns when the thread is interrupted or the project directory disappears.
+   *
+   * @throws IOException if a directory cannot be watched or a file cannot be read.
+   */
+  public void watch() throws IOException {
+    Report report = new Report(session);
+    output.accept(report.generate());
+
+    Path root = Path.of(session.getPathname()).toAbsolutePath();
+    Path watchedRoot = Files.isDirectory(root) ? root : root.getParent();
+
+    try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+      registerAll(watchService, watchedRoot);
+      output.accept(String.format("Watching for changes...%n"));
+
+      Set<Path> modifiedFiles = new HashSet<>();
+      while (!directories.isEmpty()) {
+        WatchKey key = watchService.take();
+        modifiedFiles.clear();
+        boolean overflow = false;
+        do {
+          overflow |= handleEvents(watchService, key, modifiedFiles);
+          key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        } while (key != null);
+
+        if (overflow) {
+          // Directories that were created while events were lost are not registered yet.
+          registerAll(watchService, watchedRoot);
+          session.rebuild();
+          output.accept(report.generate());
+        } else if (session.update(modifiedFiles)) {
+          output.accept(report.generate());
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Handle the events of a single key. New directories are registered as well, so files created
+   * in them are watched too.
+   *
+   * @param watchService the WatchService the directories are registered with.
+   * @param key the key that was signalled.
+   * @param modifiedFiles the set to which the created and modified files are added.
+   * @return true if events of the key were lost; false otherwise.
+   * @throws IOException if a new directory cannot be registered.
+   */
+  private boolean handleEvents(WatchService watchService, WatchKey key, Set<Path> modifiedFiles)
+      throws IOException {
+    Path directory = directories.get(key);
+    boolean overflow = false;
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+        overflow = true;
+        continue;
+      }
+      if (directory == null) {
+        continue;
+      }
+
+      Path path = directory.resolve((Path) event.context()).normalize();
+      if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+        registerAll(watchService, path);
+      } else if (event.kind() != StandardWatchEventKinds.ENTRY_DELETE) {
+        modifiedFiles.add(path);
+      }
+    }
+
+    if (!key.reset()) {
+      directories.remove(key);
+    }
+
+    return overflow;
+  }
+
+  /**
+   * Register a directory and all its subdirectories with the WatchService.
+   *
+   * @param watchService the WatchService the directories are registered with.
+   * @param start the root of the directory tree.
+   * @throws IOException if a directory cannot be registered.
+   */
+  private void registerAll(WatchService watchService, Path start) throws IOException {
+    Files.walkFileTree(
+        start,
+        new SimpleFileVisitor<>() {
+          @Override
+          public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+              throws IOException {
+            WatchKey key =
+                dir.register(
+                    watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+            directories.put(key, dir.normalize());
+            return FileVisitResult.CONTINUE;
+          }
+        });
+  }
+}
@@ -0,0 +1,50 @@
+package com.bramdekker.main.batch;
+
+import com.bramdekker.main.configuration.Configuration;
+import com.bramdekker.main.exceptions.InvalidCommandException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchRunnerTest {
+  static String pathToTestResources;
+
+  @TempDir Path outputDirectory;
+
+  @BeforeAll
+  public static void setup() {
+    Path resourceDirectory = Paths.get("src", "test", "resources");
+    pathToTestResources = resourceDirectory.toFile().getAbsolutePath();
+  }
+
+  @Test
+  void runWritesReportPerProjectAndSummary() throws IOException, InvalidCommandException {
+    Path manifest = outputDirectory.resolve("roots.txt");
+    Files.writeString(manifest, "# projects\n\n" + pathToTestResources + "/callgraph-project\n");
+    String[] args =
+        new String[] {
+          "--manifest=" + manifest,
+          "--output=" + outputDirectory,
+          "-sz",
+          pathToTestResources + "/haskell-project",
+          pathToTestResources + "/python-project"
+        };
+
+    new BatchRunner(new Configuration(args)).run();
+
+    String summary = Files.readString(outputDirectory.resolve("summary.txt"));
+    assertTrue(summary.contains("Projects analyzed: 2"));
+    assertTrue(summary.contains("Projects failed: 1"));
+    assertTrue(summary.contains("Directory must contain at least 1 Haskell file!"));
+    assertTrue(
+        Files.readString(outputDirectory.resolve("haskell-project.txt")).contains("LOC: 111"));
+    assertTrue(Files.exists(outputDirectory.resolve("callgraph-project.txt")));
+  }
+}
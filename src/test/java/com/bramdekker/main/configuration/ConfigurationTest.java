@@ -2,13 +2,18 @@ package com.bramdekker.main.configuration;
 
 import com.bramdekker.main.exceptions.InvalidCommandException;
 import com.bramdekker.main.metrics.MetricType;
+import com.bramdekker.main.resources.ParseBudget;
+import com.bramdekker.main.resources.ParseMode;
 import org.junit.jupiter.api.Test;
 
 import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class ConfigurationTest {
 
@@ -50,4 +55,140 @@ class ConfigurationTest {
         List.of(MetricType.RECURSION),
         new Configuration(new String[] {"-rc", "test-dir"}).getMetrics());
   }
+
+  @Test
+  void getThreadsReturnsValueOfThreadsFlag() throws InvalidCommandException {
+    assertEquals(3, new Configuration(new String[] {"--threads=3", "test-dir"}).getThreads());
+  }
+
+  @Test
+  void constructorFailsWhenThreadsFlagIsNotPositive() {
+    String[] args = new String[] {"--threads=0", "test-dir"};
+
+    assertThrows(InvalidCommandException.class, () -> new Configuration(args));
+  }
+
+  @Test
+  void parseThreadsReturnsValueOfThreadsFlag() throws InvalidCommandException {
+    assertEquals(3, Configuration.parseThreads(new String[] {"-x", "--threads=3", "dir"}, 8));
+    assertEquals(8, Configuration.parseThreads(new String[] {"-x", "dir"}, 8));
+    assertThrows(
+        InvalidCommandException.class,
+        () -> Configuration.parseThreads(new String[] {"--threads=x", "dir"}, 8));
+  }
+
+  @Test
+  void threadsFlagDoesNotSelectMetrics() throws InvalidCommandException {
+    assertEquals(
+        Arrays.asList(MetricType.values()),
+        new Configuration(new String[] {"--threads=2", "test-dir"}).getMetrics());
+  }
+
+  @Test
+  void getCacheDirectoryReturnsNullWithoutCacheFlag() throws InvalidCommandException {
+    assertNull(new Configuration(new String[] {"test-dir"}).getCacheDirectory());
+  }
+
+  @Test
+  void getCacheDirectoryReturnsValueOfCacheFlag() throws InvalidCommandException {
+    Configuration config = new Configuration(new String[] {"--cache=.metrics-cache", "test-dir"});
+
+    assertEquals(".metrics-cache", config.getCacheDirectory());
+  }
+
+  @Test
+  void getCacheSizeReturnsValueOfCacheSizeFlag() throws InvalidCommandException {
+    Configuration config = new Configuration(new String[] {"--cache-size=16", "test-dir"});
+
+    assertEquals(16, config.getCacheSize());
+  }
+
+  @Test
+  void isWatchReturnsTrueWhenWatchFlagIsSet() throws InvalidCommandException {
+    assertTrue(new Configuration(new String[] {"--watch", "-c", "test-dir"}).isWatch());
+    assertFalse(new Configuration(new String[] {"-c", "test-dir"}).isWatch());
+  }
+
+  @Test
+  void watchFlagDoesNotSelectMetrics() throws InvalidCommandException {
+    assertEquals(
+        Arrays.asList(MetricType.values()),
+        new Configuration(new String[] {"--watch", "test-dir"}).getMetrics());
+  }
+
+  @Test
+  void getPathnamesReturnsAllPathnamesInBatchMode() throws InvalidCommandException {
+    Configuration config = new Configuration(new String[] {"--batch", "-sz", "dir-a", "dir-b"});
+
+    assertTrue(config.isBatch());
+    assertEquals(List.of("dir-a", "dir-b"), config.getPathnames());
+    assertEquals(List.of(MetricType.SIZE), config.getMetrics());
+  }
+
+  @Test
+  void manifestFlagEnablesBatchMode() throws InvalidCommandException {
+    Configuration config = new Configuration(new String[] {"--manifest=roots.txt"});
+
+    assertTrue(config.isBatch());
+    assertEquals("roots.txt", config.getManifest());
+    assertEquals(List.of(), config.getPathnames());
+  }
+
+  @Test
+  void getOutputDirectoryReturnsValueOfOutputFlag() throws InvalidCommandException {
+    assertEquals("reports", new Configuration(new String[] {"test-dir"}).getOutputDirectory());
+    assertEquals(
+        "out", new Configuration(new String[] {"--output=out", "test-dir"}).getOutputDirectory());
+  }
+
+  @Test
+  void fastFlagSelectsMetricsThatDoNotNeedParser() throws InvalidCommandException {
+    Configuration config = new Configuration(new String[] {"--fast", "test-dir"});
+
+    assertTrue(config.isFast());
+    assertEquals(ParseMode.FAST, config.getParseMode());
+    assertEquals(
+        List.of(MetricType.SIZE, MetricType.HALSTEAD, MetricType.READABILITY), config.getMetrics());
+  }
+
+  @Test
+  void fastFlagFailsWithMetricThatNeedsParser() {
+    String[] args = new String[] {"--fast", "-sz", "-c", "test-dir"};
+
+    assertThrows(InvalidCommandException.class, () -> new Configuration(args));
+  }
+
+  @Test
+  void profileParserFlagSelectsProfileMode() throws InvalidCommandException {
+    Configuration config = new Configuration(new String[] {"--profile-parser", "-p", "test-dir"});
+
+    assertTrue(config.isProfileParser());
+    assertEquals(ParseMode.PROFILE, config.getParseMode());
+    assertEquals(ParseMode.FULL, new Configuration(new String[] {"test-dir"}).getParseMode());
+  }
+
+  @Test
+  void profileParserFlagFailsInFastMode() {
+    String[] args = new String[] {"--fast", "--profile-parser", "test-dir"};
+
+    assertThrows(InvalidCommandException.class, () -> new Configuration(args));
+  }
+
+  @Test
+  void parseBudgetFlagsSetLimits() throws InvalidCommandException {
+    ParseBudget budget =
+        new Configuration(new String[] {"--parse-timeout=500", "--max-tokens=20000", "test-dir"})
+            .getParseBudget();
+
+    assertEquals(500, budget.getMaxMillis());
+    assertEquals(20000, budget.getMaxTokens());
+    assertTrue(new Configuration(new String[] {"test-dir"}).getParseBudget().isUnlimited());
+  }
+
+  @Test
+  void parseBudgetFlagsFailWithoutPositiveValue() {
+    String[] args = new String[] {"--parse-timeout=0", "test-dir"};
+
+    assertThrows(InvalidCommandException.class, () -> new Configuration(args));
+  }
 }
@@ -1,6 +1,6 @@
 package com.bramdekker.main.metrics;
 
-import com.bramdekker.main.resources.FileList;
+import com.bramdekker.main.session.AnalysisSession;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
@@ -28,8 +28,8 @@ class CallgraphTest {
   public static void setup() throws IOException {
     Path resourceDirectory = Paths.get("src", "test", "resources");
     pathToTestResources = resourceDirectory.toFile().getAbsolutePath();
-    FileList.init(pathToTestResources + "/callgraph-project");
-    callgraphSection = Callgraph.getSection();
+    AnalysisSession session = new AnalysisSession(pathToTestResources + "/callgraph-project");
+    callgraphSection = new Callgraph(session).getSection();
     System.out.println(callgraphSection);
   }
 
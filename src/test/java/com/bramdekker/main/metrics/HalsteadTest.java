@@ -1,6 +1,6 @@
 package com.bramdekker.main.metrics;
 
-import com.bramdekker.main.resources.FileList;
+import com.bramdekker.main.session.AnalysisSession;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
@@ -31,8 +31,8 @@ class HalsteadTest {
   public static void setup() throws IOException {
     Path resourceDirectory = Paths.get("src", "test", "resources");
     pathToTestResources = resourceDirectory.toFile().getAbsolutePath();
-    FileList.init(pathToTestResources + "/haskell-project");
-    halsteadSection = Halstead.getSection();
+    AnalysisSession session = new AnalysisSession(pathToTestResources + "/haskell-project");
+    halsteadSection = new Halstead(session).getSection();
     System.out.println(halsteadSection);
   }
 
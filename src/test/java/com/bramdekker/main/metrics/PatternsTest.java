@@ -1,6 +1,6 @@
 package com.bramdekker.main.metrics;
 
-import com.bramdekker.main.resources.FileList;
+import com.bramdekker.main.session.AnalysisSession;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
@@ -18,8 +18,8 @@ class PatternsTest {
   public static void setup() throws IOException {
     Path resourceDirectory = Paths.get("src", "test", "resources");
     pathToTestResources = resourceDirectory.toFile().getAbsolutePath();
-    FileList.init(pathToTestResources + "/haskell-project");
-    patternsSection = Patterns.getSection();
+    AnalysisSession session = new AnalysisSession(pathToTestResources + "/haskell-project");
+    patternsSection = new Patterns(session).getSection();
     System.out.println(patternsSection);
   }
 
@@ -76,4 +76,9 @@ class PatternsTest {
         patternsSection.matches(
             "(?s).*Maximum sum of depth of nesting function name: Puzzles.isPalindrome.*$"));
   }
+
+  @Test
+  void maxPatternSizeMeasureIsCorrect() {
+    assertTrue(patternsSection.contains("Maximum pattern size: 183"));
+  }
 }
@@ -1,6 +1,6 @@
 package com.bramdekker.main.metrics;
 
-import com.bramdekker.main.resources.FileList;
+import com.bramdekker.main.session.AnalysisSession;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
@@ -18,8 +18,8 @@ class ReadabilityTest {
   public static void setup() throws IOException {
     Path resourceDirectory = Paths.get("src", "test", "resources");
     pathToTestResources = resourceDirectory.toFile().getAbsolutePath();
-    FileList.init(pathToTestResources + "/haskell-project");
-    readabilitySection = Readability.getSection();
+    AnalysisSession session = new AnalysisSession(pathToTestResources + "/haskell-project");
+    readabilitySection = new Readability(session).getSection();
     System.out.println(readabilitySection);
   }
 
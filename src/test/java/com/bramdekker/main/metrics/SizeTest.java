@@ -1,6 +1,6 @@
 package com.bramdekker.main.metrics;
 
-import com.bramdekker.main.resources.FileList;
+import com.bramdekker.main.session.AnalysisSession;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
@@ -33,8 +33,8 @@ class SizeTest {
   public static void setup() throws IOException {
     Path resourceDirectory = Paths.get("src", "test", "resources");
     pathToTestResources = resourceDirectory.toFile().getAbsolutePath();
-    FileList.init(pathToTestResources + "/haskell-project");
-    sizeSection = Size.getSection();
+    AnalysisSession session = new AnalysisSession(pathToTestResources + "/haskell-project");
+    sizeSection = new Size(session).getSection();
     System.out.println(sizeSection);
   }
 
@@ -97,4 +97,9 @@ class SizeTest {
   void sizeInequalityMeasureIsCorrect() {
     assertTrue(sizeSection.contains("Module size inequality (Gini-coefficient on NCLOC): 0.07"));
   }
+
+  @Test
+  void parseTreeNodesMeasureIsCorrect() {
+    assertTrue(sizeSection.contains("Number of nodes in the parse tree: 3853"));
+  }
 }
@@ -0,0 +1,214 @@
+package com.bramdekker.main.resources;
+
+import antlr.HaskellBaseLexer;
+import antlr.HaskellLexer;
+import com.bramdekker.main.util.CollectorType;
+import com.bramdekker.main.util.CompactTreeListener;
+import com.bramdekker.main.util.DeclarationExtractor;
+import com.bramdekker.main.util.DeclarationKind;
+import com.bramdekker.main.util.HalsteadTokenCounter;
+import com.bramdekker.main.util.MetricCollector;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnalysisCacheTest {
+  static final Set<CollectorType> collectorTypes = EnumSet.allOf(CollectorType.class);
+
+  @TempDir Path cacheDirectory;
+
+  @Test
+  void loadReturnsStoredSummary() throws IOException {
+    AnalysisCache cache = new AnalysisCache(cacheDirectory, 1024 * 1024);
+    String key = cache.getKey(bytes("main = print 1"), collectorTypes);
+    ModuleSummary summary = new ModuleSummary("/old/Main.hs");
+    summary.parseTreeSize = 42;
+
+    cache.store(key, summary);
+    ModuleSummary loaded = cache.load(key, "/new/Main.hs");
+
+    assertNotNull(loaded);
+    assertEquals(42, loaded.parseTreeSize);
+    assertEquals("/new/Main.hs", loaded.name);
+  }
+
+  @Test
+  void loadReturnsNullForUnknownKey() throws IOException {
+    AnalysisCache cache = new AnalysisCache(cacheDirectory, 1024 * 1024);
+
+    assertNull(cache.load(cache.getKey(bytes("main = print 1"), collectorTypes), "Main.hs"));
+  }
+
+  @Test
+  void loadRemovesCorruptEntry() throws IOException {
+    AnalysisCache cache = new AnalysisCache(cacheDirectory, 1024 * 1024);
+    String key = cache.getKey(bytes("main = print 1"), collectorTypes);
+    Path entry = cacheDirectory.resolve(key + ".summary");
+    Files.write(entry, bytes("not a summary"));
+
+    assertNull(cache.load(key, "Main.hs"));
+    assertFalse(Files.exists(entry));
+  }
+
+  @Test
+  void loadRejectsEntryWithOtherClasses() throws IOException {
+    AnalysisCache cache = new AnalysisCache(cacheDirectory, 1024 * 1024);
+    String key = cache.getKey(bytes("main = print 1"), collectorTypes);
+    Path entry = cacheDirectory.resolve(key + ".summary");
+    try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(entry))) {
+      out.writeObject(List.of(new Date()));
+    }
+
+    assertNull(cache.load(key, "Main.hs"));
+    assertFalse(Files.exists(entry));
+  }
+
+  @Test
+  void loadReturnsSummaryWithReferences() throws IOException {
+    AnalysisCache cache = new AnalysisCache(cacheDirectory, 1024 * 1024);
+    String key = cache.getKey(bytes("main = print 1"), collectorTypes);
+    SourceFile source = new SourceFile(bytes("module Main where\n\nimport Data.List (sort)\n"));
+    ModuleSummary summary = new ModuleSummary("Main.hs");
+    summary.references.addImport(
+        new ModuleReferences.ImportDeclaration("Data", false, null, false, List.of("sort")));
+    summary.references.addReference(
+        summary.references.intern("main"),
+        summary.references.intern("sort"),
+        ModuleReferences.ReferenceKind.UNQUALIFIED);
+    summary.halstead = HalsteadTokenCounter.count("Main.hs", source);
+
+    cache.store(key, summary);
+    ModuleSummary loaded = cache.load(key, "Main.hs");
+
+    assertNotNull(loaded);
+    assertEquals(List.of("main", "sort"), loaded.references.getNames());
+    assertEquals(List.of("sort"), loaded.references.getImports().get(0).names);
+  }
+
+  @Test
+  void keyDependsOnContentsAndCollectors() throws IOException {
+    AnalysisCache cache = new AnalysisCache(cacheDirectory, 1024 * 1024);
+    String key = cache.getKey(bytes("main = print 1"), collectorTypes);
+
+    assertEquals(key, cache.getKey(bytes("main = print 1"), collectorTypes));
+    assertNotEquals(key, cache.getKey(bytes("main = print 2"), collectorTypes));
+    assertNotEquals(
+        key, cache.getKey(bytes("main = print 1"), EnumSet.of(CollectorType.PARSE_TREE_SIZE)));
+    assertNotEquals(key, cache.getKey(bytes("main = print 1"), collectorTypes, true));
+  }
+
+  @Test
+  void keyCoversClassFilesOfEveryCollector() throws IOException {
+    List<String> classFiles =
+        AnalysisCache.getClassFiles(AnalysisCache.getCodeSource(), AnalysisCache.summaryPackages);
+
+    for (CollectorType type : CollectorType.values()) {
+      MetricCollector collector = type.create(new DeclarationExtractor());
+      assertTrue(classFiles.contains(getClassFile(collector.getClass())));
+    }
+    for (Class<?> used :
+        List.of(
+            CollectorType.class,
+            MetricCollector.class,
+            CompactTreeListener.class,
+            DeclarationKind.class,
+            ModuleSummary.class)) {
+      assertTrue(classFiles.contains(getClassFile(used)));
+    }
+    assertTrue(
+        classFiles.contains("com/bramdekker/main/util/PatternCollector$PatternAccumulator.class"));
+  }
+
+  @Test
+  void treeKeyCoversClassFilesOfLexerAndParseTree() throws IOException {
+    List<String> classFiles =
+        AnalysisCache.getClassFiles(AnalysisCache.getCodeSource(), AnalysisCache.treePackages);
+
+    for (Class<?> used :
+        List.of(
+            HaskellBaseLexer.class,
+            HaskellLexer.class,
+            HaskellParseTree.class,
+            SourceFile.class,
+            CompactTree.class,
+            TokenTable.class)) {
+      assertTrue(classFiles.contains(getClassFile(used)));
+    }
+    assertFalse(classFiles.contains(getClassFile(CollectorType.class)));
+  }
+
+  @Test
+  void evictRemovesLeastRecentlyUsedEntries() throws IOException {
+    AnalysisCache cache = new AnalysisCache(cacheDirectory, 1024 * 1024);
+    String oldKey = cache.getKey(bytes("old"), collectorTypes);
+    String newKey = cache.getKey(bytes("new"), collectorTypes);
+    cache.store(oldKey, new ModuleSummary("Old.hs"));
+    cache.store(newKey, new ModuleSummary("New.hs"));
+    Files.setLastModifiedTime(cacheDirectory.resolve(oldKey + ".summary"), FileTime.fromMillis(0));
+    long entrySize = Files.size(cacheDirectory.resolve(newKey + ".summary"));
+
+    new AnalysisCache(cacheDirectory, entrySize).evict();
+
+    assertNull(cache.load(oldKey, "Old.hs"));
+    assertNotNull(cache.load(newKey, "New.hs"));
+  }
+
+  @Test
+  void loadTreeReturnsStoredTree() throws IOException {
+    AnalysisCache cache = new AnalysisCache(cacheDirectory, 1024 * 1024);
+    SourceFile source = new SourceFile(bytes("module Main where\n\nmain = print 1\n"));
+    ParseResult parsed = HaskellParseTree.parse("Main.hs", source);
+    String key = cache.getTreeKey(source.getBytes());
+
+    cache.storeTree(key, parsed);
+    ParseResult loaded = cache.loadTree(key);
+
+    assertNotNull(loaded);
+    assertEquals(parsed.usedLlFallback, loaded.usedLlFallback);
+    assertEquals(parsed.tree.size(), loaded.tree.size());
+    assertEquals(parsed.tree.getText(0), loaded.tree.getText(0));
+    assertNotEquals(key, cache.getTreeKey(bytes("main = print 2")));
+  }
+
+  @Test
+  void loadTreeRemovesCorruptEntry() throws IOException {
+    AnalysisCache cache = new AnalysisCache(cacheDirectory, 1024 * 1024);
+    String key = cache.getTreeKey(bytes("main = print 1"));
+    Path entry = cacheDirectory.resolve(key + ".tree");
+    Files.write(entry, bytes("not a tree"));
+
+    assertNull(cache.loadTree(key));
+    assertFalse(Files.exists(entry));
+  }
+
+  private static byte[] bytes(String contents) {
+    return contents.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Get the path of the class file of a class relative to the root of its code source.
+   *
+   * @param type the class.
+   * @return the binary name of the class with slashes and the .class extension.
+   */
+  private static String getClassFile(Class<?> type) {
+    return type.getName().replace('.', '/') + ".class";
+  }
+}
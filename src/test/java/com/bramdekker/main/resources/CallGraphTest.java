@@ -0,0 +1,390 @@
+package com.bramdekker.main.resources;
+
+import com.bramdekker.main.metrics.MetricType;
+import com.bramdekker.main.session.AnalysisSession;
+import org.jgrapht.alg.connectivity.KosarajuStrongConnectivityInspector;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.jgrapht.graph.SimpleWeightedGraph;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CallGraphTest {
+  static AnalysisSession session;
+  static CallGraph callGraph;
+
+  @TempDir Path project;
+
+  @BeforeAll
+  public static void setup() throws IOException {
+    Path resourceDirectory = Paths.get("src", "test", "resources");
+    String pathToTestResources = resourceDirectory.toFile().getAbsolutePath();
+    session = new AnalysisSession(pathToTestResources + "/callgraph-project");
+    callGraph = session.getCallGraph();
+  }
+
+  @Test
+  void moduleEdgesAreWeightedByCalls() {
+    CompactGraph graph = callGraph.getGraph();
+    SymbolTable symbols = callGraph.getSymbols();
+    int numCalls = 0;
+    for (int e = 0; e < graph.getEdgeCount(); e++) {
+      int source = symbols.getModule(graph.getFunction(graph.getSource(e)));
+      int target = symbols.getModule(graph.getFunction(graph.getTarget(e)));
+      if (source != target) {
+        numCalls += graph.getCount(e);
+      }
+    }
+
+    SimpleWeightedGraph<String, DefaultWeightedEdge> moduleGraph = callGraph.getModuleGraph();
+    double totalWeight = 0.0;
+    for (DefaultWeightedEdge e : moduleGraph.edgeSet()) {
+      totalWeight += moduleGraph.getEdgeWeight(e);
+    }
+
+    assertEquals(numCalls, totalWeight);
+    assertNotNull(moduleGraph.getEdge("Individual", "Puzzles"));
+    assertNotNull(moduleGraph.getEdge("Generic", "Individual"));
+  }
+
+  @Test
+  void subtractingCallsOfMissingModuleEdgeFails() throws IOException {
+    CallGraph graph =
+        new CallGraph(session.getFileList(), session.getParseTreeAnalysis(), 1, null);
+    SimpleWeightedGraph<String, DefaultWeightedEdge> moduleGraph = graph.getModuleGraph();
+    int vertex = graph.getGraph().getVertex("Individual.iLength'");
+    moduleGraph.removeEdge("Individual", "Puzzles");
+
+    assertThrows(IllegalStateException.class, () -> graph.addModuleCalls(vertex, -1));
+    assertNull(moduleGraph.getEdge("Individual", "Puzzles"));
+
+    graph.addModuleCalls(vertex, 1);
+    assertEquals(1.0, moduleGraph.getEdgeWeight(moduleGraph.getEdge("Individual", "Puzzles")));
+  }
+
+  @Test
+  void importedNamesAreResolved() {
+    assertTrue(containsEdge("Generic.or'", "Individual.iOr'"));
+    assertTrue(containsEdge("Individual.iLength'", "Puzzles.pLength'"));
+    assertTrue(containsEdge("Individual.iOr'", "Puzzles.pOr'"));
+  }
+
+  @Test
+  void jgraphtFindsSameComponentsOnAdapter() {
+    StronglyConnectedComponents components = callGraph.getComponents();
+    Set<Set<Integer>> expected = new HashSet<>();
+    for (int c = 0; c < components.getComponentCount(); c++) {
+      Set<Integer> members = new HashSet<>();
+      for (int i = components.getMemberStart(c); i < components.getMemberEnd(c); i++) {
+        members.add(components.getMember(i));
+      }
+      expected.add(members);
+    }
+
+    KosarajuStrongConnectivityInspector<Integer, Integer> inspector =
+        new KosarajuStrongConnectivityInspector<>(callGraph.getGraph().asGraph());
+    assertEquals(expected, new HashSet<>(inspector.stronglyConnectedSets()));
+  }
+
+  @Test
+  void graphDoesNotDependOnNumberOfThreads() throws IOException {
+    CompactGraph sequential =
+        new CallGraph(session.getFileList(), session.getParseTreeAnalysis(), 1, null).getGraph();
+    CompactGraph parallel =
+        new CallGraph(session.getFileList(), session.getParseTreeAnalysis(), 4, null).getGraph();
+
+    assertEquals(sequential.getVertexCount(), parallel.getVertexCount());
+    assertEquals(sequential.getEdgeCount(), parallel.getEdgeCount());
+    for (int v = 0; v < sequential.getVertexCount(); v++) {
+      assertEquals(sequential.getName(v), parallel.getName(v));
+    }
+    for (int e = 0; e < sequential.getEdgeCount(); e++) {
+      assertEquals(sequential.getSource(e), parallel.getSource(e));
+      assertEquals(sequential.getTarget(e), parallel.getTarget(e));
+      assertEquals(sequential.getCount(e), parallel.getCount(e));
+    }
+  }
+
+  @Test
+  void updatedGraphHasSameEdgesAsNewGraph() throws IOException {
+    FileList fileList = copyProject();
+    ParseTreeAnalysis analysis = analyze(fileList);
+    CallGraph updated = new CallGraph(fileList, analysis, 1, null);
+
+    Path standalone = project.resolve("Standalone.hs");
+    Files.writeString(
+        standalone,
+        "module Standalone where\n\nimport Generic\n\nfunc a = length' [a]\n"
+            + "count xs = func (or' xs)\n");
+    Path extra = project.resolve("Extra.hs");
+    Files.writeString(
+        extra, "module Extra where\n\nimport Standalone\n\nquad a = func (func a)\n");
+    String puzzles = project.resolve("Puzzles.hs").toFile().getCanonicalPath();
+    Files.delete(Path.of(puzzles));
+    fileList.refresh();
+    updated.update(analysis.update(List.of(standalone.toFile(), extra.toFile()), Set.of(puzzles)));
+
+    assertSameAsNewGraph(updated);
+    assertTrue(getEdges(updated.getGraph()).contains("Extra.quad -> Standalone.func (2)"));
+    assertTrue(getEdges(updated.getModuleGraph()).contains("Extra - Standalone (2.0)"));
+  }
+
+  @Test
+  void updatedGraphMatchesNewGraphAfterEveryEdit() throws IOException {
+    FileList fileList = copyProject();
+    ParseTreeAnalysis analysis = analyze(fileList);
+    CallGraph updated = new CallGraph(fileList, analysis, 1, null);
+
+    // Add a module with a trivial and a non-trivial recursive function.
+    Path extra = project.resolve("Extra.hs");
+    Files.writeString(
+        extra,
+        "module Extra where\n\nimport Standalone\n\nquad a = func (func a)\n"
+            + "loop n = loop (n - 1)\nping n = pong (n - 1)\npong n = ping n\n");
+    fileList.refresh();
+    updated.update(analysis.update(List.of(extra.toFile()), Set.of()));
+    assertSameAsNewGraph(updated);
+    assertTrue(getComponents(updated).contains(Set.of("Extra.ping", "Extra.pong")));
+
+    // Move two functions to another module, so the cycle goes through both modules.
+    Path standalone = project.resolve("Standalone.hs");
+    Files.writeString(
+        extra,
+        "module Extra where\n\nimport Standalone\n\nloop n = loop (n - 1)\n"
+            + "ping n = pong (n - 1)\n");
+    Files.writeString(
+        standalone,
+        "module Standalone where\n\nimport Extra\n\nfunc a = 2 * a\nquad a = func (func a)\n"
+            + "pong n = ping n\n");
+    fileList.refresh();
+    updated.update(analysis.update(List.of(extra.toFile(), standalone.toFile()), Set.of()));
+    assertSameAsNewGraph(updated);
+    assertTrue(getComponents(updated).contains(Set.of("Extra.ping", "Standalone.pong")));
+
+    // Move a function to another file with the same module name.
+    Path extraPing = project.resolve("ExtraPing.hs");
+    Files.writeString(extra, "module Extra where\n\nloop n = loop (n - 1)\n");
+    Files.writeString(
+        extraPing, "module Extra where\n\nimport Standalone\n\nping n = pong (n - 1)\n");
+    fileList.refresh();
+    updated.update(analysis.update(List.of(extra.toFile(), extraPing.toFile()), Set.of()));
+    assertSameAsNewGraph(updated);
+    assertTrue(getComponents(updated).contains(Set.of("Extra.ping", "Standalone.pong")));
+
+    // Remove a module that others import and the file that closes the cycle.
+    String puzzles = project.resolve("Puzzles.hs").toFile().getCanonicalPath();
+    String ping = extraPing.toFile().getCanonicalPath();
+    Files.delete(Path.of(puzzles));
+    Files.delete(Path.of(ping));
+    fileList.refresh();
+    updated.update(analysis.update(List.of(), Set.of(puzzles, ping)));
+    assertSameAsNewGraph(updated);
+    assertTrue(getComponents(updated).contains(Set.of("Standalone.pong")));
+  }
+
+  /**
+   * Copy the modules of the callgraph project to the temporary project directory.
+   *
+   * @return the FileList of the copied project.
+   * @throws IOException if a module cannot be copied.
+   */
+  private FileList copyProject() throws IOException {
+    Path source = Paths.get("src", "test", "resources", "callgraph-project");
+    try (DirectoryStream<Path> modules = Files.newDirectoryStream(source, "*.hs")) {
+      for (Path module : modules) {
+        Files.copy(module, project.resolve(module.getFileName()));
+      }
+    }
+
+    return new FileList(project.toString());
+  }
+
+  /**
+   * Check that an updated CallGraph has the same functions, calls, module weights, components and
+   * recursion as a CallGraph that is built from scratch on the temporary project directory.
+   *
+   * @param updated the CallGraph that was updated after the modules changed.
+   * @throws IOException if a module cannot be read.
+   */
+  private void assertSameAsNewGraph(CallGraph updated) throws IOException {
+    FileList fileList = new FileList(project.toString());
+    CallGraph created = new CallGraph(fileList, analyze(fileList), 1, null);
+
+    assertEquals(getVertices(created.getGraph()), getVertices(updated.getGraph()));
+    assertEquals(getEdges(created.getGraph()), getEdges(updated.getGraph()));
+    assertEquals(created.getModuleGraph().vertexSet(), updated.getModuleGraph().vertexSet());
+    assertEquals(getEdges(created.getModuleGraph()), getEdges(updated.getModuleGraph()));
+    assertEquals(getComponents(created), getComponents(updated));
+    assertEquals(getCondensation(created), getCondensation(updated));
+  }
+
+  /**
+   * Analyze the modules of a FileList with all collectors on a single thread.
+   *
+   * @param fileList the FileList with the Haskell files of the project.
+   * @return the ParseTreeAnalysis of the modules.
+   * @throws IOException if a module cannot be read.
+   */
+  private static ParseTreeAnalysis analyze(FileList fileList) throws IOException {
+    return new ParseTreeAnalysis(
+        fileList,
+        ParseTreeAnalysis.getCollectorTypes(Arrays.asList(MetricType.values())),
+        1,
+        null,
+        null,
+        ParseMode.FULL,
+        ParseBudget.UNLIMITED);
+  }
+
+  /**
+   * Get the names of the functions in a function callgraph.
+   *
+   * @param graph the CompactGraph of the functions.
+   * @return Set with the name of every vertex.
+   */
+  private static Set<String> getVertices(CompactGraph graph) {
+    Set<String> vertices = new HashSet<>();
+    for (int v = 0; v < graph.getVertexCount(); v++) {
+      vertices.add(graph.getName(v));
+    }
+
+    return vertices;
+  }
+
+  /**
+   * Describe the edges of a function callgraph independent of the order of its vertices.
+   *
+   * @param graph the CompactGraph of the functions.
+   * @return Set with the caller, the called function and the number of calls of every edge.
+   */
+  private static Set<String> getEdges(CompactGraph graph) {
+    Set<String> edges = new HashSet<>();
+    for (int e = 0; e < graph.getEdgeCount(); e++) {
+      edges.add(
+          String.format(
+              "%s -> %s (%d)",
+              graph.getName(graph.getSource(e)),
+              graph.getName(graph.getTarget(e)),
+              graph.getCount(e)));
+    }
+
+    return edges;
+  }
+
+  /**
+   * Get the strongly connected components of a function callgraph by the names of their members.
+   *
+   * @param callGraph the CallGraph with the components.
+   * @return Set with the names of the members of every component.
+   */
+  private static Set<Set<String>> getComponents(CallGraph callGraph) {
+    Set<Set<String>> members = new HashSet<>();
+    for (int c = 0; c < callGraph.getComponents().getComponentCount(); c++) {
+      members.add(getMembers(callGraph, c));
+    }
+
+    return members;
+  }
+
+  /**
+   * Get the names of the members of a strongly connected component.
+   *
+   * @param callGraph the CallGraph with the components.
+   * @param c the ID of the component.
+   * @return Set with the names of the functions in the component.
+   */
+  private static Set<String> getMembers(CallGraph callGraph, int c) {
+    CompactGraph graph = callGraph.getGraph();
+    StronglyConnectedComponents components = callGraph.getComponents();
+    Set<String> names = new HashSet<>();
+    for (int i = components.getMemberStart(c); i < components.getMemberEnd(c); i++) {
+      names.add(graph.getName(components.getMember(i)));
+    }
+
+    return names;
+  }
+
+  /**
+   * Describe the condensation of a function callgraph independent of the IDs of its components.
+   *
+   * @param callGraph the CallGraph with the components.
+   * @return Set with the members of every component, whether it is recursive and the members of
+   *     the components that it calls.
+   */
+  private static Set<String> getCondensation(CallGraph callGraph) {
+    StronglyConnectedComponents components = callGraph.getComponents();
+    Set<String> condensation = new HashSet<>();
+    for (int c = 0; c < components.getComponentCount(); c++) {
+      Set<Set<String>> successors = new HashSet<>();
+      for (int i = components.getSuccessorStart(c); i < components.getSuccessorEnd(c); i++) {
+        successors.add(getMembers(callGraph, components.getSuccessor(i)));
+      }
+      condensation.add(
+          String.format(
+              "%s %s -> %s",
+              getMembers(callGraph, c),
+              components.isRecursive(c) ? "recursive" : "not recursive",
+              successors));
+    }
+
+    return condensation;
+  }
+
+  /**
+   * Describe the edges of a module callgraph independent of the direction of the edges.
+   *
+   * @param graph the module callgraph.
+   * @return Set with the two modules in alphabetical order and the weight of every edge.
+   */
+  private static Set<String> getEdges(SimpleWeightedGraph<String, DefaultWeightedEdge> graph) {
+    Set<String> edges = new HashSet<>();
+    for (DefaultWeightedEdge e : graph.edgeSet()) {
+      String source = graph.getEdgeSource(e);
+      String target = graph.getEdgeTarget(e);
+      boolean ordered = source.compareTo(target) <= 0;
+      edges.add(
+          String.format(
+              "%s - %s (%s)",
+              ordered ? source : target,
+              ordered ? target : source,
+              graph.getEdgeWeight(e)));
+    }
+
+    return edges;
+  }
+
+  /**
+   * Check if the function callgraph has an edge from one function to another.
+   *
+   * @param source the name of the calling function.
+   * @param target the name of the called function.
+   * @return true if the source calls the target; false otherwise.
+   */
+  private static boolean containsEdge(String source, String target) {
+    CompactGraph graph = callGraph.getGraph();
+    int v = graph.getVertex(source);
+    for (int e = graph.getOutStart(v); e < graph.getOutEnd(v); e++) {
+      if (graph.getTarget(e) == graph.getVertex(target)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+}
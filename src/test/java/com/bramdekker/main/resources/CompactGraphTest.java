@@ -0,0 +1,131 @@
+package com.bramdekker.main.resources;
+
+import org.jgrapht.Graph;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactGraphTest {
+  private SymbolTable symbols;
+  private CompactGraph graph;
+
+  @BeforeEach
+  void buildGraph() {
+    symbols = new SymbolTable();
+    int main = symbols.internFunction("Main.main");
+    int solve = symbols.internFunction("Puzzles.solve");
+    int parse = symbols.internFunction("Puzzles.parse");
+    int unused = symbols.intern("putStrLn");
+
+    int[][] calls = new int[symbols.size()][];
+    int[] numCalls = new int[symbols.size()];
+    calls[main] = new int[] {solve, parse, solve, unused, solve};
+    numCalls[main] = 5;
+    calls[solve] = new int[] {solve, parse};
+    numCalls[solve] = 2;
+
+    graph = new CompactGraph(symbols, List.of(main, solve, parse), calls, numCalls);
+  }
+
+  @Test
+  void repeatedCallsAreMergedIntoOneEdge() {
+    int main = graph.getVertex("Main.main");
+    int solve = graph.getVertex("Puzzles.solve");
+
+    assertEquals(3, graph.getVertexCount());
+    assertEquals(4, graph.getEdgeCount());
+    assertEquals(2, graph.getOutEnd(main) - graph.getOutStart(main));
+    assertEquals(solve, graph.getTarget(graph.getOutStart(main)));
+    assertEquals(3, graph.getCount(graph.getOutStart(main)));
+    assertEquals(SymbolTable.NONE, graph.getVertex("putStrLn"));
+  }
+
+  @Test
+  void degreesCountEveryCall() {
+    int main = graph.getVertex("Main.main");
+    int solve = graph.getVertex("Puzzles.solve");
+    int parse = graph.getVertex("Puzzles.parse");
+
+    assertEquals(4, graph.getOutDegree(main));
+    assertEquals(4, graph.getInDegree(solve));
+    assertEquals(2, graph.getOutDegree(solve));
+    assertEquals(2, graph.getInDegree(parse));
+    assertEquals(0, graph.getInDegree(main));
+  }
+
+  @Test
+  void incomingEdgesPointToTheVertex() {
+    int parse = graph.getVertex("Puzzles.parse");
+
+    assertEquals(2, graph.getInEnd(parse) - graph.getInStart(parse));
+    for (int i = graph.getInStart(parse); i < graph.getInEnd(parse); i++) {
+      assertEquals(parse, graph.getTarget(graph.getInEdge(i)));
+    }
+  }
+
+  @Test
+  void updateReplacesRowsOfChangedAndRemovedFunctions() {
+    int main = symbols.getId("Main.main");
+    int solve = symbols.getId("Puzzles.solve");
+    int parse = symbols.getId("Puzzles.parse");
+    int check = symbols.internFunction("Puzzles.check");
+    int[][] calls = new int[symbols.size()][];
+    int[] numCalls = new int[symbols.size()];
+    calls[main] = new int[] {solve, parse, solve, solve};
+    numCalls[main] = 4;
+    calls[solve] = new int[] {check, check};
+    numCalls[solve] = 2;
+    calls[check] = new int[] {solve};
+    numCalls[check] = 1;
+    BitSet changedFunctions = new BitSet();
+    changedFunctions.set(solve);
+
+    int[] changedRows =
+        graph.update(List.of(parse), List.of(check), changedFunctions, calls, numCalls);
+
+    assertArrayEquals(new int[] {main, solve, check}, changedRows);
+    assertEquals(3, graph.getVertexCount());
+    assertEquals(2, graph.getVertex("Puzzles.check"));
+    assertEquals(SymbolTable.NONE, graph.getVertex("Puzzles.parse"));
+    assertEquals(3, graph.getEdgeCount());
+    assertEquals(3, graph.getOutDegree(graph.getVertex("Main.main")));
+    assertEquals(4, graph.getInDegree(graph.getVertex("Puzzles.solve")));
+    assertEquals(2, graph.getInDegree(graph.getVertex("Puzzles.check")));
+    for (int v = 0; v < graph.getVertexCount(); v++) {
+      for (int i = graph.getInStart(v); i < graph.getInEnd(v); i++) {
+        assertEquals(v, graph.getTarget(graph.getInEdge(i)));
+      }
+    }
+  }
+
+  @Test
+  void adapterIsReadOnlyView() {
+    Graph<Integer, Integer> view = graph.asGraph();
+    int main = graph.getVertex("Main.main");
+    int solve = graph.getVertex("Puzzles.solve");
+    int parse = graph.getVertex("Puzzles.parse");
+
+    assertEquals(Set.of(main, solve, parse), view.vertexSet());
+    assertEquals(4, view.edgeSet().size());
+    Integer edge = view.getEdge(main, solve);
+    assertEquals(3.0, view.getEdgeWeight(edge));
+    assertEquals(solve, view.getEdgeTarget(edge));
+    assertNull(view.getEdge(parse, main));
+    assertTrue(view.containsEdge(solve, solve));
+    assertEquals(2, view.inDegreeOf(solve));
+    assertEquals(
+        Set.of(graph.getOutStart(solve), graph.getOutStart(solve) + 1),
+        view.outgoingEdgesOf(solve));
+    assertThrows(UnsupportedOperationException.class, () -> view.addVertex(3));
+    assertThrows(IllegalArgumentException.class, () -> view.outDegreeOf(3));
+  }
+}
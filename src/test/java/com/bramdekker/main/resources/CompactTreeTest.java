@@ -0,0 +1,105 @@
+package com.bramdekker.main.resources;
+
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ErrorNodeImpl;
+import org.antlr.v4.runtime.tree.TerminalNodeImpl;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactTreeTest {
+  static CompactTree tree;
+
+  // root(0)
+  //   first(1): x(2) y(3)
+  //   empty(4)
+  //   z(5) <missing>(6)
+  @BeforeAll
+  public static void setup() {
+    ParserRuleContext root = new ParserRuleContext();
+    ParserRuleContext first = new ParserRuleContext(root, 0);
+    root.addChild(first);
+    first.addChild(new TerminalNodeImpl(new CommonToken(1, "x")));
+    first.addChild(new TerminalNodeImpl(new CommonToken(1, "y")));
+    root.addChild(new ParserRuleContext(root, 0));
+    root.addChild(new TerminalNodeImpl(new CommonToken(1, "z")));
+    root.addChild(new ErrorNodeImpl(new CommonToken(1, "<missing>")));
+    tree = CompactTree.of(root);
+  }
+
+  @Test
+  void nodesAreNumberedInWalkOrder() {
+    assertEquals(7, tree.size());
+    assertEquals(CompactTree.NONE, tree.getParent(tree.getRoot()));
+    assertEquals(List.of(1, 4, 5, 6), children(0));
+    assertEquals(List.of(2, 3), children(1));
+    assertEquals(4, tree.getChildCount(0));
+    assertEquals(CompactTree.NONE, tree.getChild(1, 2));
+    assertEquals(2, tree.getLeftMostChild(0));
+  }
+
+  @Test
+  void textOfRuleNodeIsTextOfItsLeaves() {
+    assertEquals("xy", tree.getText(1));
+    assertEquals("", tree.getText(4));
+    assertEquals("xyz<missing>", tree.getText(0));
+  }
+
+  @Test
+  void leavesSkipErrorNodes() {
+    assertTrue(tree.isErrorNode(6));
+    assertEquals(List.of(2, 3, 5), tree.getLeaves(0));
+    assertEquals(List.of(), tree.getLeaves(4));
+  }
+
+  @Test
+  void emptyTrailingNodeGetsLineOfLastToken() {
+    ParserRuleContext root = new ParserRuleContext();
+    CommonToken token = new CommonToken(1, "x");
+    token.setLine(3);
+    root.addChild(new TerminalNodeImpl(token));
+    root.addChild(new ParserRuleContext(root, 0));
+    CompactTree trailing = CompactTree.of(root);
+
+    assertEquals(3, trailing.getLine(0));
+    assertEquals(3, trailing.getLine(2));
+    assertEquals(-1, CompactTree.of(new ParserRuleContext()).getLine(0));
+  }
+
+  @Test
+  void treeIsTheSameAfterWritingAndReadingIt() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    tree.write(new DataOutputStream(bytes));
+    CompactTree copy = CompactTree.read(ByteBuffer.wrap(bytes.toByteArray()));
+
+    assertEquals(tree.size(), copy.size());
+    for (int node = 0; node < tree.size(); node++) {
+      assertEquals(tree.getKind(node), copy.getKind(node));
+      assertEquals(tree.getParent(node), copy.getParent(node));
+      assertEquals(tree.getNextSibling(node), copy.getNextSibling(node));
+      assertEquals(tree.getText(node), copy.getText(node));
+    }
+    assertEquals(tree.getLeaves(0), copy.getLeaves(0));
+  }
+
+  private static List<Integer> children(int node) {
+    List<Integer> children = new ArrayList<>();
+    for (int child = tree.getFirstChild(node);
+        child != CompactTree.NONE;
+        child = tree.getNextSibling(child)) {
+      children.add(child);
+    }
+
+    return children;
+  }
+}
@@ -22,7 +22,7 @@ class FileListTest {
 
   @Test
   void getAllHaskellFilesInHaskellProjectDirectory() {
-    FileList.init(pathToTestResources + "/haskell-project");
+    FileList fileList = new FileList(pathToTestResources + "/haskell-project");
 
     List<File> expectedFiles =
         List.of(
@@ -32,7 +32,7 @@ class FileListTest {
         List.of(
             new File(pathToTestResources + "/haskell-project/haskell_college_handouts.pdf"),
             new File(pathToTestResources + "/haskell-project/PT_2018_Haskell_Slides.pdf"));
-    List<File> haskellFiles = FileList.getInstance().getHaskellFiles();
+    List<File> haskellFiles = fileList.getHaskellFiles();
 
     expectedFiles.forEach(file -> assertTrue(haskellFiles.contains(file)));
     otherFiles.forEach(file -> assertFalse(haskellFiles.contains(file)));
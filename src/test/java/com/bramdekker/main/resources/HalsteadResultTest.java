@@ -0,0 +1,58 @@
+package com.bramdekker.main.resources;
+
+import com.bramdekker.main.metrics.HalsteadFileMetric;
+import com.bramdekker.main.metrics.StructuralFileMetric;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HalsteadResultTest {
+  static HalsteadResult result;
+
+  @BeforeAll
+  public static void setup() {
+    Map<String, Integer> operatorMap = Map.of("=", 2, "+", 1);
+    Map<String, Integer> operandMap = Map.of("x", 3, "y", 1, "1", 1);
+    result =
+        new HalsteadResult(
+            operatorMap,
+            operandMap,
+            new HashMap<>(),
+            List.of("f", "g"),
+            List.of("Name"),
+            List.of("Tree", "Color", "Shape"));
+  }
+
+  @Test
+  void halsteadLengthSumsAllOccurrences() {
+    assertEquals(8, result.getHalsteadLength());
+  }
+
+  @Test
+  void halsteadVocabularyCountsUniqueOperatorsAndOperands() {
+    assertEquals(5, result.getHalsteadVocabulary());
+  }
+
+  @Test
+  void halsteadFileMetricUsesSharedResult() {
+    HalsteadFileMetric metric = result.toHalsteadFileMetric("Main.hs");
+
+    assertEquals("Main.hs", metric.name);
+    assertEquals(8, metric.halsteadLength);
+    assertEquals(5, metric.halsteadVocabulary);
+  }
+
+  @Test
+  void structuralFileMetricUsesSharedResult() {
+    StructuralFileMetric metric = result.toStructuralFileMetric("Main.hs");
+
+    assertEquals(2, metric.functions);
+    assertEquals(1, metric.typeSynonyms);
+    assertEquals(3, metric.dataTypes);
+  }
+}
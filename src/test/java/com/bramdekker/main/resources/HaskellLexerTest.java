@@ -0,0 +1,74 @@
+package com.bramdekker.main.resources;
+
+import antlr.HaskellLexer;
+import org.antlr.v4.runtime.Token;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class HaskellLexerTest {
+  static final Path resources = Paths.get("src", "test", "resources");
+  static final Path expectations = resources.resolve("lexer-tokens");
+
+  @Test
+  void tokensOfTestModulesMatchExpectation() throws IOException {
+    List<Path> modules;
+    try (Stream<Path> paths = Files.walk(resources)) {
+      modules = paths.filter(path -> path.toString().endsWith(".hs")).sorted().toList();
+    }
+
+    assertFalse(modules.isEmpty());
+    for (Path module : modules) {
+      Path relative = resources.relativize(module);
+      String expected = Files.readString(expectations.resolve(relative + ".tokens"));
+      String actual = describeTokens(SourceFile.read(module.toFile()));
+      assertEquals(expected, actual, relative.toString());
+    }
+  }
+
+  /**
+   * Describe every token the lexer produces for a module, including the tokens on the hidden
+   * channel, the layout tokens and the EOF token.
+   *
+   * @param source the contents of the module.
+   * @return String with a line with the type, channel and text of every token.
+   */
+  static String describeTokens(SourceFile source) {
+    HaskellLexer lexer = new HaskellLexer(source.getCharStream("test"));
+    StringBuilder description = new StringBuilder();
+    Token token;
+    do {
+      token = lexer.nextToken();
+      description
+          .append(HaskellLexer.VOCABULARY.getSymbolicName(token.getType()))
+          .append(' ')
+          .append(token.getChannel())
+          .append(' ')
+          .append(escape(token.getText()))
+          .append('\n');
+    } while (token.getType() != Token.EOF);
+
+    return description.toString();
+  }
+
+  /**
+   * Escape the backslashes and whitespace characters that would break up a line of a description.
+   *
+   * @param text the text of a token.
+   * @return the text with \, newline, carriage return and tab written as escape sequences.
+   */
+  private static String escape(String text) {
+    return text.replace("\\", "\\\\")
+        .replace("\n", "\\n")
+        .replace("\r", "\\r")
+        .replace("\t", "\\t");
+  }
+}
@@ -0,0 +1,122 @@
+package com.bramdekker.main.resources;
+
+import antlr.HaskellLexer;
+import antlr.HaskellParser;
+import com.bramdekker.main.exceptions.ParseBudgetExceededException;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HaskellParseTreeTest {
+
+  @Test
+  void parseGivesSameTreesAsFullLlPrediction() throws IOException {
+    List<Path> modules;
+    try (Stream<Path> paths = Files.walk(Paths.get("src", "test", "resources"))) {
+      modules = paths.filter(path -> path.toString().endsWith(".hs")).sorted().toList();
+    }
+
+    assertFalse(modules.isEmpty());
+    for (Path module : modules) {
+      SourceFile source = SourceFile.read(module.toFile());
+      HaskellParser parser =
+          new HaskellParser(
+              new CommonTokenStream(new HaskellLexer(source.getCharStream(module.toString()))));
+      parser.removeErrorListeners();
+
+      assertArrayEquals(
+          getBytes(CompactTree.of(parser.module())),
+          getBytes(HaskellParseTree.parse(module.toString(), source).tree),
+          module.toString());
+    }
+  }
+
+  @Test
+  void parseFallsBackToLlPredictionForInvalidModule() {
+    ParseResult result =
+        HaskellParseTree.parse("Main.hs", source("module Main where\n\nmain = (\n"));
+
+    assertNotNull(result.tree);
+    assertTrue(result.usedLlFallback);
+  }
+
+  @Test
+  void parseAddsDecisionsToProfile() {
+    ParserProfile profile = new ParserProfile();
+    HaskellParseTree.parse("Main.hs", source("module Main where\n\nmain = print 1\n"), profile);
+
+    assertFalse(profile.getRules().isEmpty());
+    assertEquals("Main.hs", profile.getSlowestFiles(1).get(0).getKey());
+  }
+
+  @Test
+  void parseStopsWhenModuleHasTooManyTokens() {
+    SourceFile source = source("module Main where\n\n-- a comment\nmain = print 1\n");
+
+    assertNotNull(HaskellParseTree.parse("Main.hs", source, null, new ParseBudget(0, 20)).tree);
+    assertThrows(
+        ParseBudgetExceededException.class,
+        () -> HaskellParseTree.parse("Main.hs", source, null, new ParseBudget(0, 3)));
+  }
+
+  @Test
+  void parseFinishesWithinGenerousTimeBudget() {
+    ParseResult result =
+        HaskellParseTree.parse(
+            "Main.hs",
+            source("module Main where\n\nmain = print 1\n"),
+            null,
+            new ParseBudget(60_000, 0));
+
+    assertNotNull(result.tree);
+  }
+
+  @Test
+  void parseStopsWhenPredictionTakesTooLong() {
+    String module = "module Main where\n\nx = " + "(".repeat(400) + "1" + ")".repeat(400) + "\n";
+    // Load the lexer and parser first, so the deadline does not pass before the parser predicts.
+    HaskellParseTree.parse("Main.hs", source("module Main where\n\nx = (1)\n"));
+    ParseBudgetExceededException e =
+        assertThrows(
+            ParseBudgetExceededException.class,
+            () -> HaskellParseTree.parse("Main.hs", source(module), null, new ParseBudget(50, 0)));
+
+    assertTrue(
+        Arrays.stream(e.getStackTrace())
+            .anyMatch(frame -> frame.getMethodName().equals("adaptivePredict")));
+  }
+
+  /**
+   * Write a CompactTree in its binary format, which covers every node and token of the tree.
+   *
+   * @param tree the CompactTree to be written.
+   * @return the bytes of the tree.
+   * @throws IOException if the tree cannot be written.
+   */
+  private static byte[] getBytes(CompactTree tree) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    tree.write(new DataOutputStream(bytes));
+    return bytes.toByteArray();
+  }
+
+  private static SourceFile source(String contents) {
+    return new SourceFile(contents.getBytes(StandardCharsets.UTF_8));
+  }
+}
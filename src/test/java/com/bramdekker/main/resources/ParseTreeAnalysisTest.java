@@ -0,0 +1,124 @@
+package com.bramdekker.main.resources;
+
+import com.bramdekker.main.metrics.MetricType;
+import com.bramdekker.main.util.CollectorType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParseTreeAnalysisTest {
+  static final Set<CollectorType> collectorTypes =
+      ParseTreeAnalysis.getCollectorTypes(Arrays.asList(MetricType.values()));
+
+  @TempDir Path project;
+
+  @Test
+  void updatedAnalysisHasSameSummariesAsNewAnalysis() throws IOException {
+    copyCallgraphProject();
+    FileList fileList = new FileList(project.toString());
+    ParseTreeAnalysis analysis = analyze(fileList);
+
+    Path standalone = project.resolve("Standalone.hs");
+    Files.writeString(
+        standalone, "module Standalone where\n\nfunc :: Int -> Int\nfunc a = a + a\n");
+    Path extra = project.resolve("Extra.hs");
+    Files.writeString(extra, "module Extra where\n\nimport Standalone\n\nquad a = func (func a)\n");
+    String puzzles = project.resolve("Puzzles.hs").toFile().getCanonicalPath();
+    Files.delete(Path.of(puzzles));
+    fileList.refresh();
+    SummaryChanges changes =
+        analysis.update(List.of(standalone.toFile(), extra.toFile()), Set.of(puzzles));
+
+    assertEquals(Set.of("Standalone", "Puzzles"), getModules(changes.outdated));
+    assertEquals(Set.of("Standalone", "Extra"), getModules(changes.updated));
+    ParseTreeAnalysis newAnalysis = analyze(new FileList(project.toString()));
+    assertEquals(
+        new ArrayList<>(newAnalysis.getSummaryDict().keySet()),
+        new ArrayList<>(analysis.getSummaryDict().keySet()));
+    for (ModuleSummary summary : newAnalysis.getSummaryDict().values()) {
+      assertEquals(describe(summary), describe(analysis.getSummaryDict().get(summary.name)));
+    }
+  }
+
+  @Test
+  void updateWithoutChangesKeepsSummaries() throws IOException {
+    copyCallgraphProject();
+    ParseTreeAnalysis analysis = analyze(new FileList(project.toString()));
+    List<ModuleSummary> summaries = new ArrayList<>(analysis.getSummaryDict().values());
+
+    assertTrue(analysis.update(List.of(), Set.of()).isEmpty());
+    assertEquals(summaries, new ArrayList<>(analysis.getSummaryDict().values()));
+  }
+
+  /** Copy the Haskell modules of the callgraph project to the project directory of a test. */
+  private void copyCallgraphProject() throws IOException {
+    Path source = Paths.get("src", "test", "resources", "callgraph-project");
+    try (DirectoryStream<Path> modules = Files.newDirectoryStream(source, "*.hs")) {
+      for (Path module : modules) {
+        Files.copy(module, project.resolve(module.getFileName()));
+      }
+    }
+  }
+
+  /**
+   * Analyze the modules of a FileList with all collectors on a single thread.
+   *
+   * @param fileList the FileList with the Haskell files of the project.
+   * @return the ParseTreeAnalysis of the modules.
+   * @throws IOException if a module cannot be read.
+   */
+  private static ParseTreeAnalysis analyze(FileList fileList) throws IOException {
+    return new ParseTreeAnalysis(
+        fileList, collectorTypes, 1, null, null, ParseMode.FULL, ParseBudget.UNLIMITED);
+  }
+
+  /**
+   * Get the names of the modules of a collection of summaries.
+   *
+   * @param summaries the summaries of the modules.
+   * @return Set with the module names.
+   */
+  private static Set<String> getModules(Iterable<ModuleSummary> summaries) {
+    Set<String> modules = new HashSet<>();
+    for (ModuleSummary summary : summaries) {
+      modules.add(summary.references.getModule());
+    }
+
+    return modules;
+  }
+
+  /**
+   * Describe the data of a summary that the metrics are calculated from.
+   *
+   * @param summary the summary of a module.
+   * @return String with the name, sizes, Halstead data, patterns and references of the module.
+   */
+  private static String describe(ModuleSummary summary) {
+    return String.join(
+        "\n",
+        new File(summary.name).getName(),
+        String.valueOf(summary.parseTreeSize),
+        String.valueOf(summary.size.ncloc),
+        new TreeMap<>(summary.halstead.operatorMap).toString(),
+        new TreeMap<>(summary.halstead.operandMap).toString(),
+        summary.halstead.functions.toString(),
+        summary.functionPatterns.keySet().toString(),
+        summary.references.getNames().toString(),
+        String.valueOf(summary.references.getReferences().size()));
+  }
+}
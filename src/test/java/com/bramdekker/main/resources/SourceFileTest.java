@@ -0,0 +1,40 @@
+package com.bramdekker.main.resources;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SourceFileTest {
+
+  @Test
+  void getLinesSplitsOnAllLineSeparators() {
+    SourceFile source = source("module Main where\r\n\nmain = print 1\rx = 2");
+
+    assertEquals(List.of("module Main where", "", "main = print 1", "x = 2"), source.getLines());
+  }
+
+  @Test
+  void getLinesIgnoresLineSeparatorAtEndOfFile() {
+    assertEquals(List.of("x = 1", ""), source("x = 1\n\n").getLines());
+    assertEquals(List.of(), source("").getLines());
+  }
+
+  @Test
+  void getCharStreamEndsEveryLineWithNewline() {
+    SourceFile source = source("x = 1\r\ny = 2");
+
+    assertEquals("x = 1\ny = 2\n", source.getCharStream("Main.hs").toString());
+  }
+
+  @Test
+  void getSizeReturnsNumberOfBytes() {
+    assertEquals(5, source("\u00e9t\u00e9").getSize());
+  }
+
+  private static SourceFile source(String contents) {
+    return new SourceFile(contents.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,228 @@
+package com.bramdekker.main.resources;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StronglyConnectedComponentsTest {
+
+  /**
+   * Build a CompactGraph of functions named f0 up to fn-1 in module M.
+   *
+   * @param numFunctions the number of functions.
+   * @param edges pairs of the caller and the called function.
+   * @return the CompactGraph with the vertices in the order of the functions.
+   */
+  private static CompactGraph buildGraph(int numFunctions, int[][] edges) {
+    SymbolTable symbols = new SymbolTable();
+    List<Integer> functions = new ArrayList<>();
+    for (int i = 0; i < numFunctions; i++) {
+      functions.add(symbols.internFunction("M.f" + i));
+    }
+
+    int[][] calls = new int[symbols.size()][edges.length];
+    int[] numCalls = new int[symbols.size()];
+    for (int[] edge : edges) {
+      int source = functions.get(edge[0]);
+      calls[source][numCalls[source]++] = functions.get(edge[1]);
+    }
+
+    return new CompactGraph(symbols, functions, calls, numCalls);
+  }
+
+  @Test
+  void cyclesAreGroupedInComponents() {
+    CompactGraph graph = buildGraph(5, new int[][] {{0, 1}, {1, 2}, {2, 0}, {2, 3}, {4, 4}});
+    StronglyConnectedComponents components = new StronglyConnectedComponents(graph);
+
+    assertEquals(3, components.getComponentCount());
+    int cycle = components.getComponent(0);
+    assertEquals(cycle, components.getComponent(2));
+    assertEquals(3, components.getSize(cycle));
+    assertEquals(0, components.getMember(components.getMemberStart(cycle)));
+    assertTrue(components.isRecursive(cycle));
+    assertTrue(components.isRecursive(components.getComponent(4)));
+    assertFalse(components.isRecursive(components.getComponent(3)));
+  }
+
+  @Test
+  void condensationPointsToLowerComponents() {
+    CompactGraph graph = buildGraph(4, new int[][] {{0, 1}, {1, 0}, {0, 2}, {1, 2}, {3, 2}});
+    StronglyConnectedComponents components = new StronglyConnectedComponents(graph);
+    int cycle = components.getComponent(0);
+    int leaf = components.getComponent(2);
+
+    assertEquals(1, components.getSuccessorEnd(cycle) - components.getSuccessorStart(cycle));
+    assertEquals(leaf, components.getSuccessor(components.getSuccessorStart(cycle)));
+    assertEquals(0, components.getSuccessorEnd(leaf) - components.getSuccessorStart(leaf));
+    for (int c = 0; c < components.getComponentCount(); c++) {
+      for (int i = components.getSuccessorStart(c); i < components.getSuccessorEnd(c); i++) {
+        assertTrue(components.getSuccessor(i) < c);
+      }
+    }
+  }
+
+  @Test
+  void longChainDoesNotOverflowTheStack() {
+    int length = 200_000;
+    SymbolTable symbols = new SymbolTable();
+    List<Integer> functions = new ArrayList<>();
+    for (int i = 0; i < length; i++) {
+      functions.add(symbols.internFunction("M.f" + i));
+    }
+    int[][] calls = new int[symbols.size()][];
+    int[] numCalls = new int[symbols.size()];
+    for (int i = 0; i < length; i++) {
+      calls[functions.get(i)] = new int[] {functions.get((i + 1) % length)};
+      numCalls[functions.get(i)] = 1;
+    }
+    CompactGraph graph = new CompactGraph(symbols, functions, calls, numCalls);
+    StronglyConnectedComponents components = new StronglyConnectedComponents(graph);
+
+    assertEquals(1, components.getComponentCount());
+    assertEquals(length, components.getSize(0));
+  }
+
+  @Test
+  void updatedComponentsMatchComponentsOfNewGraph() {
+    Random random = new Random(42);
+    SymbolTable symbols = new SymbolTable();
+    int numFunctions = 200;
+    for (int i = 0; i < numFunctions; i++) {
+      symbols.internFunction("M.f" + i);
+    }
+    int[][] calls = new int[numFunctions][4];
+    int[] numCalls = new int[numFunctions];
+    List<Integer> defined = new ArrayList<>();
+    for (int f = 0; f < 60; f++) {
+      defined.add(f);
+    }
+    for (int f : defined) {
+      numCalls[f] = random.nextInt(3);
+      for (int i = 0; i < numCalls[f]; i++) {
+        calls[f][i] = defined.get(random.nextInt(defined.size()));
+      }
+    }
+    CompactGraph graph = new CompactGraph(symbols, defined, calls, numCalls);
+    StronglyConnectedComponents components = new StronglyConnectedComponents(graph);
+
+    // Functions are only added once, so no unchanged row calls a function before it is added.
+    int nextFunction = defined.size();
+    for (int step = 0; step < 100; step++) {
+      List<Integer> removed = new ArrayList<>();
+      if (random.nextInt(3) == 0) {
+        removed.add(defined.remove(random.nextInt(defined.size())));
+      }
+      List<Integer> added = new ArrayList<>();
+      if (random.nextInt(3) == 0 && nextFunction < numFunctions) {
+        added.add(nextFunction);
+        defined.add(nextFunction++);
+      }
+      BitSet changed = new BitSet();
+      for (int i = 0; i < 2; i++) {
+        changed.set(defined.get(random.nextInt(defined.size())));
+      }
+      changed.set(added.isEmpty() ? defined.get(0) : added.get(0));
+      for (int f = changed.nextSetBit(0); f >= 0; f = changed.nextSetBit(f + 1)) {
+        numCalls[f] = random.nextInt(4);
+        for (int i = 0; i < numCalls[f]; i++) {
+          calls[f][i] = defined.get(random.nextInt(defined.size()));
+        }
+      }
+      changed.andNot(toBitSet(added));
+
+      components.update(graph.update(removed, added, changed, calls, numCalls), removed);
+
+      List<Integer> functions = new ArrayList<>();
+      for (int v = 0; v < graph.getVertexCount(); v++) {
+        functions.add(graph.getFunction(v));
+      }
+      CompactGraph created = new CompactGraph(symbols, functions, calls, numCalls);
+      assertEquals(describeEdges(created), describeEdges(graph));
+      assertSameComponents(new StronglyConnectedComponents(created), components);
+    }
+  }
+
+  /**
+   * Put a list of functions in a BitSet.
+   *
+   * @param functions the IDs of the functions.
+   * @return BitSet with the IDs set.
+   */
+  private static BitSet toBitSet(List<Integer> functions) {
+    BitSet bits = new BitSet();
+    functions.forEach(bits::set);
+    return bits;
+  }
+
+  /**
+   * Describe the out and in edges of every vertex in order.
+   *
+   * @param graph the CompactGraph.
+   * @return List with the targets and counts of the out edges and the sources of the in edges.
+   */
+  private static List<String> describeEdges(CompactGraph graph) {
+    List<String> edges = new ArrayList<>();
+    for (int v = 0; v < graph.getVertexCount(); v++) {
+      StringBuilder edge = new StringBuilder(graph.getName(v)).append(':');
+      for (int e = graph.getOutStart(v); e < graph.getOutEnd(v); e++) {
+        edge.append(' ').append(graph.getTarget(e)).append('x').append(graph.getCount(e));
+      }
+      edge.append(" <-");
+      for (int i = graph.getInStart(v); i < graph.getInEnd(v); i++) {
+        edge.append(' ').append(graph.getSource(graph.getInEdge(i)));
+      }
+      edges.add(edge.toString());
+    }
+
+    return edges;
+  }
+
+  /**
+   * Check that updated components group the same vertices as the components of a new graph, with
+   * the same recursion and the same condensation, and that the condensation still points to
+   * lower components.
+   *
+   * @param expected the components of a new graph with the same vertices.
+   * @param actual the updated components.
+   */
+  private static void assertSameComponents(
+      StronglyConnectedComponents expected, StronglyConnectedComponents actual) {
+    assertEquals(expected.getComponentCount(), actual.getComponentCount());
+    Map<Integer, Integer> componentMap = new HashMap<>();
+    for (int c = 0; c < expected.getComponentCount(); c++) {
+      int component = actual.getComponent(expected.getMember(expected.getMemberStart(c)));
+      componentMap.put(c, component);
+      assertEquals(expected.getSize(c), actual.getSize(component));
+      assertEquals(expected.isRecursive(c), actual.isRecursive(component));
+      for (int i = expected.getMemberStart(c); i < expected.getMemberEnd(c); i++) {
+        assertEquals(component, actual.getComponent(expected.getMember(i)));
+      }
+    }
+    for (int c = 0; c < expected.getComponentCount(); c++) {
+      int component = componentMap.get(c);
+      Set<Integer> successors = new HashSet<>();
+      for (int i = expected.getSuccessorStart(c); i < expected.getSuccessorEnd(c); i++) {
+        successors.add(componentMap.get(expected.getSuccessor(i)));
+      }
+      Set<Integer> actualSuccessors = new HashSet<>();
+      int end = actual.getSuccessorEnd(component);
+      for (int i = actual.getSuccessorStart(component); i < end; i++) {
+        assertTrue(actual.getSuccessor(i) < component);
+        actualSuccessors.add(actual.getSuccessor(i));
+      }
+      assertEquals(successors, actualSuccessors);
+    }
+  }
+}
@@ -0,0 +1,31 @@
+package com.bramdekker.main.resources;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SymbolTableTest {
+
+  @Test
+  void internGivesDenseIdsOncePerName() {
+    SymbolTable symbols = new SymbolTable();
+
+    assertEquals(0, symbols.intern("map"));
+    assertEquals(1, symbols.intern("filter"));
+    assertEquals(0, symbols.intern("map"));
+    assertEquals(2, symbols.size());
+    assertEquals("filter", symbols.getName(1));
+    assertEquals(SymbolTable.NONE, symbols.getId("fold"));
+  }
+
+  @Test
+  void functionKnowsItsModule() {
+    SymbolTable symbols = new SymbolTable();
+    int function = symbols.internFunction("Puzzles.solve");
+    int withoutModule = symbols.internFunction("main");
+
+    assertEquals("Puzzles", symbols.getName(symbols.getModule(function)));
+    assertEquals(withoutModule, symbols.getModule(withoutModule));
+    assertEquals(SymbolTable.NONE, symbols.getModule(symbols.intern("solve")));
+  }
+}
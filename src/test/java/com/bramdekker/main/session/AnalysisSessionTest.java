@@ -0,0 +1,184 @@
+package com.bramdekker.main.session;
+
+import com.bramdekker.main.metrics.MetricType;
+import com.bramdekker.main.metrics.Size;
+import com.bramdekker.main.resources.FileList;
+import com.bramdekker.main.resources.ModuleSummary;
+import com.bramdekker.main.resources.ParseBudget;
+import com.bramdekker.main.resources.ParseMode;
+import com.bramdekker.main.resources.ParseTreeAnalysis;
+import com.bramdekker.main.report.Report;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnalysisSessionTest {
+  static final String modifiedStandalone =
+      "module Standalone where\n\nimport Generic\n\n"
+          + "func :: Int -> Int\nfunc a = 2 * length' [a]\n\n"
+          + "twice :: Int -> Int\ntwice a = func (func a)\n";
+  static final String addedExtra =
+      "module Extra where\n\nimport Standalone\n\nquad :: Int -> Int\nquad a = func (func a)\n";
+  static String pathToTestResources;
+
+  @TempDir Path project;
+
+  @BeforeAll
+  public static void setup() {
+    Path resourceDirectory = Paths.get("src", "test", "resources");
+    pathToTestResources = resourceDirectory.toFile().getAbsolutePath();
+  }
+
+  @Test
+  void resourcesAreGeneratedOnce() throws IOException {
+    AnalysisSession session = new AnalysisSession(pathToTestResources + "/haskell-project");
+
+    assertSame(session.getFileList(), session.getFileList());
+    assertSame(session.getParseTreeAnalysis(), session.getParseTreeAnalysis());
+    assertSame(session.getCallGraph(), session.getCallGraph());
+  }
+
+  @Test
+  void sessionsDoNotShareResources() throws IOException {
+    AnalysisSession haskellProject =
+        new AnalysisSession(pathToTestResources + "/haskell-project");
+    AnalysisSession callgraphProject =
+        new AnalysisSession(pathToTestResources + "/callgraph-project");
+
+    assertNotSame(haskellProject.getParseTreeAnalysis(), callgraphProject.getParseTreeAnalysis());
+    assertEquals(2, haskellProject.getFileList().getHaskellFiles().size());
+    assertEquals(
+        new Size(haskellProject).getSection(),
+        new Size(new AnalysisSession(pathToTestResources + "/haskell-project")).getSection());
+  }
+
+  @Test
+  void modulesOverParseBudgetAreOnlyLexed() throws IOException {
+    AnalysisSession session =
+        new AnalysisSession(
+            new FileList(pathToTestResources + "/haskell-project"),
+            List.of(MetricType.HALSTEAD, MetricType.PATTERNS),
+            1,
+            null,
+            null,
+            ParseMode.FULL,
+            new ParseBudget(0, 1));
+    ParseTreeAnalysis analysis = session.getParseTreeAnalysis();
+
+    assertEquals(2, analysis.getPartiallyAnalyzedModules().size());
+    for (ModuleSummary summary : analysis.getSummaryDict().values()) {
+      assertTrue(summary.partiallyAnalyzed);
+      assertNotNull(summary.halstead);
+      assertFalse(summary.halstead.operatorMap.isEmpty());
+      assertTrue(summary.functionPatterns.isEmpty());
+    }
+  }
+
+  @Test
+  void reportOnlyHasParserSectionWhenAskedFor() throws IOException {
+    String report =
+        new Report(new AnalysisSession(pathToTestResources + "/haskell-project")).generate();
+    assertFalse(report.contains("Parser statistics:"));
+
+    AnalysisSession budgeted =
+        new AnalysisSession(
+            new FileList(pathToTestResources + "/haskell-project"),
+            List.of(MetricType.PATTERNS),
+            1,
+            null,
+            null,
+            ParseMode.FULL,
+            new ParseBudget(0, 1));
+    String budgetedReport = new Report(budgeted).generate();
+    assertTrue(budgetedReport.contains("Modules over the parse budget (partially analyzed): 2"));
+    assertFalse(budgetedReport.contains("Modules parsed again with full LL prediction"));
+  }
+
+  @Test
+  void sessionIsParsedUnlessFastOrWithoutCollectors() {
+    assertTrue(new AnalysisSession(pathToTestResources + "/haskell-project").isParsed());
+    assertFalse(
+        new AnalysisSession(
+                new FileList(pathToTestResources + "/haskell-project"),
+                List.of(MetricType.PATTERNS),
+                1,
+                null,
+                null,
+                ParseMode.FAST,
+                ParseBudget.UNLIMITED)
+            .isParsed());
+  }
+
+  @Test
+  void updatedSessionGivesSameReportAsNewSession() throws IOException {
+    copyCallgraphProject();
+    AnalysisSession session = new AnalysisSession(project.toString());
+    Report report = new Report(session);
+    report.generate();
+
+    Path standalone = project.resolve("Standalone.hs");
+    Files.writeString(standalone, modifiedStandalone);
+    assertTrue(session.update(Set.of(standalone)));
+    assertEquals(generateNewReport(), report.generate());
+
+    Path extra = project.resolve("Extra.hs");
+    Files.writeString(extra, addedExtra);
+    assertTrue(session.update(Set.of(extra)));
+    assertEquals(generateNewReport(), report.generate());
+
+    Files.delete(project.resolve("Puzzles.hs"));
+    assertTrue(session.update(Set.of()));
+    assertEquals(generateNewReport(), report.generate());
+    assertFalse(session.update(Set.of()));
+  }
+
+  @Test
+  void rebuiltSessionGivesSameReportAsNewSession() throws IOException {
+    copyCallgraphProject();
+    AnalysisSession session = new AnalysisSession(project.toString());
+    Report report = new Report(session);
+    report.generate();
+
+    Files.writeString(project.resolve("Standalone.hs"), modifiedStandalone);
+    Files.writeString(project.resolve("Extra.hs"), addedExtra);
+    Files.delete(project.resolve("Generic.hs"));
+    session.rebuild();
+
+    assertEquals(generateNewReport(), report.generate());
+  }
+
+  /** Copy the Haskell modules of the callgraph project to the project directory of a test. */
+  private void copyCallgraphProject() throws IOException {
+    Path source = Path.of(pathToTestResources, "callgraph-project");
+    try (DirectoryStream<Path> modules = Files.newDirectoryStream(source, "*.hs")) {
+      for (Path module : modules) {
+        Files.copy(module, project.resolve(module.getFileName()));
+      }
+    }
+  }
+
+  /**
+   * Generate the report of the project directory of a test with a new session.
+   *
+   * @return String representing the report.
+   * @throws IOException if a file in the project cannot be read.
+   */
+  private String generateNewReport() throws IOException {
+    return new Report(new AnalysisSession(project.toString())).generate();
+  }
+}
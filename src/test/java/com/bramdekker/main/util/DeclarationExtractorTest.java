@@ -0,0 +1,61 @@
+package com.bramdekker.main.util;
+
+import antlr.HaskellParser;
+import com.bramdekker.main.resources.CompactTree;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.TerminalNodeImpl;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class DeclarationExtractorTest {
+
+  @Test
+  void extractorBuildsModuleNameFromModuleHeader() {
+    HaskellParser.Module_contentContext content = new HaskellParser.Module_contentContext(null, 0);
+    ParserRuleContext modid = new ParserRuleContext(content, 0);
+    content.addChild(new TerminalNodeImpl(new CommonToken(1, "module")));
+    content.addChild(modid);
+    modid.addChild(new TerminalNodeImpl(new CommonToken(1, "Data")));
+    modid.addChild(new TerminalNodeImpl(new CommonToken(1, ".")));
+    modid.addChild(new TerminalNodeImpl(new CommonToken(1, "Tree")));
+
+    DeclarationExtractor declarations = new DeclarationExtractor();
+    CompactTreeWalker.walk(declarations, CompactTree.of(content));
+
+    assertEquals("Data.Tree", declarations.getModuleName());
+    assertEquals("Data.", declarations.getModulePrefix());
+  }
+
+  @Test
+  void topLevelInfixexpIsFunction() {
+    HaskellParser.TopdeclsContext topdecls = new HaskellParser.TopdeclsContext(null, 0);
+    HaskellParser.TopdeclContext topdecl = new HaskellParser.TopdeclContext(topdecls, 0);
+    HaskellParser.Decl_no_thContext decl = new HaskellParser.Decl_no_thContext(topdecl, 0);
+    HaskellParser.InfixexpContext infixexp = new HaskellParser.InfixexpContext(decl, 0);
+    topdecls.addChild(topdecl);
+    topdecl.addChild(decl);
+    decl.addChild(infixexp);
+    CompactTree tree = CompactTree.of(topdecls);
+
+    // The nodes are numbered in the order of the walk: topdecls, topdecl, decl, infixexp.
+    DeclarationExtractor declarations = new DeclarationExtractor();
+    declarations.enterRule(tree, 3);
+
+    assertEquals(DeclarationKind.FUNCTION, declarations.getCurrentKind());
+    assertNull(DeclarationKind.of(tree, 2));
+  }
+
+  @Test
+  void patternOfCaseAlternativeIsCase() {
+    HaskellParser.AltsContext alts = new HaskellParser.AltsContext(null, 0);
+    HaskellParser.AltContext alt = new HaskellParser.AltContext(alts, 0);
+    alts.addChild(alt);
+    alt.addChild(new HaskellParser.PatContext(alt, 0));
+
+    assertEquals(DeclarationKind.CASE, DeclarationKind.of(CompactTree.of(alts), 2));
+    assertNull(DeclarationKind.of(CompactTree.of(new HaskellParser.PatContext(null, 0)), 0));
+  }
+}
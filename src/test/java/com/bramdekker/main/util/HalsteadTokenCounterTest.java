@@ -0,0 +1,42 @@
+package com.bramdekker.main.util;
+
+import com.bramdekker.main.resources.HalsteadResult;
+import com.bramdekker.main.resources.SourceFile;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HalsteadTokenCounterTest {
+
+  @Test
+  void countSplitsTokensIntoOperatorsAndOperands() {
+    HalsteadResult result = count("square x = x * x\n");
+
+    assertEquals(Map.of("=", 1, "*", 1), result.operatorMap);
+    assertEquals(Map.of("square", 1, "x", 3), result.operandMap);
+  }
+
+  @Test
+  void countTreatsRecursiveCallAsOperator() {
+    HalsteadResult result = count("f n = f (n - 1)\n");
+
+    assertEquals(Map.of("=", 1, "f", 1, "(", 1, "-", 1), result.operatorMap);
+    assertEquals(Map.of("f", 1, "n", 2, "1", 1), result.operandMap);
+  }
+
+  @Test
+  void countJoinsAdjacentSymbolsAndIgnoresComments() {
+    HalsteadResult result = count("-- compare\nsame a b = a == b {- equal -}\n");
+
+    assertEquals(Map.of("=", 1, "==", 1), result.operatorMap);
+    assertEquals(Map.of("same", 1, "a", 2, "b", 2), result.operandMap);
+  }
+
+  private static HalsteadResult count(String contents) {
+    return HalsteadTokenCounter.count(
+        "Main.hs", new SourceFile(contents.getBytes(StandardCharsets.UTF_8)));
+  }
+}
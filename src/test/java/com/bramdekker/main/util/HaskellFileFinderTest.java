@@ -0,0 +1,49 @@
+package com.bramdekker.main.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HaskellFileFinderTest {
+  @TempDir Path root;
+
+  @Test
+  void findReturnsHaskellFilesInAllSubdirectories() throws IOException {
+    createFiles("Main.hs", "src/Lib.hs", "src/internal/Util.hs", "docs/notes.txt");
+
+    List<File> haskellFiles = HaskellFileFinder.find(root, 1);
+
+    assertEquals(3, haskellFiles.size());
+    assertTrue(haskellFiles.contains(root.resolve("src/internal/Util.hs").toFile()));
+  }
+
+  @Test
+  void findReturnsFilesOfDirectoryBeforeFilesOfSubdirectories() throws IOException {
+    createFiles("src/Lib.hs", "Main.hs");
+
+    assertEquals(root.resolve("Main.hs").toFile(), HaskellFileFinder.find(root, 1).get(0));
+  }
+
+  @Test
+  void parallelFindReturnsSameFilesInSameOrder() throws IOException {
+    createFiles("A.hs", "a/B.hs", "a/b/C.hs", "a/b/c/D.hs", "e/E.hs", "e/F.hs", "g/h/G.hs");
+
+    assertEquals(HaskellFileFinder.find(root, 1), HaskellFileFinder.find(root, 4));
+  }
+
+  private void createFiles(String... pathnames) throws IOException {
+    for (String pathname : pathnames) {
+      Path file = root.resolve(pathname);
+      Files.createDirectories(file.getParent());
+      Files.createFile(file);
+    }
+  }
+}
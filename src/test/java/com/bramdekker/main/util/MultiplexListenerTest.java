@@ -0,0 +1,42 @@
+package com.bramdekker.main.util;
+
+import com.bramdekker.main.resources.CompactTree;
+import com.bramdekker.main.resources.ModuleSummary;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.TerminalNodeImpl;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MultiplexListenerTest {
+  static CompactTree tree;
+
+  @BeforeAll
+  public static void setup() {
+    ParserRuleContext root = new ParserRuleContext();
+    ParserRuleContext child = new ParserRuleContext(root, 0);
+    root.addChild(child);
+    child.addChild(new TerminalNodeImpl(new CommonToken(1, "x")));
+    root.addChild(new TerminalNodeImpl(new CommonToken(1, "y")));
+    tree = CompactTree.of(root);
+  }
+
+  @Test
+  void everyListenerReceivesAllEvents() {
+    ParseTreeSizeCollector first = new ParseTreeSizeCollector();
+    ParseTreeSizeCollector second = new ParseTreeSizeCollector();
+    CompactTreeWalker.walk(new MultiplexListener(List.of(first, second)), tree);
+
+    ModuleSummary firstSummary = new ModuleSummary("first");
+    ModuleSummary secondSummary = new ModuleSummary("second");
+    first.collectInto(firstSummary);
+    second.collectInto(secondSummary);
+
+    assertEquals(4, firstSummary.parseTreeSize);
+    assertEquals(4, secondSummary.parseTreeSize);
+  }
+}
@@ -87,4 +87,74 @@ class ValidatorTest {
     assertThrows(
         InvalidPathnameException.class, () -> new Validator().validate(new String[] {dir}));
   }
+
+  @Test
+  void validateSucceedsWhenBatchContainsInvalidProject()
+      throws InvalidPathnameException, InvalidCommandException {
+    String dir = pathToTestResources + "/haskell-project";
+    assertTrue(new Validator().validate(new String[] {"--batch", dir, "qwlieurjhsadg"}));
+  }
+
+  @Test
+  void validateFailsWhenBatchFlagFollowsPathname() {
+    String dir = pathToTestResources + "/haskell-project";
+    assertThrows(
+        InvalidCommandException.class,
+        () -> new Validator().validate(new String[] {"--batch", dir, "-sz", dir}));
+  }
+
+  @Test
+  void validateFailsWhenBatchHasNoPathname() {
+    assertThrows(
+        InvalidCommandException.class, () -> new Validator().validate(new String[] {"--batch"}));
+  }
+
+  @Test
+  void validateFailsWhenManifestDoesNotExist() {
+    assertThrows(
+        InvalidPathnameException.class,
+        () -> new Validator().validate(new String[] {"--manifest=qwlieurjhsadg"}));
+  }
+
+  @Test
+  void getHaskellFilesReturnsFilesFoundWhileValidating()
+      throws InvalidPathnameException, InvalidCommandException {
+    String dir = pathToTestResources + "/haskell-project";
+    Validator validator = new Validator();
+    validator.validate(new String[] {dir});
+
+    assertEquals(2, validator.getHaskellFiles().size());
+  }
+
+  @Test
+  void getHaskellFilesReturnsFilesFoundWithThreadsFlag()
+      throws InvalidPathnameException, InvalidCommandException {
+    String dir = pathToTestResources + "/callgraph-project";
+    Validator validator = new Validator();
+    validator.validate(new String[] {"--threads=1", dir});
+
+    assertEquals(4, validator.getHaskellFiles().size());
+  }
+
+  @Test
+  void validateThrowsWhenThreadsFlagIsInvalid() {
+    String dir = pathToTestResources + "/callgraph-project";
+    assertThrows(
+        InvalidCommandException.class,
+        () -> new Validator().validate(new String[] {"--threads=0", dir}));
+    assertThrows(
+        InvalidCommandException.class,
+        () -> new Validator().validate(new String[] {"--threads=many", dir}));
+  }
+
+  @Test
+  void validatePathnameFindsSameFilesWithOneThread() throws InvalidPathnameException {
+    String dir = pathToTestResources + "/callgraph-project";
+    Validator validator = new Validator(1);
+    validator.validatePathname(dir);
+    Validator parallelValidator = new Validator(4);
+    parallelValidator.validatePathname(dir);
+
+    assertEquals(parallelValidator.getHaskellFiles(), validator.getHaskellFiles());
+  }
 }
@@ -0,0 +1,105 @@
+package com.bramdekker.main.watcher;
+
+import com.bramdekker.main.report.Report;
+import com.bramdekker.main.session.AnalysisSession;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WatcherTest {
+  static final long timeoutMillis = 30_000;
+  private final BlockingQueue<String> output = new LinkedBlockingQueue<>();
+
+  @TempDir Path project;
+
+  @Test
+  void watcherGivesSameReportAsNewSession() throws IOException, InterruptedException {
+    Path source = Paths.get("src", "test", "resources", "callgraph-project");
+    try (DirectoryStream<Path> modules = Files.newDirectoryStream(source, "*.hs")) {
+      for (Path module : modules) {
+        Files.copy(module, project.resolve(module.getFileName()));
+      }
+    }
+    Watcher watcher = new Watcher(new AnalysisSession(project.toString()), output::add);
+    Thread thread =
+        new Thread(
+            () -> {
+              try {
+                watcher.watch();
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            });
+    thread.start();
+
+    try {
+      assertEquals(generateNewReport(), output.poll(timeoutMillis, TimeUnit.MILLISECONDS));
+      // The project is only watched after this message.
+      assertEquals(
+          String.format("Watching for changes...%n"),
+          output.poll(timeoutMillis, TimeUnit.MILLISECONDS));
+
+      Files.writeString(
+          project.resolve("Standalone.hs"),
+          "module Standalone where\n\nimport Generic\n\nfunc a = length' [a]\n");
+      String expected = generateNewReport();
+      assertEquals(expected, awaitReport(expected));
+
+      Files.writeString(
+          project.resolve("Extra.hs"),
+          "module Extra where\n\nimport Standalone\n\nquad a = func (func a)\n");
+      expected = generateNewReport();
+      assertEquals(expected, awaitReport(expected));
+
+      Files.delete(project.resolve("Puzzles.hs"));
+      expected = generateNewReport();
+      assertEquals(expected, awaitReport(expected));
+    } finally {
+      thread.interrupt();
+      thread.join();
+    }
+  }
+
+  /**
+   * Wait until the watcher displays a report. A single change can be displayed more than once
+   * when its events do not arrive together, so older reports are skipped.
+   *
+   * @param expected the report that the watcher should display eventually.
+   * @return the expected report or the last report displayed before the timeout.
+   * @throws InterruptedException if the test is interrupted while waiting.
+   */
+  private String awaitReport(String expected) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + timeoutMillis;
+    String report = null;
+    while (!expected.equals(report)) {
+      String next = output.poll(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+      if (next == null) {
+        break;
+      }
+      report = next;
+    }
+
+    return report;
+  }
+
+  /**
+   * Generate the report of the project directory of the test with a new session.
+   *
+   * @return String representing the report.
+   * @throws IOException if a file in the project cannot be read.
+   */
+  private String generateNewReport() throws IOException {
+    return new Report(new AnalysisSession(project.toString())).generate();
+  }
+}